@@ -0,0 +1,88 @@
+package com.tuum.common.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.tuum.common.dto.mq.CreateTransactionEvent;
+import com.tuum.common.types.Currency;
+import com.tuum.common.types.TransactionDirection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of a transaction command in each wire format. {@code jsonString} is the
+ * path the services used before {@link MessageCodecs}: a JSON string, then its UTF-8 bytes.
+ * <p>
+ * Run with {@code gradle :common-lib:jmh -PjmhArgs='MessageCodecBenchmark'}; body sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageCodecBenchmark {
+
+    private ObjectMapper objectMapper;
+    private MessageCodec json;
+    private MessageCodec smile;
+    private CreateTransactionEvent event;
+    private byte[] jsonBody;
+    private byte[] smileBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        MessageCodecs codecs = new MessageCodecs(objectMapper, "json");
+        json = codecs.forContentType(MessageCodecs.JSON);
+        smile = codecs.forContentType(MessageCodecs.SMILE);
+        LocalDateTime now = LocalDateTime.of(2025, 1, 15, 10, 30, 0, 123_000_000);
+        event = new CreateTransactionEvent("REQ_6f1c2a9e4b7d", "7d3e9b1c-52a4-4f0e-9c61-2b8a4e5d7f10",
+                "TXN_1736937000123_4821", "ACC_1736936000456_1177", "BAL_1736936000457_9034",
+                new BigDecimal("125.50"), Currency.EUR, TransactionDirection.OUT, "Card payment",
+                new BigDecimal("874.50"), "PENDING", null, now, now, null);
+        jsonBody = json.encode(event);
+        smileBody = smile.encode(event);
+        System.out.printf("%nBody size: json %d bytes, smile %d bytes%n", jsonBody.length, smileBody.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJsonString() throws IOException {
+        return objectMapper.writeValueAsString(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return json.encode(event);
+    }
+
+    @Benchmark
+    public byte[] encodeSmile() throws IOException {
+        return smile.encode(event);
+    }
+
+    @Benchmark
+    public CreateTransactionEvent decodeJsonString() throws IOException {
+        return objectMapper.readValue(new String(jsonBody, StandardCharsets.UTF_8), CreateTransactionEvent.class);
+    }
+
+    @Benchmark
+    public CreateTransactionEvent decodeJson() throws IOException {
+        return json.decode(jsonBody, CreateTransactionEvent.class);
+    }
+
+    @Benchmark
+    public CreateTransactionEvent decodeSmile() throws IOException {
+        return smile.decode(smileBody, CreateTransactionEvent.class);
+    }
+}
@@ -1,18 +1,17 @@
 package com.tuum.common.adapter;
 
 import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.types.RabbitMQConfig;
 import com.tuum.common.types.RequestType;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.stereotype.Component;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 @Component
 public class AmqpMessageAdapter implements MessageAdapter {
 
-     private Map<String, Object> headers;
     @Override
     public MQMessageData adapt(Object rawMessage) throws Exception {
         if (!(rawMessage instanceof Message)) {
@@ -20,18 +19,23 @@ public class AmqpMessageAdapter implements MessageAdapter {
         }
 
         Message message = (Message) rawMessage;
-        String messageBody = new String(message.getBody(), StandardCharsets.UTF_8);
         MessageProperties props = message.getMessageProperties();
-        headers = props.getHeaders();
-        String requestTypeCode  = getSafeHeader( "request-type");
-        String idmKey           = getSafeHeader("idempotency-key");
-        String requestID        = getSafeHeader("request-id");
-        String status           = getSafeHeader("status");
+        // Local, since listener containers with several consumers share this adapter
+        Map<String, Object> headers = props.getHeaders();
+        String requestTypeCode  = getSafeHeader(headers, "request-type");
+        String idmKey           = getSafeHeader(headers, "idempotency-key");
+        String requestID        = getSafeHeader(headers, "request-id");
+        String status           = getSafeHeader(headers, "status");
+        String replyTo          = headers != null && headers.get("reply-to") != null
+                ? headers.get("reply-to").toString()
+                : props.getReplyTo();
         RequestType requestType = RequestType.fromCode(requestTypeCode);
-        return new MQMessageData(requestType, idmKey, requestID,status, messageBody);
+        Object retryAttempt = headers != null ? headers.get(RabbitMQConfig.RETRY_ATTEMPT_HEADER.getValue()) : null;
+        return new MQMessageData(requestType, idmKey, requestID,status, message.getBody(), props.getContentType(), replyTo,
+                retryAttempt instanceof Number number ? number.intValue() : 0);
     }
 
-    private String getSafeHeader(String key) {
+    private String getSafeHeader(Map<String, Object> headers, String key) {
         if (headers == null || !headers.containsKey(key) || headers.get(key) == null) {
             return "UNKNOWN";
         }
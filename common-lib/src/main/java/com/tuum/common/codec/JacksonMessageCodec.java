@@ -0,0 +1,34 @@
+package com.tuum.common.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * {@link MessageCodec} over a Jackson {@link ObjectMapper}; the mapper's factory decides the format.
+ */
+public class JacksonMessageCodec implements MessageCodec {
+
+    private final String contentType;
+    private final ObjectMapper objectMapper;
+
+    public JacksonMessageCodec(String contentType, ObjectMapper objectMapper) {
+        this.contentType = contentType;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String contentType() {
+        return contentType;
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] body, Class<T> type) throws IOException {
+        return objectMapper.readValue(body, type);
+    }
+}
@@ -0,0 +1,15 @@
+package com.tuum.common.codec;
+
+import java.io.IOException;
+
+/**
+ * Encodes MQ event bodies in one wire format, identified by the {@code content-type} it is sent with.
+ */
+public interface MessageCodec {
+
+    String contentType();
+
+    byte[] encode(Object value) throws IOException;
+
+    <T> T decode(byte[] body, Class<T> type) throws IOException;
+}
@@ -0,0 +1,67 @@
+package com.tuum.common.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.tuum.common.dto.mq.MQMessageData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The wire formats MQ event bodies can be sent in, chosen per message by its {@code content-type}:
+ * JSON ({@value #JSON}) and Smile ({@value #SMILE}), Jackson's binary JSON. Smile uses the
+ * application's {@link ObjectMapper} configuration, so both formats map the DTOs the same way.
+ * <p>
+ * Messages are always decoded with the codec of their own content type, and a message without a
+ * known one as JSON, so both formats can be in flight at once. Commands are published in the format
+ * of {@code tuum.mq.codec}, and the consumer replies in the format of the command it answers. To roll
+ * Smile out, deploy every service first, then switch the publishers' {@code tuum.mq.codec} to {@code smile}.
+ */
+@Component
+public class MessageCodecs {
+
+    public static final String JSON = "application/json";
+    public static final String SMILE = "application/x-jackson-smile";
+
+    private final MessageCodec json;
+    private final Map<String, MessageCodec> codecs;
+    private final MessageCodec outbound;
+
+    public MessageCodecs(ObjectMapper objectMapper, @Value("${tuum.mq.codec:json}") String outboundCodec) {
+        this.json = new JacksonMessageCodec(JSON, objectMapper);
+        MessageCodec smile = new JacksonMessageCodec(SMILE, objectMapper.copyWith(new SmileFactory()));
+        this.codecs = Map.of(JSON, json, SMILE, smile);
+        this.outbound = switch (outboundCodec.toLowerCase(Locale.ROOT)) {
+            case "json" -> json;
+            case "smile" -> smile;
+            default -> throw new IllegalArgumentException("Unknown tuum.mq.codec: " + outboundCodec);
+        };
+    }
+
+    /**
+     * Codec new commands are published with.
+     */
+    public MessageCodec outbound() {
+        return outbound;
+    }
+
+    /**
+     * Codec for a message of {@code contentType}; JSON when it is missing or unknown, as it is for
+     * messages from publishers that predate content-type negotiation.
+     */
+    public MessageCodec forContentType(String contentType) {
+        if (contentType == null) {
+            return json;
+        }
+        int parameters = contentType.indexOf(';');
+        String mediaType = (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim().toLowerCase(Locale.ROOT);
+        return codecs.getOrDefault(mediaType, json);
+    }
+
+    public <T> T decode(MQMessageData messageData, Class<T> type) throws IOException {
+        return forContentType(messageData.getContentType()).decode(messageData.getBody(), type);
+    }
+}
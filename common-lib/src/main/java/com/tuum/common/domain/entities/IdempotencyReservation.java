@@ -0,0 +1,24 @@
+package com.tuum.common.domain.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyReservation {
+
+    private String idempotencyKey;
+    private String ownerId;
+    private String status;
+    private String resourceType;
+    private String resourceId;
+    private String errorCode;
+    private String errorMessage;
+    private LocalDateTime reservedAt;
+    private LocalDateTime updatedAt;
+    private boolean leaseExpired;
+}
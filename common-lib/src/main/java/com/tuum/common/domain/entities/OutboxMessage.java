@@ -0,0 +1,21 @@
+package com.tuum.common.domain.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMessage {
+
+    private Long id;
+    private String exchange;
+    private String routingKey;
+    private String headers;
+    private String contentType;
+    private byte[] body;
+    private LocalDateTime createdAt;
+}
@@ -14,7 +14,13 @@ public class MQMessageData {
     private  String idempotencyKey;
     private  String requestId;
     private  String status;
-    private  String messageBody;
+    private  byte[] body;
+    /** Wire format of {@link #body}, see {@link com.tuum.common.codec.MessageCodecs}; {@code null} for JSON. */
+    private  String contentType;
+    /** Queue the reply must be sent to, or {@code null} to reply through the shared notification queues. */
+    private  String replyTo;
+    /** Earlier attempts of this command that failed transiently and were retried; 0 on first delivery. */
+    private  int retryAttempt;
 
 
 }
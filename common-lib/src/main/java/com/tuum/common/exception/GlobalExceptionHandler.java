@@ -5,6 +5,7 @@ import com.tuum.common.dto.ErrorResponse;
 import com.tuum.common.dto.mq.ErrorNotification;
 import com.tuum.common.util.TraceIdGenerator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -39,6 +40,23 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(ex.getHttpStatus()).body(errorResponse);
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloadedException(ServiceOverloadedException ex, WebRequest request) {
+        String traceId = TraceIdGenerator.generateTraceId();
+        log.warn("Request shed [{}]: {}", traceId, ex.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .traceId(traceId)
+                .error(ex.getErrorCode())
+                .message(ex.getMessage())
+                .status(ex.getHttpStatus())
+                .timestamp(LocalDateTime.now())
+                .path(request.getDescription(false))
+                .build();
+        return ResponseEntity.status(ex.getHttpStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleResourceNotFoundException(ResourceNotFoundException ex, WebRequest request) {
         String traceId = TraceIdGenerator.generateTraceId();
@@ -0,0 +1,12 @@
+package com.tuum.common.exception;
+
+/**
+ * Thrown by a message handler when processing failed transiently and the command should be
+ * delivered again later instead of being reported to the client as failed.
+ */
+public class RetryableMessageException extends RuntimeException {
+
+    public RetryableMessageException(Throwable cause) {
+        super(cause.getMessage(), cause);
+    }
+}
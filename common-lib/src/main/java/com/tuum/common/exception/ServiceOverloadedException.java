@@ -0,0 +1,19 @@
+package com.tuum.common.exception;
+
+import com.tuum.common.types.ErrorCode;
+import lombok.Getter;
+
+/**
+ * Thrown when a command is shed because too many commands are already in flight.
+ * Rendered as 503 with a {@code Retry-After} header.
+ */
+@Getter
+public class ServiceOverloadedException extends BusinessException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message, ErrorCode.SERVICE_OVERLOADED.getCode(), ErrorCode.SERVICE_OVERLOADED.getHttpStatus());
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -36,6 +36,7 @@ public enum ErrorCode {
     MESSAGE_QUEUE_ERROR("MESSAGE_QUEUE_ERROR", 500, "Message queue operation failed"),
     PROCESSING_ERROR("PROCESSING_ERROR", 500, "Processing failed"),
     TIMEOUT_ERROR("TIMEOUT_ERROR", 408, "Request timed out"),
+    SERVICE_OVERLOADED("SERVICE_OVERLOADED", 503, "Too many requests in flight, retry later"),
     
     // External service errors (6000-6999)
     EXTERNAL_SERVICE_UNAVAILABLE("EXTERNAL_SERVICE_UNAVAILABLE", 503, "External service is unavailable"),
@@ -7,6 +7,10 @@ public enum RabbitMQConfig {
 
     // === Exchange ===
     TUUM_BANKING_EXCHANGE("tuum.banking"),
+    // Delay queues dead-letter here; each command queue is bound with its own name as routing key
+    RETRY_REQUEUE_EXCHANGE("tuum.retry.requeue"),
+    DEAD_LETTER_EXCHANGE("tuum.dead-letter"),
+    PARKING_LOT_QUEUE("tuum.parking-lot"),
 
     ACCOUNTS_EVENTS_QUEUE("accounts-events-queue"),
     ACCOUNTS_ERRORS_QUEUE("accounts-errors-queue"),
@@ -30,7 +34,10 @@ public enum RabbitMQConfig {
 
     TRANSACTIONS_CREATED_ROUTING_KEY("transactions.events.created"),
     TRANSACTIONS_PROCESSED_ROUTING_KEY("transactions.notifications.processed"),
-    TRANSACTIONS_ERROR_ROUTING_KEY("transactions.errors.processing");
+    TRANSACTIONS_ERROR_ROUTING_KEY("transactions.errors.processing"),
+
+    // Number of earlier attempts of a retried command
+    RETRY_ATTEMPT_HEADER("retry-attempt");
 
     private final String value;
 
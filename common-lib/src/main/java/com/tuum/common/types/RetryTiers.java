@@ -0,0 +1,48 @@
+package com.tuum.common.types;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Delay tiers for commands that failed transiently. Each tier is a fanout exchange and a queue of
+ * the same name whose messages expire after the tier's delay and are then dead-lettered to
+ * {@link RabbitMQConfig#RETRY_REQUEUE_EXCHANGE}. A retried command is published to its tier with the
+ * name of the queue it came from as routing key, so it returns to exactly that queue, the same
+ * partition queue for transaction commands.
+ * <p>
+ * Must match the tiers in {@code rmq-config/definitions.json}.
+ */
+public final class RetryTiers {
+
+    private static final long[] DELAYS_MILLIS = {1_000, 10_000, 60_000};
+
+    private RetryTiers() {
+    }
+
+    public static int count() {
+        return DELAYS_MILLIS.length;
+    }
+
+    /**
+     * Tier for the {@code retryAttempt}-th retry (1-based); later retries stay on the last tier.
+     */
+    public static int tierFor(int retryAttempt) {
+        return Math.min(Math.max(retryAttempt, 1), DELAYS_MILLIS.length) - 1;
+    }
+
+    public static String name(int tier) {
+        return "tuum.retry." + DELAYS_MILLIS[tier] / 1000 + "s";
+    }
+
+    public static List<String> names() {
+        return IntStream.range(0, DELAYS_MILLIS.length).mapToObj(RetryTiers::name).toList();
+    }
+
+    public static Map<String, Object> queueArguments(int tier) {
+        return Map.of(
+                "x-message-ttl", DELAYS_MILLIS[tier],
+                "x-dead-letter-exchange", RabbitMQConfig.RETRY_REQUEUE_EXCHANGE.getValue()
+        );
+    }
+}
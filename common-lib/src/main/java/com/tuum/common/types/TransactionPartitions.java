@@ -0,0 +1,56 @@
+package com.tuum.common.types;
+
+import com.tuum.common.util.JumpConsistentHash;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Transaction commands are spread over {@code tuum.transactions.partitions} queues by a consistent
+ * hash of the account id, so all commands for one account land on the same queue. Each partition
+ * queue is a single-active-consumer queue: across all consumer instances only one consumer takes
+ * deliveries from it at a time, which keeps every account's commands strictly ordered.
+ * <p>
+ * Partition routing keys have four words and so do not match {@link RabbitMQConfig#TRANSACTIONS_EVENTS_ROUTING_KEY}.
+ */
+public final class TransactionPartitions {
+
+    private static final String QUEUE_PREFIX = RabbitMQConfig.TRANSACTIONS_EVENTS_QUEUE.getValue() + ".";
+    private static final String ROUTING_KEY_PREFIX = "transactions.events.partition.";
+
+    private TransactionPartitions() {
+    }
+
+    public static int partitionOf(String accountId, int partitions) {
+        return JumpConsistentHash.bucket(accountId, partitions);
+    }
+
+    public static String queueName(int partition) {
+        return QUEUE_PREFIX + partition;
+    }
+
+    public static String routingKey(int partition) {
+        return ROUTING_KEY_PREFIX + partition;
+    }
+
+    public static List<String> queueNames(int partitions) {
+        return IntStream.range(0, partitions).mapToObj(TransactionPartitions::queueName).toList();
+    }
+
+    /**
+     * Arguments every partition queue is declared with; the same limits as the other events queues.
+     * A full queue rejects new publishes, which the publisher sees as a nack, rather than dropping its oldest commands.
+     * {@code reject-publish-dlx} also dead-letters what it rejects, through the queue's dead-letter policy, to
+     * the parking lot: a retried command comes back from its delay queue by dead-lettering, which has no
+     * publisher to nack, so under plain {@code reject-publish} a full queue would silently drop it.
+     */
+    public static Map<String, Object> queueArguments() {
+        return Map.of(
+                "x-single-active-consumer", true,
+                "x-message-ttl", 300000,
+                "x-max-length", 1000,
+                "x-overflow", "reject-publish-dlx"
+        );
+    }
+}
@@ -0,0 +1,93 @@
+package com.tuum.common.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe Bloom filter over string keys. {@link #mightContain} never returns {@code false} for
+ * a key that was {@link #put}; it returns {@code true} for a key that was not put with roughly the
+ * false-positive probability the filter was sized for.
+ * <p>
+ * Bit positions come from one 128-bit {@link Murmur3} hash split into two 64-bit halves and
+ * combined by double hashing. Bits are set with CAS, so puts and lookups need no lock.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * Sizes the filter for {@code expectedInsertions} keys at {@code falsePositiveRate}.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive: " + expectedInsertions);
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) >>> 6));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount << 6;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    public void put(String key) {
+        long[] hash = Murmur3.hash128(key);
+        long combined = hash[0];
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = (combined & Long.MAX_VALUE) % bitCount;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+            combined += hash[1];
+        }
+        insertions.increment();
+    }
+
+    public boolean mightContain(String key) {
+        long[] hash = Murmur3.hash128(key);
+        long combined = hash[0];
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = (combined & Long.MAX_VALUE) % bitCount;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            combined += hash[1];
+        }
+        return true;
+    }
+
+    /**
+     * Probability that {@link #mightContain} answers {@code true} for a key that was never put,
+     * estimated from the fraction of bits currently set.
+     */
+    public double expectedFalsePositiveRate() {
+        long setBits = 0;
+        for (int i = 0; i < words.length(); i++) {
+            setBits += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) setBits / bitCount, hashFunctions);
+    }
+
+    /**
+     * Number of {@link #put} calls, including repeated keys.
+     */
+    public long insertions() {
+        return insertions.sum();
+    }
+
+    public long bitSize() {
+        return bitCount;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+}
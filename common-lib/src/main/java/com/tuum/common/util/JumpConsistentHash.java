@@ -0,0 +1,30 @@
+package com.tuum.common.util;
+
+/**
+ * Jump consistent hash (Lamping and Veach, 2014): maps a key to one of {@code buckets} buckets so that
+ * growing from {@code n} to {@code n + 1} buckets moves only about {@code 1 / (n + 1)} of the keys,
+ * all of them into the new bucket. Needs no ring or lookup table.
+ */
+public final class JumpConsistentHash {
+
+    private JumpConsistentHash() {
+    }
+
+    public static int bucket(String key, int buckets) {
+        return bucket(Murmur3.hash128(key)[0], buckets);
+    }
+
+    public static int bucket(long key, int buckets) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("buckets must be positive: " + buckets);
+        }
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
@@ -0,0 +1,107 @@
+package com.tuum.common.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides the consumer count and prefetch of a queue listener from periodic samples of its queue
+ * depth, consumer utilization and throughput.
+ * <ul>
+ *   <li>Consumers grow by half (at least one) while the backlog exceeds {@code backlogPerConsumer}
+ *   per consumer and the consumers are busy, and shrink by one after {@code quietSamples}
+ *   consecutive samples with little backlog and idle consumers. Ordered listeners keep their
+ *   consumer count, since a second consumer would break the order of their queue.</li>
+ *   <li>Prefetch is sized to about {@code prefetchSeconds} of work per consumer at the measured
+ *   rate, and only changed when the target is at least twice or at most half the current value,
+ *   because applying it restarts the listener's consumers.</li>
+ * </ul>
+ * Keeps the quiet-sample streak per listener, so one instance serves all listeners of a service.
+ */
+public final class ListenerScalingPolicy {
+
+    private final int minConsumers;
+    private final int maxConsumers;
+    private final int minPrefetch;
+    private final int maxPrefetch;
+    private final long backlogPerConsumer;
+    private final double highUtilization;
+    private final double lowUtilization;
+    private final double prefetchSeconds;
+    private final int quietSamples;
+    private final Map<String, Integer> quietStreaks = new ConcurrentHashMap<>();
+
+    public ListenerScalingPolicy(int minConsumers, int maxConsumers, int minPrefetch, int maxPrefetch,
+                                 long backlogPerConsumer, double highUtilization, double lowUtilization,
+                                 double prefetchSeconds, int quietSamples) {
+        if (minConsumers < 1 || maxConsumers < minConsumers) {
+            throw new IllegalArgumentException("Invalid consumer bounds: " + minConsumers + ".." + maxConsumers);
+        }
+        if (minPrefetch < 1 || maxPrefetch < minPrefetch) {
+            throw new IllegalArgumentException("Invalid prefetch bounds: " + minPrefetch + ".." + maxPrefetch);
+        }
+        this.minConsumers = minConsumers;
+        this.maxConsumers = maxConsumers;
+        this.minPrefetch = minPrefetch;
+        this.maxPrefetch = maxPrefetch;
+        this.backlogPerConsumer = backlogPerConsumer;
+        this.highUtilization = highUtilization;
+        this.lowUtilization = lowUtilization;
+        this.prefetchSeconds = prefetchSeconds;
+        this.quietSamples = quietSamples;
+    }
+
+    /**
+     * @param listener identifies the listener across samples
+     */
+    public Decision decide(String listener, Sample sample) {
+        int consumers = sample.consumers();
+        String reason = "steady";
+        boolean busy = Double.isNaN(sample.utilization()) || sample.utilization() >= highUtilization;
+        boolean quiet = sample.queueDepth() < backlogPerConsumer
+                && !Double.isNaN(sample.utilization()) && sample.utilization() < lowUtilization;
+        int streak = quiet ? quietStreaks.merge(listener, 1, Integer::sum) : 0;
+        if (!quiet) {
+            quietStreaks.remove(listener);
+        }
+
+        if (sample.ordered()) {
+            reason = "ordered";
+        } else if (sample.queueDepth() > (long) consumers * backlogPerConsumer && busy && consumers < maxConsumers) {
+            consumers = Math.min(maxConsumers, consumers + Math.max(1, consumers / 2));
+            reason = "backlog";
+        } else if (streak >= quietSamples && consumers > minConsumers) {
+            consumers--;
+            quietStreaks.remove(listener);
+            reason = "idle";
+        }
+        if (!sample.ordered()) {
+            consumers = Math.max(minConsumers, Math.min(maxConsumers, consumers));
+        }
+
+        return new Decision(consumers, prefetch(sample), reason);
+    }
+
+    private int prefetch(Sample sample) {
+        if (sample.messagesPerSecond() <= 0 || Double.isNaN(sample.messagesPerSecond())) {
+            return sample.prefetch();
+        }
+        double perConsumer = sample.messagesPerSecond() / Math.max(1, sample.consumers());
+        int target = (int) Math.max(minPrefetch, Math.min(maxPrefetch, Math.ceil(perConsumer * prefetchSeconds)));
+        if (target >= sample.prefetch() * 2L || target * 2L <= sample.prefetch()) {
+            return target;
+        }
+        return sample.prefetch();
+    }
+
+    /**
+     * @param utilization share of the sampling interval the consumers spent in the listener, or
+     *                    {@code NaN} if unknown
+     * @param ordered     whether the queue must be consumed by a single consumer
+     */
+    public record Sample(long queueDepth, int consumers, int prefetch, double utilization,
+                         double messagesPerSecond, boolean ordered) {
+    }
+
+    public record Decision(int consumers, int prefetch, String reason) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.tuum.common.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MurmurHash3 x64 128-bit variant. Used to turn keys into compact fingerprints for in-memory
+ * de-duplication tables and filters; it is not a cryptographic hash.
+ */
+public final class Murmur3 {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private Murmur3() {
+    }
+
+    /**
+     * Hashes the UTF-8 bytes of {@code key}. Returns {@code {h1, h2}}.
+     */
+    public static long[] hash128(String key) {
+        return hash128(key.getBytes(StandardCharsets.UTF_8), 0);
+    }
+
+    @SuppressWarnings("fallthrough") // the tail switch mixes in the remaining bytes by falling through
+    public static long[] hash128(byte[] data, long seed) {
+        int length = data.length;
+        int blocks = length >>> 4;
+        long h1 = seed;
+        long h2 = seed;
+
+        for (int i = 0; i < blocks; i++) {
+            int offset = i << 4;
+            long k1 = getLong(data, offset);
+            long k2 = getLong(data, offset + 8);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = blocks << 4;
+        long k1 = 0;
+        long k2 = 0;
+        switch (length & 15) {
+            case 15: k2 ^= (data[tail + 14] & 0xffL) << 48;
+            case 14: k2 ^= (data[tail + 13] & 0xffL) << 40;
+            case 13: k2 ^= (data[tail + 12] & 0xffL) << 32;
+            case 12: k2 ^= (data[tail + 11] & 0xffL) << 24;
+            case 11: k2 ^= (data[tail + 10] & 0xffL) << 16;
+            case 10: k2 ^= (data[tail + 9] & 0xffL) << 8;
+            case 9:  k2 ^= data[tail + 8] & 0xffL;
+                h2 ^= mixK2(k2);
+            case 8:  k1 ^= (data[tail + 7] & 0xffL) << 56;
+            case 7:  k1 ^= (data[tail + 6] & 0xffL) << 48;
+            case 6:  k1 ^= (data[tail + 5] & 0xffL) << 40;
+            case 5:  k1 ^= (data[tail + 4] & 0xffL) << 32;
+            case 4:  k1 ^= (data[tail + 3] & 0xffL) << 24;
+            case 3:  k1 ^= (data[tail + 2] & 0xffL) << 16;
+            case 2:  k1 ^= (data[tail + 1] & 0xffL) << 8;
+            case 1:  k1 ^= data[tail] & 0xffL;
+                h1 ^= mixK1(k1);
+            default:
+                break;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[] {h1, h2};
+    }
+
+    private static long getLong(byte[] data, int offset) {
+        return (data[offset] & 0xffL)
+                | (data[offset + 1] & 0xffL) << 8
+                | (data[offset + 2] & 0xffL) << 16
+                | (data[offset + 3] & 0xffL) << 24
+                | (data[offset + 4] & 0xffL) << 32
+                | (data[offset + 5] & 0xffL) << 40
+                | (data[offset + 6] & 0xffL) << 48
+                | (data[offset + 7] & 0xffL) << 56;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -3,6 +3,11 @@ package com.tuum.common.util;
 import org.springframework.stereotype.Component;
 import java.util.UUID;
 
+/**
+ * Holds the trace id of the request handled by the current thread. The value is thread-confined (not
+ * inherited), which also holds on virtual threads where every request gets its own thread; callers that
+ * hand work to another thread must pass the id explicitly, and pooled threads must call {@link #clear()}.
+ */
 @Component
 public class TraceIdGenerator {
     
@@ -0,0 +1,54 @@
+package com.tuum.common.adapter;
+
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.types.RequestType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("AmqpMessageAdapter Tests")
+class AmqpMessageAdapterTest {
+
+    private final AmqpMessageAdapter adapter = new AmqpMessageAdapter();
+
+    @Test
+    @DisplayName("Should take the reply queue from the reply-to header")
+    void shouldReadReplyToHeader() throws Exception {
+        MessageProperties properties = command();
+        properties.setHeader("reply-to", "fs-accounts-service.transactions-replies.abc");
+        properties.setReplyTo("ignored");
+
+        MQMessageData data = adapter.adapt(new Message(new byte[0], properties));
+
+        assertEquals("fs-accounts-service.transactions-replies.abc", data.getReplyTo());
+        assertEquals(RequestType.CREATE, data.getRequestType());
+        assertEquals("key-1", data.getIdempotencyKey());
+    }
+
+    @Test
+    @DisplayName("Should fall back to the AMQP reply_to property")
+    void shouldFallBackToReplyToProperty() throws Exception {
+        MessageProperties properties = command();
+        properties.setReplyTo("fs-accounts-service.accounts-replies.abc");
+
+        assertEquals("fs-accounts-service.accounts-replies.abc", adapter.adapt(new Message(new byte[0], properties)).getReplyTo());
+    }
+
+    @Test
+    @DisplayName("Should leave the reply queue empty for commands from older publishers")
+    void shouldHaveNoReplyQueueWithoutEither() throws Exception {
+        assertNull(adapter.adapt(new Message(new byte[0], command())).getReplyTo());
+    }
+
+    private static MessageProperties command() {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader("request-type", RequestType.CREATE.getCode());
+        properties.setHeader("idempotency-key", "key-1");
+        properties.setHeader("request-id", "REQ_1");
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        return properties;
+    }
+}
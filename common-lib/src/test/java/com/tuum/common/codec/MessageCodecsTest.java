@@ -0,0 +1,74 @@
+package com.tuum.common.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.dto.mq.CreateTransactionEvent;
+import com.tuum.common.types.Currency;
+import com.tuum.common.types.TransactionDirection;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MessageCodecs Tests")
+class MessageCodecsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    @DisplayName("Should round-trip an event in both formats")
+    void shouldRoundTripEventInBothFormats() throws Exception {
+        MessageCodecs codecs = new MessageCodecs(objectMapper, "json");
+
+        for (String contentType : new String[]{MessageCodecs.JSON, MessageCodecs.SMILE}) {
+            MessageCodec codec = codecs.forContentType(contentType);
+            CreateTransactionEvent decoded = codec.decode(codec.encode(sampleEvent()), CreateTransactionEvent.class);
+
+            assertEquals(contentType, codec.contentType());
+            assertEquals("ACC_1", decoded.getAccountId());
+            assertEquals(new BigDecimal("125.50"), decoded.getAmount());
+            assertEquals(Currency.EUR, decoded.getCurrency());
+            assertEquals(TransactionDirection.OUT, decoded.getDirection());
+            assertEquals(LocalDateTime.of(2025, 1, 15, 10, 30, 0, 123_000_000), decoded.getCreatedAt());
+        }
+    }
+
+    @Test
+    @DisplayName("Should fall back to JSON for missing or unknown content types")
+    void shouldFallBackToJsonForUnknownContentTypes() {
+        MessageCodecs codecs = new MessageCodecs(objectMapper, "smile");
+
+        assertEquals(MessageCodecs.JSON, codecs.forContentType(null).contentType());
+        assertEquals(MessageCodecs.JSON, codecs.forContentType("text/plain").contentType());
+        assertEquals(MessageCodecs.JSON, codecs.forContentType("application/json; charset=UTF-8").contentType());
+        assertEquals(MessageCodecs.SMILE, codecs.forContentType("Application/X-Jackson-Smile").contentType());
+    }
+
+    @Test
+    @DisplayName("Should publish in the configured format")
+    void shouldPublishInConfiguredFormat() {
+        assertEquals(MessageCodecs.JSON, new MessageCodecs(objectMapper, "json").outbound().contentType());
+        assertEquals(MessageCodecs.SMILE, new MessageCodecs(objectMapper, "SMILE").outbound().contentType());
+        assertThrows(IllegalArgumentException.class, () -> new MessageCodecs(objectMapper, "xml"));
+    }
+
+    @Test
+    @DisplayName("Should encode Smile smaller than JSON")
+    void shouldEncodeSmileSmallerThanJson() throws Exception {
+        MessageCodecs codecs = new MessageCodecs(objectMapper, "json");
+
+        int json = codecs.forContentType(MessageCodecs.JSON).encode(sampleEvent()).length;
+        int smile = codecs.forContentType(MessageCodecs.SMILE).encode(sampleEvent()).length;
+
+        assertTrue(smile < json, "Smile body (" + smile + " bytes) should be smaller than JSON (" + json + " bytes)");
+    }
+
+    private static CreateTransactionEvent sampleEvent() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 15, 10, 30, 0, 123_000_000);
+        return new CreateTransactionEvent("REQ_1", "idem-1", "TXN_1", "ACC_1", "BAL_1",
+                new BigDecimal("125.50"), Currency.EUR, TransactionDirection.OUT, "Card payment",
+                null, "PENDING", null, now, now, null);
+    }
+}
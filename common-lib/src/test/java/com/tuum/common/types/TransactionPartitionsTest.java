@@ -0,0 +1,52 @@
+package com.tuum.common.types;
+
+import com.tuum.common.util.JumpConsistentHash;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TransactionPartitions Tests")
+class TransactionPartitionsTest {
+
+    @Test
+    @DisplayName("Should route an account to the partition of its consistent hash")
+    void shouldRouteAccountByConsistentHash() {
+        for (int i = 0; i < 1_000; i++) {
+            String accountId = "ACC-" + i;
+            int partition = TransactionPartitions.partitionOf(accountId, 4);
+
+            assertEquals(JumpConsistentHash.bucket(accountId, 4), partition);
+            assertEquals(partition, TransactionPartitions.partitionOf(accountId, 4));
+            assertTrue(partition >= 0 && partition < 4);
+        }
+    }
+
+    @Test
+    @DisplayName("Should name a queue and routing key per partition")
+    void shouldNameQueuesAndRoutingKeys() {
+        assertEquals("transactions-events-queue.2", TransactionPartitions.queueName(2));
+        assertEquals("transactions.events.partition.2", TransactionPartitions.routingKey(2));
+        assertEquals(List.of("transactions-events-queue.0", "transactions-events-queue.1", "transactions-events-queue.2"),
+                TransactionPartitions.queueNames(3));
+    }
+
+    @Test
+    @DisplayName("Should not route partition keys to the legacy transactions queue")
+    void shouldNotMatchLegacyBinding() {
+        // The legacy queue is bound with transactions.events.*, which matches exactly three words
+        String routingKey = TransactionPartitions.routingKey(0);
+
+        assertEquals(4, routingKey.split("\\.").length);
+        assertTrue(routingKey.startsWith("transactions.events."));
+    }
+
+    @Test
+    @DisplayName("Should declare partition queues as single-active-consumer queues")
+    void shouldDeclareSingleActiveConsumerQueues() {
+        assertEquals(true, TransactionPartitions.queueArguments().get("x-single-active-consumer"));
+        assertEquals("reject-publish-dlx", TransactionPartitions.queueArguments().get("x-overflow"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.tuum.common.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BloomFilter Tests")
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("Should report every inserted key as possibly present")
+    void shouldHaveNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("msg-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("msg-" + i));
+        }
+        assertEquals(10_000, filter.insertions());
+    }
+
+    @Test
+    @DisplayName("Should keep the false-positive rate close to the configured target")
+    void shouldKeepFalsePositiveRateNearTarget() {
+        BloomFilter filter = new BloomFilter(50_000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filter.put("msg-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        double observed = falsePositives / 100_000.0;
+        assertTrue(observed < 0.02, "observed false-positive rate " + observed);
+        assertEquals(filter.expectedFalsePositiveRate(), observed, 0.005);
+    }
+
+    @Test
+    @DisplayName("Should answer no for every key when empty")
+    void shouldContainNothingWhenEmpty() {
+        BloomFilter filter = new BloomFilter(1_000, 0.001);
+
+        assertFalse(filter.mightContain("msg-1"));
+        assertEquals(0.0, filter.expectedFalsePositiveRate());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid sizing parameters")
+    void shouldRejectInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.0));
+    }
+}
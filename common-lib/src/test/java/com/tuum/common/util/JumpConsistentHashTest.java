@@ -0,0 +1,47 @@
+package com.tuum.common.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JumpConsistentHash Tests")
+class JumpConsistentHashTest {
+
+    @Test
+    @DisplayName("Should spread keys evenly over the buckets")
+    void shouldSpreadKeysEvenly() {
+        int[] counts = new int[8];
+        for (int i = 0; i < 80_000; i++) {
+            counts[JumpConsistentHash.bucket("ACC-" + i, 8)]++;
+        }
+
+        for (int count : counts) {
+            assertTrue(count > 9_000 && count < 11_000, "bucket count " + count);
+        }
+    }
+
+    @Test
+    @DisplayName("Should only move keys into the new bucket when a bucket is added")
+    void shouldOnlyMoveKeysToNewBucket() {
+        int moved = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int before = JumpConsistentHash.bucket("ACC-" + i, 4);
+            int after = JumpConsistentHash.bucket("ACC-" + i, 5);
+            if (before != after) {
+                assertEquals(4, after);
+                moved++;
+            }
+        }
+
+        assertTrue(moved > 1_500 && moved < 2_500, "moved " + moved);
+    }
+
+    @Test
+    @DisplayName("Should always map to the only bucket and reject non-positive counts")
+    void shouldHandleEdgeBucketCounts() {
+        assertEquals(0, JumpConsistentHash.bucket("ACC-1", 1));
+        assertEquals(JumpConsistentHash.bucket("ACC-1", 16), JumpConsistentHash.bucket("ACC-1", 16));
+        assertThrows(IllegalArgumentException.class, () -> JumpConsistentHash.bucket("ACC-1", 0));
+    }
+}
@@ -0,0 +1,68 @@
+package com.tuum.common.util;
+
+import com.tuum.common.util.ListenerScalingPolicy.Decision;
+import com.tuum.common.util.ListenerScalingPolicy.Sample;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ListenerScalingPolicy Tests")
+class ListenerScalingPolicyTest {
+
+    private final ListenerScalingPolicy policy = new ListenerScalingPolicy(1, 8, 10, 500, 100, 0.75, 0.25, 1.0, 3);
+
+    @Test
+    @DisplayName("Should add consumers while busy consumers fall behind")
+    void shouldScaleUpOnBacklog() {
+        Decision decision = policy.decide("q", new Sample(1_000, 2, 250, 0.9, 0, false));
+
+        assertEquals(3, decision.consumers());
+        assertEquals("backlog", decision.reason());
+    }
+
+    @Test
+    @DisplayName("Should not add consumers when the existing ones are idle")
+    void shouldNotScaleUpIdleConsumers() {
+        Decision decision = policy.decide("q", new Sample(1_000, 2, 250, 0.1, 0, false));
+
+        assertEquals(2, decision.consumers());
+    }
+
+    @Test
+    @DisplayName("Should stay within the consumer bounds")
+    void shouldRespectMaxConsumers() {
+        Decision decision = policy.decide("q", new Sample(100_000, 7, 250, 1.0, 0, false));
+
+        assertEquals(8, decision.consumers());
+    }
+
+    @Test
+    @DisplayName("Should remove a consumer only after consecutive quiet samples")
+    void shouldScaleDownAfterQuietSamples() {
+        Sample quiet = new Sample(0, 4, 250, 0.05, 0, false);
+
+        assertEquals(4, policy.decide("q", quiet).consumers());
+        assertEquals(4, policy.decide("q", quiet).consumers());
+        assertEquals(3, policy.decide("q", quiet).consumers());
+        assertEquals(3, policy.decide("q", new Sample(0, 3, 250, 0.05, 0, false)).consumers());
+    }
+
+    @Test
+    @DisplayName("Should never change the consumer count of an ordered listener")
+    void shouldKeepOrderedListenerConsumers() {
+        Decision decision = policy.decide("q", new Sample(100_000, 1, 250, 1.0, 0, true));
+
+        assertEquals(1, decision.consumers());
+        assertEquals("ordered", decision.reason());
+    }
+
+    @Test
+    @DisplayName("Should size prefetch to the measured rate with hysteresis")
+    void shouldAdaptPrefetch() {
+        assertEquals(20, policy.decide("q", new Sample(0, 2, 250, 0.5, 40, false)).prefetch());
+        assertEquals(250, policy.decide("q", new Sample(0, 2, 250, 0.5, 300, false)).prefetch());
+        assertEquals(500, policy.decide("q", new Sample(0, 1, 100, 0.5, 5_000, false)).prefetch());
+        assertEquals(250, policy.decide("q", new Sample(0, 1, 250, 0.5, 0, false)).prefetch());
+    }
+}
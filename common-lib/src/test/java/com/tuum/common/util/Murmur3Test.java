@@ -0,0 +1,20 @@
+package com.tuum.common.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Murmur3 Tests")
+class Murmur3Test {
+
+    @Test
+    @DisplayName("Should match the reference MurmurHash3 x64 128 output")
+    void shouldMatchReferenceVectors() {
+        assertArrayEquals(new long[] {0L, 0L}, Murmur3.hash128(""));
+        assertArrayEquals(new long[] {0xcbd8a7b341bd9b02L, 0x5b1e906a48ae1d19L}, Murmur3.hash128("hello"));
+        assertArrayEquals(new long[] {0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L},
+                Murmur3.hash128("The quick brown fox jumps over the lazy dog"));
+        assertArrayEquals(new long[] {0xf387f0fd02e0e1f8L, 0xfbb0b17a251be695L}, Murmur3.hash128("req-123456789012345"));
+    }
+}
@@ -1,13 +1,28 @@
 package com.tuum.csaccountseventsconsumer.config;
 
 import com.tuum.common.types.RabbitMQConfig;
+import com.tuum.common.types.RetryTiers;
+import com.tuum.common.types.TransactionPartitions;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfiguration {
 
@@ -16,6 +31,51 @@ public class RabbitMQConfiguration {
         return new TopicExchange(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), true, false);
     }
 
+    @Bean
+    public Declarables transactionPartitionQueues(@Value("${tuum.transactions.partitions:4}") int partitions) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            Queue queue = new Queue(TransactionPartitions.queueName(partition), true, false, false, TransactionPartitions.queueArguments());
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(tuumBankingExchange()).with(TransactionPartitions.routingKey(partition)));
+        }
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Retry and dead-letter topology: one delay queue per {@link RetryTiers} tier, dead-lettering back
+     * to the command queues through {@code tuum.retry.requeue}, and the {@code tuum.parking-lot} queue
+     * for commands that cannot be processed. The dead-letter policy of the command queues themselves
+     * is in {@code rmq-config/definitions.json}, since their arguments cannot change once declared.
+     */
+    @Bean
+    public Declarables retryTopology(@Value("${tuum.transactions.partitions:4}") int partitions) {
+        List<Declarable> declarables = new ArrayList<>();
+        DirectExchange requeueExchange = new DirectExchange(RabbitMQConfig.RETRY_REQUEUE_EXCHANGE.getValue(), true, false);
+        declarables.add(requeueExchange);
+        for (int tier = 0; tier < RetryTiers.count(); tier++) {
+            FanoutExchange tierExchange = new FanoutExchange(RetryTiers.name(tier), true, false);
+            Queue tierQueue = new Queue(RetryTiers.name(tier), true, false, false, RetryTiers.queueArguments(tier));
+            declarables.add(tierExchange);
+            declarables.add(tierQueue);
+            declarables.add(BindingBuilder.bind(tierQueue).to(tierExchange));
+        }
+
+        List<String> commandQueues = new ArrayList<>(TransactionPartitions.queueNames(partitions));
+        commandQueues.add(RabbitMQConfig.TRANSACTIONS_EVENTS_QUEUE.getValue());
+        commandQueues.add(RabbitMQConfig.ACCOUNTS_EVENTS_QUEUE.getValue());
+        for (String queue : commandQueues) {
+            declarables.add(new Binding(queue, Binding.DestinationType.QUEUE, requeueExchange.getName(), queue, null));
+        }
+
+        FanoutExchange deadLetterExchange = new FanoutExchange(RabbitMQConfig.DEAD_LETTER_EXCHANGE.getValue(), true, false);
+        Queue parkingLot = new Queue(RabbitMQConfig.PARKING_LOT_QUEUE.getValue(), true);
+        declarables.add(deadLetterExchange);
+        declarables.add(parkingLot);
+        declarables.add(BindingBuilder.bind(parkingLot).to(deadLetterExchange));
+        return new Declarables(declarables);
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new org.springframework.amqp.support.converter.SimpleMessageConverter();
@@ -27,4 +87,24 @@ public class RabbitMQConfiguration {
         template.setMessageConverter(jsonMessageConverter());
         return template;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Delivers up to {@code batch-size} messages per listener call; a smaller batch is delivered once
+     * no message arrives for {@code receive-timeout-ms}. The whole batch is acked when the listener returns.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory transactionBatchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${tuum.consumer.transactions.batch.batch-size:200}") int batchSize,
+            @Value("${tuum.consumer.transactions.batch.receive-timeout-ms:50}") long receiveTimeoutMillis) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMillis);
+        return factory;
+    }
+}
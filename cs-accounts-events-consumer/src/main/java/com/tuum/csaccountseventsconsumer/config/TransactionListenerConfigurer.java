@@ -0,0 +1,101 @@
+package com.tuum.csaccountseventsconsumer.config;
+
+import com.rabbitmq.client.Channel;
+import com.tuum.common.types.RabbitMQConfig;
+import com.tuum.common.types.TransactionPartitions;
+import com.tuum.csaccountseventsconsumer.consumer.TransactionBatchEventConsumer;
+import com.tuum.csaccountseventsconsumer.consumer.TransactionEventConsumer;
+import com.tuum.csaccountseventsconsumer.consumer.TransactionLedgerEventConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers one listener container per transaction partition queue, each with a single consumer,
+ * so partitions are processed in parallel and every partition in order. With single-active-consumer
+ * queues, only one consumer instance receives a given partition at a time; the others stand by.
+ * <p>
+ * The unpartitioned {@code transactions-events-queue} is drain-only: nothing routes to it any more, but
+ * it keeps a listener so commands published before partitioning was enabled are still applied. It was
+ * declared without single-active-consumer, and queue arguments cannot change once declared, so its
+ * listener instead takes one exclusive consumer: across all instances one consumer drains it in
+ * order, and the listeners of the other instances retry until that consumer goes away.
+ * <p>
+ * With {@code tuum.ledger.enabled=true} the listeners hand postings to the ledger, whatever the
+ * batch setting.
+ */
+@Configuration
+@Slf4j
+public class TransactionListenerConfigurer implements RabbitListenerConfigurer {
+
+    private final ObjectProvider<TransactionEventConsumer> transactionEventConsumer;
+    private final ObjectProvider<TransactionBatchEventConsumer> transactionBatchEventConsumer;
+    private final ObjectProvider<TransactionLedgerEventConsumer> transactionLedgerEventConsumer;
+    private final SimpleRabbitListenerContainerFactory transactionBatchListenerContainerFactory;
+    private final int partitions;
+
+    public TransactionListenerConfigurer(ObjectProvider<TransactionEventConsumer> transactionEventConsumer,
+                                         ObjectProvider<TransactionBatchEventConsumer> transactionBatchEventConsumer,
+                                         ObjectProvider<TransactionLedgerEventConsumer> transactionLedgerEventConsumer,
+                                         @Qualifier("transactionBatchListenerContainerFactory") SimpleRabbitListenerContainerFactory transactionBatchListenerContainerFactory,
+                                         @Value("${tuum.transactions.partitions:4}") int partitions) {
+        this.transactionEventConsumer = transactionEventConsumer;
+        this.transactionBatchEventConsumer = transactionBatchEventConsumer;
+        this.transactionLedgerEventConsumer = transactionLedgerEventConsumer;
+        this.transactionBatchListenerContainerFactory = transactionBatchListenerContainerFactory;
+        this.partitions = partitions;
+    }
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        String legacyQueue = RabbitMQConfig.TRANSACTIONS_EVENTS_QUEUE.getValue();
+        List<String> queues = new ArrayList<>(TransactionPartitions.queueNames(partitions));
+        queues.add(legacyQueue);
+
+        TransactionLedgerEventConsumer ledgerConsumer = transactionLedgerEventConsumer.getIfAvailable();
+        TransactionBatchEventConsumer batchConsumer = ledgerConsumer == null ? transactionBatchEventConsumer.getIfAvailable() : null;
+        for (String queue : queues) {
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId("transactions-listener." + queue);
+            endpoint.setQueueNames(queue);
+            if (queue.equals(legacyQueue)) {
+                endpoint.setExclusive(true);
+                endpoint.setConcurrency("1");
+            }
+            if (ledgerConsumer != null) {
+                endpoint.setMessageListener((ChannelAwareMessageListener) ledgerConsumer::handleTransactionEvent);
+                registrar.registerEndpoint(endpoint);
+            } else if (batchConsumer != null) {
+                endpoint.setBatchListener(true);
+                endpoint.setMessageListener(new ChannelAwareMessageListener() {
+                    @Override
+                    public void onMessage(Message message, Channel channel) {
+                        batchConsumer.handleTransactionEvents(List.of(message), channel);
+                    }
+
+                    @Override
+                    public void onMessageBatch(List<Message> messages, Channel channel) {
+                        batchConsumer.handleTransactionEvents(messages, channel);
+                    }
+                });
+                registrar.registerEndpoint(endpoint, transactionBatchListenerContainerFactory);
+            } else {
+                endpoint.setMessageListener((ChannelAwareMessageListener) transactionEventConsumer.getObject()::handleTransactionEvent);
+                registrar.registerEndpoint(endpoint);
+            }
+        }
+        log.info("Registered transaction listeners for {} partitions ({} mode)", partitions,
+                ledgerConsumer != null ? "ledger" : batchConsumer != null ? "batch" : "single");
+    }
+}
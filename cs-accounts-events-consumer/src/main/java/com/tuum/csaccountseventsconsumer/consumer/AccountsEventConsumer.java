@@ -1,5 +1,6 @@
 package com.tuum.csaccountseventsconsumer.consumer;
 
+import com.rabbitmq.client.Channel;
 import com.tuum.common.adapter.AmqpMessageAdapter;
 import com.tuum.common.dto.mq.MQMessageData;
 import com.tuum.csaccountseventsconsumer.service.AccountEventService;
@@ -16,14 +17,26 @@ public class AccountsEventConsumer {
 
     private final AccountEventService accountEventService;
     private final AmqpMessageAdapter amqpMessageAdapter;
+    private final MessageAcknowledger messageAcknowledger;
+    private final FailedMessageHandler failedMessageHandler;
 
     @RabbitListener(queues = "#{T(com.tuum.common.types.RabbitMQConfig).ACCOUNTS_EVENTS_QUEUE.getValue()}")
-    public void handleAccountCreatedEvent(Message message) {
+    public void handleAccountCreatedEvent(Message message, Channel channel) {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        MQMessageData messageData;
+        try {
+            messageData = amqpMessageAdapter.adapt(message);
+        } catch (Exception e) {
+            log.error("Error adapting account event", e);
+            failedMessageHandler.onFailure(message, null, channel, e);
+            return;
+        }
         try {
-            MQMessageData messageData = amqpMessageAdapter.adapt(message);
             accountEventService.processAccountCreatedEvent(messageData);
+            messageAcknowledger.ack(channel, deliveryTag);
         } catch (Exception e) {
             log.error("Error processing account event", e);
+            failedMessageHandler.onFailure(message, messageData, channel, e);
         }
     }
 } 
\ No newline at end of file
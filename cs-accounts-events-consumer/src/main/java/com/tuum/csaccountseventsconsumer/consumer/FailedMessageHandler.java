@@ -0,0 +1,132 @@
+package com.tuum.csaccountseventsconsumer.consumer;
+
+import com.rabbitmq.client.Channel;
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.types.RabbitMQConfig;
+import com.tuum.common.types.RetryTiers;
+import com.tuum.csaccountseventsconsumer.service.MessageRetryPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.stereotype.Component;
+
+/**
+ * Takes a command whose processing failed off its queue. A transient failure still within
+ * {@code tuum.consumer.retry.max-retries} is republished to the delay tier of its next attempt (see
+ * {@link RetryTiers}), from which it returns to the queue it came from. Anything else, an unreadable
+ * message, a terminal error or a command out of retries, is parked on {@code tuum.parking-lot} with
+ * the failure reason for an operator to inspect and replay.
+ * <p>
+ * The original delivery is acknowledged only once the copy is published. If publishing fails it is
+ * requeued in manual ack mode, and in auto mode rejected, which the broker's dead-letter policy also
+ * routes to the parking lot.
+ */
+@Component
+@Slf4j
+public class FailedMessageHandler {
+
+    private static final String FAILURE_REASON_HEADER = "failure-reason";
+    private static final String SOURCE_QUEUE_HEADER = "source-queue";
+    private static final int MAX_REASON_LENGTH = 512;
+
+    private final AmqpTemplate amqpTemplate;
+    private final MessageRetryPolicy messageRetryPolicy;
+    private final MessageAcknowledger messageAcknowledger;
+    private final Counter retried;
+    private final Counter parked;
+
+    public FailedMessageHandler(AmqpTemplate amqpTemplate,
+                                MessageRetryPolicy messageRetryPolicy,
+                                MessageAcknowledger messageAcknowledger,
+                                MeterRegistry meterRegistry) {
+        this.amqpTemplate = amqpTemplate;
+        this.messageRetryPolicy = messageRetryPolicy;
+        this.messageAcknowledger = messageAcknowledger;
+        this.retried = failedMessages(meterRegistry, "retried");
+        this.parked = failedMessages(meterRegistry, "parked");
+    }
+
+    /**
+     * Diverts a failed delivery and settles it on the channel.
+     *
+     * @param messageData the adapted message, {@code null} when the message could not be read
+     */
+    public void onFailure(Message message, MQMessageData messageData, Channel channel, Exception failure) {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        if (divert(message, messageData, failure)) {
+            messageAcknowledger.ack(channel, deliveryTag);
+        } else if (messageAcknowledger.isManual()) {
+            messageAcknowledger.reject(channel, deliveryTag, false, true);
+        } else {
+            throw new AmqpRejectAndDontRequeueException("Failed to divert failed message", failure);
+        }
+    }
+
+    /**
+     * Publishes the message to its retry tier or the parking lot. Returns {@code false} if it could not
+     * be published, in which case the caller must not acknowledge the original delivery.
+     */
+    public boolean divert(Message message, MQMessageData messageData, Exception failure) {
+        try {
+            if (messageData == null) {
+                park(message, "Unreadable message: " + failure.getMessage());
+            } else if (messageRetryPolicy.shouldRetry(failure, messageData)) {
+                retry(message, messageData.getRetryAttempt() + 1);
+            } else {
+                park(message, failure.getMessage());
+            }
+            return true;
+        } catch (AmqpException e) {
+            log.error("Failed to divert message {}", message.getMessageProperties().getMessageId(), e);
+            return false;
+        }
+    }
+
+    private void retry(Message message, int attempt) {
+        String sourceQueue = message.getMessageProperties().getConsumerQueue();
+        if (sourceQueue == null) {
+            park(message, "Retryable failure on a message of unknown queue");
+            return;
+        }
+        String tier = RetryTiers.name(RetryTiers.tierFor(attempt));
+        Message copy = MessageBuilder.fromMessage(message)
+                .setHeader(RabbitMQConfig.RETRY_ATTEMPT_HEADER.getValue(), attempt)
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .build();
+        amqpTemplate.send(tier, sourceQueue, copy);
+        retried.increment();
+        log.info("Message {} from {} scheduled for retry {} on {}", message.getMessageProperties().getMessageId(), sourceQueue, attempt, tier);
+    }
+
+    private void park(Message message, String reason) {
+        String sourceQueue = message.getMessageProperties().getConsumerQueue();
+        Message copy = MessageBuilder.fromMessage(message)
+                .setHeader(FAILURE_REASON_HEADER, truncate(reason))
+                .setHeader(SOURCE_QUEUE_HEADER, sourceQueue)
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .build();
+        amqpTemplate.send(RabbitMQConfig.DEAD_LETTER_EXCHANGE.getValue(), "", copy);
+        parked.increment();
+        log.warn("Message {} from {} parked: {}", message.getMessageProperties().getMessageId(), sourceQueue, reason);
+    }
+
+    private static String truncate(String reason) {
+        if (reason == null) {
+            return "unknown";
+        }
+        return reason.length() <= MAX_REASON_LENGTH ? reason : reason.substring(0, MAX_REASON_LENGTH);
+    }
+
+    private static Counter failedMessages(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("tuum.consumer.failed-messages")
+                .description("Failed commands diverted to a retry tier or the parking lot")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
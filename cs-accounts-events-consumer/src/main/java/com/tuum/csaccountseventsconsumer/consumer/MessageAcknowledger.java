@@ -0,0 +1,161 @@
+package com.tuum.csaccountseventsconsumer.consumer;
+
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Acknowledges messages when the listener containers run with
+ * {@code spring.rabbitmq.listener.simple.acknowledge-mode=manual}; in the default auto mode every
+ * method here is a no-op and the container acks as before.
+ * <p>
+ * Listeners call {@link #ack} once their {@code @Transactional} service call has returned, that is
+ * after the commit, and {@link #reject} when it threw, so a message whose transaction did not commit
+ * is redelivered. Acks are coalesced per channel into one {@code basicAck(tag, multiple=true)} every
+ * {@code batch-size} messages or {@code flush-interval-ms}. That is safe because each channel belongs
+ * to one container consumer, which completes its deliveries in tag order. Acks still pending when a
+ * channel closes are lost and their messages redelivered, which the idempotency checks absorb.
+ * <p>
+ * Each channel's pending acks are guarded by a {@link ReentrantLock} rather than a monitor, so a
+ * listener on a virtual thread that blocks in {@code basicAck} does not pin its carrier thread.
+ */
+@Component
+@Slf4j
+public class MessageAcknowledger {
+
+    private final boolean manual;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Map<Channel, PendingAcks> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final DistributionSummary coalesced;
+    private final Counter rejected;
+
+    public MessageAcknowledger(MeterRegistry meterRegistry,
+                               @Value("${spring.rabbitmq.listener.simple.acknowledge-mode:auto}") String acknowledgeMode,
+                               @Value("${tuum.consumer.acks.batch-size:50}") int batchSize,
+                               @Value("${tuum.consumer.acks.flush-interval-ms:10}") long flushIntervalMillis) {
+        this.manual = "manual".equalsIgnoreCase(acknowledgeMode);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ack-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.coalesced = DistributionSummary.builder("tuum.consumer.acks.coalesced")
+                .description("Messages acknowledged per basicAck")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("tuum.consumer.acks.rejected")
+                .description("Messages negatively acknowledged after a failed transaction")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (manual) {
+            flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            log.info("Manual acks enabled, coalescing up to {} per channel every {} ms", batchSize, flushIntervalMillis);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        flushAll();
+    }
+
+    public boolean isManual() {
+        return manual;
+    }
+
+    /**
+     * Acknowledges {@code deliveryTag} and every earlier delivery on the channel.
+     */
+    public void ack(Channel channel, long deliveryTag) {
+        if (!manual) {
+            return;
+        }
+        PendingAcks acks = pending.computeIfAbsent(channel, c -> new PendingAcks());
+        acks.lock.lock();
+        try {
+            acks.lastTag = Math.max(acks.lastTag, deliveryTag);
+            acks.count++;
+            if (acks.count >= batchSize) {
+                flush(channel, acks);
+            }
+        } finally {
+            acks.lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the acks pending before {@code deliveryTag}, then rejects it, and with {@code multiple}
+     * every earlier unacknowledged delivery too.
+     */
+    public void reject(Channel channel, long deliveryTag, boolean multiple, boolean requeue) {
+        if (!manual) {
+            return;
+        }
+        PendingAcks acks = pending.computeIfAbsent(channel, c -> new PendingAcks());
+        acks.lock.lock();
+        try {
+            flush(channel, acks);
+            try {
+                channel.basicNack(deliveryTag, multiple, requeue);
+                rejected.increment();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to reject delivery {}, it will be redelivered when the channel closes", deliveryTag, e);
+            }
+        } finally {
+            acks.lock.unlock();
+        }
+    }
+
+    void flushAll() {
+        pending.forEach((channel, acks) -> {
+            acks.lock.lock();
+            try {
+                flush(channel, acks);
+            } finally {
+                acks.lock.unlock();
+            }
+            if (!channel.isOpen()) {
+                pending.remove(channel);
+            }
+        });
+    }
+
+    private void flush(Channel channel, PendingAcks acks) {
+        if (acks.count == 0) {
+            return;
+        }
+        try {
+            channel.basicAck(acks.lastTag, true);
+            coalesced.record(acks.count);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to acknowledge deliveries up to {}, they will be redelivered", acks.lastTag, e);
+        }
+        acks.count = 0;
+    }
+
+    private static final class PendingAcks {
+        final ReentrantLock lock = new ReentrantLock();
+        long lastTag;
+        int count;
+    }
+}
@@ -0,0 +1,73 @@
+package com.tuum.csaccountseventsconsumer.consumer;
+
+import com.rabbitmq.client.Channel;
+import com.tuum.common.adapter.AmqpMessageAdapter;
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.csaccountseventsconsumer.service.TransactionBatchEventService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch counterpart of {@link TransactionEventConsumer}, enabled with
+ * {@code tuum.consumer.transactions.batch.enabled=true}. The whole batch is acked once this method
+ * returns: by the container in auto mode, or with one multiple ack of its last delivery in manual mode.
+ * Messages that failed on their own are diverted to a retry tier or the parking lot by the
+ * {@link FailedMessageHandler} first, so they do not hold back the rest of the batch.
+ * Registered on the transaction queues by {@link com.tuum.csaccountseventsconsumer.config.TransactionListenerConfigurer}.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.consumer.transactions.batch.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionBatchEventConsumer {
+
+    private final TransactionBatchEventService transactionBatchEventService;
+    private final AmqpMessageAdapter amqpMessageAdapter;
+    private final MessageAcknowledger messageAcknowledger;
+    private final FailedMessageHandler failedMessageHandler;
+
+    public void handleTransactionEvents(List<Message> messages, Channel channel) {
+        log.info("Consumer received batch of {} messages", messages.size());
+
+        List<MQMessageData> batch = new ArrayList<>(messages.size());
+        Map<MQMessageData, Message> sources = new IdentityHashMap<>();
+        boolean diverted = true;
+        for (Message message : messages) {
+            try {
+                MQMessageData messageData = amqpMessageAdapter.adapt(message);
+                batch.add(messageData);
+                sources.put(messageData, message);
+            } catch (Exception e) {
+                log.error("Error adapting transaction event {}", message.getMessageProperties().getMessageId(), e);
+                diverted &= failedMessageHandler.divert(message, null, e);
+            }
+        }
+        long lastDeliveryTag = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+        try {
+            Map<MQMessageData, RuntimeException> failures = transactionBatchEventService.processTransactionCreatedEvents(batch);
+            for (Map.Entry<MQMessageData, RuntimeException> failure : failures.entrySet()) {
+                log.error("Error processing transaction event, requestId: {}", failure.getKey().getRequestId(), failure.getValue());
+                diverted &= failedMessageHandler.divert(sources.get(failure.getKey()), failure.getKey(), failure.getValue());
+            }
+        } catch (Exception e) {
+            log.error("Error processing transaction event batch", e);
+            diverted = false;
+        }
+        if (diverted) {
+            messageAcknowledger.ack(channel, lastDeliveryTag);
+        } else if (messageAcknowledger.isManual()) {
+            messageAcknowledger.reject(channel, lastDeliveryTag, true, true);
+        } else {
+            throw new AmqpRejectAndDontRequeueException("Failed to process or divert transaction event batch");
+        }
+    }
+}
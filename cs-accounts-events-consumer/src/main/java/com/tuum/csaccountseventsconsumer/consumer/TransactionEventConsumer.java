@@ -1,32 +1,48 @@
 package com.tuum.csaccountseventsconsumer.consumer;
 
+import com.rabbitmq.client.Channel;
 import com.tuum.common.adapter.AmqpMessageAdapter;
 import com.tuum.common.dto.mq.MQMessageData;
 import com.tuum.csaccountseventsconsumer.service.TransactionEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+/**
+ * Registered on the transaction queues by {@link com.tuum.csaccountseventsconsumer.config.TransactionListenerConfigurer}.
+ */
 @Component
+@ConditionalOnProperty(name = "tuum.consumer.transactions.batch.enabled", havingValue = "false", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class TransactionEventConsumer {
 
     private final TransactionEventService transactionEventService;
     private final AmqpMessageAdapter amqpMessageAdapter;
+    private final MessageAcknowledger messageAcknowledger;
+    private final FailedMessageHandler failedMessageHandler;
 
-    @RabbitListener(queues = "#{T(com.tuum.common.types.RabbitMQConfig).TRANSACTIONS_EVENTS_QUEUE.getValue()}")
-    public void handleTransactionEvent(Message message) {
+    public void handleTransactionEvent(Message message, Channel channel) {
         log.info("Consumer received message: {}", message);
         log.info("Message length: {}", message.getBody().length);
-        
+
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        MQMessageData messageData;
+        try {
+            messageData = amqpMessageAdapter.adapt(message);
+        } catch (Exception e) {
+            log.error("Error adapting transaction event", e);
+            failedMessageHandler.onFailure(message, null, channel, e);
+            return;
+        }
         try {
-            MQMessageData messageData = amqpMessageAdapter.adapt(message);
             transactionEventService.processTransactionCreatedEvent(messageData);
+            messageAcknowledger.ack(channel, deliveryTag);
         } catch (Exception e) {
             log.error("Error processing transaction event", e);
+            failedMessageHandler.onFailure(message, messageData, channel, e);
         }
     }
 } 
\ No newline at end of file
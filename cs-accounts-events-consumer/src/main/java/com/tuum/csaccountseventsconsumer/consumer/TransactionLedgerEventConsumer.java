@@ -0,0 +1,48 @@
+package com.tuum.csaccountseventsconsumer.consumer;
+
+import com.rabbitmq.client.Channel;
+import com.tuum.common.adapter.AmqpMessageAdapter;
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.csaccountseventsconsumer.service.LedgerTransactionEventService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ledger counterpart of {@link TransactionEventConsumer}, enabled with {@code tuum.ledger.enabled=true}.
+ * Registered on the transaction queues by {@link com.tuum.csaccountseventsconsumer.config.TransactionListenerConfigurer}.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.ledger.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionLedgerEventConsumer {
+
+    private final LedgerTransactionEventService ledgerTransactionEventService;
+    private final AmqpMessageAdapter amqpMessageAdapter;
+    private final MessageAcknowledger messageAcknowledger;
+    private final FailedMessageHandler failedMessageHandler;
+
+    public void handleTransactionEvent(Message message, Channel channel) {
+        log.debug("Consumer received message: {}", message.getMessageProperties().getMessageId());
+
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        MQMessageData messageData;
+        try {
+            messageData = amqpMessageAdapter.adapt(message);
+        } catch (Exception e) {
+            log.error("Error adapting transaction event", e);
+            failedMessageHandler.onFailure(message, null, channel, e);
+            return;
+        }
+        try {
+            ledgerTransactionEventService.processTransactionCreatedEvent(messageData);
+            messageAcknowledger.ack(channel, deliveryTag);
+        } catch (Exception e) {
+            log.error("Error processing transaction event", e);
+            failedMessageHandler.onFailure(message, messageData, channel, e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.tuum.csaccountseventsconsumer.ledger;
+
+import com.tuum.common.types.Currency;
+
+import java.math.BigDecimal;
+
+/**
+ * A balance held by a ledger shard. Only the shard's writer thread reads or changes it.
+ */
+final class LedgerBalance {
+
+    final String balanceId;
+    final String accountId;
+    final Currency currency;
+    BigDecimal availableAmount;
+    int versionNumber;
+
+    LedgerBalance(String balanceId, String accountId, Currency currency, BigDecimal availableAmount, int versionNumber) {
+        this.balanceId = balanceId;
+        this.accountId = accountId;
+        this.currency = currency;
+        this.availableAmount = availableAmount;
+        this.versionNumber = versionNumber;
+    }
+
+    LedgerBalance copy() {
+        return new LedgerBalance(balanceId, accountId, currency, availableAmount, versionNumber);
+    }
+
+    static String key(String accountId, Currency currency) {
+        return accountId + ":" + currency;
+    }
+}
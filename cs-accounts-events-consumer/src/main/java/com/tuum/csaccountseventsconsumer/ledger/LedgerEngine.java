@@ -0,0 +1,199 @@
+package com.tuum.csaccountseventsconsumer.ledger;
+
+import com.tuum.common.dto.mq.CreateTransactionEvent;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.types.TransactionPartitions;
+import com.tuum.csaccountseventsconsumer.mapper.BalanceMapper;
+import com.tuum.csaccountseventsconsumer.mapper.LedgerMapper;
+import com.tuum.csaccountseventsconsumer.mapper.ProcessedMessageMapper;
+import com.tuum.csaccountseventsconsumer.mapper.TransactionMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory ledger for transaction postings, enabled with {@code tuum.ledger.enabled=true}. It
+ * holds the authoritative balances of its accounts in memory, split into one {@link LedgerShard}
+ * per transaction partition; the shard of an account is its partition, so the instance that is
+ * the active consumer of a partition queue owns that shard. A posting is complete once it is in
+ * the shard's journal on local disk, and the tables are brought up to date by the
+ * {@link LedgerWriteBehind}.
+ * <p>
+ * While enabled, the ledger must be the only writer of the balances of its shards. Each instance
+ * journals under {@code journal-dir/owner-id} and checkpoints under its {@code owner-id}, which must be
+ * unique and stable across restarts. A shard claims ownership in {@code ledger_shard_owners} before
+ * it takes postings (see {@link LedgerOwnership}). When a partition moves to another instance after
+ * a clean shutdown, which drains the write-behind, nothing is lost. After a crash, the postings the
+ * old owner journalled but had not written to the database are parked when it restarts, and must
+ * be reconciled by an operator.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.ledger.enabled", havingValue = "true")
+@Slf4j
+public class LedgerEngine {
+
+    private final List<LedgerShard> shards = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private final LedgerWriteBehind writeBehind;
+    private final LedgerMapper ledgerMapper;
+    private final String ownerId;
+    private final Timer postingLatency;
+    private final Thread writeBehindThread;
+
+    public LedgerEngine(BalanceMapper balanceMapper,
+                        ProcessedMessageMapper processedMessageMapper,
+                        TransactionMapper transactionMapper,
+                        LedgerMapper ledgerMapper,
+                        @Qualifier("batchSqlSessionTemplate") SqlSessionTemplate batchSqlSessionTemplate,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry,
+                        @Value("${tuum.transactions.partitions:4}") int partitions,
+                        @Value("${tuum.ledger.journal-dir:./data/ledger}") String journalDir,
+                        @Value("${tuum.ledger.owner-id:${HOSTNAME:ledger}}") String ownerId,
+                        @Value("${tuum.ledger.fsync:true}") boolean fsync,
+                        @Value("${tuum.ledger.segment-bytes:67108864}") long segmentBytes,
+                        @Value("${tuum.ledger.queue-capacity:8192}") int queueCapacity,
+                        @Value("${tuum.ledger.max-batch:256}") int maxBatch,
+                        @Value("${tuum.ledger.recent-postings:100000}") int recentPostings,
+                        @Value("${tuum.ledger.write-behind.batch-size:500}") int writeBehindBatchSize,
+                        @Value("${tuum.ledger.write-behind.flush-interval-ms:20}") long flushIntervalMillis) {
+        this.ledgerMapper = ledgerMapper;
+        this.ownerId = ownerId;
+        Counter writeBehindFailures = Counter.builder("tuum.ledger.write-behind.failures")
+                .description("Write-behind batches that failed and are being retried")
+                .register(meterRegistry);
+        Counter parkedPostings = Counter.builder("tuum.ledger.write-behind.parked")
+                .description("Journalled postings that could not be written to the database and were parked")
+                .register(meterRegistry);
+        Path ownerDir = Path.of(journalDir, ownerId);
+        this.writeBehind = new LedgerWriteBehind(batchSqlSessionTemplate, new TransactionTemplate(transactionManager),
+                ownerId, ownerDir.resolve("parked"), fsync, partitions, writeBehindBatchSize, flushIntervalMillis,
+                e -> writeBehindFailures.increment(), parkedPostings::increment);
+        LedgerOwnership ownership = new LedgerOwnership(ledgerMapper, ownerId);
+        for (int shard = 0; shard < partitions; shard++) {
+            LedgerJournal journal = new LedgerJournal(ownerDir.resolve("shard-" + shard), segmentBytes, fsync);
+            LedgerShard ledgerShard = new LedgerShard(shard, journal, writeBehind, ownership,
+                    balanceMapper::findBalanceByAccountIdAndCurrency,
+                    postings -> findProcessed(processedMessageMapper, transactionMapper, postings),
+                    queueCapacity, maxBatch, recentPostings);
+            shards.add(ledgerShard);
+            Gauge.builder("tuum.ledger.queue.depth", ledgerShard, LedgerShard::queueDepth)
+                    .description("Postings waiting for the shard's writer")
+                    .tag("shard", String.valueOf(shard))
+                    .register(meterRegistry);
+        }
+        this.writeBehindThread = new Thread(writeBehind, "ledger-write-behind");
+        this.postingLatency = Timer.builder("tuum.ledger.posting.latency")
+                .description("Time from submitting a posting until it is journalled")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("tuum.ledger.write-behind.backlog", writeBehind, LedgerWriteBehind::backlog)
+                .description("Journalled postings not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            Long checkpoint = ledgerMapper.findCheckpoint(shard, ownerId);
+            long persisted = checkpoint != null ? checkpoint : 0;
+            writeBehind.markPersisted(shard, persisted);
+            try {
+                shards.get(shard).recover(persisted);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to recover ledger shard " + shard, e);
+            }
+        }
+        writeBehindThread.start();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            Thread writer = new Thread(shards.get(shard), "ledger-shard-" + shard);
+            writers.add(writer);
+            writer.start();
+        }
+        log.info("Ledger started with {} shards as {}", shards.size(), ownerId);
+    }
+
+    /**
+     * Hands the posting to the writer of the account's shard. The future completes once the
+     * posting is journalled, or fails with the reason it was refused.
+     */
+    public CompletableFuture<PostingResult> post(CreateTransactionEvent event, String messageId) {
+        long startedAt = System.nanoTime();
+        CompletableFuture<PostingResult> result = new CompletableFuture<>();
+        LedgerShard shard = shards.get(TransactionPartitions.partitionOf(event.getAccountId(), shards.size()));
+        try {
+            shard.submit(new LedgerShard.Posting(event, messageId, result));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(new BusinessException("Interrupted while submitting posting", "LEDGER_UNAVAILABLE"));
+        } catch (BusinessException e) {
+            result.completeExceptionally(e);
+        }
+        return result.whenComplete((posting, error) ->
+                postingLatency.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Message ids of the postings the database already has, in {@code processed_messages} by
+     * message id or in {@code transactions} by idempotency key.
+     */
+    private static Set<String> findProcessed(ProcessedMessageMapper processedMessageMapper, TransactionMapper transactionMapper,
+                                             List<LedgerShard.Posting> postings) {
+        if (postings.isEmpty()) {
+            return Set.of();
+        }
+        List<String> messageIds = postings.stream().map(LedgerShard.Posting::messageId).distinct().toList();
+        Set<String> processed = new HashSet<>(processedMessageMapper.findProcessedMessageIds(messageIds));
+        List<String> idempotencyKeys = postings.stream()
+                .map(posting -> posting.event().getIdempotencyKey())
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (!idempotencyKeys.isEmpty()) {
+            Set<String> existingKeys = new HashSet<>(transactionMapper.findExistingIdempotencyKeys(idempotencyKeys));
+            for (LedgerShard.Posting posting : postings) {
+                if (existingKeys.contains(posting.event().getIdempotencyKey())) {
+                    processed.add(posting.messageId());
+                }
+            }
+        }
+        return processed;
+    }
+
+    /**
+     * Runs after the listener containers have stopped: the writers finish their queues, then the
+     * write-behind empties, so a clean shutdown leaves the tables complete.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        shards.forEach(LedgerShard::stop);
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        writeBehind.stop();
+        writeBehindThread.join(TimeUnit.SECONDS.toMillis(60));
+        log.info("Ledger stopped, {} postings left for the write-behind", writeBehind.backlog());
+    }
+}
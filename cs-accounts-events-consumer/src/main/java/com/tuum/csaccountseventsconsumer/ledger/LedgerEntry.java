@@ -0,0 +1,92 @@
+package com.tuum.csaccountseventsconsumer.ledger;
+
+import com.tuum.common.domain.entities.Transaction;
+import com.tuum.common.types.Currency;
+import com.tuum.common.types.TransactionDirection;
+import com.tuum.common.types.TransactionStatus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One applied posting as recorded in the journal: enough to rebuild the balance after it and to
+ * write the transaction and processed-message rows.
+ */
+record LedgerEntry(long sequence,
+                   String messageId,
+                   String idempotencyKey,
+                   String transactionId,
+                   String accountId,
+                   String balanceId,
+                   Currency currency,
+                   TransactionDirection direction,
+                   BigDecimal amount,
+                   BigDecimal balanceAfter,
+                   int versionAfter,
+                   String description,
+                   LocalDateTime createdAt) {
+
+    Transaction toTransaction() {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setAccountId(accountId);
+        transaction.setBalanceId(balanceId);
+        transaction.setAmount(amount);
+        transaction.setCurrency(currency);
+        transaction.setDirection(direction);
+        transaction.setDescription(description);
+        transaction.setBalanceAfterTransaction(balanceAfter);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        transaction.setIdempotencyKey(idempotencyKey);
+        transaction.setCreatedAt(createdAt);
+        transaction.setUpdatedAt(createdAt);
+        return transaction;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(sequence);
+        out.writeUTF(messageId);
+        writeNullable(out, idempotencyKey);
+        out.writeUTF(transactionId);
+        out.writeUTF(accountId);
+        out.writeUTF(balanceId);
+        out.writeUTF(currency.name());
+        out.writeUTF(direction.name());
+        out.writeUTF(amount.toPlainString());
+        out.writeUTF(balanceAfter.toPlainString());
+        out.writeInt(versionAfter);
+        writeNullable(out, description);
+        out.writeUTF(createdAt.toString());
+    }
+
+    static LedgerEntry readFrom(DataInput in) throws IOException {
+        return new LedgerEntry(
+                in.readLong(),
+                in.readUTF(),
+                readNullable(in),
+                in.readUTF(),
+                in.readUTF(),
+                in.readUTF(),
+                Currency.valueOf(in.readUTF()),
+                TransactionDirection.valueOf(in.readUTF()),
+                new BigDecimal(in.readUTF()),
+                new BigDecimal(in.readUTF()),
+                in.readInt(),
+                readNullable(in),
+                LocalDateTime.parse(in.readUTF()));
+    }
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
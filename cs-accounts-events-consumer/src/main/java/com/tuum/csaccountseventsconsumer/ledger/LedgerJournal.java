@@ -0,0 +1,256 @@
+package com.tuum.csaccountseventsconsumer.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of one ledger shard, split into segment files named after the sequence of
+ * their first entry. Each entry is framed as {@code length, crc32, payload}; a torn entry at the end
+ * of the last segment (a crash in the middle of a write) is cut off on replay.
+ * <p>
+ * Not thread-safe: only the shard's writer thread uses it.
+ */
+@Slf4j
+class LedgerJournal implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(512);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+    private FileChannel segment;
+    private Path segmentPath;
+    private IOException unusable;
+    private int pendingEntries;
+    private long lastSequence;
+
+    LedgerJournal(Path directory, long segmentBytes, boolean fsync) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Passes every intact entry to {@code consumer} in sequence order and returns the last sequence
+     * seen, or 0 if the journal is empty. Must be called once, before the first {@link #append}.
+     */
+    long replay(Consumer<LedgerEntry> consumer) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            long validBytes = replaySegment(path, consumer);
+            if (validBytes < Files.size(path)) {
+                if (i < segments.size() - 1) {
+                    throw new IOException("Corrupt entry in journal segment " + path + " at byte " + validBytes);
+                }
+                log.warn("Cutting torn entry off the end of journal segment {} at byte {}", path, validBytes);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(validBytes);
+                }
+            }
+        }
+        return lastSequence;
+    }
+
+    private long replaySegment(Path path, Consumer<LedgerEntry> consumer) throws IOException {
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > 1 << 20) {
+                        return validBytes;
+                    }
+                    payload = in.readNBytes(length);
+                } catch (EOFException e) {
+                    return validBytes;
+                }
+                if (payload.length < length || checksum(payload, payload.length) != checksum) {
+                    return validBytes;
+                }
+                LedgerEntry entry = LedgerEntry.readFrom(new DataInputStream(new ByteArrayInputStream(payload)));
+                lastSequence = entry.sequence();
+                consumer.accept(entry);
+                validBytes += 8 + length;
+            }
+        }
+    }
+
+    /**
+     * Buffers the entry; it is durable once {@link #sync} returns.
+     */
+    void append(LedgerEntry entry) {
+        try {
+            record.reset();
+            entry.writeTo(recordOut);
+            pendingOut.writeInt(record.size());
+            pendingOut.writeInt(checksum(record.toByteArray(), record.size()));
+            record.writeTo(pendingOut);
+            pendingEntries++;
+            lastSequence = entry.sequence();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the buffered entries and, if configured, forces them to disk. On failure the buffered
+     * entries are discarded and the segment is cut back to its previous length, so the caller can
+     * fail the postings and undo them in memory. If even that fails, the journal refuses further
+     * writes rather than append after a partial entry.
+     */
+    void sync() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+        if (unusable != null) {
+            discardPending();
+            throw new IOException("Journal segment " + segmentPath + " could not be cut back after a failed write", unusable);
+        }
+        long sizeBefore = -1;
+        try {
+            if (segment == null) {
+                long firstSequence = lastSequence - pendingEntries + 1;
+                segmentPath = directory.resolve(segmentName(firstSequence));
+                segment = openSegment(segmentPath);
+            }
+            sizeBefore = segment.size();
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            if (fsync) {
+                segment.force(false);
+            }
+        } catch (IOException e) {
+            discardPending();
+            if (sizeBefore >= 0) {
+                cutBack(sizeBefore, e);
+            } else if (segment != null) {
+                // Nothing was written, but the channel is broken; the next sync opens the segment again
+                closeSegment(e);
+            }
+            throw e;
+        }
+        pendingEntries = 0;
+        pending.reset();
+        if (segment.size() >= segmentBytes) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    FileChannel openSegment(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void discardPending() {
+        lastSequence -= pendingEntries;
+        pendingEntries = 0;
+        pending.reset();
+    }
+
+    /**
+     * Truncates the current segment to {@code size} after a failed write, through a new channel if
+     * the segment's own channel is broken.
+     */
+    private void cutBack(long size, IOException failure) {
+        try {
+            segment.truncate(size);
+            return;
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+        closeSegment(failure);
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+            unusable = failure;
+        }
+    }
+
+    private void closeSegment(IOException failure) {
+        try {
+            segment.close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+        segment = null;
+    }
+
+    /**
+     * Deletes whole segments whose entries are all at or below {@code persistedSequence}. The
+     * segment being written to is never deleted.
+     */
+    void deleteSegmentsUpTo(long persistedSequence) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            long nextFirstSequence = firstSequence(segments.get(i + 1));
+            if (nextFirstSequence - 1 > persistedSequence) {
+                return;
+            }
+            Files.delete(segments.get(i));
+            log.info("Deleted persisted journal segment {}", segments.get(i));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String segmentName(long firstSequence) {
+        return String.format("%020d%s", firstSequence, SEGMENT_SUFFIX);
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private int checksum(byte[] bytes, int length) {
+        crc.reset();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,39 @@
+package com.tuum.csaccountseventsconsumer.ledger;
+
+import com.tuum.csaccountseventsconsumer.mapper.LedgerMapper;
+
+/**
+ * Which instance owns each ledger shard, kept in {@code ledger_shard_owners}. The owner of a
+ * partition's shard is the instance that last took postings for it; every change of owner bumps
+ * the shard's epoch. A shard holds the epoch it claimed and writes its postings under it, so once
+ * another instance claims the shard the earlier owner's write-behind no longer matches and is
+ * fenced off.
+ */
+class LedgerOwnership {
+
+    private final LedgerMapper ledgerMapper;
+    private final String ownerId;
+
+    LedgerOwnership(LedgerMapper ledgerMapper, String ownerId) {
+        this.ledgerMapper = ledgerMapper;
+        this.ownerId = ownerId;
+    }
+
+    String ownerId() {
+        return ownerId;
+    }
+
+    /**
+     * The current epoch of the shard if this instance owns it, otherwise {@code null}.
+     */
+    Long ownedEpoch(int shard) {
+        return ledgerMapper.findOwnedEpoch(shard, ownerId);
+    }
+
+    /**
+     * Takes the shard over under a new epoch and returns it.
+     */
+    long claim(int shard) {
+        return ledgerMapper.claimShard(shard, ownerId);
+    }
+}
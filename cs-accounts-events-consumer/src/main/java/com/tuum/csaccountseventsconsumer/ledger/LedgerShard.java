@@ -0,0 +1,321 @@
+package com.tuum.csaccountseventsconsumer.ledger;
+
+import com.tuum.common.domain.entities.Balance;
+import com.tuum.common.domain.entities.Transaction;
+import com.tuum.common.dto.mq.CreateTransactionEvent;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.InsufficientFundsException;
+import com.tuum.common.types.Currency;
+import com.tuum.common.types.TransactionDirection;
+import com.tuum.common.util.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * One shard of the ledger: the balances of the accounts that hash to it, owned by a single writer
+ * thread. Postings are handed over through a bounded queue; the writer takes whatever has queued
+ * up (up to {@code maxBatch}), applies each posting to its in-memory balance without locks, appends
+ * the results to the journal and makes them durable with one sync for the whole group before
+ * completing any of them. Durable postings are then handed to the {@link LedgerWriteBehind}.
+ * <p>
+ * Before each group the writer confirms in {@code ledger_shard_owners} that this instance still
+ * owns the shard (see {@link LedgerOwnership}). If another instance took postings for the partition
+ * in the meantime, the shard claims it back under a new epoch and drops what it holds in memory, so
+ * balances are read again from the database rather than from before the other owner's postings.
+ * <p>
+ * A posting whose message is not among the shard's recent postings is checked against the
+ * database, with one query for the whole group, so a redelivered command is not applied twice
+ * after a restart, a change of owner or once it has aged out of memory.
+ */
+@Slf4j
+class LedgerShard implements Runnable {
+
+    private static final long COMPACTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int shard;
+    private final LedgerJournal journal;
+    private final LedgerWriteBehind writeBehind;
+    private final LedgerOwnership ownership;
+    private final BiFunction<String, Currency, Balance> balanceLoader;
+    private final Function<List<Posting>, Set<String>> processedInDatabase;
+    private final BlockingQueue<Posting> queue;
+    private final int maxBatch;
+    private final Map<String, LedgerBalance> balances = new HashMap<>();
+    private final Map<String, Transaction> recentPostings;
+    private volatile boolean running = true;
+    private long epoch;
+    private long sequence;
+    private long compactedSequence;
+    private long lastCompactionNanos;
+
+    LedgerShard(int shard, LedgerJournal journal, LedgerWriteBehind writeBehind, LedgerOwnership ownership,
+                BiFunction<String, Currency, Balance> balanceLoader, Function<List<Posting>, Set<String>> processedInDatabase,
+                int queueCapacity, int maxBatch, int recentPostingsCapacity) {
+        this.shard = shard;
+        this.journal = journal;
+        this.writeBehind = writeBehind;
+        this.ownership = ownership;
+        this.balanceLoader = balanceLoader;
+        this.processedInDatabase = processedInDatabase;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+        this.recentPostings = new LinkedHashMap<>(1024, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Transaction> eldest) {
+                return size() > recentPostingsCapacity;
+            }
+        };
+    }
+
+    /**
+     * Rebuilds the shard from the journal before the writer starts. Entries after the
+     * {@code checkpoint}, this instance's own, were not yet written to the database and are handed
+     * to the write-behind again. If this instance still owns the shard, their balances are taken from
+     * the journal; other balances load from the database when first used. If another instance has
+     * owned the shard since, its postings may have followed these balances, so the entries are handed
+     * over without an epoch and the write-behind parks them.
+     */
+    void recover(long checkpoint) throws IOException {
+        Long ownedEpoch = ownership.ownedEpoch(shard);
+        List<LedgerEntry> unpersisted = new ArrayList<>();
+        long lastSequence = journal.replay(entry -> {
+            if (entry.sequence() > checkpoint) {
+                unpersisted.add(entry);
+                if (ownedEpoch != null) {
+                    balances.put(LedgerBalance.key(entry.accountId(), entry.currency()), new LedgerBalance(
+                            entry.balanceId(), entry.accountId(), entry.currency(), entry.balanceAfter(), entry.versionAfter()));
+                    recentPostings.put(entry.messageId(), entry.toTransaction());
+                }
+            }
+        });
+        epoch = ownedEpoch != null ? ownedEpoch : 0;
+        sequence = Math.max(checkpoint, lastSequence);
+        compactedSequence = checkpoint;
+        journal.deleteSegmentsUpTo(checkpoint);
+        if (!unpersisted.isEmpty()) {
+            if (ownedEpoch == null) {
+                log.error("Ledger shard {} is no longer owned by {}, parking {} postings that were not written to the database",
+                        shard, ownership.ownerId(), unpersisted.size());
+            }
+            writeBehind.submit(shard, epoch, unpersisted);
+        }
+        log.info("Recovered ledger shard {} at sequence {}, {} postings still to be written to the database",
+                shard, sequence, unpersisted.size());
+    }
+
+    /**
+     * Queues a posting, waiting for space if the writer is behind.
+     */
+    void submit(Posting posting) throws InterruptedException {
+        if (!running) {
+            throw new BusinessException("Ledger shard " + shard + " is stopped", "LEDGER_UNAVAILABLE");
+        }
+        queue.put(posting);
+    }
+
+    int queueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Lets the writer finish what is queued, then stop.
+     */
+    void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        List<Posting> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            Posting first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (first != null) {
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                applyBatch(batch);
+                batch.clear();
+            }
+            compactJournal();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Failed to close journal of ledger shard {}", shard, e);
+        }
+    }
+
+    private void applyBatch(List<Posting> batch) {
+        Set<String> processed;
+        try {
+            ensureOwnership();
+            processed = processedInDatabase.apply(batch.stream()
+                    .filter(posting -> !recentPostings.containsKey(posting.messageId()))
+                    .toList());
+        } catch (RuntimeException e) {
+            log.error("Ledger shard {} could not read its ownership or processed messages, failing {} postings", shard, batch.size(), e);
+            BusinessException failure = new BusinessException("Ledger shard cannot reach the database", "LEDGER_UNAVAILABLE");
+            batch.forEach(posting -> posting.result().completeExceptionally(failure));
+            return;
+        }
+
+        Map<String, LedgerBalance> undo = new HashMap<>();
+        long sequenceBefore = sequence;
+        List<LedgerEntry> entries = new ArrayList<>();
+        List<Outcome> outcomes = new ArrayList<>(batch.size());
+        for (Posting posting : batch) {
+            try {
+                outcomes.add(apply(posting, processed, undo, entries));
+            } catch (RuntimeException e) {
+                outcomes.add(new Outcome(posting, null, e));
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            try {
+                journal.sync();
+            } catch (IOException e) {
+                log.error("Ledger shard {} could not write its journal, failing {} postings", shard, entries.size(), e);
+                undo.forEach((key, previous) -> {
+                    if (previous == null) {
+                        balances.remove(key);
+                    } else {
+                        balances.put(key, previous);
+                    }
+                });
+                entries.forEach(entry -> recentPostings.remove(entry.messageId()));
+                sequence = sequenceBefore;
+                BusinessException failure = new BusinessException("Ledger journal is unavailable", "LEDGER_UNAVAILABLE");
+                outcomes.replaceAll(outcome -> outcome.result() != null && !outcome.result().duplicate()
+                        ? new Outcome(outcome.posting(), null, failure) : outcome);
+                entries.clear();
+            }
+            if (!entries.isEmpty()) {
+                writeBehind.submit(shard, epoch, entries);
+            }
+        }
+
+        for (Outcome outcome : outcomes) {
+            if (outcome.error() != null) {
+                outcome.posting().result().completeExceptionally(outcome.error());
+            } else {
+                outcome.posting().result().complete(outcome.result());
+            }
+        }
+    }
+
+    /**
+     * Claims the shard unless this instance already owns it under the epoch it holds.
+     */
+    private void ensureOwnership() {
+        Long ownedEpoch = ownership.ownedEpoch(shard);
+        if (ownedEpoch != null && ownedEpoch == epoch) {
+            return;
+        }
+        long claimed = ownership.claim(shard);
+        log.info("Ledger shard {} claimed by {} at epoch {}, dropping {} balances held in memory",
+                shard, ownership.ownerId(), claimed, balances.size());
+        balances.clear();
+        recentPostings.clear();
+        epoch = claimed;
+    }
+
+    private Outcome apply(Posting posting, Set<String> processed, Map<String, LedgerBalance> undo, List<LedgerEntry> entries) {
+        CreateTransactionEvent event = posting.event();
+        Transaction recent = recentPostings.get(posting.messageId());
+        if (recent != null) {
+            return new Outcome(posting, new PostingResult(recent, true), null);
+        }
+        if (processed.contains(posting.messageId())) {
+            return new Outcome(posting, new PostingResult(null, true), null);
+        }
+        if (event.getDirection() != TransactionDirection.IN && event.getDirection() != TransactionDirection.OUT) {
+            throw new BusinessException("Must be IN or OUT", "INVALID_DIRECTION");
+        }
+
+        String key = LedgerBalance.key(event.getAccountId(), event.getCurrency());
+        LedgerBalance balance = balances.get(key);
+        if (balance == null) {
+            Balance stored = balanceLoader.apply(event.getAccountId(), event.getCurrency());
+            if (stored == null) {
+                throw new BusinessException("No " + event.getCurrency() + " balance found for account " + event.getAccountId(),
+                        "BALANCE_NOT_FOUND");
+            }
+            balance = new LedgerBalance(stored.getBalanceId(), stored.getAccountId(), stored.getCurrency(),
+                    stored.getAvailableAmount(), stored.getVersionNumber());
+            if (!undo.containsKey(key)) {
+                undo.put(key, null);
+            }
+            balances.put(key, balance);
+        }
+
+        BigDecimal newAmount;
+        if (event.getDirection() == TransactionDirection.IN) {
+            newAmount = balance.availableAmount.add(event.getAmount());
+        } else {
+            if (balance.availableAmount.compareTo(event.getAmount()) < 0) {
+                throw new InsufficientFundsException(
+                        "Available: " + balance.availableAmount + ", Required: " + event.getAmount());
+            }
+            newAmount = balance.availableAmount.subtract(event.getAmount());
+        }
+
+        LedgerEntry entry = new LedgerEntry(sequence + 1, posting.messageId(), event.getIdempotencyKey(),
+                IdGenerator.generateTransactionId(), balance.accountId, balance.balanceId, balance.currency,
+                event.getDirection(), event.getAmount(), newAmount, balance.versionNumber + 1, event.getDescription(),
+                LocalDateTime.now());
+        journal.append(entry);
+        sequence = entry.sequence();
+        entries.add(entry);
+
+        if (!undo.containsKey(key)) {
+            undo.put(key, balance.copy());
+        }
+        balance.availableAmount = newAmount;
+        balance.versionNumber = entry.versionAfter();
+        Transaction transaction = entry.toTransaction();
+        recentPostings.put(posting.messageId(), transaction);
+        return new Outcome(posting, new PostingResult(transaction, false), null);
+    }
+
+    private void compactJournal() {
+        long persisted = writeBehind.persistedSequence(shard);
+        long now = System.nanoTime();
+        if (persisted <= compactedSequence || now - lastCompactionNanos < COMPACTION_INTERVAL_NANOS) {
+            return;
+        }
+        lastCompactionNanos = now;
+        try {
+            journal.deleteSegmentsUpTo(persisted);
+            compactedSequence = persisted;
+        } catch (IOException e) {
+            log.warn("Failed to delete persisted journal segments of ledger shard {}", shard, e);
+        }
+    }
+
+    record Posting(CreateTransactionEvent event, String messageId, CompletableFuture<PostingResult> result) {
+    }
+
+    private record Outcome(Posting posting, PostingResult result, RuntimeException error) {
+    }
+}
@@ -0,0 +1,306 @@
+package com.tuum.csaccountseventsconsumer.ledger;
+
+import com.tuum.common.domain.entities.ProcessedMessage;
+import com.tuum.csaccountseventsconsumer.mapper.LedgerMapper;
+import com.tuum.csaccountseventsconsumer.mapper.ProcessedMessageMapper;
+import com.tuum.csaccountseventsconsumer.mapper.TransactionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.BatchResult;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Writes journalled postings to the {@code transactions}, {@code processed_messages} and
+ * {@code balances} tables in the background, in JDBC batches of up to {@code batchSize} postings.
+ * Each batch also advances this instance's rows in {@code ledger_checkpoints} in the same database
+ * transaction, so after a crash the journal is replayed from exactly the first posting that is
+ * missing from the tables. A batch that failed transiently is retried until it succeeds.
+ * <p>
+ * Postings are written under the epoch their shard held when it journalled them (see
+ * {@link LedgerOwnership}), and the batch transaction locks the shards' owner rows, so a shard
+ * cannot change hands while its postings are written. A balance is only overwritten if it still
+ * has the version its first posting in the batch followed. Postings of an earlier epoch, and postings
+ * whose balance another writer changed, cannot be written without losing the other owner's
+ * postings. Postings that violate a constraint, such as a transaction or message already in the
+ * tables, fail the same way on every attempt. All of these are parked in a journal per shard under
+ * {@code parkedDir} for an operator to reconcile, and the checkpoint moves past them.
+ */
+@Slf4j
+class LedgerWriteBehind implements Runnable {
+
+    private final SqlSessionTemplate batchSqlSessionTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionMapper transactionMapper;
+    private final ProcessedMessageMapper processedMessageMapper;
+    private final LedgerMapper ledgerMapper;
+    private final String ownerId;
+    private final Path parkedDir;
+    private final boolean fsync;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Consumer<Exception> onFailure;
+    private final Runnable onParked;
+    private final LinkedBlockingQueue<ShardEntry> queue = new LinkedBlockingQueue<>();
+    private final AtomicLongArray persistedSequences;
+    private final long[] parkedSequences;
+    private final Map<Integer, LedgerJournal> parkedJournals = new HashMap<>();
+    private volatile boolean running = true;
+
+    LedgerWriteBehind(SqlSessionTemplate batchSqlSessionTemplate, TransactionTemplate transactionTemplate,
+                      String ownerId, Path parkedDir, boolean fsync, int shards, int batchSize,
+                      long flushIntervalMillis, Consumer<Exception> onFailure, Runnable onParked) {
+        this.batchSqlSessionTemplate = batchSqlSessionTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.transactionMapper = batchSqlSessionTemplate.getMapper(TransactionMapper.class);
+        this.processedMessageMapper = batchSqlSessionTemplate.getMapper(ProcessedMessageMapper.class);
+        this.ledgerMapper = batchSqlSessionTemplate.getMapper(LedgerMapper.class);
+        this.ownerId = ownerId;
+        this.parkedDir = parkedDir;
+        this.fsync = fsync;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.onFailure = onFailure;
+        this.onParked = onParked;
+        this.persistedSequences = new AtomicLongArray(shards);
+        this.parkedSequences = new long[shards];
+    }
+
+    /**
+     * Queues journalled entries of {@code shard}, written while it held {@code epoch}.
+     */
+    void submit(int shard, long epoch, List<LedgerEntry> entries) {
+        for (LedgerEntry entry : entries) {
+            queue.add(new ShardEntry(shard, epoch, entry));
+        }
+    }
+
+    /**
+     * Highest sequence of {@code shard} known to be in the database.
+     */
+    long persistedSequence(int shard) {
+        return persistedSequences.get(shard);
+    }
+
+    void markPersisted(int shard, long sequence) {
+        persistedSequences.accumulateAndGet(shard, sequence, Math::max);
+    }
+
+    int backlog() {
+        return queue.size();
+    }
+
+    /**
+     * Writes everything still queued, then stops.
+     */
+    void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        List<ShardEntry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ShardEntry first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            persistWithRetry(batch, null);
+            batch.clear();
+        }
+        for (LedgerJournal journal : parkedJournals.values()) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Failed to close parked ledger postings journal", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the batch, or with a {@code parkReason} parks all of it. A batch that fails for a reason
+     * retrying cannot fix is written again one posting at a time, and the postings that still fail
+     * are parked.
+     */
+    private void persistWithRetry(List<ShardEntry> batch, String parkReason) {
+        long backoffMillis = 100;
+        while (true) {
+            try {
+                persist(batch, parkReason);
+                return;
+            } catch (RuntimeException e) {
+                if (parkReason == null && isTerminal(e)) {
+                    if (batch.size() == 1) {
+                        persistWithRetry(batch, e.getMessage());
+                    } else {
+                        log.warn("Batch of {} ledger postings cannot be written, writing them one by one: {}", batch.size(), e.getMessage());
+                        batch.forEach(shardEntry -> persistWithRetry(List.of(shardEntry), null));
+                    }
+                    return;
+                }
+                onFailure.accept(e);
+                log.error("Failed to write {} ledger postings to the database, retrying in {} ms", batch.size(), backoffMillis, e);
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, 5000);
+            }
+        }
+    }
+
+    private void persist(List<ShardEntry> batch, String parkReason) {
+        Map<String, LedgerEntry> lastByBalance = new LinkedHashMap<>();
+        Map<String, Integer> expectedVersions = new HashMap<>();
+        Map<Integer, Long> lastByShard = new LinkedHashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            // Selects flush the JDBC batch, so the owner rows are locked before anything is queued in it
+            Map<Integer, Long> epochs = new HashMap<>();
+            for (ShardEntry shardEntry : batch) {
+                if (!epochs.containsKey(shardEntry.shard())) {
+                    epochs.put(shardEntry.shard(), ledgerMapper.lockOwnedEpoch(shardEntry.shard(), ownerId));
+                }
+            }
+            for (ShardEntry shardEntry : batch) {
+                LedgerEntry entry = shardEntry.entry();
+                lastByShard.merge(shardEntry.shard(), entry.sequence(), Math::max);
+                if (parkReason != null) {
+                    park(shardEntry, parkReason);
+                    continue;
+                }
+                if (!Objects.equals(epochs.get(shardEntry.shard()), shardEntry.epoch())) {
+                    park(shardEntry, "shard " + shardEntry.shard() + " is owned by another instance");
+                    continue;
+                }
+                transactionMapper.insertTransaction(entry.toTransaction());
+                processedMessageMapper.insertProcessedMessage(processedMessage(entry));
+                expectedVersions.putIfAbsent(entry.balanceId(), entry.versionAfter() - 1);
+                lastByBalance.put(entry.balanceId(), entry);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            for (LedgerEntry entry : lastByBalance.values()) {
+                ledgerMapper.overwriteBalance(entry.balanceId(), entry.balanceAfter(), entry.versionAfter(),
+                        expectedVersions.get(entry.balanceId()), now);
+            }
+            lastByShard.forEach((shard, sequence) -> ledgerMapper.upsertCheckpoint(shard, ownerId, sequence));
+            checkBalanceVersions(batchSqlSessionTemplate.flushStatements());
+        });
+        lastByShard.forEach(this::markPersisted);
+    }
+
+    private static void checkBalanceVersions(List<BatchResult> results) {
+        for (BatchResult result : results) {
+            if (!result.getMappedStatement().getId().endsWith(".overwriteBalance")) {
+                continue;
+            }
+            for (int updateCount : result.getUpdateCounts()) {
+                if (updateCount == 0) {
+                    throw new BalanceVersionConflictException();
+                }
+            }
+        }
+    }
+
+    private static boolean isTerminal(RuntimeException failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof BalanceVersionConflictException || cause instanceof DataIntegrityViolationException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && isConstraintViolation(sqlException)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * SQLState class 23, integrity constraint violation. A failed JDBC batch may report it only on
+     * the chained exception of the statement that failed.
+     */
+    private static boolean isConstraintViolation(SQLException sqlException) {
+        for (SQLException e = sqlException; e != null; e = e.getNextException()) {
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends the entry to the shard's parked journal, once even if the batch is retried.
+     */
+    private void park(ShardEntry shardEntry, String reason) {
+        int shard = shardEntry.shard();
+        LedgerEntry entry = shardEntry.entry();
+        if (entry.sequence() <= parkedSequences[shard]) {
+            return;
+        }
+        try {
+            LedgerJournal journal = parkedJournal(shard);
+            journal.append(entry);
+            journal.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to park ledger posting " + entry.sequence() + " of shard " + shard, e);
+        }
+        parkedSequences[shard] = entry.sequence();
+        onParked.run();
+        log.error("Parked ledger posting {} of shard {} (message {}, balance {}): {}",
+                entry.sequence(), shard, entry.messageId(), entry.balanceId(), reason);
+    }
+
+    private LedgerJournal parkedJournal(int shard) throws IOException {
+        LedgerJournal journal = parkedJournals.get(shard);
+        if (journal == null) {
+            journal = new LedgerJournal(parkedDir.resolve("shard-" + shard), Long.MAX_VALUE, fsync);
+            journal.replay(entry -> {
+            });
+            parkedJournals.put(shard, journal);
+        }
+        return journal;
+    }
+
+    private static ProcessedMessage processedMessage(LedgerEntry entry) {
+        ProcessedMessage processedMessage = new ProcessedMessage();
+        processedMessage.setMessageId(entry.messageId());
+        processedMessage.setMessageType("CREATE_TRANSACTION");
+        processedMessage.setIdempotencyKey(entry.idempotencyKey());
+        processedMessage.setProcessedAt(entry.createdAt());
+        processedMessage.setResultData("{\"status\":\"SUCCESS\",\"transactionId\":\"" + entry.transactionId() + "\"}");
+        return processedMessage;
+    }
+
+    private record ShardEntry(int shard, long epoch, LedgerEntry entry) {
+    }
+
+    private static class BalanceVersionConflictException extends RuntimeException {
+
+        BalanceVersionConflictException() {
+            super("Balance was changed by another writer");
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.tuum.csaccountseventsconsumer.ledger;
+
+import com.tuum.common.domain.entities.Transaction;
+
+/**
+ * Outcome of a posting. {@code transaction} is {@code null} for a duplicate that was processed
+ * before the ledger's memory of recent postings, in which case it has to be read from the database.
+ */
+public record PostingResult(Transaction transaction, boolean duplicate) {
+}
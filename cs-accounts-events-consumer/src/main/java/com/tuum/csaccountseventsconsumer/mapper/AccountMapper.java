@@ -10,6 +10,8 @@ public interface AccountMapper {
     void insertAccount(Account account);
     
     Account findAccountById(@Param("accountId") String accountId);
+
+    Account findAccountByIdempotencyKey(@Param("idempotencyKey") String idempotencyKey);
     
     boolean existsAccountById(@Param("accountId") String accountId);
     
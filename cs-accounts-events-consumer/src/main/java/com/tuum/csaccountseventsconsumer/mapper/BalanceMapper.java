@@ -2,9 +2,13 @@ package com.tuum.csaccountseventsconsumer.mapper;
 
 import com.tuum.common.domain.entities.Balance;
 import com.tuum.common.types.Currency;
+import com.tuum.common.types.TransactionDirection;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -14,10 +18,22 @@ public interface BalanceMapper {
     void insertBalance(Balance balance);
     
     List<Balance> findBalancesByAccountId(@Param("accountId") String accountId);
+
+    List<Balance> findBalancesByAccountIds(@Param("accountIds") Collection<String> accountIds);
     
     boolean existsBalance(@Param("accountId") String accountId, @Param("currency") Currency currency);
     
     Balance findBalanceByAccountIdAndCurrency(@Param("accountId") String accountId, @Param("currency") Currency currency);
     
     int updateBalance(@Param("balance") Balance balance, @Param("oldVersionNumber") int oldVersionNumber);
+
+    /**
+     * Adds an IN or subtracts an OUT amount in one statement, only if the balance covers an OUT.
+     * Returns the updated balance, or {@code null} if the balance does not exist or is insufficient.
+     */
+    Balance applyPosting(@Param("accountId") String accountId,
+                         @Param("currency") Currency currency,
+                         @Param("direction") TransactionDirection direction,
+                         @Param("amount") BigDecimal amount,
+                         @Param("updatedAt") LocalDateTime updatedAt);
 } 
\ No newline at end of file
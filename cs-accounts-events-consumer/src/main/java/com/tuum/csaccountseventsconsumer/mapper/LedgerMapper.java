@@ -0,0 +1,40 @@
+package com.tuum.csaccountseventsconsumer.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Mapper
+public interface LedgerMapper {
+
+    Long findCheckpoint(@Param("shard") int shard, @Param("ownerId") String ownerId);
+
+    void upsertCheckpoint(@Param("shard") int shard, @Param("ownerId") String ownerId, @Param("lastSequence") long lastSequence);
+
+    /**
+     * The epoch of the shard if {@code ownerId} owns it, otherwise {@code null}.
+     */
+    Long findOwnedEpoch(@Param("shard") int shard, @Param("ownerId") String ownerId);
+
+    /**
+     * Like {@link #findOwnedEpoch}, and keeps the owner row from changing until the transaction ends.
+     */
+    Long lockOwnedEpoch(@Param("shard") int shard, @Param("ownerId") String ownerId);
+
+    /**
+     * Makes {@code ownerId} the owner of the shard under a new epoch, which it returns.
+     */
+    long claimShard(@Param("shard") int shard, @Param("ownerId") String ownerId);
+
+    /**
+     * Overwrites a balance with the ledger's value if it is still at {@code expectedVersionNumber};
+     * the ledger is authoritative for the balances it owns, and a changed version means another writer.
+     */
+    void overwriteBalance(@Param("balanceId") String balanceId,
+                          @Param("availableAmount") BigDecimal availableAmount,
+                          @Param("versionNumber") int versionNumber,
+                          @Param("expectedVersionNumber") int expectedVersionNumber,
+                          @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,20 @@
+package com.tuum.csaccountseventsconsumer.mapper;
+
+import com.tuum.common.domain.entities.OutboxMessage;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface NotificationOutboxMapper {
+
+    void insertMessage(OutboxMessage message);
+
+    /**
+     * Locks the oldest {@code limit} messages, skipping the ones another relay holds.
+     */
+    List<OutboxMessage> lockNextBatch(@Param("limit") int limit);
+
+    void deleteMessages(@Param("ids") List<Long> ids);
+}
@@ -3,13 +3,33 @@ package com.tuum.csaccountseventsconsumer.mapper;
 import com.tuum.common.domain.entities.ProcessedMessage;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.Collection;
+import java.util.List;
 
 @Mapper
 public interface ProcessedMessageMapper {
     
     void insertProcessedMessage(ProcessedMessage processedMessage);
+
+    /**
+     * Inserts the row unless its idempotency key is already recorded.
+     *
+     * @return the message id when inserted, or {@code null} for a replay
+     */
+    String reserveProcessedMessage(ProcessedMessage processedMessage);
     
     boolean existsProcessedMessage(@Param("messageId") String messageId);
     
     boolean existsProcessedMessageByIdempotencyKey(@Param("idempotencyKey") String idempotencyKey);
+
+    List<String> findProcessedMessageIds(@Param("messageIds") Collection<String> messageIds);
+
+    long countProcessedMessages();
+
+    /**
+     * Streams every message id to {@code handler}; must run inside a transaction for the fetch size to apply.
+     */
+    void scanMessageIds(ResultHandler<String> handler);
 } 
\ No newline at end of file
@@ -4,6 +4,9 @@ import com.tuum.common.domain.entities.Transaction;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
+import java.util.List;
+
 @Mapper
 public interface TransactionMapper {
     
@@ -16,4 +19,6 @@ public interface TransactionMapper {
     boolean existsTransactionByIdempotencyKey(@Param("idempotencyKey") String idempotencyKey);
     
     Transaction findTransactionByIdempotencyKey(@Param("idempotencyKey") String idempotencyKey);
+
+    List<String> findExistingIdempotencyKeys(@Param("idempotencyKeys") Collection<String> idempotencyKeys);
 } 
\ No newline at end of file
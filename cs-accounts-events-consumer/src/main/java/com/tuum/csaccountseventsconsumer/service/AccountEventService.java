@@ -1,6 +1,6 @@
 package com.tuum.csaccountseventsconsumer.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.codec.MessageCodecs;
 import com.tuum.common.domain.entities.Account;
 import com.tuum.common.domain.entities.Balance;
 import com.tuum.common.domain.entities.ProcessedMessage;
@@ -8,6 +8,7 @@ import com.tuum.common.dto.mq.CreateAccountEvent;
 import com.tuum.common.dto.mq.MQMessageData;
 import com.tuum.common.types.RabbitMQConfig;
 import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.RetryableMessageException;
 import com.tuum.common.types.ErrorCode;
 import com.tuum.common.util.IdGenerator;
 import com.tuum.csaccountseventsconsumer.mapper.AccountMapper;
@@ -17,12 +18,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -33,13 +33,14 @@ public class AccountEventService {
     private final AccountMapper accountMapper;
     private final BalanceMapper balanceMapper;
     private final ProcessedMessageMapper processedMessageMapper;
-    private final ObjectMapper objectMapper;
+    private final MessageCodecs messageCodecs;
     private final NotificationService notificationService;
+    private final MessageRetryPolicy messageRetryPolicy;
 
     @Transactional
     public void processAccountCreatedEvent(MQMessageData messageData) {
         try {
-            CreateAccountEvent event = objectMapper.readValue(messageData.getMessageBody(), CreateAccountEvent.class);
+            CreateAccountEvent event = messageCodecs.decode(messageData, CreateAccountEvent.class);
             
             switch (messageData.getRequestType()) {
                 case CREATE:
@@ -52,35 +53,34 @@ public class AccountEventService {
                     );
             }
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (messageRetryPolicy.shouldRetry(e, messageData)) {
+                log.warn("Transient error processing account, scheduling retry {}: {}, idempotencyKey: {} , requestId: {}", messageData.getRetryAttempt() + 1, e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
+                throw new RetryableMessageException(e);
+            }
             log.error("Error processing account: {}, idempotencyKey: {} , requestId: {}", e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
             notificationService.publishErrorResponse(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), RabbitMQConfig.ACCOUNTS_ERROR_ROUTING_KEY.getValue(), messageData, ErrorCode.ACCOUNT_CREATION_FAILED, e.getMessage());
         }
     }
 
+    /**
+     * Reserves the idempotency key by inserting the processed-message row with
+     * {@code ON CONFLICT DO NOTHING} before creating anything; the existing account is only read
+     * when that insert reports a replay.
+     */
     private void handleCreate(CreateAccountEvent event, MQMessageData messageData) {
         String messageId = Optional.ofNullable(event.getIdempotencyKey()).orElse(event.getAccountId());
+        String accountId = resolveAccountId(event);
 
-        if (processedMessageMapper.existsProcessedMessage(messageId)) {
+        if (!reserveProcessedMessage(messageId, accountId, event.getIdempotencyKey())) {
             log.info("Account already processed in database: {}", messageId);
-            publishSuccessNotificationForExistingAccount(event.getAccountId(), messageData);
+            publishSuccessNotificationForExistingAccount(event.getIdempotencyKey(), messageData);
             return;
         }
 
-        if (accountMapper.existsAccountByIdempotencyKey(event.getIdempotencyKey())) {
-            log.warn("Account already exists with idempotency key: {}", event.getIdempotencyKey());
-            throw new BusinessException(
-                    "Account already exists with idempotency key: " + event.getIdempotencyKey(),
-                    "ACCOUNT_ALREADY_EXISTS"
-            );
-        }
-
-        Account account = createAndInsertAccount(event);
+        Account account = createAndInsertAccount(accountId, event);
         List<Balance> balances = createAndInsertBalances(event, account.getAccountId());
         account.setBalances(balances);
-        recordProcessedMessage(messageId, account.getAccountId(), event.getIdempotencyKey());
-
-        Map<String, Object> extraHeaders = new HashMap<>();
-        extraHeaders.put("balances", balances);
 
         notificationService.publishSuccessNotification(
                 RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(),
@@ -90,21 +90,26 @@ public class AccountEventService {
                 messageData.getRequestId(),
                 account,
                 messageData.getIdempotencyKey(),
-                extraHeaders
+                messageData.getReplyTo(),
+                messageData.getContentType(),
+                null
         );
 
         log.info("Account processed successfully: {}", account.getAccountId());
     }
 
-    private Account createAndInsertAccount(CreateAccountEvent event) {
-        Account account = new Account();
-        // Use thread-safe ID generator for account ID
+    private String resolveAccountId(CreateAccountEvent event) {
         String accountId = event.getAccountId();
         if (accountId == null || accountId.isEmpty()) {
             // Generate new account ID using thread-safe generator
             accountId = IdGenerator.generateAccountId();
             log.info("Generated new account ID: {}", accountId);
         }
+        return accountId;
+    }
+
+    private Account createAndInsertAccount(String accountId, CreateAccountEvent event) {
+        Account account = new Account();
         account.setAccountId(accountId);
         account.setCustomerId(event.getCustomerId());
         account.setCountry(event.getCountry());
@@ -131,7 +136,7 @@ public class AccountEventService {
                 .toList();
     }
 
-    private void recordProcessedMessage(String messageId, String accountId, String idempotencyKey) {
+    private boolean reserveProcessedMessage(String messageId, String accountId, String idempotencyKey) {
         ProcessedMessage processedMessage = new ProcessedMessage();
         processedMessage.setMessageId(messageId);
         processedMessage.setMessageType("CREATE_ACCOUNT");
@@ -139,18 +144,22 @@ public class AccountEventService {
         processedMessage.setProcessedAt(LocalDateTime.now());
         processedMessage.setResultData("{\"status\":\"SUCCESS\",\"accountId\":\"" + accountId + "\"}");
 
-        processedMessageMapper.insertProcessedMessage(processedMessage);
+        if (processedMessageMapper.reserveProcessedMessage(processedMessage) == null) {
+            return false;
+        }
         log.info("Recorded processed message with ID: {}", messageId);
+        return true;
     }
 
-    private void publishSuccessNotificationForExistingAccount(String accountId, MQMessageData messageData) {
-        Account existingAccount = accountMapper.findAccountById(accountId);
-        List<Balance> existingBalances = balanceMapper.findBalancesByAccountId(accountId);
-        
-        // Create extra headers for balances
-        Map<String, Object> extraHeaders = new HashMap<>();
-        extraHeaders.put("balances", existingBalances);
-        
+    private void publishSuccessNotificationForExistingAccount(String idempotencyKey, MQMessageData messageData) {
+        Account existingAccount = accountMapper.findAccountByIdempotencyKey(idempotencyKey);
+        List<Balance> existingBalances = existingAccount != null
+                ? balanceMapper.findBalancesByAccountId(existingAccount.getAccountId())
+                : List.of();
+        if (existingAccount != null) {
+            existingAccount.setBalances(existingBalances);
+        }
+
         notificationService.publishSuccessNotification(
                 RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(),
                 RabbitMQConfig.ACCOUNTS_PROCESSED_ROUTING_KEY.getValue(),
@@ -159,7 +168,9 @@ public class AccountEventService {
                 messageData.getRequestId(),
                 existingAccount,
                 messageData.getIdempotencyKey(),
-                extraHeaders
+                messageData.getReplyTo(),
+                messageData.getContentType(),
+                null
         );
     }
 }
\ No newline at end of file
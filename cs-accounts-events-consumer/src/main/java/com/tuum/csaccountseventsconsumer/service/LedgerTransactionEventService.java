@@ -0,0 +1,125 @@
+package com.tuum.csaccountseventsconsumer.service;
+
+import com.tuum.common.codec.MessageCodecs;
+import com.tuum.common.domain.entities.Transaction;
+import com.tuum.common.dto.mq.CreateTransactionEvent;
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.RetryableMessageException;
+import com.tuum.common.exception.InsufficientFundsException;
+import com.tuum.common.types.ErrorCode;
+import com.tuum.common.types.RabbitMQConfig;
+import com.tuum.csaccountseventsconsumer.ledger.LedgerEngine;
+import com.tuum.csaccountseventsconsumer.ledger.PostingResult;
+import com.tuum.csaccountseventsconsumer.mapper.TransactionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Ledger counterpart of {@link TransactionEventService}, enabled with {@code tuum.ledger.enabled=true}.
+ * Postings go to the {@link LedgerEngine} instead of the database; the notification is published
+ * once the posting is journalled, and the listener acks the message after that.
+ */
+@Service
+@ConditionalOnProperty(name = "tuum.ledger.enabled", havingValue = "true")
+@Slf4j
+public class LedgerTransactionEventService {
+
+    private final LedgerEngine ledgerEngine;
+    private final TransactionMapper transactionMapper;
+    private final MessageCodecs messageCodecs;
+    private final NotificationService notificationService;
+    private final MessageRetryPolicy messageRetryPolicy;
+    private final long postingTimeoutMillis;
+
+    public LedgerTransactionEventService(LedgerEngine ledgerEngine,
+                                         TransactionMapper transactionMapper,
+                                         MessageCodecs messageCodecs,
+                                         NotificationService notificationService,
+                                         MessageRetryPolicy messageRetryPolicy,
+                                         @Value("${tuum.ledger.posting-timeout-ms:5000}") long postingTimeoutMillis) {
+        this.ledgerEngine = ledgerEngine;
+        this.transactionMapper = transactionMapper;
+        this.messageCodecs = messageCodecs;
+        this.notificationService = notificationService;
+        this.messageRetryPolicy = messageRetryPolicy;
+        this.postingTimeoutMillis = postingTimeoutMillis;
+    }
+
+    public void processTransactionCreatedEvent(MQMessageData messageData) {
+        try {
+            CreateTransactionEvent event = messageCodecs.decode(messageData, CreateTransactionEvent.class);
+
+            switch (messageData.getRequestType()) {
+                case CREATE:
+                    handleCreate(event, messageData);
+                    break;
+                default:
+                    throw new BusinessException(
+                            "Non supported process",
+                            "TRANSACTION_PROCESSING_ERROR"
+                    );
+            }
+        } catch (InsufficientFundsException e) {
+            log.error("Insufficient funds error processing transaction: {}, idempotencyKey: {} , requestId: {}", e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
+            notificationService.publishErrorResponse(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), RabbitMQConfig.TRANSACTIONS_ERROR_ROUTING_KEY.getValue(), messageData, ErrorCode.INSUFFICIENT_FUNDS, e.getMessage());
+        } catch (BusinessException e) {
+            if (messageRetryPolicy.shouldRetry(e, messageData)) {
+                log.warn("Transient error processing transaction, scheduling retry {}: {}, idempotencyKey: {} , requestId: {}", messageData.getRetryAttempt() + 1, e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
+                throw new RetryableMessageException(e);
+            }
+            log.error("Business error processing transaction: {}, idempotencyKey: {} , requestId: {}", e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
+            notificationService.publishErrorResponse(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), RabbitMQConfig.TRANSACTIONS_ERROR_ROUTING_KEY.getValue(), messageData, ErrorCode.TRANSACTION_CREATION_FAILED, e.getMessage());
+        } catch (Exception e) {
+            if (messageRetryPolicy.shouldRetry(e, messageData)) {
+                log.warn("Transient error processing transaction, scheduling retry {}: {}, idempotencyKey: {} , requestId: {}", messageData.getRetryAttempt() + 1, e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
+                throw new RetryableMessageException(e);
+            }
+            log.error("Error processing transaction: {}, idempotencyKey: {} , requestId: {}", e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
+            notificationService.publishErrorResponse(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), RabbitMQConfig.TRANSACTIONS_ERROR_ROUTING_KEY.getValue(), messageData, ErrorCode.TRANSACTION_CREATION_FAILED, e.getMessage());
+        }
+    }
+
+    private void handleCreate(CreateTransactionEvent event, MQMessageData messageData) throws InterruptedException, TimeoutException {
+        String messageId = Optional.ofNullable(event.getIdempotencyKey()).orElse(event.getTransactionId());
+
+        PostingResult result;
+        try {
+            result = ledgerEngine.post(event, messageId).get(postingTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new BusinessException("Ledger posting failed", "TRANSACTION_CREATION_FAILED", e.getCause());
+        }
+
+        Transaction transaction = result.transaction();
+        if (result.duplicate()) {
+            log.info("Transaction already processed: {}", messageId);
+            if (transaction == null) {
+                transaction = transactionMapper.findTransactionByIdempotencyKey(event.getIdempotencyKey());
+            }
+        }
+
+        notificationService.publishSuccessNotification(
+                RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(),
+                RabbitMQConfig.TRANSACTIONS_PROCESSED_ROUTING_KEY.getValue(),
+                messageData.getRequestType().getCode(),
+                "SUCCESS",
+                messageData.getRequestId(),
+                transaction,
+                messageData.getIdempotencyKey(),
+                messageData.getReplyTo(),
+                messageData.getContentType(),
+                null
+        );
+        log.info("Transaction journalled: {}", transaction != null ? transaction.getTransactionId() : messageId);
+    }
+}
@@ -0,0 +1,74 @@
+package com.tuum.csaccountseventsconsumer.service;
+
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.RetryableMessageException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Classifies processing failures as retryable or terminal. Retryable failures are the ones a later
+ * attempt can get past: lost connections, pool exhaustion, lock and serialization conflicts,
+ * timeouts and an unavailable ledger. Everything else, including business rule violations, is terminal.
+ * A retryable failure is retried through the delay queues up to {@code max-retries} times.
+ */
+@Component
+public class MessageRetryPolicy {
+
+    private final boolean enabled;
+    private final int maxRetries;
+
+    public MessageRetryPolicy(@Value("${tuum.consumer.retry.enabled:true}") boolean enabled,
+                              @Value("${tuum.consumer.retry.max-retries:5}") int maxRetries) {
+        this.enabled = enabled;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Whether the message should be delivered again later rather than failed now.
+     */
+    public boolean shouldRetry(Throwable failure, MQMessageData messageData) {
+        return enabled && messageData != null && messageData.getRetryAttempt() < maxRetries && isRetryable(failure);
+    }
+
+    public boolean isRetryable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof RetryableMessageException
+                    || cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && isTransientSqlState(sqlException.getSQLState())) {
+                return true;
+            }
+            if (cause instanceof BusinessException businessException && "LEDGER_UNAVAILABLE".equals(businessException.getErrorCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTransientSqlState(String sqlState) {
+        if (sqlState == null) {
+            return false;
+        }
+        // Connection exceptions, insufficient resources, serialization failure, deadlock, lock not available, shutdown
+        return sqlState.startsWith("08") || sqlState.startsWith("53")
+                || sqlState.equals("40001") || sqlState.equals("40P01") || sqlState.equals("55P03")
+                || sqlState.startsWith("57P");
+    }
+}
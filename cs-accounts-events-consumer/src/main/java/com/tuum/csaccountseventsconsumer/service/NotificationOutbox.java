@@ -0,0 +1,213 @@
+package com.tuum.csaccountseventsconsumer.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.domain.entities.OutboxMessage;
+import com.tuum.csaccountseventsconsumer.mapper.NotificationOutboxMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionHolder;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transactional outbox for the notifications published while a command is applied. A notification
+ * is written to {@code notification_outbox} in the transaction that produced it, so it goes out only
+ * if that transaction commits, and the transaction no longer waits on the broker while it holds the
+ * balance row locks.
+ * <p>
+ * The relay drains the table in batches of {@code batch-size}: it locks the oldest rows with
+ * {@code FOR UPDATE SKIP LOCKED}, so relays of several consumer instances share the work, publishes
+ * them on one confirm-mode channel, waits for the broker's confirms and deletes them in the same
+ * transaction. A commit wakes the relay at once; it also polls every {@code poll-interval-ms} for
+ * rows left behind by a failed round. Delivery is at least once: a batch whose confirms fail is
+ * published again, and the fs-accounts-service ignores replies to requests it already completed.
+ * <p>
+ * One relay publishes its batch in {@code id} order, but relays of different instances lock disjoint
+ * batches and publish them concurrently, so two notifications for the same account can reach the
+ * broker out of commit order. This is acceptable because each notification completes its own request,
+ * matched by idempotency key, and carries the state as of its own transaction; consumers must not
+ * derive an account's latest balance from the order of the notifications.
+ * <p>
+ * A transaction must use one MyBatis executor type throughout, so a message enqueued in a transaction
+ * running on the {@code batchSqlSessionTemplate} is inserted through that template and sent with its
+ * JDBC batch at commit.
+ */
+@Component
+@Slf4j
+public class NotificationOutbox {
+
+    private static final TypeReference<Map<String, Object>> HEADERS_TYPE = new TypeReference<>() {
+    };
+
+    private final NotificationOutboxMapper outboxMapper;
+    private final NotificationOutboxMapper batchOutboxMapper;
+    private final SqlSessionFactory sqlSessionFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final long confirmTimeoutMillis;
+    private final ScheduledExecutorService relay;
+    private final AtomicBoolean wakeUpScheduled = new AtomicBoolean();
+    private final DistributionSummary batchSizes;
+    private final Counter failures;
+
+    public NotificationOutbox(NotificationOutboxMapper outboxMapper,
+                              @Qualifier("batchSqlSessionTemplate") SqlSessionTemplate batchSqlSessionTemplate,
+                              RabbitTemplate rabbitTemplate,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${tuum.outbox.batch-size:100}") int batchSize,
+                              @Value("${tuum.outbox.poll-interval-ms:1000}") long pollIntervalMillis,
+                              @Value("${tuum.outbox.confirm-timeout-ms:5000}") long confirmTimeoutMillis) {
+        this.outboxMapper = outboxMapper;
+        this.batchOutboxMapper = batchSqlSessionTemplate.getMapper(NotificationOutboxMapper.class);
+        this.sqlSessionFactory = batchSqlSessionTemplate.getSqlSessionFactory();
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.confirmTimeoutMillis = confirmTimeoutMillis;
+        this.relay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchSizes = DistributionSummary.builder("tuum.outbox.relay.batch.size")
+                .description("Outbox notifications published per confirmed batch")
+                .register(meterRegistry);
+        this.failures = Counter.builder("tuum.outbox.relay.failures")
+                .description("Outbox relay rounds that failed and were left for the next round")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        relay.scheduleWithFixedDelay(this::drain, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relay.shutdownNow();
+    }
+
+    /**
+     * Whether the caller runs in a transaction whose notifications should go through the outbox.
+     */
+    public boolean isTransactional() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isSynchronizationActive();
+    }
+
+    /**
+     * Writes the message to the outbox in the current transaction; it is published after the commit.
+     */
+    public void enqueue(String exchange, String routingKey, Message message) throws JsonProcessingException {
+        MessageProperties properties = message.getMessageProperties();
+        Map<String, Object> headers = new LinkedHashMap<>();
+        properties.getHeaders().forEach((name, value) -> {
+            if (value != null) {
+                headers.put(name, value instanceof Number || value instanceof Boolean ? value : value.toString());
+            }
+        });
+        mapperForTransaction().insertMessage(new OutboxMessage(null, exchange, routingKey,
+                objectMapper.writeValueAsString(headers), properties.getContentType(),
+                message.getBody(), LocalDateTime.now()));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeUp();
+            }
+        });
+    }
+
+    private NotificationOutboxMapper mapperForTransaction() {
+        return TransactionSynchronizationManager.getResource(sqlSessionFactory) instanceof SqlSessionHolder holder
+                && holder.getExecutorType() == ExecutorType.BATCH ? batchOutboxMapper : outboxMapper;
+    }
+
+    private void wakeUp() {
+        if (wakeUpScheduled.compareAndSet(false, true)) {
+            relay.execute(() -> {
+                wakeUpScheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    void drain() {
+        try {
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> relayBatch());
+            } while (published != null && published == batchSize);
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Outbox relay round failed, retrying in {} ms: {}", pollIntervalMillis, e.getMessage());
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxMessage> batch = outboxMapper.lockNextBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        rabbitTemplate.invoke(operations -> {
+            for (OutboxMessage outboxMessage : batch) {
+                operations.send(outboxMessage.getExchange(), outboxMessage.getRoutingKey(), toMessage(outboxMessage));
+            }
+            operations.waitForConfirmsOrDie(confirmTimeoutMillis);
+            return null;
+        });
+        outboxMapper.deleteMessages(batch.stream().map(OutboxMessage::getId).toList());
+        batchSizes.record(batch.size());
+        log.debug("Relayed {} outbox notifications", batch.size());
+        return batch.size();
+    }
+
+    private Message toMessage(OutboxMessage outboxMessage) {
+        MessageProperties properties = new MessageProperties();
+        if (outboxMessage.getHeaders() != null) {
+            try {
+                objectMapper.readValue(outboxMessage.getHeaders(), HEADERS_TYPE).forEach(properties::setHeader);
+            } catch (JsonProcessingException e) {
+                log.warn("Dropping unreadable headers of outbox message {}", outboxMessage.getId(), e);
+            }
+        }
+        properties.setContentType(outboxMessage.getContentType());
+        if (outboxMessage.getCreatedAt() != null) {
+            properties.setTimestamp(Timestamp.valueOf(outboxMessage.getCreatedAt()));
+        }
+        return new Message(outboxMessage.getBody(), properties);
+    }
+}
@@ -1,6 +1,7 @@
 package com.tuum.csaccountseventsconsumer.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.codec.MessageCodec;
+import com.tuum.common.codec.MessageCodecs;
 import com.tuum.common.dto.mq.ErrorNotification;
 import com.tuum.common.dto.mq.MQMessageData;
 import com.tuum.common.types.ErrorCode;
@@ -9,9 +10,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import java.nio.charset.StandardCharsets;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -21,8 +23,14 @@ import java.util.*;
 public class NotificationService {
 
     private final AmqpTemplate amqpTemplate;
-    private final ObjectMapper objectMapper;
+    private final MessageCodecs messageCodecs;
+    private final NotificationOutbox notificationOutbox;
 
+    /**
+     * Publishes a success notification. Inside a transaction it is written to the
+     * {@link NotificationOutbox} instead and goes out once the transaction has committed. The body is
+     * encoded in {@code contentType}, the content type of the command being answered.
+     */
     public  <T> void publishSuccessNotification(
             String exchangeName,
             String routingKey,
@@ -31,6 +39,8 @@ public class NotificationService {
             String requestId,
             T messageBodyObject,
             String idempotencyKey,
+            String replyTo,
+            String contentType,
             Map<String, Object> extraHeaders
     ) {
         try {
@@ -40,24 +50,39 @@ public class NotificationService {
             messageProperties.setHeader("request-type", type);
             messageProperties.setHeader("status", status);
             messageProperties.setHeader("idempotency-key", idempotencyKey);
-            messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            MessageCodec codec = messageCodecs.forContentType(contentType);
+            messageProperties.setContentType(codec.contentType());
             messageProperties.setTimestamp(new Date());
-            String messageBody = objectMapper.writeValueAsString(messageBodyObject);
-            Message message = new Message(messageBody.getBytes(StandardCharsets.UTF_8), messageProperties);
+            Message message = new Message(codec.encode(messageBodyObject), messageProperties);
             log.info("Published success message {}:",message);
 
             if (extraHeaders != null) {
                 extraHeaders.forEach(messageProperties::setHeader);
             }
-            amqpTemplate.convertAndSend(exchangeName, routingKey, message);
+            String exchange = replyExchange(exchangeName, replyTo);
+            String key = replyRoutingKey(routingKey, replyTo);
+            if (notificationOutbox.isTransactional()) {
+                notificationOutbox.enqueue(exchange, key, message);
+                log.info("Queued message of type {} in the outbox with requestId: {}", status, requestId);
+                return;
+            }
+            amqpTemplate.send(exchange, key, message);
 
             log.info("Published message of type {} with requestId: {}, message: {}", status, requestId,message);
+        } catch (DataAccessException e) {
+            // The outbox row belongs to the caller's transaction, which must not commit without it
+            throw e;
         } catch (Exception e) {
             log.error("Failed to publish success notification of type {} with requestId: {}", type, requestId, e);
         }
     }
 
 
+    /**
+     * Publishes an error notification. Errors are reported for commands whose transaction is rolled
+     * back, so inside a transaction the notification is published once the transaction has completed,
+     * after its locks are released.
+     */
     public void publishErrorResponse(String exchangeName, String routingKey, MQMessageData data, ErrorCode errorCode, String errMsg) {
 
         ErrorNotification errorNotification = new ErrorNotification(
@@ -68,10 +93,6 @@ public class NotificationService {
                 data.getRequestId()
         );
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.findAndRegisterModules();
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-
         try {
             MessageProperties messageProperties = new MessageProperties();
             messageProperties.setHeader("request-id", data.getRequestId());
@@ -79,15 +100,47 @@ public class NotificationService {
             messageProperties.setHeader("idempotency-key", data.getIdempotencyKey());
             messageProperties.setHeader("status", "ERROR");
             messageProperties.setTimestamp(new Date());
-            messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
-            String jsonString = objectMapper.writeValueAsString(errorNotification);
-            Message message = new Message(jsonString.getBytes(StandardCharsets.UTF_8), messageProperties);
+            MessageCodec codec = messageCodecs.forContentType(data.getContentType());
+            messageProperties.setContentType(codec.contentType());
+            Message message = new Message(codec.encode(errorNotification), messageProperties);
 
-            amqpTemplate.convertAndSend(exchangeName, routingKey, message);
+            String exchange = replyExchange(exchangeName, data.getReplyTo());
+            String key = replyRoutingKey(routingKey, data.getReplyTo());
+            if (notificationOutbox.isTransactional()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        sendAfterCompletion(exchange, key, message, data.getRequestId());
+                    }
+                });
+                return;
+            }
+            amqpTemplate.send(exchange, key, message);
 
-            log.info("Published error message of  {} for with requestId: {}, origin message: {}", jsonString, data.getRequestId() ,message);
+            log.info("Published error message {} for requestId: {}", errorNotification, data.getRequestId());
         } catch (Exception e) {
             log.error("Failed to publish error message for request: {}", data.getRequestId(), e);
         }
     }
+
+    private void sendAfterCompletion(String exchange, String routingKey, Message message, String requestId) {
+        try {
+            amqpTemplate.send(exchange, routingKey, message);
+        } catch (Exception e) {
+            log.error("Failed to publish error message for request: {}", requestId, e);
+        }
+    }
+
+    /**
+     * Replies go straight to the requesting fs-accounts-service instance when the command carried a
+     * reply queue, so the node holding the pending future receives it. Commands without one are
+     * answered through the shared notification/error queues.
+     */
+    private static String replyExchange(String exchangeName, String replyTo) {
+        return replyTo != null && !replyTo.isBlank() ? "" : exchangeName;
+    }
+
+    private static String replyRoutingKey(String routingKey, String replyTo) {
+        return replyTo != null && !replyTo.isBlank() ? replyTo : routingKey;
+    }
 }
@@ -0,0 +1,73 @@
+package com.tuum.csaccountseventsconsumer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded retry of balance updates that lost an optimistic-lock race. Waits between attempts use
+ * full jitter (a random delay up to an exponentially growing cap), so consumers that collided on
+ * the same hot balance do not collide again on the retry.
+ */
+@Component
+public class OptimisticLockRetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Counter retried;
+    private final Counter resolved;
+    private final Counter exhausted;
+
+    public OptimisticLockRetryPolicy(MeterRegistry meterRegistry,
+                                     @Value("${tuum.consumer.balance-conflicts.max-attempts:5}") int maxAttempts,
+                                     @Value("${tuum.consumer.balance-conflicts.initial-backoff-ms:5}") long initialBackoffMillis,
+                                     @Value("${tuum.consumer.balance-conflicts.max-backoff-ms:200}") long maxBackoffMillis) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retried = conflictCounter(meterRegistry, "retried");
+        this.resolved = conflictCounter(meterRegistry, "resolved");
+        this.exhausted = conflictCounter(meterRegistry, "exhausted");
+    }
+
+    /**
+     * Called after attempt number {@code attempt} (starting at 1) hit a conflict. Sleeps and returns
+     * {@code true} if another attempt is allowed, otherwise returns {@code false} straight away.
+     */
+    public boolean backOff(int attempt) {
+        if (attempt >= maxAttempts) {
+            exhausted.increment();
+            return false;
+        }
+        long cap = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exhausted.increment();
+            return false;
+        }
+        retried.increment();
+        return true;
+    }
+
+    /**
+     * Called when attempt number {@code attempt} succeeded.
+     */
+    public void recordSuccess(int attempt) {
+        if (attempt > 1) {
+            resolved.increment();
+        }
+    }
+
+    private static Counter conflictCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("tuum.consumer.balance.conflicts")
+                .description("Optimistic-lock conflicts on balance updates, by how they were handled")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
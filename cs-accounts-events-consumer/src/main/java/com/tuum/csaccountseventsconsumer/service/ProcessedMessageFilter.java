@@ -0,0 +1,162 @@
+package com.tuum.csaccountseventsconsumer.service;
+
+import com.tuum.common.util.BloomFilter;
+import com.tuum.csaccountseventsconsumer.mapper.ProcessedMessageMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * In-memory Bloom filter over {@code processed_messages.message_id} for the batch listener, so the
+ * existence query of a batch only covers the messages that may have been processed before.
+ * <p>
+ * The filter is rebuilt from the table in the background once the application is ready; until the
+ * rebuild completes every message is checked against the database. Afterwards it only learns the
+ * messages applied by the batch path of this instance, not those applied one by one or by other
+ * instances, so a negative answer is not proof on its own: the batch still checks the idempotency
+ * keys of every message against {@code transactions}, and a message recorded before fails the
+ * batch's {@code processed_messages} insert on its unique idempotency key, which sends the batch
+ * through the single-message path.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.consumer.transactions.batch.enabled", havingValue = "true")
+@Slf4j
+public class ProcessedMessageFilter {
+
+    private final ProcessedMessageMapper processedMessageMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long minExpectedInsertions;
+    private final double falsePositiveRate;
+    private final Counter skippedLookups;
+    private final Counter checkedLookups;
+    private final Counter falsePositives;
+    private final Timer rebuildTimer;
+
+    /** The complete filter answering lookups, or {@code null} while none is. */
+    private volatile BloomFilter active;
+    /** The filter being loaded by a rebuild; recorded ids go into it as well. */
+    private volatile BloomFilter building;
+
+    public ProcessedMessageFilter(ProcessedMessageMapper processedMessageMapper,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${tuum.processed-messages.filter.expected-insertions:5000000}") long minExpectedInsertions,
+                                  @Value("${tuum.processed-messages.filter.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.processedMessageMapper = processedMessageMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.minExpectedInsertions = minExpectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.skippedLookups = lookupCounter(meterRegistry, "skipped");
+        this.checkedLookups = lookupCounter(meterRegistry, "checked");
+        this.falsePositives = Counter.builder("tuum.processed-messages.filter.false-positives")
+                .description("Message ids the filter reported as possibly processed that the database did not know")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("tuum.processed-messages.filter.rebuild")
+                .description("Time taken to rebuild the filter from processed_messages")
+                .register(meterRegistry);
+        Gauge.builder("tuum.processed-messages.filter.expected-fpp", this, ProcessedMessageFilter::expectedFalsePositiveRate)
+                .description("False-positive probability estimated from the filter's set bits")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread thread = new Thread(this::rebuild, "processed-message-filter-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Replaces the filter with one loaded from {@code processed_messages}. Lookups go to the database
+     * until the scan completes, and ids recorded while it runs are added to the new filter as well,
+     * so none are missed.
+     */
+    public void rebuild() {
+        active = null;
+        try {
+            long started = System.nanoTime();
+            long rows = processedMessageMapper.countProcessedMessages();
+            BloomFilter rebuilt = new BloomFilter(Math.max(minExpectedInsertions, rows * 2), falsePositiveRate);
+            building = rebuilt;
+            readOnlyTransaction.executeWithoutResult(status ->
+                    processedMessageMapper.scanMessageIds(context -> rebuilt.put(context.getResultObject())));
+            active = rebuilt;
+            long elapsedNanos = System.nanoTime() - started;
+            rebuildTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            log.info("Rebuilt processed message filter with {} ids ({} bits, {} hash functions) in {} ms",
+                    rebuilt.insertions(), rebuilt.bitSize(), rebuilt.hashFunctions(), elapsedNanos / 1_000_000);
+        } catch (Exception e) {
+            log.error("Failed to rebuild processed message filter, every message will be checked against the database", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * Returns those of {@code messageIds} that are in {@code processed_messages}. Only the ids the
+     * filter cannot rule out are passed to {@code lookup}, which queries the table.
+     */
+    public Set<String> findProcessed(Collection<String> messageIds, Function<List<String>, Collection<String>> lookup) {
+        BloomFilter current = active;
+        List<String> candidates = new ArrayList<>(messageIds.size());
+        for (String messageId : messageIds) {
+            if (current == null || current.mightContain(messageId)) {
+                candidates.add(messageId);
+            }
+        }
+        skippedLookups.increment(messageIds.size() - candidates.size());
+        checkedLookups.increment(candidates.size());
+        if (candidates.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> processed = new HashSet<>(lookup.apply(candidates));
+        if (current != null) {
+            falsePositives.increment(candidates.size() - processed.size());
+        }
+        return processed;
+    }
+
+    /**
+     * Adds a message id once the transaction that recorded it has committed.
+     */
+    public void recordProcessed(String messageId) {
+        BloomFilter loading = building;
+        if (loading != null) {
+            loading.put(messageId);
+        }
+        BloomFilter current = active;
+        if (current != null && current != loading) {
+            current.put(messageId);
+        }
+    }
+
+    private double expectedFalsePositiveRate() {
+        BloomFilter current = active;
+        return current != null ? current.expectedFalsePositiveRate() : Double.NaN;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("tuum.processed-messages.filter.lookups")
+                .description("Processed-message existence checks answered by the filter (skipped) or sent to the database (checked)")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
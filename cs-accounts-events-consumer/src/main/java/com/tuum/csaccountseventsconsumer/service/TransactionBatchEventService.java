@@ -0,0 +1,355 @@
+package com.tuum.csaccountseventsconsumer.service;
+
+import com.tuum.common.codec.MessageCodecs;
+import com.tuum.common.domain.entities.Balance;
+import com.tuum.common.domain.entities.Transaction;
+import com.tuum.common.dto.mq.CreateTransactionEvent;
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.types.Currency;
+import com.tuum.common.types.RabbitMQConfig;
+import com.tuum.common.types.RequestType;
+import com.tuum.csaccountseventsconsumer.mapper.BalanceMapper;
+import com.tuum.csaccountseventsconsumer.mapper.ProcessedMessageMapper;
+import com.tuum.csaccountseventsconsumer.mapper.TransactionMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.BatchResult;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Applies a batch of transaction events in one database transaction. Existence checks and balance
+ * reads are one query each for the whole batch, and the balance updates, transaction inserts and
+ * processed-message inserts go out as JDBC batches through the {@code batchSqlSessionTemplate}.
+ * <p>
+ * Only messages that will certainly succeed are applied in the batch. Duplicates, unknown balances,
+ * insufficient funds and anything that cannot be parsed are left to
+ * {@link TransactionEventService#processTransactionCreatedEvent}, which replays or reports them as
+ * before. So that each account's messages still apply in delivery order, once one message of an
+ * account is left out, the later ones for that account are left out too. If the batch itself fails,
+ * for example because another consumer updated one of its balances, it is rolled back and every
+ * message goes through the single-message path. A batch that lost a race on a balance update is
+ * first retried as a whole, re-reading the balances, as the {@link OptimisticLockRetryPolicy} allows.
+ * <p>
+ * Success notifications of the applied messages are written to the {@link NotificationOutbox} in the
+ * batch transaction, so they are published exactly when the batch commits.
+ */
+@Service
+@ConditionalOnProperty(name = "tuum.consumer.transactions.batch.enabled", havingValue = "true")
+@Slf4j
+public class TransactionBatchEventService {
+
+    private final TransactionEventService transactionEventService;
+    private final ProcessedMessageFilter processedMessageFilter;
+    private final OptimisticLockRetryPolicy optimisticLockRetryPolicy;
+    private final NotificationService notificationService;
+    private final MessageCodecs messageCodecs;
+    private final SqlSessionTemplate batchSqlSessionTemplate;
+    private final BalanceMapper balanceMapper;
+    private final TransactionMapper transactionMapper;
+    private final ProcessedMessageMapper processedMessageMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributionSummary batchSizes;
+    private final Counter batchedMessages;
+    private final Counter singleMessages;
+    private final Counter failedBatches;
+
+    public TransactionBatchEventService(TransactionEventService transactionEventService,
+                                        ProcessedMessageFilter processedMessageFilter,
+                                        OptimisticLockRetryPolicy optimisticLockRetryPolicy,
+                                        NotificationService notificationService,
+                                        MessageCodecs messageCodecs,
+                                        @Qualifier("batchSqlSessionTemplate") SqlSessionTemplate batchSqlSessionTemplate,
+                                        PlatformTransactionManager transactionManager,
+                                        MeterRegistry meterRegistry) {
+        this.transactionEventService = transactionEventService;
+        this.processedMessageFilter = processedMessageFilter;
+        this.optimisticLockRetryPolicy = optimisticLockRetryPolicy;
+        this.notificationService = notificationService;
+        this.messageCodecs = messageCodecs;
+        this.batchSqlSessionTemplate = batchSqlSessionTemplate;
+        this.balanceMapper = batchSqlSessionTemplate.getMapper(BalanceMapper.class);
+        this.transactionMapper = batchSqlSessionTemplate.getMapper(TransactionMapper.class);
+        this.processedMessageMapper = batchSqlSessionTemplate.getMapper(ProcessedMessageMapper.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSizes = DistributionSummary.builder("tuum.consumer.transactions.batch.size")
+                .description("Messages delivered per batch listener call")
+                .register(meterRegistry);
+        this.batchedMessages = messageCounter(meterRegistry, "batch");
+        this.singleMessages = messageCounter(meterRegistry, "single");
+        this.failedBatches = Counter.builder("tuum.consumer.transactions.batch.failures")
+                .description("Batches rolled back and retried one message at a time")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the messages whose single-message processing threw, typically because a transient error
+     * is to be retried, so the listener can divert them without redelivering the whole batch.
+     */
+    public Map<MQMessageData, RuntimeException> processTransactionCreatedEvents(List<MQMessageData> messages) {
+        batchSizes.record(messages.size());
+        List<PendingEvent> pending = new ArrayList<>();
+        List<MQMessageData> singles = new ArrayList<>();
+        for (MQMessageData messageData : messages) {
+            CreateTransactionEvent event = parse(messageData);
+            if (event == null) {
+                singles.add(messageData);
+            } else {
+                pending.add(new PendingEvent(messageData, event));
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            List<MQMessageData> deferred = applyWithRetry(pending);
+            if (deferred == null) {
+                singles.clear();
+                singles.addAll(messages);
+            } else {
+                singles.addAll(deferred);
+            }
+        }
+
+        Map<MQMessageData, RuntimeException> failures = new IdentityHashMap<>();
+        for (MQMessageData messageData : singles) {
+            try {
+                transactionEventService.processTransactionCreatedEvent(messageData);
+            } catch (RuntimeException e) {
+                failures.put(messageData, e);
+            }
+        }
+        singleMessages.increment(singles.size());
+        return failures;
+    }
+
+    /**
+     * Applies the batch, retrying it with backoff when another consumer changed one of its balances
+     * in the meantime. Returns the messages left for single processing, or {@code null} if the batch
+     * could not be applied.
+     */
+    private List<MQMessageData> applyWithRetry(List<PendingEvent> pending) {
+        for (int attempt = 1; ; attempt++) {
+            List<MQMessageData> deferred = new ArrayList<>();
+            try {
+                List<AppliedEvent> applied = transactionTemplate.execute(status -> {
+                    List<AppliedEvent> batch = applyBatch(pending, deferred);
+                    enqueueSuccessNotifications(batch);
+                    return batch;
+                });
+                optimisticLockRetryPolicy.recordSuccess(attempt);
+                for (AppliedEvent appliedEvent : applied) {
+                    processedMessageFilter.recordProcessed(appliedEvent.pending().messageId());
+                }
+                batchedMessages.increment(applied.size());
+                return deferred;
+            } catch (BalanceConflictException e) {
+                if (!optimisticLockRetryPolicy.backOff(attempt)) {
+                    log.warn("Batch of {} transaction events kept conflicting on balance updates, processing them one by one", pending.size());
+                    failedBatches.increment();
+                    return null;
+                }
+                log.info("Batch of {} transaction events conflicted on a balance update, attempt {}", pending.size(), attempt);
+            } catch (RuntimeException e) {
+                log.warn("Batch of {} transaction events failed, processing them one by one: {}", pending.size(), e.getMessage());
+                failedBatches.increment();
+                return null;
+            }
+        }
+    }
+
+    private CreateTransactionEvent parse(MQMessageData messageData) {
+        if (messageData.getRequestType() != RequestType.CREATE) {
+            return null;
+        }
+        try {
+            return messageCodecs.decode(messageData, CreateTransactionEvent.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs inside the batch transaction. Messages that are not applied are added to {@code deferred}
+     * in delivery order.
+     */
+    private List<AppliedEvent> applyBatch(List<PendingEvent> pending, List<MQMessageData> deferred) {
+        Set<String> processedIds = findProcessedMessageIds(pending);
+        Set<String> existingKeys = findExistingIdempotencyKeys(pending);
+        Map<String, Balance> balances = findBalances(pending);
+        Map<String, Integer> originalVersions = new LinkedHashMap<>();
+
+        List<AppliedEvent> applied = new ArrayList<>();
+        Set<String> deferredAccounts = new HashSet<>();
+        Set<String> seenMessageIds = new HashSet<>();
+        Set<String> seenIdempotencyKeys = new HashSet<>();
+        for (PendingEvent pendingEvent : pending) {
+            CreateTransactionEvent event = pendingEvent.event();
+            String idempotencyKey = event.getIdempotencyKey();
+            Balance balance = balances.get(balanceKey(event.getAccountId(), event.getCurrency()));
+            BigDecimal newAmount = null;
+            if (pendingEvent.messageId() != null
+                    && !deferredAccounts.contains(event.getAccountId())
+                    && !processedIds.contains(pendingEvent.messageId())
+                    && seenMessageIds.add(pendingEvent.messageId())
+                    && (idempotencyKey == null || (!existingKeys.contains(idempotencyKey) && seenIdempotencyKeys.add(idempotencyKey)))
+                    && balance != null) {
+                newAmount = tryCalculateNewBalance(balance, event);
+            }
+            if (newAmount == null) {
+                deferredAccounts.add(event.getAccountId());
+                deferred.add(pendingEvent.messageData());
+                continue;
+            }
+
+            originalVersions.putIfAbsent(balance.getBalanceId(), balance.getVersionNumber());
+            balance.setAvailableAmount(newAmount);
+            event.setBalanceId(balance.getBalanceId());
+            Transaction transaction = transactionEventService.newTransaction(event, newAmount);
+            applied.add(new AppliedEvent(pendingEvent, transaction));
+        }
+        if (applied.isEmpty()) {
+            return applied;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Balance balance : balances.values()) {
+            Integer oldVersionNumber = originalVersions.get(balance.getBalanceId());
+            if (oldVersionNumber != null) {
+                balance.setVersionNumber(oldVersionNumber + 1);
+                balance.setUpdatedAt(now);
+                balanceMapper.updateBalance(balance, oldVersionNumber);
+            }
+        }
+        for (AppliedEvent appliedEvent : applied) {
+            transactionMapper.insertTransaction(appliedEvent.transaction());
+        }
+        for (AppliedEvent appliedEvent : applied) {
+            processedMessageMapper.insertProcessedMessage(transactionEventService.newProcessedMessage(
+                    appliedEvent.pending().messageId(), appliedEvent.transaction().getTransactionId(),
+                    appliedEvent.pending().event().getIdempotencyKey()));
+        }
+        checkBalanceUpdates(batchSqlSessionTemplate.flushStatements());
+        log.info("Applied {} transaction events in one batch, {} left for single processing", applied.size(), deferred.size());
+        return applied;
+    }
+
+    private BigDecimal tryCalculateNewBalance(Balance balance, CreateTransactionEvent event) {
+        try {
+            return transactionEventService.calculateNewBalance(balance, event);
+        } catch (BusinessException e) {
+            return null;
+        }
+    }
+
+    private Set<String> findProcessedMessageIds(List<PendingEvent> pending) {
+        List<String> messageIds = pending.stream()
+                .map(PendingEvent::messageId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        return processedMessageFilter.findProcessed(messageIds, processedMessageMapper::findProcessedMessageIds);
+    }
+
+    private Set<String> findExistingIdempotencyKeys(List<PendingEvent> pending) {
+        List<String> keys = pending.stream()
+                .map(pendingEvent -> pendingEvent.event().getIdempotencyKey())
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        return keys.isEmpty() ? Set.of() : new HashSet<>(transactionMapper.findExistingIdempotencyKeys(keys));
+    }
+
+    private Map<String, Balance> findBalances(List<PendingEvent> pending) {
+        Collection<String> accountIds = pending.stream()
+                .map(pendingEvent -> pendingEvent.event().getAccountId())
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<String, Balance> balances = new HashMap<>();
+        if (!accountIds.isEmpty()) {
+            for (Balance balance : balanceMapper.findBalancesByAccountIds(accountIds)) {
+                balances.put(balanceKey(balance.getAccountId(), balance.getCurrency()), balance);
+            }
+        }
+        return balances;
+    }
+
+    private void checkBalanceUpdates(List<BatchResult> results) {
+        for (BatchResult result : results) {
+            if (!result.getMappedStatement().getId().endsWith(".updateBalance")) {
+                continue;
+            }
+            for (int updateCount : result.getUpdateCounts()) {
+                if (updateCount == 0) {
+                    throw new BalanceConflictException();
+                }
+            }
+        }
+    }
+
+    private void enqueueSuccessNotifications(List<AppliedEvent> applied) {
+        for (AppliedEvent appliedEvent : applied) {
+            MQMessageData messageData = appliedEvent.pending().messageData();
+            notificationService.publishSuccessNotification(
+                    RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(),
+                    RabbitMQConfig.TRANSACTIONS_PROCESSED_ROUTING_KEY.getValue(),
+                    messageData.getRequestType().getCode(),
+                    "SUCCESS",
+                    messageData.getRequestId(),
+                    appliedEvent.transaction(),
+                    messageData.getIdempotencyKey(),
+                    messageData.getReplyTo(),
+                    messageData.getContentType(),
+                    null
+            );
+        }
+    }
+
+    private static String balanceKey(String accountId, Currency currency) {
+        return accountId + ":" + currency;
+    }
+
+    private static Counter messageCounter(MeterRegistry meterRegistry, String path) {
+        return Counter.builder("tuum.consumer.transactions.batch.messages")
+                .description("Transaction events handled by the batch listener, by processing path")
+                .tag("path", path)
+                .register(meterRegistry);
+    }
+
+    private record PendingEvent(MQMessageData messageData, CreateTransactionEvent event) {
+
+        String messageId() {
+            return Optional.ofNullable(event.getIdempotencyKey()).orElse(event.getTransactionId());
+        }
+    }
+
+    private static class BalanceConflictException extends RuntimeException {
+
+        BalanceConflictException() {
+            super("Balance was modified by another transaction");
+        }
+    }
+
+    private record AppliedEvent(PendingEvent pending, Transaction transaction) {
+    }
+}
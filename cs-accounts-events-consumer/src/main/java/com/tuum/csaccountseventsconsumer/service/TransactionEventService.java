@@ -1,6 +1,6 @@
 package com.tuum.csaccountseventsconsumer.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.codec.MessageCodecs;
 import com.tuum.common.domain.entities.Balance;
 import com.tuum.common.domain.entities.Transaction;
 import com.tuum.common.domain.entities.ProcessedMessage;
@@ -8,6 +8,7 @@ import com.tuum.common.dto.mq.CreateTransactionEvent;
 import com.tuum.common.dto.mq.MQMessageData;
 import com.tuum.common.types.RabbitMQConfig;
 import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.RetryableMessageException;
 import com.tuum.common.types.ErrorCode;
 import com.tuum.common.types.TransactionDirection;
 import com.tuum.common.types.TransactionStatus;
@@ -19,6 +20,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -33,13 +35,14 @@ public class TransactionEventService {
     private final TransactionMapper transactionMapper;
     private final BalanceMapper balanceMapper;
     private final ProcessedMessageMapper processedMessageMapper;
-    private final ObjectMapper objectMapper;
+    private final MessageCodecs messageCodecs;
     private final NotificationService notificationService;
+    private final MessageRetryPolicy messageRetryPolicy;
 
     @Transactional
     public void processTransactionCreatedEvent(MQMessageData messageData) {
         try {
-            CreateTransactionEvent event = objectMapper.readValue(messageData.getMessageBody(), CreateTransactionEvent.class);
+            CreateTransactionEvent event = messageCodecs.decode(messageData, CreateTransactionEvent.class);
 
             switch (messageData.getRequestType()) {
                 case CREATE:
@@ -52,47 +55,46 @@ public class TransactionEventService {
                     );
             }
         } catch (InsufficientFundsException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             log.error("Insufficient funds error processing transaction: {}, idempotencyKey: {} , requestId: {}", e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
             notificationService.publishErrorResponse(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), RabbitMQConfig.TRANSACTIONS_ERROR_ROUTING_KEY.getValue(), messageData, ErrorCode.INSUFFICIENT_FUNDS, e.getMessage());
         } catch (BusinessException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (messageRetryPolicy.shouldRetry(e, messageData)) {
+                log.warn("Transient error processing transaction, scheduling retry {}: {}, idempotencyKey: {} , requestId: {}", messageData.getRetryAttempt() + 1, e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
+                throw new RetryableMessageException(e);
+            }
             log.error("Business error processing transaction: {}, idempotencyKey: {} , requestId: {}", e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
             notificationService.publishErrorResponse(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), RabbitMQConfig.TRANSACTIONS_ERROR_ROUTING_KEY.getValue(), messageData, ErrorCode.TRANSACTION_CREATION_FAILED, e.getMessage());
         } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            if (messageRetryPolicy.shouldRetry(e, messageData)) {
+                log.warn("Transient error processing transaction, scheduling retry {}: {}, idempotencyKey: {} , requestId: {}", messageData.getRetryAttempt() + 1, e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
+                throw new RetryableMessageException(e);
+            }
             log.error("Error processing transaction: {}, idempotencyKey: {} , requestId: {}", e.getMessage(), messageData.getIdempotencyKey(), messageData.getRequestId());
             notificationService.publishErrorResponse(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), RabbitMQConfig.TRANSACTIONS_ERROR_ROUTING_KEY.getValue(), messageData, ErrorCode.TRANSACTION_CREATION_FAILED, e.getMessage());
         }
     }
 
+    /**
+     * The processed-message row is inserted first with {@code ON CONFLICT DO NOTHING}, which both
+     * reserves the idempotency key and detects a replay in one statement; the prior transaction is
+     * only read for a replay. Any failure after the reservation rolls it back with the posting.
+     */
     private void handleCreate(CreateTransactionEvent event, MQMessageData messageData) {
         String messageId = Optional.ofNullable(event.getIdempotencyKey()).orElse(event.getTransactionId());
+        String transactionId = IdGenerator.generateTransactionId();
 
-        if (processedMessageMapper.existsProcessedMessage(messageId)) {
+        if (!reserveProcessedMessage(messageId, transactionId, event.getIdempotencyKey())) {
             log.info("Transaction already processed in database: {}", messageId);
-            publishSuccessNotificationForExistingTransaction(event.getAccountId(), messageData);
+            publishSuccessNotificationForExistingTransaction(event.getIdempotencyKey(), messageData);
             return;
         }
 
+        BigDecimal newBalance = applyPosting(event);
 
-        if (transactionMapper.existsTransactionByIdempotencyKey(event.getIdempotencyKey())) {
-            log.warn("Transaction already exists with idempotency key: {}", event.getIdempotencyKey());
-            throw businessException(event, "TRANSACTION_ALREADY_EXISTS", "Transaction already exists");
-        }
-
-        Balance balance = balanceMapper.findBalanceByAccountIdAndCurrency(event.getAccountId(), event.getCurrency());
-
-        if (balance == null) {
-            throw businessException(event, "BALANCE_NOT_FOUND",
-                    "No " + event.getCurrency() + " balance found for account " + event.getAccountId());
-        }
-
-        event.setBalanceId(balance.getBalanceId());
-
-        BigDecimal newBalance = calculateNewBalance(balance, event);
-        updateBalance(balance, newBalance);
-
-        Transaction transaction = createAndInsertTransaction(event, newBalance);
-        
-        recordProcessedMessage(messageId, event.getTransactionId(), event.getIdempotencyKey());
+        Transaction transaction = createAndInsertTransaction(transactionId, event, newBalance);
 
         notificationService.publishSuccessNotification(
                 RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(),
@@ -102,12 +104,14 @@ public class TransactionEventService {
                 messageData.getRequestId(),
                 transaction,
                 messageData.getIdempotencyKey(),
+                messageData.getReplyTo(),
+                messageData.getContentType(),
                 null
         );
         log.info("Transaction processed successfully: {}", event.getTransactionId());
     }
 
-    private BigDecimal calculateNewBalance(Balance balance, CreateTransactionEvent event) {
+    BigDecimal calculateNewBalance(Balance balance, CreateTransactionEvent event) {
         if (TransactionDirection.IN == event.getDirection()) {
             return balance.getAvailableAmount().add(event.getAmount());
         } else if (TransactionDirection.OUT == event.getDirection()) {
@@ -122,24 +126,45 @@ public class TransactionEventService {
         }
     }
 
-    private void updateBalance(Balance balance, BigDecimal newBalance) {
-        int oldVersionNumber = balance.getVersionNumber();
-        balance.setAvailableAmount(newBalance);
-        balance.setVersionNumber(balance.getVersionNumber() + 1);
-        balance.setUpdatedAt(LocalDateTime.now());
-        
-        int updatedRows = balanceMapper.updateBalance(balance, oldVersionNumber);
-        if (updatedRows == 0) {
-            throw new BusinessException(
-                    "Balance was modified by another transaction. Please retry.",
-                    "CONCURRENT_MODIFICATION"
-            );
+    /**
+     * Applies the posting with one conditional {@code UPDATE ... RETURNING}: the database adds or
+     * subtracts the amount and checks for sufficient funds under the row lock, so concurrent postings
+     * to the same balance queue behind each other instead of conflicting. The balance is only read
+     * when the update matched no row, to tell a missing balance from insufficient funds.
+     */
+    private BigDecimal applyPosting(CreateTransactionEvent event) {
+        if (event.getDirection() != TransactionDirection.IN && event.getDirection() != TransactionDirection.OUT) {
+            throw businessException(event, "INVALID_DIRECTION", "Must be IN or OUT");
         }
+        Balance posted = balanceMapper.applyPosting(event.getAccountId(), event.getCurrency(), event.getDirection(),
+                event.getAmount(), LocalDateTime.now());
+        if (posted != null) {
+            event.setBalanceId(posted.getBalanceId());
+            return posted.getAvailableAmount();
+        }
+
+        Balance balance = balanceMapper.findBalanceByAccountIdAndCurrency(event.getAccountId(), event.getCurrency());
+        if (balance == null) {
+            throw businessException(event, "BALANCE_NOT_FOUND",
+                    "No " + event.getCurrency() + " balance found for account " + event.getAccountId());
+        }
+        throw new InsufficientFundsException(
+                "Available: " + balance.getAvailableAmount() + ", Required: " + event.getAmount()
+        );
+    }
+
+    private Transaction createAndInsertTransaction(String transactionId, CreateTransactionEvent event, BigDecimal newBalance) {
+        Transaction transaction = newTransaction(transactionId, event, newBalance);
+        transactionMapper.insertTransaction(transaction);
+        return transaction;
+    }
+
+    Transaction newTransaction(CreateTransactionEvent event, BigDecimal newBalance) {
+        return newTransaction(IdGenerator.generateTransactionId(), event, newBalance);
     }
 
-    private Transaction createAndInsertTransaction(CreateTransactionEvent event, BigDecimal newBalance) {
+    private Transaction newTransaction(String transactionId, CreateTransactionEvent event, BigDecimal newBalance) {
         Transaction transaction = new Transaction();
-        String transactionId = IdGenerator.generateTransactionId();
         log.info("Generated transaction ID: {}", transactionId);
         transaction.setTransactionId(transactionId);
         transaction.setAccountId(event.getAccountId());
@@ -153,24 +178,30 @@ public class TransactionEventService {
         transaction.setIdempotencyKey(event.getIdempotencyKey());
         transaction.setCreatedAt(LocalDateTime.now());
         transaction.setUpdatedAt(LocalDateTime.now());
-        transactionMapper.insertTransaction(transaction);
         return transaction;
     }
 
-    private void recordProcessedMessage(String messageId, String transactionId, String idempotencyKey) {
+    private boolean reserveProcessedMessage(String messageId, String transactionId, String idempotencyKey) {
+        ProcessedMessage processedMessage = newProcessedMessage(messageId, transactionId, idempotencyKey);
+        if (processedMessageMapper.reserveProcessedMessage(processedMessage) == null) {
+            return false;
+        }
+        log.info("Recorded processed message with ID: {}", messageId);
+        return true;
+    }
+
+    ProcessedMessage newProcessedMessage(String messageId, String transactionId, String idempotencyKey) {
         ProcessedMessage processedMessage = new ProcessedMessage();
         processedMessage.setMessageId(messageId);
         processedMessage.setMessageType("CREATE_TRANSACTION");
         processedMessage.setIdempotencyKey(idempotencyKey);
         processedMessage.setProcessedAt(LocalDateTime.now());
         processedMessage.setResultData("{\"status\":\"SUCCESS\",\"transactionId\":\"" + transactionId + "\"}");
-
-        processedMessageMapper.insertProcessedMessage(processedMessage);
-        log.info("Recorded processed message with ID: {}", messageId);
+        return processedMessage;
     }
 
-    private void publishSuccessNotificationForExistingTransaction(String transactionID, MQMessageData messageData) {
-        Transaction existingTrans = transactionMapper.findTransactionById(transactionID);
+    private void publishSuccessNotificationForExistingTransaction(String idempotencyKey, MQMessageData messageData) {
+        Transaction existingTrans = transactionMapper.findTransactionByIdempotencyKey(idempotencyKey);
         notificationService.publishSuccessNotification(
                 RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(),
                 RabbitMQConfig.TRANSACTIONS_PROCESSED_ROUTING_KEY.getValue(),
@@ -179,6 +210,8 @@ public class TransactionEventService {
                 messageData.getRequestId(),
                 existingTrans,
                 messageData.getIdempotencyKey(),
+                messageData.getReplyTo(),
+                messageData.getContentType(),
                 null
         );
     }
@@ -0,0 +1,143 @@
+package com.tuum.csaccountseventsconsumer.config;
+
+import com.rabbitmq.client.Channel;
+import com.tuum.csaccountseventsconsumer.consumer.TransactionBatchEventConsumer;
+import com.tuum.csaccountseventsconsumer.consumer.TransactionEventConsumer;
+import com.tuum.csaccountseventsconsumer.consumer.TransactionLedgerEventConsumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionListenerConfigurerTest {
+
+    @Mock
+    private ObjectProvider<TransactionEventConsumer> transactionEventConsumerProvider;
+    @Mock
+    private ObjectProvider<TransactionBatchEventConsumer> transactionBatchEventConsumerProvider;
+    @Mock
+    private ObjectProvider<TransactionLedgerEventConsumer> transactionLedgerEventConsumerProvider;
+    @Mock
+    private TransactionEventConsumer transactionEventConsumer;
+    @Mock
+    private TransactionBatchEventConsumer transactionBatchEventConsumer;
+    @Mock
+    private TransactionLedgerEventConsumer transactionLedgerEventConsumer;
+    @Mock
+    private RabbitListenerEndpointRegistrar registrar;
+    @Mock
+    private Channel channel;
+
+    private final SimpleRabbitListenerContainerFactory batchFactory = new SimpleRabbitListenerContainerFactory();
+
+    @Test
+    void testConfigure_RegistersOneListenerPerPartitionAndLegacyQueue() {
+        when(transactionEventConsumerProvider.getObject()).thenReturn(transactionEventConsumer);
+
+        List<SimpleRabbitListenerEndpoint> endpoints = configure(3);
+
+        assertEquals(List.of("transactions-listener.transactions-events-queue.0",
+                "transactions-listener.transactions-events-queue.1",
+                "transactions-listener.transactions-events-queue.2",
+                "transactions-listener.transactions-events-queue"), endpoints.stream().map(SimpleRabbitListenerEndpoint::getId).toList());
+        for (SimpleRabbitListenerEndpoint endpoint : endpoints) {
+            assertEquals(1, endpoint.getQueueNames().size());
+            assertEquals(endpoint.getId(), "transactions-listener." + endpoint.getQueueNames().iterator().next());
+        }
+    }
+
+    @Test
+    void testConfigure_LegacyQueueDrainedByOneExclusiveConsumer() {
+        when(transactionEventConsumerProvider.getObject()).thenReturn(transactionEventConsumer);
+
+        List<SimpleRabbitListenerEndpoint> endpoints = configure(2);
+
+        SimpleRabbitListenerEndpoint legacy = endpoints.get(2);
+        assertEquals(List.of("transactions-events-queue"), List.copyOf(legacy.getQueueNames()));
+        assertTrue(legacy.isExclusive());
+        assertEquals("1", legacy.getConcurrency());
+        for (SimpleRabbitListenerEndpoint partition : endpoints.subList(0, 2)) {
+            // Partition queues are single-active-consumer queues, so their consumers may stand by
+            assertFalse(partition.isExclusive());
+            assertNull(partition.getConcurrency());
+        }
+    }
+
+    @Test
+    void testConfigure_SingleMode_DeliversToTransactionEventConsumer() throws Exception {
+        when(transactionEventConsumerProvider.getObject()).thenReturn(transactionEventConsumer);
+        Message message = message();
+
+        List<SimpleRabbitListenerEndpoint> endpoints = configure(1);
+        listenerOf(endpoints.get(0)).onMessage(message, channel);
+
+        verify(transactionEventConsumer).handleTransactionEvent(message, channel);
+        verify(registrar, never()).registerEndpoint(any(), any());
+    }
+
+    @Test
+    void testConfigure_BatchMode_RegistersBatchListenersOnBatchFactory() throws Exception {
+        when(transactionBatchEventConsumerProvider.getIfAvailable()).thenReturn(transactionBatchEventConsumer);
+        Message first = message();
+        Message second = message();
+
+        TransactionListenerConfigurer configurer = configurer(2);
+        configurer.configureRabbitListeners(registrar);
+
+        ArgumentCaptor<SimpleRabbitListenerEndpoint> endpoints = ArgumentCaptor.forClass(SimpleRabbitListenerEndpoint.class);
+        verify(registrar, times(3)).registerEndpoint(endpoints.capture(), same(batchFactory));
+        SimpleRabbitListenerEndpoint partition = endpoints.getAllValues().get(0);
+        assertTrue(partition.getBatchListener());
+        listenerOf(partition).onMessageBatch(List.of(first, second), channel);
+        verify(transactionBatchEventConsumer).handleTransactionEvents(List.of(first, second), channel);
+        assertTrue(endpoints.getAllValues().get(2).isExclusive());
+        verifyNoInteractions(transactionEventConsumerProvider);
+    }
+
+    @Test
+    void testConfigure_LedgerEnabled_TakesPrecedenceOverBatchMode() throws Exception {
+        when(transactionLedgerEventConsumerProvider.getIfAvailable()).thenReturn(transactionLedgerEventConsumer);
+        Message message = message();
+
+        List<SimpleRabbitListenerEndpoint> endpoints = configure(1);
+        listenerOf(endpoints.get(0)).onMessage(message, channel);
+
+        verify(transactionLedgerEventConsumer).handleTransactionEvent(message, channel);
+        verifyNoInteractions(transactionBatchEventConsumerProvider, transactionEventConsumerProvider);
+    }
+
+    private List<SimpleRabbitListenerEndpoint> configure(int partitions) {
+        configurer(partitions).configureRabbitListeners(registrar);
+        ArgumentCaptor<SimpleRabbitListenerEndpoint> endpoints = ArgumentCaptor.forClass(SimpleRabbitListenerEndpoint.class);
+        verify(registrar, times(partitions + 1)).registerEndpoint(endpoints.capture());
+        return endpoints.getAllValues();
+    }
+
+    private TransactionListenerConfigurer configurer(int partitions) {
+        return new TransactionListenerConfigurer(transactionEventConsumerProvider, transactionBatchEventConsumerProvider,
+                transactionLedgerEventConsumerProvider, batchFactory, partitions);
+    }
+
+    private static ChannelAwareMessageListener listenerOf(SimpleRabbitListenerEndpoint endpoint) {
+        return assertInstanceOf(ChannelAwareMessageListener.class, endpoint.getMessageListener());
+    }
+
+    private static Message message() {
+        return new Message("{}".getBytes(StandardCharsets.UTF_8), new MessageProperties());
+    }
+}
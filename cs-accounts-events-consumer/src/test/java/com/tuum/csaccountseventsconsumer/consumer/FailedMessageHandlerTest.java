@@ -0,0 +1,139 @@
+package com.tuum.csaccountseventsconsumer.consumer;
+
+import com.rabbitmq.client.Channel;
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.types.RabbitMQConfig;
+import com.tuum.csaccountseventsconsumer.service.MessageRetryPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.dao.CannotAcquireLockException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FailedMessageHandlerTest {
+
+    private static final String SOURCE_QUEUE = "transactions-events-queue.3";
+
+    @Mock
+    private AmqpTemplate amqpTemplate;
+    @Mock
+    private MessageAcknowledger messageAcknowledger;
+    @Mock
+    private Channel channel;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FailedMessageHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        handler = new FailedMessageHandler(amqpTemplate, new MessageRetryPolicy(true, 3), messageAcknowledger, meterRegistry);
+    }
+
+    @Test
+    void testOnFailure_TransientFailure_RetriesToTierOfNextAttemptThenAcks() {
+        Message message = message(SOURCE_QUEUE);
+
+        handler.onFailure(message, messageData(1), channel, new CannotAcquireLockException("lock"));
+
+        ArgumentCaptor<Message> copy = ArgumentCaptor.forClass(Message.class);
+        InOrder inOrder = inOrder(amqpTemplate, messageAcknowledger);
+        inOrder.verify(amqpTemplate).send(eq("tuum.retry.10s"), eq(SOURCE_QUEUE), copy.capture());
+        inOrder.verify(messageAcknowledger).ack(channel, 42);
+        assertEquals(2, copy.getValue().getMessageProperties().<Integer>getHeader(RabbitMQConfig.RETRY_ATTEMPT_HEADER.getValue()));
+        assertEquals(1.0, failedMessages("retried"));
+    }
+
+    @Test
+    void testOnFailure_RetriesExhausted_Parks() {
+        Message message = message(SOURCE_QUEUE);
+
+        handler.onFailure(message, messageData(3), channel, new CannotAcquireLockException("lock"));
+
+        ArgumentCaptor<Message> copy = ArgumentCaptor.forClass(Message.class);
+        verify(amqpTemplate).send(eq(RabbitMQConfig.DEAD_LETTER_EXCHANGE.getValue()), eq(""), copy.capture());
+        assertEquals("lock", copy.getValue().getMessageProperties().getHeader("failure-reason"));
+        assertEquals(SOURCE_QUEUE, copy.getValue().getMessageProperties().getHeader("source-queue"));
+        verify(messageAcknowledger).ack(channel, 42);
+        assertEquals(1.0, failedMessages("parked"));
+    }
+
+    @Test
+    void testOnFailure_TerminalFailure_Parks() {
+        handler.onFailure(message(SOURCE_QUEUE), messageData(0), channel, new IllegalArgumentException("bad amount"));
+
+        verify(amqpTemplate).send(eq(RabbitMQConfig.DEAD_LETTER_EXCHANGE.getValue()), eq(""), any(Message.class));
+        verify(amqpTemplate, never()).send(startsWith("tuum.retry."), anyString(), any(Message.class));
+        verify(messageAcknowledger).ack(channel, 42);
+    }
+
+    @Test
+    void testOnFailure_UnreadableMessage_Parks() {
+        handler.onFailure(message(SOURCE_QUEUE), null, channel, new IllegalStateException("cannot decode"));
+
+        ArgumentCaptor<Message> copy = ArgumentCaptor.forClass(Message.class);
+        verify(amqpTemplate).send(eq(RabbitMQConfig.DEAD_LETTER_EXCHANGE.getValue()), eq(""), copy.capture());
+        assertEquals("Unreadable message: cannot decode", copy.getValue().getMessageProperties().getHeader("failure-reason"));
+    }
+
+    @Test
+    void testOnFailure_RetryableWithoutSourceQueue_Parks() {
+        handler.onFailure(message(null), messageData(0), channel, new CannotAcquireLockException("lock"));
+
+        verify(amqpTemplate).send(eq(RabbitMQConfig.DEAD_LETTER_EXCHANGE.getValue()), eq(""), any(Message.class));
+        verify(messageAcknowledger).ack(channel, 42);
+    }
+
+    @Test
+    void testOnFailure_DivertFailsInManualMode_RequeuesWithoutAck() {
+        doThrow(new AmqpException("broker down")).when(amqpTemplate).send(anyString(), anyString(), any(Message.class));
+        when(messageAcknowledger.isManual()).thenReturn(true);
+
+        handler.onFailure(message(SOURCE_QUEUE), messageData(0), channel, new CannotAcquireLockException("lock"));
+
+        verify(messageAcknowledger).reject(channel, 42, false, true);
+        verify(messageAcknowledger, never()).ack(any(), anyLong());
+    }
+
+    @Test
+    void testOnFailure_DivertFailsInAutoMode_RejectsWithoutRequeue() {
+        doThrow(new AmqpException("broker down")).when(amqpTemplate).send(anyString(), anyString(), any(Message.class));
+        when(messageAcknowledger.isManual()).thenReturn(false);
+
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+                () -> handler.onFailure(message(SOURCE_QUEUE), messageData(0), channel, new IllegalArgumentException("bad")));
+        verify(messageAcknowledger, never()).ack(any(), anyLong());
+    }
+
+    private double failedMessages(String outcome) {
+        return meterRegistry.get("tuum.consumer.failed-messages").tag("outcome", outcome).counter().count();
+    }
+
+    private static Message message(String consumerQueue) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(42);
+        properties.setConsumerQueue(consumerQueue);
+        properties.setMessageId("msg-1");
+        return new Message("{}".getBytes(), properties);
+    }
+
+    private static MQMessageData messageData(int retryAttempt) {
+        MQMessageData messageData = new MQMessageData();
+        messageData.setRetryAttempt(retryAttempt);
+        return messageData;
+    }
+}
@@ -0,0 +1,106 @@
+package com.tuum.csaccountseventsconsumer.consumer;
+
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageAcknowledgerTest {
+
+    @Mock
+    private Channel channel;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testAck_CoalescesBatchIntoOneMultipleAck() throws IOException {
+        MessageAcknowledger acknowledger = new MessageAcknowledger(meterRegistry, "manual", 3, 10);
+
+        acknowledger.ack(channel, 1);
+        acknowledger.ack(channel, 2);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        acknowledger.ack(channel, 3);
+
+        verify(channel).basicAck(3, true);
+        assertEquals(1, meterRegistry.get("tuum.consumer.acks.coalesced").summary().count());
+        assertEquals(3, meterRegistry.get("tuum.consumer.acks.coalesced").summary().totalAmount());
+    }
+
+    @Test
+    void testFlushAll_AcksPartialBatchUpToHighestTag() throws IOException {
+        when(channel.isOpen()).thenReturn(true);
+        MessageAcknowledger acknowledger = new MessageAcknowledger(meterRegistry, "manual", 50, 10);
+
+        acknowledger.ack(channel, 2);
+        acknowledger.ack(channel, 1);
+        acknowledger.flushAll();
+        acknowledger.flushAll();
+
+        verify(channel, times(1)).basicAck(2, true);
+    }
+
+    @Test
+    void testReject_FlushesPendingAcksFirst() throws IOException {
+        MessageAcknowledger acknowledger = new MessageAcknowledger(meterRegistry, "manual", 50, 10);
+
+        acknowledger.ack(channel, 1);
+        acknowledger.ack(channel, 2);
+        acknowledger.reject(channel, 3, false, true);
+
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicAck(2, true);
+        inOrder.verify(channel).basicNack(3, false, true);
+        assertEquals(1.0, meterRegistry.get("tuum.consumer.acks.rejected").counter().count());
+    }
+
+    @Test
+    void testReject_WithoutPendingAcks_OnlyNacks() throws IOException {
+        MessageAcknowledger acknowledger = new MessageAcknowledger(meterRegistry, "manual", 50, 10);
+
+        acknowledger.reject(channel, 1, true, false);
+
+        verify(channel).basicNack(1, true, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testAck_FailedBasicAck_IsSwallowedAndNotRetried() throws IOException {
+        when(channel.isOpen()).thenReturn(false);
+        doThrow(new IOException("channel closed")).when(channel).basicAck(anyLong(), anyBoolean());
+        MessageAcknowledger acknowledger = new MessageAcknowledger(meterRegistry, "manual", 1, 10);
+
+        assertDoesNotThrow(() -> acknowledger.ack(channel, 1));
+        acknowledger.flushAll();
+
+        verify(channel, times(1)).basicAck(1, true);
+    }
+
+    @Test
+    void testAutoMode_IsNoOp() {
+        MessageAcknowledger acknowledger = new MessageAcknowledger(meterRegistry, "auto", 1, 10);
+
+        acknowledger.ack(channel, 1);
+        acknowledger.reject(channel, 2, false, true);
+        acknowledger.shutdown();
+
+        assertFalse(acknowledger.isManual());
+        verifyNoInteractions(channel);
+    }
+}
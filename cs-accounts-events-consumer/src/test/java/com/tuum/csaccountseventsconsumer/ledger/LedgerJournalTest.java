@@ -0,0 +1,201 @@
+package com.tuum.csaccountseventsconsumer.ledger;
+
+import com.tuum.common.types.Currency;
+import com.tuum.common.types.TransactionDirection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerJournalTest {
+
+    @TempDir
+    private Path directory;
+
+    private final AtomicBoolean failWrites = new AtomicBoolean();
+    private FailingFileChannel channel;
+
+    @Test
+    void testReplay_ReturnsSyncedEntriesInOrder() throws IOException {
+        LedgerJournal journal = new LedgerJournal(directory, 1 << 20, true);
+        assertEquals(0, journal.replay(entry -> fail("journal should be empty")));
+        LedgerEntry first = entry(1, "msg-1");
+        journal.append(first);
+        journal.append(entry(2, "msg-2"));
+        journal.sync();
+        journal.append(entry(3, "msg-3"));
+        journal.sync();
+        journal.close();
+
+        List<LedgerEntry> replayed = new ArrayList<>();
+        long lastSequence = new LedgerJournal(directory, 1 << 20, true).replay(replayed::add);
+
+        assertEquals(3, lastSequence);
+        assertEquals(List.of(1L, 2L, 3L), replayed.stream().map(LedgerEntry::sequence).toList());
+        assertEquals(first, replayed.get(0));
+    }
+
+    @Test
+    void testReplay_UnsyncedEntriesAreNotWritten() throws IOException {
+        LedgerJournal journal = new LedgerJournal(directory, 1 << 20, false);
+        journal.replay(entry -> {
+        });
+        journal.append(entry(1, "msg-1"));
+        journal.sync();
+        journal.append(entry(2, "msg-2"));
+        journal.close();
+
+        assertEquals(List.of(1L), replay());
+    }
+
+    @Test
+    void testReplay_CutsTornTailOffLastSegment() throws IOException {
+        LedgerJournal journal = new LedgerJournal(directory, 1 << 20, false);
+        journal.replay(entry -> {
+        });
+        journal.append(entry(1, "msg-1"));
+        journal.append(entry(2, "msg-2"));
+        journal.sync();
+        journal.close();
+        Path segment = segments().get(0);
+        long intactBytes = Files.size(segment);
+        // A frame header promising more bytes than were written before the crash
+        Files.write(segment, new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        LedgerJournal reopened = new LedgerJournal(directory, 1 << 20, false);
+        List<LedgerEntry> replayed = new ArrayList<>();
+        assertEquals(2, reopened.replay(replayed::add));
+        assertEquals(2, replayed.size());
+        assertEquals(intactBytes, Files.size(segment));
+
+        reopened.append(entry(3, "msg-3"));
+        reopened.sync();
+        reopened.close();
+        assertEquals(List.of(1L, 2L, 3L), replay());
+    }
+
+    @Test
+    void testReplay_CorruptEntryBeforeLastSegment_Fails() throws IOException {
+        LedgerJournal journal = new LedgerJournal(directory, 1, false);
+        journal.replay(entry -> {
+        });
+        journal.append(entry(1, "msg-1"));
+        journal.sync();
+        journal.append(entry(2, "msg-2"));
+        journal.sync();
+        journal.close();
+        Path first = segments().get(0);
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[bytes.length - 1] ^= 0x7f;
+        Files.write(first, bytes);
+
+        assertThrows(IOException.class, this::replay);
+    }
+
+    @Test
+    void testSync_FailedWrite_CutsSegmentBackAndDiscardsEntries() throws IOException {
+        LedgerJournal journal = failingJournal();
+        journal.replay(entry -> {
+        });
+        journal.append(entry(1, "msg-1"));
+        journal.sync();
+        Path segment = segments().get(0);
+        long intactBytes = Files.size(segment);
+
+        failWrites.set(true);
+        journal.append(entry(2, "msg-2"));
+        journal.append(entry(3, "msg-3"));
+        assertThrows(IOException.class, journal::sync);
+        assertEquals(intactBytes, Files.size(segment));
+
+        failWrites.set(false);
+        journal.append(entry(2, "msg-2-retry"));
+        journal.sync();
+        journal.close();
+
+        List<LedgerEntry> replayed = new ArrayList<>();
+        new LedgerJournal(directory, 1 << 20, false).replay(replayed::add);
+        assertEquals(List.of("msg-1", "msg-2-retry"), replayed.stream().map(LedgerEntry::messageId).toList());
+    }
+
+    @Test
+    void testSync_BrokenChannel_ReopensSegment() throws IOException {
+        LedgerJournal journal = failingJournal();
+        journal.replay(entry -> {
+        });
+        journal.append(entry(1, "msg-1"));
+        journal.sync();
+        channel.close();
+
+        journal.append(entry(2, "msg-2"));
+        assertThrows(IOException.class, journal::sync);
+        journal.append(entry(2, "msg-2-retry"));
+        journal.sync();
+        journal.close();
+
+        assertEquals(List.of(1L, 2L), replay());
+    }
+
+    @Test
+    void testDeleteSegmentsUpTo_KeepsUnpersistedAndLastSegment() throws IOException {
+        LedgerJournal journal = new LedgerJournal(directory, 1, false);
+        journal.replay(entry -> {
+        });
+        journal.append(entry(1, "msg-1"));
+        journal.append(entry(2, "msg-2"));
+        journal.sync();
+        journal.append(entry(3, "msg-3"));
+        journal.sync();
+        journal.append(entry(4, "msg-4"));
+        journal.sync();
+        assertEquals(3, segments().size());
+
+        journal.deleteSegmentsUpTo(2);
+        assertEquals(List.of(3L, 4L), replay());
+
+        journal.deleteSegmentsUpTo(4);
+        assertEquals(1, segments().size());
+        assertEquals(List.of(4L), replay());
+        journal.close();
+    }
+
+    private LedgerJournal failingJournal() {
+        return new LedgerJournal(directory, 1 << 20, false) {
+            @Override
+            FileChannel openSegment(Path path) throws IOException {
+                channel = new FailingFileChannel(super.openSegment(path), failWrites);
+                return channel;
+            }
+        };
+    }
+
+    private List<Long> replay() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        new LedgerJournal(directory, 1 << 20, false).replay(entry -> sequences.add(entry.sequence()));
+        return sequences;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    static LedgerEntry entry(long sequence, String messageId) {
+        return new LedgerEntry(sequence, messageId, "key-" + messageId, "TXN_" + sequence, "ACC_1", "BAL_ACC_1",
+                Currency.EUR, TransactionDirection.IN, new BigDecimal("10.00"), new BigDecimal(100 + sequence * 10 + ".00"),
+                (int) sequence + 1, "test", LocalDateTime.of(2025, 1, 15, 10, 30, 0, 123_000_000));
+    }
+}
@@ -0,0 +1,278 @@
+package com.tuum.csaccountseventsconsumer.ledger;
+
+import com.tuum.common.domain.entities.Balance;
+import com.tuum.common.dto.mq.CreateTransactionEvent;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.InsufficientFundsException;
+import com.tuum.common.types.Currency;
+import com.tuum.common.types.TransactionDirection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerShardTest {
+
+    @TempDir
+    private Path directory;
+
+    @Mock
+    private LedgerWriteBehind writeBehind;
+    @Mock
+    private LedgerOwnership ownership;
+
+    private final Map<String, Balance> storedBalances = new HashMap<>();
+    private final List<String> loadedAccounts = new ArrayList<>();
+    private final Set<String> processedMessages = new HashSet<>();
+    private final List<List<String>> processedQueries = new ArrayList<>();
+    private final AtomicBoolean failWrites = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        storedBalances.put("ACC_1", balance("ACC_1", "100.00", 1));
+        storedBalances.put("ACC_2", balance("ACC_2", "50.00", 1));
+    }
+
+    @Test
+    void testRun_GroupCommitsQueuedPostingsWithOneSync() throws Exception {
+        when(ownership.ownedEpoch(0)).thenReturn(7L);
+        LedgerJournal journal = spy(new LedgerJournal(directory, 1 << 20, false));
+        LedgerShard shard = shard(journal);
+        shard.recover(0);
+        LedgerShard.Posting first = posting("msg-1", "ACC_1", TransactionDirection.IN, "10.00");
+        LedgerShard.Posting second = posting("msg-2", "ACC_1", TransactionDirection.OUT, "30.00");
+        LedgerShard.Posting third = posting("msg-3", "ACC_2", TransactionDirection.IN, "5.00");
+        shard.submit(first);
+        shard.submit(second);
+        shard.submit(third);
+
+        shard.stop();
+        shard.run();
+
+        assertEquals(new BigDecimal("110.00"), first.result().get().transaction().getBalanceAfterTransaction());
+        assertEquals(new BigDecimal("80.00"), second.result().get().transaction().getBalanceAfterTransaction());
+        assertEquals(new BigDecimal("55.00"), third.result().get().transaction().getBalanceAfterTransaction());
+        assertFalse(first.result().get().duplicate());
+        verify(journal, times(1)).sync();
+        List<LedgerEntry> entries = submittedEntries(7L);
+        assertEquals(List.of(1L, 2L, 3L), entries.stream().map(LedgerEntry::sequence).toList());
+        assertEquals(3, entries.get(1).versionAfter());
+        assertEquals(List.of("ACC_1", "ACC_2"), loadedAccounts);
+        verify(ownership, never()).claim(anyInt());
+    }
+
+    @Test
+    void testRun_JournalFailure_UndoesBalancesAndFailsPostings() throws Exception {
+        when(ownership.ownedEpoch(0)).thenReturn(7L);
+        LedgerShard shard = shard(failingJournal());
+        shard.recover(0);
+        Thread writer = new Thread(shard);
+        writer.start();
+        try {
+            failWrites.set(true);
+            LedgerShard.Posting failed = posting("msg-1", "ACC_1", TransactionDirection.OUT, "100.00");
+            shard.submit(failed);
+            ExecutionException error = assertThrows(ExecutionException.class, () -> failed.result().get(5, TimeUnit.SECONDS));
+            assertEquals("LEDGER_UNAVAILABLE", ((BusinessException) error.getCause()).getErrorCode());
+
+            failWrites.set(false);
+            LedgerShard.Posting retried = posting("msg-1", "ACC_1", TransactionDirection.OUT, "100.00");
+            LedgerShard.Posting dependent = posting("msg-2", "ACC_1", TransactionDirection.OUT, "100.00");
+            shard.submit(retried);
+            assertEquals(new BigDecimal("0.00"), retried.result().get(5, TimeUnit.SECONDS).transaction().getBalanceAfterTransaction());
+            shard.submit(dependent);
+            error = assertThrows(ExecutionException.class, () -> dependent.result().get(5, TimeUnit.SECONDS));
+            assertInstanceOf(InsufficientFundsException.class, error.getCause());
+        } finally {
+            shard.stop();
+            writer.join();
+        }
+
+        List<LedgerEntry> entries = submittedEntries(7L);
+        assertEquals(1, entries.size());
+        assertEquals(1, entries.get(0).sequence());
+        assertEquals(2, entries.get(0).versionAfter());
+        assertEquals(List.of(1L), replay());
+    }
+
+    @Test
+    void testRun_DuplicatePostings_CompletedWithoutApplying() throws Exception {
+        when(ownership.ownedEpoch(0)).thenReturn(7L);
+        processedMessages.add("msg-known");
+        LedgerShard shard = shard(new LedgerJournal(directory, 1 << 20, false));
+        shard.recover(0);
+        LedgerShard.Posting original = posting("msg-1", "ACC_1", TransactionDirection.IN, "10.00");
+        LedgerShard.Posting redelivered = posting("msg-1", "ACC_1", TransactionDirection.IN, "10.00");
+        LedgerShard.Posting known = posting("msg-known", "ACC_1", TransactionDirection.IN, "10.00");
+        shard.submit(original);
+        shard.submit(redelivered);
+        shard.submit(known);
+
+        shard.stop();
+        shard.run();
+
+        assertFalse(original.result().get().duplicate());
+        assertTrue(redelivered.result().get().duplicate());
+        assertSame(original.result().get().transaction(), redelivered.result().get().transaction());
+        assertTrue(known.result().get().duplicate());
+        assertNull(known.result().get().transaction());
+        assertEquals(List.of(List.of("msg-1", "msg-1", "msg-known")), processedQueries);
+        assertEquals(1, submittedEntries(7L).size());
+    }
+
+    @Test
+    void testRecover_OwnedShard_RequeuesUnpersistedEntriesAndKeepsTheirBalances() throws Exception {
+        writeJournal(LedgerJournalTest.entry(1, "msg-1"), LedgerJournalTest.entry(2, "msg-2"), LedgerJournalTest.entry(3, "msg-3"));
+        when(ownership.ownedEpoch(0)).thenReturn(7L);
+        LedgerShard shard = shard(new LedgerJournal(directory, 1 << 20, false));
+
+        shard.recover(1);
+
+        assertEquals(List.of(2L, 3L), submittedEntries(7L).stream().map(LedgerEntry::sequence).toList());
+        LedgerShard.Posting redelivered = posting("msg-3", "ACC_1", TransactionDirection.IN, "10.00");
+        LedgerShard.Posting next = posting("msg-4", "ACC_1", TransactionDirection.IN, "10.00");
+        shard.submit(redelivered);
+        shard.submit(next);
+        shard.stop();
+        shard.run();
+
+        assertTrue(redelivered.result().get().duplicate());
+        assertEquals("TXN_3", redelivered.result().get().transaction().getTransactionId());
+        assertEquals(new BigDecimal("140.00"), next.result().get().transaction().getBalanceAfterTransaction());
+        assertTrue(loadedAccounts.isEmpty());
+        assertEquals(List.of(List.of("msg-4")), processedQueries);
+        assertEquals(List.of(1L, 2L, 3L, 4L), replay());
+    }
+
+    @Test
+    void testRecover_ShardOwnedElsewhere_HandsEntriesOverUnfencedAndReloadsBalances() throws Exception {
+        writeJournal(LedgerJournalTest.entry(1, "msg-1"), LedgerJournalTest.entry(2, "msg-2"));
+        when(ownership.ownedEpoch(0)).thenReturn(null);
+        when(ownership.claim(0)).thenReturn(8L);
+        storedBalances.put("ACC_1", balance("ACC_1", "500.00", 9));
+        LedgerShard shard = shard(new LedgerJournal(directory, 1 << 20, false));
+
+        shard.recover(0);
+
+        assertEquals(List.of(1L, 2L), submittedEntries(0L).stream().map(LedgerEntry::sequence).toList());
+        LedgerShard.Posting posting = posting("msg-3", "ACC_1", TransactionDirection.IN, "10.00");
+        shard.submit(posting);
+        shard.stop();
+        shard.run();
+
+        assertEquals(new BigDecimal("510.00"), posting.result().get().transaction().getBalanceAfterTransaction());
+        assertEquals(List.of("ACC_1"), loadedAccounts);
+        LedgerEntry entry = submittedEntries(8L).get(0);
+        assertEquals(3, entry.sequence());
+        assertEquals(10, entry.versionAfter());
+    }
+
+    @Test
+    void testRun_ShardClaimedElsewhere_ClaimsBackAndReloadsBalances() throws Exception {
+        when(ownership.ownedEpoch(0)).thenReturn(7L);
+        LedgerShard shard = shard(new LedgerJournal(directory, 1 << 20, false));
+        shard.recover(0);
+        Thread writer = new Thread(shard);
+        writer.start();
+        try {
+            LedgerShard.Posting first = posting("msg-1", "ACC_1", TransactionDirection.IN, "10.00");
+            shard.submit(first);
+            assertEquals(new BigDecimal("110.00"), first.result().get(5, TimeUnit.SECONDS).transaction().getBalanceAfterTransaction());
+
+            when(ownership.ownedEpoch(0)).thenReturn(null);
+            when(ownership.claim(0)).thenReturn(9L);
+            storedBalances.put("ACC_1", balance("ACC_1", "300.00", 4));
+            LedgerShard.Posting second = posting("msg-2", "ACC_1", TransactionDirection.IN, "10.00");
+            shard.submit(second);
+            assertEquals(new BigDecimal("310.00"), second.result().get(5, TimeUnit.SECONDS).transaction().getBalanceAfterTransaction());
+        } finally {
+            shard.stop();
+            writer.join();
+        }
+
+        assertEquals(List.of("ACC_1", "ACC_1"), loadedAccounts);
+        assertEquals(5, submittedEntries(9L).get(0).versionAfter());
+    }
+
+    private LedgerShard shard(LedgerJournal journal) {
+        return new LedgerShard(0, journal, writeBehind, ownership,
+                (accountId, currency) -> {
+                    loadedAccounts.add(accountId);
+                    return storedBalances.get(accountId);
+                },
+                postings -> {
+                    processedQueries.add(postings.stream().map(LedgerShard.Posting::messageId).toList());
+                    return processedMessages;
+                },
+                100, 16, 1000);
+    }
+
+    private LedgerJournal failingJournal() {
+        return new LedgerJournal(directory, 1 << 20, false) {
+            @Override
+            FileChannel openSegment(Path path) throws IOException {
+                return new FailingFileChannel(super.openSegment(path), failWrites);
+            }
+        };
+    }
+
+    private void writeJournal(LedgerEntry... entries) throws IOException {
+        LedgerJournal journal = new LedgerJournal(directory, 1 << 20, false);
+        journal.replay(entry -> {
+        });
+        for (LedgerEntry entry : entries) {
+            journal.append(entry);
+        }
+        journal.sync();
+        journal.close();
+    }
+
+    private List<Long> replay() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        new LedgerJournal(directory, 1 << 20, false).replay(entry -> sequences.add(entry.sequence()));
+        return sequences;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<LedgerEntry> submittedEntries(long epoch) {
+        ArgumentCaptor<List<LedgerEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(writeBehind).submit(eq(0), eq(epoch), entries.capture());
+        return entries.getValue();
+    }
+
+    private static LedgerShard.Posting posting(String messageId, String accountId, TransactionDirection direction, String amount) {
+        LocalDateTime now = LocalDateTime.now();
+        CreateTransactionEvent event = new CreateTransactionEvent("REQ_" + messageId, "key-" + messageId, null, accountId,
+                null, new BigDecimal(amount), Currency.EUR, direction, "test", null, "PENDING", null, now, now, null);
+        return new LedgerShard.Posting(event, messageId, new CompletableFuture<>());
+    }
+
+    private static Balance balance(String accountId, String amount, int versionNumber) {
+        LocalDateTime now = LocalDateTime.now();
+        return new Balance("BAL_" + accountId, accountId, Currency.EUR, new BigDecimal(amount), versionNumber, now, now);
+    }
+}
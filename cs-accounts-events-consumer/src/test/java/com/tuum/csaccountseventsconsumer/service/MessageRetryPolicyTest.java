@@ -0,0 +1,78 @@
+package com.tuum.csaccountseventsconsumer.service;
+
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.RetryableMessageException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageRetryPolicyTest {
+
+    private final MessageRetryPolicy policy = new MessageRetryPolicy(true, 3);
+
+    @Test
+    void testIsRetryable_TransientSqlStates() {
+        for (String sqlState : new String[]{"08006", "53300", "40001", "40P01", "55P03", "57P01"}) {
+            assertTrue(policy.isRetryable(wrapped(new SQLException("failure", sqlState))), sqlState);
+        }
+    }
+
+    @Test
+    void testIsRetryable_TerminalSqlStates() {
+        for (String sqlState : new String[]{"23505", "23503", "22003", "42P01", null}) {
+            assertFalse(policy.isRetryable(wrapped(new SQLException("failure", sqlState))), String.valueOf(sqlState));
+        }
+    }
+
+    @Test
+    void testIsRetryable_TransientExceptionTypes() {
+        assertTrue(policy.isRetryable(new CannotAcquireLockException("lock")));
+        assertTrue(policy.isRetryable(new CannotCreateTransactionException("no connection")));
+        assertTrue(policy.isRetryable(new SQLTransientConnectionException("pool exhausted")));
+        assertTrue(policy.isRetryable(new RetryableMessageException(new IllegalStateException("busy"))));
+        assertTrue(policy.isRetryable(new RuntimeException(new TimeoutException("timed out"))));
+        assertTrue(policy.isRetryable(new BusinessException("ledger down", "LEDGER_UNAVAILABLE")));
+    }
+
+    @Test
+    void testIsRetryable_TerminalFailures() {
+        assertFalse(policy.isRetryable(new BusinessException("Insufficient funds", "INSUFFICIENT_FUNDS")));
+        assertFalse(policy.isRetryable(new DataIntegrityViolationException("duplicate")));
+        assertFalse(policy.isRetryable(new IllegalArgumentException("bad amount")));
+    }
+
+    @Test
+    void testShouldRetry_StopsAtMaxRetries() {
+        Exception failure = new CannotAcquireLockException("lock");
+
+        assertTrue(policy.shouldRetry(failure, message(0)));
+        assertTrue(policy.shouldRetry(failure, message(2)));
+        assertFalse(policy.shouldRetry(failure, message(3)));
+        assertFalse(policy.shouldRetry(failure, null));
+    }
+
+    @Test
+    void testShouldRetry_Disabled() {
+        MessageRetryPolicy disabled = new MessageRetryPolicy(false, 3);
+
+        assertFalse(disabled.shouldRetry(new CannotAcquireLockException("lock"), message(0)));
+    }
+
+    private static Exception wrapped(SQLException sqlException) {
+        return new RuntimeException("mapper failed", sqlException);
+    }
+
+    private static MQMessageData message(int retryAttempt) {
+        MQMessageData messageData = new MQMessageData();
+        messageData.setRetryAttempt(retryAttempt);
+        return messageData;
+    }
+}
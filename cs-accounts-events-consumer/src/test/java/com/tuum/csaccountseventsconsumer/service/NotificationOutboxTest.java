@@ -0,0 +1,207 @@
+package com.tuum.csaccountseventsconsumer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.domain.entities.OutboxMessage;
+import com.tuum.csaccountseventsconsumer.mapper.NotificationOutboxMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mybatis.spring.SqlSessionHolder;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationOutboxTest {
+
+    private static final long CONFIRM_TIMEOUT_MILLIS = 5000;
+
+    @Mock
+    private NotificationOutboxMapper outboxMapper;
+    @Mock
+    private NotificationOutboxMapper batchOutboxMapper;
+    @Mock
+    private SqlSessionTemplate batchSqlSessionTemplate;
+    @Mock
+    private SqlSessionFactory sqlSessionFactory;
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+    @Mock
+    private RabbitOperations rabbitOperations;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationOutbox notificationOutbox;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        when(batchSqlSessionTemplate.getMapper(NotificationOutboxMapper.class)).thenReturn(batchOutboxMapper);
+        when(batchSqlSessionTemplate.getSqlSessionFactory()).thenReturn(sqlSessionFactory);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(rabbitTemplate.invoke(any(RabbitOperations.OperationsCallback.class))).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitOperations));
+        notificationOutbox = new NotificationOutbox(outboxMapper, batchSqlSessionTemplate, rabbitTemplate, objectMapper,
+                transactionManager, meterRegistry, 2, 60_000, CONFIRM_TIMEOUT_MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationOutbox.shutdown();
+        if (TransactionSynchronizationManager.hasResource(sqlSessionFactory)) {
+            TransactionSynchronizationManager.unbindResource(sqlSessionFactory);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void testIsTransactional_OnlyInsideSynchronizedTransaction() {
+        assertFalse(notificationOutbox.isTransactional());
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertFalse(notificationOutbox.isTransactional());
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertTrue(notificationOutbox.isTransactional());
+    }
+
+    @Test
+    void testEnqueue_InTransaction_WritesRowAndRelaysOnlyAfterCommit() throws Exception {
+        beginTransaction();
+        when(outboxMapper.lockNextBatch(2)).thenReturn(List.of());
+
+        notificationOutbox.enqueue("", "reply-queue", message("key-1"));
+
+        ArgumentCaptor<OutboxMessage> row = ArgumentCaptor.forClass(OutboxMessage.class);
+        verify(outboxMapper).insertMessage(row.capture());
+        assertNull(row.getValue().getId());
+        assertEquals("", row.getValue().getExchange());
+        assertEquals("reply-queue", row.getValue().getRoutingKey());
+        assertEquals(Map.of("idempotency-key", "key-1", "status", "SUCCESS", "attempt", 2),
+                objectMapper.readValue(row.getValue().getHeaders(), Map.class));
+        assertEquals(MessageProperties.CONTENT_TYPE_JSON, row.getValue().getContentType());
+        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), row.getValue().getBody());
+        verifyNoInteractions(batchOutboxMapper, rabbitTemplate);
+        verify(outboxMapper, never()).lockNextBatch(anyInt());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(outboxMapper, timeout(1000)).lockNextBatch(2);
+    }
+
+    @Test
+    void testEnqueue_InBatchExecutorTransaction_UsesBatchMapper() throws Exception {
+        beginTransaction();
+        TransactionSynchronizationManager.bindResource(sqlSessionFactory,
+                new SqlSessionHolder(mock(SqlSession.class), ExecutorType.BATCH, null));
+
+        notificationOutbox.enqueue("", "reply-queue", message("key-1"));
+
+        verify(batchOutboxMapper).insertMessage(any(OutboxMessage.class));
+        verify(outboxMapper, never()).insertMessage(any());
+    }
+
+    @Test
+    void testDrain_PublishesLockedRowsInOrderAndDeletesThemAfterConfirms() {
+        when(outboxMapper.lockNextBatch(2))
+                .thenReturn(List.of(row(1L, "key-1"), row(2L, "key-2")))
+                .thenReturn(List.of(row(3L, "key-3")));
+
+        notificationOutbox.drain();
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        InOrder inOrder = inOrder(rabbitOperations, outboxMapper);
+        inOrder.verify(rabbitOperations, times(2)).send(eq(""), eq("reply-queue"), sent.capture());
+        inOrder.verify(rabbitOperations).waitForConfirmsOrDie(CONFIRM_TIMEOUT_MILLIS);
+        inOrder.verify(outboxMapper).deleteMessages(List.of(1L, 2L));
+        inOrder.verify(rabbitOperations).send(eq(""), eq("reply-queue"), sent.capture());
+        inOrder.verify(rabbitOperations).waitForConfirmsOrDie(CONFIRM_TIMEOUT_MILLIS);
+        inOrder.verify(outboxMapper).deleteMessages(List.of(3L));
+        verify(outboxMapper, times(2)).lockNextBatch(2);
+        verify(transactionManager, times(2)).commit(any());
+
+        assertEquals(List.of("key-1", "key-2", "key-3"), sent.getAllValues().stream()
+                .map(message -> message.getMessageProperties().getHeader("idempotency-key")).toList());
+        Message first = sent.getAllValues().get(0);
+        assertEquals(2, (Integer) first.getMessageProperties().getHeader("attempt"));
+        assertEquals(MessageProperties.CONTENT_TYPE_JSON, first.getMessageProperties().getContentType());
+        assertNotNull(first.getMessageProperties().getTimestamp());
+        assertEquals(3, meterRegistry.get("tuum.outbox.relay.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void testDrain_ConfirmFailure_KeepsRowsForNextRound() {
+        when(outboxMapper.lockNextBatch(2)).thenReturn(List.of(row(1L, "key-1")));
+        doThrow(new AmqpTimeoutException("confirms timed out"))
+                .when(rabbitOperations).waitForConfirmsOrDie(CONFIRM_TIMEOUT_MILLIS);
+
+        notificationOutbox.drain();
+
+        verify(outboxMapper, never()).deleteMessages(any());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        assertEquals(1, meterRegistry.get("tuum.outbox.relay.failures").counter().count());
+        assertEquals(0, meterRegistry.get("tuum.outbox.relay.batch.size").summary().count());
+    }
+
+    @Test
+    void testDrain_EmptyOutbox_DoesNotTouchBroker() {
+        when(outboxMapper.lockNextBatch(2)).thenReturn(List.of());
+
+        notificationOutbox.drain();
+
+        verifyNoInteractions(rabbitTemplate);
+        verify(outboxMapper, never()).deleteMessages(any());
+    }
+
+    private static void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    private static Message message(String idempotencyKey) {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader("idempotency-key", idempotencyKey);
+        properties.setHeader("status", "SUCCESS");
+        properties.setHeader("attempt", 2);
+        properties.setHeader("reason", null);
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        return new Message("{}".getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+    private static OutboxMessage row(long id, String idempotencyKey) {
+        return new OutboxMessage(id, "", "reply-queue",
+                "{\"idempotency-key\":\"" + idempotencyKey + "\",\"attempt\":2}", MessageProperties.CONTENT_TYPE_JSON,
+                "{}".getBytes(StandardCharsets.UTF_8), LocalDateTime.of(2025, 1, 15, 10, 30));
+    }
+}
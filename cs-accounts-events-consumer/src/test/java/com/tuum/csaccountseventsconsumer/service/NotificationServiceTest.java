@@ -0,0 +1,109 @@
+package com.tuum.csaccountseventsconsumer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.codec.MessageCodecs;
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.types.ErrorCode;
+import com.tuum.common.types.RequestType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationServiceTest {
+
+    @Mock
+    private AmqpTemplate amqpTemplate;
+    @Mock
+    private NotificationOutbox notificationOutbox;
+
+    private NotificationService notificationService;
+
+    @BeforeEach
+    void setUp() {
+        notificationService = new NotificationService(amqpTemplate,
+                new MessageCodecs(new ObjectMapper().findAndRegisterModules(), "json"), notificationOutbox);
+    }
+
+    @Test
+    void testPublishSuccessNotification_OutsideTransaction_SendsDirectly() throws Exception {
+        when(notificationOutbox.isTransactional()).thenReturn(false);
+
+        publish(null);
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(amqpTemplate).send(eq("notifications"), eq("accounts.created"), sent.capture());
+        MessageProperties properties = sent.getValue().getMessageProperties();
+        assertEquals("key-1", properties.getHeader("idempotency-key"));
+        assertEquals("ACC_1", properties.getHeader("account-id"));
+        verify(notificationOutbox, never()).enqueue(anyString(), anyString(), any());
+    }
+
+    @Test
+    void testPublishSuccessNotification_InTransaction_WritesToOutbox() throws Exception {
+        when(notificationOutbox.isTransactional()).thenReturn(true);
+
+        publish("reply-queue");
+
+        verify(notificationOutbox).enqueue(eq(""), eq("reply-queue"), any(Message.class));
+        verifyNoInteractions(amqpTemplate);
+    }
+
+    @Test
+    void testPublishSuccessNotification_OutboxWriteFails_Propagates() throws Exception {
+        when(notificationOutbox.isTransactional()).thenReturn(true);
+        doThrow(new DataIntegrityViolationException("outbox insert failed"))
+                .when(notificationOutbox).enqueue(anyString(), anyString(), any());
+
+        assertThrows(DataIntegrityViolationException.class, () -> publish(null));
+
+        verifyNoInteractions(amqpTemplate);
+    }
+
+    @Test
+    void testPublishErrorResponse_WithReplyQueue_SentToRequestingInstance() {
+        when(notificationOutbox.isTransactional()).thenReturn(false);
+
+        notificationService.publishErrorResponse("tuum.banking", "transactions.errors.created", command("reply-queue"),
+                ErrorCode.TRANSACTION_CREATION_FAILED, "posting failed");
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(amqpTemplate).send(eq(""), eq("reply-queue"), sent.capture());
+        assertEquals("ERROR", sent.getValue().getMessageProperties().getHeader("status"));
+        assertEquals("key-1", sent.getValue().getMessageProperties().getHeader("idempotency-key"));
+    }
+
+    @Test
+    void testPublishErrorResponse_WithoutReplyQueue_SentToSharedErrorQueue() {
+        when(notificationOutbox.isTransactional()).thenReturn(false);
+
+        notificationService.publishErrorResponse("tuum.banking", "transactions.errors.created", command(" "),
+                ErrorCode.TRANSACTION_CREATION_FAILED, "posting failed");
+
+        verify(amqpTemplate).send(eq("tuum.banking"), eq("transactions.errors.created"), any(Message.class));
+    }
+
+    private void publish(String replyTo) {
+        notificationService.publishSuccessNotification("notifications", "accounts.created", "CREATE", "SUCCESS",
+                "REQ_1", Map.of("accountId", "ACC_1"), "key-1", replyTo, MessageProperties.CONTENT_TYPE_JSON,
+                Map.of("account-id", "ACC_1"));
+    }
+
+    private static MQMessageData command(String replyTo) {
+        return new MQMessageData(RequestType.CREATE, "key-1", "REQ_1", "PENDING", new byte[0],
+                MessageProperties.CONTENT_TYPE_JSON, replyTo, 0);
+    }
+}
@@ -0,0 +1,162 @@
+package com.tuum.csaccountseventsconsumer.service;
+
+import com.tuum.csaccountseventsconsumer.mapper.ProcessedMessageMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProcessedMessageFilterTest {
+
+    @Mock
+    private ProcessedMessageMapper processedMessageMapper;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProcessedMessageFilter filter;
+    private final List<List<String>> lookups = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        filter = new ProcessedMessageFilter(processedMessageMapper, transactionManager, meterRegistry, 1000, 0.001);
+    }
+
+    @Test
+    void testFindProcessed_BeforeRebuild_ChecksEveryIdAgainstDatabase() {
+        Set<String> processed = filter.findProcessed(List.of("msg-1", "msg-2"), lookup("msg-1"));
+
+        assertEquals(Set.of("msg-1"), processed);
+        assertEquals(List.of(List.of("msg-1", "msg-2")), lookups);
+        assertEquals(2, lookupCount("checked"));
+        assertEquals(0, lookupCount("skipped"));
+        assertEquals(0, falsePositives());
+    }
+
+    @Test
+    void testFindProcessed_AfterRebuild_SkipsIdsNeverRecorded() {
+        scanReturns("msg-1");
+        filter.rebuild();
+
+        Set<String> processed = filter.findProcessed(List.of("msg-1", "msg-2"), lookup("msg-1"));
+
+        assertEquals(Set.of("msg-1"), processed);
+        assertEquals(List.of(List.of("msg-1")), lookups);
+        assertEquals(1, lookupCount("checked"));
+        assertEquals(1, lookupCount("skipped"));
+    }
+
+    @Test
+    void testFindProcessed_AllIdsNew_DoesNotQueryDatabase() {
+        scanReturns();
+        filter.rebuild();
+
+        assertTrue(filter.findProcessed(List.of("msg-1"), lookup()).isEmpty());
+
+        assertTrue(lookups.isEmpty());
+    }
+
+    @Test
+    void testFindProcessed_DuringRebuild_FallsThroughToDatabase() {
+        scanReturns();
+        filter.rebuild();
+        List<Set<String>> duringScan = new ArrayList<>();
+        doAnswer(invocation -> {
+            duringScan.add(filter.findProcessed(List.of("msg-1"), lookup("msg-1")));
+            feed(invocation.getArgument(0), "msg-1");
+            return null;
+        }).when(processedMessageMapper).scanMessageIds(any());
+
+        filter.rebuild();
+
+        assertEquals(List.of(Set.of("msg-1")), duringScan);
+        assertEquals(List.of(List.of("msg-1")), lookups);
+    }
+
+    @Test
+    void testRecordProcessed_DuringRebuild_KeptInNewFilter() {
+        doAnswer(invocation -> {
+            filter.recordProcessed("msg-2");
+            feed(invocation.getArgument(0), "msg-1");
+            return null;
+        }).when(processedMessageMapper).scanMessageIds(any());
+        filter.rebuild();
+        filter.recordProcessed("msg-3");
+
+        filter.findProcessed(List.of("msg-1", "msg-2", "msg-3", "msg-4"), lookup("msg-1", "msg-2", "msg-3"));
+
+        assertEquals(List.of(List.of("msg-1", "msg-2", "msg-3")), lookups);
+    }
+
+    @Test
+    void testFindProcessed_CountsFalsePositivesOnlyOnceReady() {
+        filter.findProcessed(List.of("msg-1"), lookup());
+        assertEquals(0, falsePositives());
+
+        scanReturns("msg-1", "msg-2");
+        filter.rebuild();
+        filter.findProcessed(List.of("msg-1", "msg-2"), lookup("msg-1"));
+
+        assertEquals(1, falsePositives());
+    }
+
+    @Test
+    void testRebuild_Failure_KeepsCheckingDatabase() {
+        when(processedMessageMapper.countProcessedMessages()).thenThrow(new IllegalStateException("database down"));
+
+        filter.rebuild();
+        filter.findProcessed(List.of("msg-1"), lookup());
+
+        assertEquals(List.of(List.of("msg-1")), lookups);
+        verify(processedMessageMapper, never()).scanMessageIds(any());
+    }
+
+    private Function<List<String>, Collection<String>> lookup(String... knownIds) {
+        return candidates -> {
+            lookups.add(candidates);
+            return candidates.stream().filter(List.of(knownIds)::contains).toList();
+        };
+    }
+
+    private void scanReturns(String... messageIds) {
+        doAnswer(invocation -> {
+            feed(invocation.getArgument(0), messageIds);
+            return null;
+        }).when(processedMessageMapper).scanMessageIds(any());
+    }
+
+    private static void feed(ResultHandler<String> handler, String... messageIds) {
+        DefaultResultContext<String> context = new DefaultResultContext<>();
+        for (String messageId : messageIds) {
+            context.nextResultObject(messageId);
+            handler.handleResult(context);
+        }
+    }
+
+    private double lookupCount(String outcome) {
+        return meterRegistry.get("tuum.processed-messages.filter.lookups").tag("outcome", outcome).counter().count();
+    }
+
+    private double falsePositives() {
+        return meterRegistry.get("tuum.processed-messages.filter.false-positives").counter().count();
+    }
+}
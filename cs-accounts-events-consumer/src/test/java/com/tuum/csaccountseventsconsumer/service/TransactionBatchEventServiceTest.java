@@ -0,0 +1,258 @@
+package com.tuum.csaccountseventsconsumer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.codec.MessageCodecs;
+import com.tuum.common.domain.entities.Balance;
+import com.tuum.common.domain.entities.Transaction;
+import com.tuum.common.dto.mq.CreateTransactionEvent;
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.types.Currency;
+import com.tuum.common.types.RequestType;
+import com.tuum.common.types.TransactionDirection;
+import com.tuum.csaccountseventsconsumer.mapper.BalanceMapper;
+import com.tuum.csaccountseventsconsumer.mapper.ProcessedMessageMapper;
+import com.tuum.csaccountseventsconsumer.mapper.TransactionMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionBatchEventServiceTest {
+
+    @Mock
+    private TransactionEventService transactionEventService;
+    @Mock
+    private ProcessedMessageFilter processedMessageFilter;
+    @Mock
+    private NotificationService notificationService;
+    @Mock
+    private SqlSessionTemplate batchSqlSessionTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private BalanceMapper balanceMapper;
+    @Mock
+    private TransactionMapper transactionMapper;
+    @Mock
+    private ProcessedMessageMapper processedMessageMapper;
+
+    private final MessageCodecs messageCodecs = new MessageCodecs(new ObjectMapper().findAndRegisterModules(), "json");
+    private TransactionBatchEventService service;
+
+    @BeforeEach
+    void setUp() {
+        when(batchSqlSessionTemplate.getMapper(BalanceMapper.class)).thenReturn(balanceMapper);
+        when(batchSqlSessionTemplate.getMapper(TransactionMapper.class)).thenReturn(transactionMapper);
+        when(batchSqlSessionTemplate.getMapper(ProcessedMessageMapper.class)).thenReturn(processedMessageMapper);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(processedMessageFilter.findProcessed(any(), any())).thenReturn(Set.of());
+        lenient().when(transactionEventService.calculateNewBalance(any(), any())).thenCallRealMethod();
+        lenient().when(transactionEventService.newTransaction(any(), any())).thenAnswer(invocation -> {
+            CreateTransactionEvent event = invocation.getArgument(0);
+            Transaction transaction = new Transaction();
+            transaction.setTransactionId("TXN_" + event.getIdempotencyKey());
+            return transaction;
+        });
+        lenient().when(batchSqlSessionTemplate.flushStatements()).thenReturn(List.of(balanceUpdates(1)));
+        service = newService(processedMessageFilter);
+    }
+
+    private TransactionBatchEventService newService(ProcessedMessageFilter filter) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new TransactionBatchEventService(transactionEventService, filter,
+                new OptimisticLockRetryPolicy(meterRegistry, 3, 0, 0), notificationService, messageCodecs,
+                batchSqlSessionTemplate, transactionManager, meterRegistry);
+    }
+
+    @Test
+    void testProcess_AppliesBatchAndEnqueuesNotificationsBeforeCommit() {
+        when(balanceMapper.findBalancesByAccountIds(any())).thenReturn(List.of(balance("ACC_1", "100.00")));
+        MQMessageData first = message("key-1", "ACC_1", TransactionDirection.IN, "10.00");
+        MQMessageData second = message("key-2", "ACC_1", TransactionDirection.OUT, "30.00");
+
+        Map<MQMessageData, RuntimeException> failures = service.processTransactionCreatedEvents(List.of(first, second));
+
+        assertTrue(failures.isEmpty());
+        ArgumentCaptor<Balance> balance = ArgumentCaptor.forClass(Balance.class);
+        verify(balanceMapper).updateBalance(balance.capture(), eq(1));
+        assertEquals(new BigDecimal("80.00"), balance.getValue().getAvailableAmount());
+        assertEquals(2, balance.getValue().getVersionNumber());
+        verify(transactionMapper, times(2)).insertTransaction(any());
+        verify(processedMessageMapper, times(2)).insertProcessedMessage(any());
+        InOrder inOrder = inOrder(notificationService, transactionManager, processedMessageFilter);
+        inOrder.verify(notificationService, times(2)).publishSuccessNotification(anyString(), anyString(), anyString(),
+                eq("SUCCESS"), anyString(), any(), anyString(), isNull(), isNull(), isNull());
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(processedMessageFilter).recordProcessed("key-1");
+        verify(transactionEventService, never()).processTransactionCreatedEvent(any());
+    }
+
+    @Test
+    void testProcess_DefersLaterMessagesOfAccountAfterSkippedOne() {
+        when(balanceMapper.findBalancesByAccountIds(any())).thenReturn(List.of(balance("ACC_1", "100.00"), balance("ACC_2", "100.00")));
+        MQMessageData insufficient = message("key-1", "ACC_1", TransactionDirection.OUT, "500.00");
+        MQMessageData sameAccount = message("key-2", "ACC_1", TransactionDirection.IN, "10.00");
+        MQMessageData otherAccount = message("key-3", "ACC_2", TransactionDirection.IN, "5.00");
+
+        service.processTransactionCreatedEvents(List.of(insufficient, sameAccount, otherAccount));
+
+        InOrder inOrder = inOrder(transactionEventService);
+        inOrder.verify(transactionEventService).processTransactionCreatedEvent(insufficient);
+        inOrder.verify(transactionEventService).processTransactionCreatedEvent(sameAccount);
+        verify(transactionEventService, never()).processTransactionCreatedEvent(otherAccount);
+        ArgumentCaptor<Balance> balance = ArgumentCaptor.forClass(Balance.class);
+        verify(balanceMapper).updateBalance(balance.capture(), eq(1));
+        assertEquals("ACC_2", balance.getValue().getAccountId());
+        verify(transactionMapper, times(1)).insertTransaction(any());
+    }
+
+    @Test
+    void testProcess_DuplicateIdempotencyKeys_LeftToSingleProcessing() {
+        when(balanceMapper.findBalancesByAccountIds(any())).thenReturn(List.of(balance("ACC_1", "100.00"), balance("ACC_2", "100.00")));
+        when(transactionMapper.findExistingIdempotencyKeys(any())).thenReturn(List.of("key-known"));
+        MQMessageData original = message("key-1", "ACC_1", TransactionDirection.IN, "10.00");
+        MQMessageData inBatchDuplicate = message("key-1", "ACC_2", TransactionDirection.IN, "10.00");
+        MQMessageData knownDuplicate = message("key-known", "ACC_2", TransactionDirection.IN, "10.00");
+
+        service.processTransactionCreatedEvents(List.of(original, inBatchDuplicate, knownDuplicate));
+
+        verify(transactionMapper, times(1)).insertTransaction(any());
+        verify(transactionEventService, never()).processTransactionCreatedEvent(original);
+        verify(transactionEventService).processTransactionCreatedEvent(inBatchDuplicate);
+        verify(transactionEventService).processTransactionCreatedEvent(knownDuplicate);
+    }
+
+    @Test
+    void testProcess_BalanceConflict_RetriesBatchWithFreshBalances() {
+        when(balanceMapper.findBalancesByAccountIds(any()))
+                .thenReturn(List.of(balance("ACC_1", "100.00")))
+                .thenReturn(List.of(balance("ACC_1", "200.00")));
+        when(batchSqlSessionTemplate.flushStatements())
+                .thenReturn(List.of(balanceUpdates(0)))
+                .thenReturn(List.of(balanceUpdates(1)));
+        MQMessageData messageData = message("key-1", "ACC_1", TransactionDirection.IN, "10.00");
+
+        Map<MQMessageData, RuntimeException> failures = service.processTransactionCreatedEvents(List.of(messageData));
+
+        assertTrue(failures.isEmpty());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+        ArgumentCaptor<Balance> balance = ArgumentCaptor.forClass(Balance.class);
+        verify(balanceMapper, times(2)).updateBalance(balance.capture(), eq(1));
+        assertEquals(new BigDecimal("210.00"), balance.getAllValues().get(1).getAvailableAmount());
+        verify(processedMessageFilter, times(1)).recordProcessed("key-1");
+        verify(transactionEventService, never()).processTransactionCreatedEvent(any());
+    }
+
+    @Test
+    void testProcess_BatchFailure_FallsBackToSingleMessages() {
+        when(balanceMapper.findBalancesByAccountIds(any())).thenReturn(List.of(balance("ACC_1", "100.00")));
+        doThrow(new IllegalStateException("insert failed")).when(transactionMapper).insertTransaction(any());
+        MQMessageData first = message("key-1", "ACC_1", TransactionDirection.IN, "10.00");
+        MQMessageData second = message("key-2", "ACC_1", TransactionDirection.IN, "20.00");
+        RuntimeException singleFailure = new IllegalStateException("still failing");
+        doNothing().when(transactionEventService).processTransactionCreatedEvent(first);
+        doThrow(singleFailure).when(transactionEventService).processTransactionCreatedEvent(second);
+
+        Map<MQMessageData, RuntimeException> failures = service.processTransactionCreatedEvents(List.of(first, second));
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(processedMessageFilter, never()).recordProcessed(any());
+        verify(transactionEventService).processTransactionCreatedEvent(first);
+        assertEquals(Map.of(second, singleFailure), failures);
+    }
+
+    @Test
+    void testProcess_WithFilter_LooksUpOnlyRecordedMessagesAndLearnsAppliedOnes() {
+        ProcessedMessageFilter filter = new ProcessedMessageFilter(processedMessageMapper, transactionManager,
+                new SimpleMeterRegistry(), 1000, 0.001);
+        doAnswer(invocation -> {
+            ResultHandler<String> handler = invocation.getArgument(0);
+            DefaultResultContext<String> context = new DefaultResultContext<>();
+            context.nextResultObject("key-2");
+            handler.handleResult(context);
+            return null;
+        }).when(processedMessageMapper).scanMessageIds(any());
+        filter.rebuild();
+        service = newService(filter);
+        when(balanceMapper.findBalancesByAccountIds(any())).thenReturn(List.of(balance("ACC_1", "100.00"), balance("ACC_2", "100.00")));
+        when(processedMessageMapper.findProcessedMessageIds(any())).thenReturn(List.of("key-2"));
+        MQMessageData fresh = message("key-1", "ACC_1", TransactionDirection.IN, "10.00");
+        MQMessageData redelivered = message("key-2", "ACC_2", TransactionDirection.IN, "10.00");
+
+        service.processTransactionCreatedEvents(List.of(fresh, redelivered));
+
+        verify(processedMessageMapper).findProcessedMessageIds(List.of("key-2"));
+        verify(transactionMapper, times(1)).insertTransaction(any());
+        verify(transactionEventService).processTransactionCreatedEvent(redelivered);
+        verify(transactionEventService, never()).processTransactionCreatedEvent(fresh);
+        List<List<String>> lookups = new ArrayList<>();
+        filter.findProcessed(List.of("key-1", "key-3"), candidates -> {
+            lookups.add(candidates);
+            return List.of();
+        });
+        assertEquals(List.of(List.of("key-1")), lookups);
+    }
+
+    @Test
+    void testProcess_UnreadableMessage_LeftToSingleProcessing() {
+        MQMessageData unreadable = new MQMessageData(RequestType.CREATE, "key-1", "REQ_1", "PENDING",
+                "not json".getBytes(), null, null, 0);
+
+        service.processTransactionCreatedEvents(List.of(unreadable));
+
+        verify(transactionEventService).processTransactionCreatedEvent(unreadable);
+        verifyNoInteractions(transactionManager);
+    }
+
+    private MQMessageData message(String idempotencyKey, String accountId, TransactionDirection direction, String amount) {
+        LocalDateTime now = LocalDateTime.now();
+        CreateTransactionEvent event = new CreateTransactionEvent("REQ_" + idempotencyKey, idempotencyKey, null, accountId,
+                null, new BigDecimal(amount), Currency.EUR, direction, "test", null, "PENDING", null, now, now, null);
+        try {
+            return new MQMessageData(RequestType.CREATE, idempotencyKey, event.getRequestId(), "PENDING",
+                    messageCodecs.outbound().encode(event), null, null, 0);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Balance balance(String accountId, String amount) {
+        LocalDateTime now = LocalDateTime.now();
+        return new Balance("BAL_" + accountId, accountId, Currency.EUR, new BigDecimal(amount), 1, now, now);
+    }
+
+    private static BatchResult balanceUpdates(int updateCount) {
+        MappedStatement statement = new MappedStatement.Builder(new Configuration(),
+                BalanceMapper.class.getName() + ".updateBalance", parameter -> null, SqlCommandType.UPDATE).build();
+        BatchResult result = new BatchResult(statement, "UPDATE balances", null);
+        result.setUpdateCounts(new int[]{updateCount});
+        return result;
+    }
+}
@@ -1,96 +1,191 @@
-//package com.tuum.csaccountseventsconsumer.service;
-//
-//import com.fasterxml.jackson.databind.ObjectMapper;
-//import com.tuum.common.domain.entities.Balance;
-//import com.tuum.common.domain.entities.Transaction;
-//import com.tuum.common.dto.mq.CreateTransactionEvent;
-//import com.tuum.common.types.Currency;
-//import com.tuum.common.types.TransactionDirection;
-//import com.tuum.csaccountseventsconsumer.mapper.BalanceMapper;
-//import com.tuum.csaccountseventsconsumer.mapper.ProcessedMessageMapper;
-//import com.tuum.csaccountseventsconsumer.mapper.TransactionMapper;
-//
-//import org.junit.jupiter.api.BeforeEach;
-//import org.junit.jupiter.api.Test;
-//import org.mockito.InjectMocks;
-//import org.mockito.Mock;
-//import org.mockito.MockitoAnnotations;
-//import org.springframework.amqp.core.AmqpTemplate;
-//
-//
-//class TransactionEventServiceTest {
-//
-//    @Mock
-//    private TransactionMapper transactionMapper;
-//    @Mock
-//    private BalanceMapper balanceMapper;
-//    @Mock
-//    private ProcessedMessageMapper processedMessageMapper;
-//    @Mock
-//    private ObjectMapper objectMapper;
-//    @Mock
-//    private NotificationService notificationService;
-//    @Mock
-//    private AmqpTemplate amqpTemplate;
-//
-//    @InjectMocks
-//    private TransactionEventService transactionEventService;
-//
-////    private MockedStatic<Helper> helperMock;
-//
-//    @BeforeEach
-//    void setUp() {
-////        MockitoAnnotations.openMocks(this);
-////        helperMock = mockStatic(Helper.class);
-////        helperMock.when(() -> Helper.unwrapIfDoubleEncoded(anyString(), any(ObjectMapper.class)))
-////                  .thenAnswer(invocation -> invocation.getArgument(0));
-//    }
-//
-////    @org.junit.jupiter.api.AfterEach
-////    void tearDown() {
-////        if (helperMock != null) {
-////            helperMock.close();
-////        }
-////    }
-//
-////    @Test
-////    void testProcessTransactionCreatedEvent_updatesBalanceAndCreatesTransaction() throws Exception {
-////        // Arrange
-////        CreateTransactionEvent event = new CreateTransactionEvent();
-////        event.setTransactionId("TXN1");
-////        event.setAccountId("ACC1");
-////        event.setAmount(new BigDecimal("100.00"));
-////        event.setCurrency(Currency.EUR);
-////        event.setDirection(TransactionDirection.IN);
-////        event.setDescription("Deposit");
-////        event.setIdempotencyKey("IDEMP1");
-////        event.setRequestId("REQ1");
-////
-////        String json = "{\"transactionId\":\"TXN1\",\"accountId\":\"ACC1\",\"amount\":100.00,\"currency\":\"EUR\",\"direction\":\"IN\",\"description\":\"Deposit\",\"idempotencyKey\":\"IDEMP1\",\"requestId\":\"REQ1\"}";
-////
-////        // Mock the Helper.unwrapIfDoubleEncoded method
-////        when(objectMapper.readTree(json)).thenReturn(new ObjectMapper().readTree(json));
-////        when(objectMapper.treeToValue(any(), eq(CreateTransactionEvent.class))).thenReturn(event);
-////
-////        when(processedMessageMapper.existsProcessedMessage("IDEMP1")).thenReturn(false);
-////        when(transactionMapper.existsTransactionByIdempotencyKey("IDEMP1")).thenReturn(false);
-////
-////        Balance balance = new Balance();
-////        balance.setAccountId("ACC1");
-////        balance.setCurrency(Currency.EUR);
-////        balance.setAvailableAmount(new BigDecimal("0.00"));
-////        balance.setVersionNumber(1);
-////        when(balanceMapper.findBalanceByAccountIdAndCurrency("ACC1", "EUR")).thenReturn(balance);
-////        when(balanceMapper.updateBalance(any(Balance.class), anyInt())).thenReturn(1);
-////        doNothing().when(transactionMapper).insertTransaction(any(Transaction.class));
-////
-////        // Act
-////        transactionEventService.processTransactionCreatedEvent(json);
-////
-////        // Assert
-////        // Verify the service methods were called
-////        verify(balanceMapper, times(1)).findBalanceByAccountIdAndCurrency("ACC1", "EUR");
-////        verify(balanceMapper, times(1)).updateBalance(any(Balance.class), anyInt());
-////        verify(transactionMapper, times(1)).insertTransaction(any(Transaction.class));
-////    }
-//}
\ No newline at end of file
+package com.tuum.csaccountseventsconsumer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.codec.MessageCodecs;
+import com.tuum.common.domain.entities.Balance;
+import com.tuum.common.domain.entities.ProcessedMessage;
+import com.tuum.common.domain.entities.Transaction;
+import com.tuum.common.dto.mq.CreateTransactionEvent;
+import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.exception.RetryableMessageException;
+import com.tuum.common.types.Currency;
+import com.tuum.common.types.ErrorCode;
+import com.tuum.common.types.RequestType;
+import com.tuum.common.types.TransactionDirection;
+import com.tuum.csaccountseventsconsumer.mapper.BalanceMapper;
+import com.tuum.csaccountseventsconsumer.mapper.ProcessedMessageMapper;
+import com.tuum.csaccountseventsconsumer.mapper.TransactionMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionEventServiceTest {
+
+    private static final String IDEMPOTENCY_KEY = "key-1";
+
+    @Mock
+    private TransactionMapper transactionMapper;
+    @Mock
+    private BalanceMapper balanceMapper;
+    @Mock
+    private ProcessedMessageMapper processedMessageMapper;
+    @Mock
+    private NotificationService notificationService;
+    @Mock
+    private MessageRetryPolicy messageRetryPolicy;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MessageCodecs messageCodecs = new MessageCodecs(new ObjectMapper().findAndRegisterModules(), "json");
+    private final SimpleTransactionStatus transactionStatus = new SimpleTransactionStatus();
+    private TransactionEventService transactionEventService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        // Run through the @Transactional proxy so the service can mark the transaction rollback-only
+        ProxyFactory proxyFactory = new ProxyFactory(new TransactionEventService(transactionMapper, balanceMapper,
+                processedMessageMapper, messageCodecs, notificationService, messageRetryPolicy));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new TransactionInterceptor((TransactionManager) transactionManager,
+                new AnnotationTransactionAttributeSource()));
+        transactionEventService = (TransactionEventService) proxyFactory.getProxy();
+    }
+
+    @Test
+    void testProcess_NewMessage_PostsAndNotifiesInCommittedTransaction() {
+        when(processedMessageMapper.reserveProcessedMessage(any())).thenReturn(IDEMPOTENCY_KEY);
+        when(balanceMapper.applyPosting(eq("ACC_1"), eq(Currency.EUR), eq(TransactionDirection.OUT),
+                eq(new BigDecimal("30.00")), any())).thenReturn(balance("70.00"));
+
+        transactionEventService.processTransactionCreatedEvent(message(TransactionDirection.OUT, "30.00"));
+
+        ArgumentCaptor<ProcessedMessage> reserved = ArgumentCaptor.forClass(ProcessedMessage.class);
+        verify(processedMessageMapper).reserveProcessedMessage(reserved.capture());
+        assertEquals(IDEMPOTENCY_KEY, reserved.getValue().getMessageId());
+        ArgumentCaptor<Transaction> inserted = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionMapper).insertTransaction(inserted.capture());
+        assertEquals("BAL_ACC_1", inserted.getValue().getBalanceId());
+        assertEquals(new BigDecimal("70.00"), inserted.getValue().getBalanceAfterTransaction());
+        assertTrue(reserved.getValue().getResultData().contains(inserted.getValue().getTransactionId()));
+        verify(notificationService).publishSuccessNotification(anyString(), anyString(), anyString(), eq("SUCCESS"),
+                eq("REQ_1"), same(inserted.getValue()), eq(IDEMPOTENCY_KEY), isNull(), isNull(), isNull());
+        verify(balanceMapper, never()).findBalanceByAccountIdAndCurrency(any(), any());
+        verify(transactionManager).commit(transactionStatus);
+        assertFalse(transactionStatus.isRollbackOnly());
+    }
+
+    @Test
+    void testProcess_PostingRejectedWithBalancePresent_ReportsInsufficientFunds() {
+        when(processedMessageMapper.reserveProcessedMessage(any())).thenReturn(IDEMPOTENCY_KEY);
+        when(balanceMapper.applyPosting(any(), any(), any(), any(), any())).thenReturn(null);
+        when(balanceMapper.findBalanceByAccountIdAndCurrency("ACC_1", Currency.EUR)).thenReturn(balance("5.00"));
+        MQMessageData message = message(TransactionDirection.OUT, "30.00");
+
+        transactionEventService.processTransactionCreatedEvent(message);
+
+        verify(notificationService).publishErrorResponse(anyString(), anyString(), eq(message),
+                eq(ErrorCode.INSUFFICIENT_FUNDS), eq("Available: 5.00, Required: 30.00"));
+        verify(transactionMapper, never()).insertTransaction(any());
+        verify(notificationService, never()).publishSuccessNotification(any(), any(), any(), any(), any(), any(), any(),
+                any(), any(), any());
+        verifyNoInteractions(messageRetryPolicy);
+        assertTrue(transactionStatus.isRollbackOnly());
+    }
+
+    @Test
+    void testProcess_PostingRejectedWithoutBalance_ReportsBalanceNotFound() {
+        when(processedMessageMapper.reserveProcessedMessage(any())).thenReturn(IDEMPOTENCY_KEY);
+        when(balanceMapper.applyPosting(any(), any(), any(), any(), any())).thenReturn(null);
+        when(balanceMapper.findBalanceByAccountIdAndCurrency("ACC_1", Currency.EUR)).thenReturn(null);
+        MQMessageData message = message(TransactionDirection.IN, "30.00");
+
+        transactionEventService.processTransactionCreatedEvent(message);
+
+        verify(notificationService).publishErrorResponse(anyString(), anyString(), eq(message),
+                eq(ErrorCode.TRANSACTION_CREATION_FAILED), eq("No EUR balance found for account ACC_1"));
+        verify(transactionMapper, never()).insertTransaction(any());
+        assertTrue(transactionStatus.isRollbackOnly());
+    }
+
+    @Test
+    void testProcess_Replay_RepublishesExistingTransactionWithoutPosting() {
+        Transaction existing = new Transaction();
+        existing.setTransactionId("TXN_1");
+        when(processedMessageMapper.reserveProcessedMessage(any())).thenReturn(null);
+        when(transactionMapper.findTransactionByIdempotencyKey(IDEMPOTENCY_KEY)).thenReturn(existing);
+
+        transactionEventService.processTransactionCreatedEvent(message(TransactionDirection.IN, "10.00"));
+
+        verify(notificationService).publishSuccessNotification(anyString(), anyString(), anyString(), eq("SUCCESS"),
+                eq("REQ_1"), same(existing), eq(IDEMPOTENCY_KEY), isNull(), isNull(), isNull());
+        verifyNoInteractions(balanceMapper);
+        verify(transactionMapper, never()).insertTransaction(any());
+        assertFalse(transactionStatus.isRollbackOnly());
+    }
+
+    @Test
+    void testProcess_FailureAfterReservation_RollsReservationBack() {
+        when(processedMessageMapper.reserveProcessedMessage(any())).thenReturn(IDEMPOTENCY_KEY);
+        when(balanceMapper.applyPosting(any(), any(), any(), any(), any())).thenReturn(balance("110.00"));
+        doThrow(new IllegalStateException("insert failed")).when(transactionMapper).insertTransaction(any());
+        MQMessageData message = message(TransactionDirection.IN, "10.00");
+
+        transactionEventService.processTransactionCreatedEvent(message);
+
+        verify(processedMessageMapper).reserveProcessedMessage(any());
+        verify(notificationService).publishErrorResponse(anyString(), anyString(), eq(message),
+                eq(ErrorCode.TRANSACTION_CREATION_FAILED), eq("insert failed"));
+        assertTrue(transactionStatus.isRollbackOnly());
+    }
+
+    @Test
+    void testProcess_TransientFailureAfterReservation_RollsBackForRetry() {
+        QueryTimeoutException timeout = new QueryTimeoutException("statement timed out");
+        MQMessageData message = message(TransactionDirection.IN, "10.00");
+        when(processedMessageMapper.reserveProcessedMessage(any())).thenReturn(IDEMPOTENCY_KEY);
+        when(balanceMapper.applyPosting(any(), any(), any(), any(), any())).thenThrow(timeout);
+        when(messageRetryPolicy.shouldRetry(timeout, message)).thenReturn(true);
+
+        assertThrows(RetryableMessageException.class, () -> transactionEventService.processTransactionCreatedEvent(message));
+
+        verify(transactionManager).rollback(transactionStatus);
+        verify(transactionManager, never()).commit(any());
+        verifyNoInteractions(notificationService);
+    }
+
+    private MQMessageData message(TransactionDirection direction, String amount) {
+        LocalDateTime now = LocalDateTime.now();
+        CreateTransactionEvent event = new CreateTransactionEvent("REQ_1", IDEMPOTENCY_KEY, null, "ACC_1", null,
+                new BigDecimal(amount), Currency.EUR, direction, "test", null, "PENDING", null, now, now, null);
+        try {
+            return new MQMessageData(RequestType.CREATE, IDEMPOTENCY_KEY, "REQ_1", "PENDING",
+                    messageCodecs.outbound().encode(event), null, null, 0);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Balance balance(String amount) {
+        LocalDateTime now = LocalDateTime.now();
+        return new Balance("BAL_ACC_1", "ACC_1", Currency.EUR, new BigDecimal(amount), 2, now, now);
+    }
+}
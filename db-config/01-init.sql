@@ -62,12 +62,74 @@ CREATE TABLE IF NOT EXISTS processed_messages (
     UNIQUE(idempotency_key)
 );
 
+-- Serialized final responses of completed commands, replayed for repeated idempotency keys
+CREATE TABLE IF NOT EXISTS idempotent_responses (
+    idempotency_key VARCHAR(100) PRIMARY KEY,
+    resource_type VARCHAR(50) NOT NULL,
+    response_body BYTEA NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Cross-instance reservation of idempotency keys: only the owner publishes the command.
+-- Status moves from PENDING to COMPLETED or FAILED; rows and responses are purged after tuum.idempotency.ttl-seconds
+CREATE TABLE IF NOT EXISTS idempotency_reservations (
+    idempotency_key VARCHAR(100) PRIMARY KEY,
+    owner_id VARCHAR(100) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    resource_type VARCHAR(50),
+    resource_id VARCHAR(100),
+    error_code VARCHAR(50),
+    error_message TEXT,
+    reserved_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Customer callback URLs for command results, shared by every fs-accounts-service instance
+CREATE TABLE IF NOT EXISTS webhook_subscriptions (
+    customer_id VARCHAR(100) PRIMARY KEY,
+    callback_url TEXT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Last journal sequence of each in-memory ledger shard that has been written to the tables above,
+-- per instance, since every instance has its own journal
+CREATE TABLE IF NOT EXISTS ledger_checkpoints (
+    shard INTEGER NOT NULL,
+    owner_id VARCHAR(100) NOT NULL,
+    last_sequence BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (shard, owner_id)
+);
+
+-- Instance that owns each ledger shard; the epoch grows with every change of owner and fences the
+-- write-behind of earlier owners
+CREATE TABLE IF NOT EXISTS ledger_shard_owners (
+    shard INTEGER PRIMARY KEY,
+    owner_id VARCHAR(100) NOT NULL,
+    epoch BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Notifications written in the transaction that produced them, published by the outbox relay after commit
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    exchange VARCHAR(255) NOT NULL,
+    routing_key VARCHAR(255) NOT NULL,
+    headers TEXT,
+    content_type VARCHAR(100),
+    body BYTEA NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Indexes for better performance
 CREATE INDEX IF NOT EXISTS idx_accounts_customer_id ON accounts(customer_id);
 CREATE INDEX IF NOT EXISTS idx_balances_account_id ON balances(account_id);
 CREATE INDEX IF NOT EXISTS idx_transactions_account_id ON transactions(account_id);
 CREATE INDEX IF NOT EXISTS idx_transactions_created_at ON transactions(created_at);
 CREATE INDEX IF NOT EXISTS idx_processed_messages_message_id ON processed_messages(message_id);
+CREATE INDEX IF NOT EXISTS idx_idempotent_responses_created_at ON idempotent_responses(created_at);
+CREATE INDEX IF NOT EXISTS idx_idempotency_reservations_updated_at ON idempotency_reservations(updated_at);
 
 -- Insert sample data for testing
 INSERT INTO accounts (account_id, customer_id, country, account_name, account_type, idempotency_key) VALUES
@@ -4,6 +4,18 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.tuum.common.types.RabbitMQConfig;
+import com.tuum.common.types.RetryTiers;
+import com.tuum.common.types.TransactionPartitions;
+import com.tuum.fsaccountsservice.service.TransactionPartitioner;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -12,6 +24,9 @@ import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfiguration {
 
@@ -20,10 +35,75 @@ public class RabbitMQConfiguration {
         return new TopicExchange(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), true, false);
     }
 
+    /**
+     * Transaction partition queues, declared here as well as by the consumer so commands are routable
+     * before the consumer has started.
+     */
+    @Bean
+    public Declarables transactionPartitionQueues(TransactionPartitioner transactionPartitioner) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int partition = 0; partition < transactionPartitioner.partitions(); partition++) {
+            Queue queue = new Queue(TransactionPartitions.queueName(partition), true, false, false, TransactionPartitions.queueArguments());
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(tuumBankingExchange()).with(TransactionPartitions.routingKey(partition)));
+        }
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Retry and dead-letter topology: one delay queue per {@link RetryTiers} tier, dead-lettering back
+     * to the command queues through {@code tuum.retry.requeue}, and the {@code tuum.parking-lot} queue
+     * for commands that cannot be processed. The dead-letter policy of the command queues themselves
+     * is in {@code rmq-config/definitions.json}, since their arguments cannot change once declared.
+     */
+    @Bean
+    public Declarables retryTopology(TransactionPartitioner transactionPartitioner) {
+        List<Declarable> declarables = new ArrayList<>();
+        DirectExchange requeueExchange = new DirectExchange(RabbitMQConfig.RETRY_REQUEUE_EXCHANGE.getValue(), true, false);
+        declarables.add(requeueExchange);
+        for (int tier = 0; tier < RetryTiers.count(); tier++) {
+            FanoutExchange tierExchange = new FanoutExchange(RetryTiers.name(tier), true, false);
+            Queue tierQueue = new Queue(RetryTiers.name(tier), true, false, false, RetryTiers.queueArguments(tier));
+            declarables.add(tierExchange);
+            declarables.add(tierQueue);
+            declarables.add(BindingBuilder.bind(tierQueue).to(tierExchange));
+        }
+
+        List<String> commandQueues = new ArrayList<>(TransactionPartitions.queueNames(transactionPartitioner.partitions()));
+        commandQueues.add(RabbitMQConfig.TRANSACTIONS_EVENTS_QUEUE.getValue());
+        commandQueues.add(RabbitMQConfig.ACCOUNTS_EVENTS_QUEUE.getValue());
+        for (String queue : commandQueues) {
+            declarables.add(new Binding(queue, Binding.DestinationType.QUEUE, requeueExchange.getName(), queue, null));
+        }
+
+        FanoutExchange deadLetterExchange = new FanoutExchange(RabbitMQConfig.DEAD_LETTER_EXCHANGE.getValue(), true, false);
+        Queue parkingLot = new Queue(RabbitMQConfig.PARKING_LOT_QUEUE.getValue(), true);
+        declarables.add(deadLetterExchange);
+        declarables.add(parkingLot);
+        declarables.add(BindingBuilder.bind(parkingLot).to(deadLetterExchange));
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Exclusive, auto-delete reply queues owned by this instance. Commands carry the queue name in the
+     * {@code reply-to} header so the consumer answers the node that holds the pending request.
+     */
+    @Bean
+    public Queue accountsReplyQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("fs-accounts-service.accounts-replies."));
+    }
+
+    @Bean
+    public Queue transactionsReplyQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("fs-accounts-service.transactions-replies."));
+    }
+
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
         template.setMessageConverter(jsonMessageConverter());
+        // Unroutable commands are returned and fail the pending request (see EventPublisherService)
+        template.setMandatory(true);
         return template;
     }
 
@@ -6,11 +6,11 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
 @Component
 @Slf4j
-public class RequestIdInterceptor implements HandlerInterceptor {
+public class RequestIdInterceptor implements AsyncHandlerInterceptor {
 
     private static final String REQUEST_ID_HEADER = "X-Request-ID";
 
@@ -35,4 +35,14 @@ public class RequestIdInterceptor implements HandlerInterceptor {
         MDC.remove(REQUEST_ID_HEADER);
         log.debug("Cleared request ID from ThreadLocal");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Asynchronous requests release the request thread before afterCompletion runs (on another thread),
+     * so the trace id is cleared here as well to keep it from leaking to the next request on this thread.
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        TraceIdGenerator.clear();
+        MDC.remove(REQUEST_ID_HEADER);
+    }
+}
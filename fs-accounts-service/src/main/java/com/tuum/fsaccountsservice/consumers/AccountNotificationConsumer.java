@@ -1,12 +1,18 @@
 package com.tuum.fsaccountsservice.consumers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tuum.common.adapter.AmqpMessageAdapter;
+import com.tuum.common.codec.MessageCodecs;
 import com.tuum.common.dto.ErrorResponse;
 import com.tuum.common.dto.mq.CreateAccountEvent;
 import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.exception.BusinessException;
 import com.tuum.common.dto.mq.ErrorNotification;
 import com.tuum.fsaccountsservice.service.AccountService;
+import com.tuum.fsaccountsservice.service.IdempotencyReservationService;
+import com.tuum.fsaccountsservice.service.PendingRequestRegistry;
+import com.tuum.fsaccountsservice.service.RequestStateStore;
+import com.tuum.fsaccountsservice.service.WebhookDelivery;
+import com.tuum.fsaccountsservice.service.WebhookDispatcher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
@@ -14,33 +20,56 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.context.annotation.Lazy;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 @Service
 @Slf4j
 public class AccountNotificationConsumer {
     private final SimpMessagingTemplate messagingTemplate;
-    private final ObjectMapper objectMapper;
+    private final MessageCodecs messageCodecs;
     private final AccountService accountService;
-    private final ConcurrentMap<String, ErrorNotification> errorCache = new ConcurrentHashMap<>();
+    private final PendingRequestRegistry pendingRequestRegistry;
+    private final RequestStateStore requestStateStore;
+    private final WebhookDispatcher webhookDispatcher;
+    private final IdempotencyReservationService idempotencyReservationService;
 
     public AccountNotificationConsumer(SimpMessagingTemplate messagingTemplate,
-                                        ObjectMapper objectMapper,
-                                        @Lazy AccountService accountService) {
+                                        MessageCodecs messageCodecs,
+                                        @Lazy AccountService accountService,
+                                        PendingRequestRegistry pendingRequestRegistry,
+                                        RequestStateStore requestStateStore,
+                                        WebhookDispatcher webhookDispatcher,
+                                        IdempotencyReservationService idempotencyReservationService) {
         this.messagingTemplate = messagingTemplate;
-        this.objectMapper = objectMapper;
+        this.messageCodecs = messageCodecs;
         this.accountService = accountService;
+        this.pendingRequestRegistry = pendingRequestRegistry;
+        this.requestStateStore = requestStateStore;
+        this.webhookDispatcher = webhookDispatcher;
+        this.idempotencyReservationService = idempotencyReservationService;
+    }
+
+    /**
+     * Replies addressed to this instance. Successes and errors share the queue and are told apart by
+     * the {@code status} header.
+     */
+    @RabbitListener(queues = "#{accountsReplyQueue.name}")
+    public void handleAccountReply(Message message) {
+        if ("ERROR".equals(message.getMessageProperties().getHeader("status"))) {
+            handleAccountError(message);
+        } else {
+            handleAccountNotification(message);
+        }
     }
 
     @RabbitListener(queues = "#{T(com.tuum.common.types.RabbitMQConfig).ACCOUNTS_NOTIFICATIONS_QUEUE.getValue()}")
     public void handleAccountNotification(Message message) {
         try {
             MQMessageData messageData = new AmqpMessageAdapter().adapt(message);
-            CreateAccountEvent event = objectMapper.readValue(messageData.getMessageBody(), CreateAccountEvent.class);
-            log.info("Raw message body: {}", messageData.getMessageBody());
+            CreateAccountEvent event = messageCodecs.decode(messageData, CreateAccountEvent.class);
+            log.info("Message body: {} bytes of {}", messageData.getBody().length, messageData.getContentType());
             log.info("Message headers: {}", message.getMessageProperties().getHeaders());
             log.info("Parsed AccountProcessedEvent: requestId={}, idempotencyKey={}, status={}", messageData.getRequestId(), messageData.getIdempotencyKey(), messageData.getStatus());
             Map<String, Object> notification = new HashMap<>();
@@ -51,9 +80,13 @@ public class AccountNotificationConsumer {
             notification.put("status", messageData.getStatus());
             notification.put("processedAt", event.getCreatedAt());
             notification.put("timestamp", System.currentTimeMillis());
+            requestStateStore.markCompleted(messageData.getIdempotencyKey(), event.getAccountId());
+            idempotencyReservationService.markCompleted(messageData.getIdempotencyKey(), event.getAccountId());
             accountService.completeAccount(event, messageData);
             log.info("Successfully completed pending account with idempotencyKey: {}", messageData.getIdempotencyKey());
             messagingTemplate.convertAndSend("/topic/accounts", notification);
+            webhookDispatcher.submit(new WebhookDelivery(messageData.getIdempotencyKey(), "account", "SUCCESS", notification, Instant.now()),
+                    event.getCustomerId(), null);
             log.info("Sent detailed account success notification: {}", event.getAccountId());
         } catch (Exception e) {
             log.error("Error processing account notification: {}", e.getMessage(), e);
@@ -65,11 +98,13 @@ public class AccountNotificationConsumer {
     public void handleAccountError(Message message) {
         try {
             MQMessageData messageData = new AmqpMessageAdapter().adapt(message);
-            ErrorNotification errorNotification = objectMapper.readValue(messageData.getMessageBody(), ErrorNotification.class);
+            ErrorNotification errorNotification = messageCodecs.decode(messageData, ErrorNotification.class);
             String idempotencyKey = messageData.getIdempotencyKey();
-            
-            errorCache.put(idempotencyKey, errorNotification);
-            log.info("Raw message body: {}", messageData.getMessageBody());
+            pendingRequestRegistry.completeWithError(idempotencyKey, errorNotification);
+            BusinessException failure = PendingRequestRegistry.toException(errorNotification);
+            requestStateStore.markFailed(idempotencyKey, failure.getErrorCode(), failure.getMessage());
+            idempotencyReservationService.markFailed(idempotencyKey, failure.getErrorCode(), failure.getMessage());
+            log.info("Message body: {} bytes of {}", messageData.getBody().length, messageData.getContentType());
             log.info("Message headers: {}", message.getMessageProperties().getHeaders());
             log.info("Parsed AccountErrorEvent: requestId={}, idempotencyKey={}, status={}", messageData.getRequestId(), messageData.getIdempotencyKey(), messageData.getStatus());
             Map<String, Object> notification = new HashMap<>();
@@ -77,22 +112,13 @@ public class AccountNotificationConsumer {
             notification.put("error-message", errorNotification.getErrorMessage());
             notification.put("error-code", errorNotification.getErrorCode());
             notification.put("timestamp", System.currentTimeMillis());
-            accountService.completeAccount(errorNotification, messageData);
             messagingTemplate.convertAndSend("/topic/accounts", notification);
+            // Errors carry no customer, so only a per-request callback can receive them
+            webhookDispatcher.submit(new WebhookDelivery(idempotencyKey, "account", "ERROR", notification, Instant.now()), null, null);
             log.error("Account processing error for idempotency key {}: {} - {}", idempotencyKey, errorNotification.getErrorCode(), errorNotification.getErrorMessage());
         } catch (Exception e) {
             log.error("Error processing account error message: {}", e.getMessage(), e);
             log.error("Failed to deserialize message: {}", new String(message.getBody()));
         }
     }
-
-    public ErrorNotification getErrorForIdempotencyKey(String idempotencyKey) {
-        return errorCache.get(idempotencyKey);
-    }
-
-    public void removeErrorFromCache(String idempotencyKey) {
-        errorCache.remove(idempotencyKey);
-    }
 }
-
-
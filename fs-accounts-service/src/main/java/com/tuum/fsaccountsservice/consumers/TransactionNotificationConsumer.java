@@ -1,11 +1,17 @@
 package com.tuum.fsaccountsservice.consumers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tuum.common.adapter.AmqpMessageAdapter;
+import com.tuum.common.codec.MessageCodecs;
 import com.tuum.common.dto.mq.CreateTransactionEvent;
 import com.tuum.common.dto.mq.MQMessageData;
+import com.tuum.common.exception.BusinessException;
 import com.tuum.common.dto.mq.ErrorNotification;
 import com.tuum.fsaccountsservice.service.TransactionService;
+import com.tuum.fsaccountsservice.service.IdempotencyReservationService;
+import com.tuum.fsaccountsservice.service.PendingRequestRegistry;
+import com.tuum.fsaccountsservice.service.RequestStateStore;
+import com.tuum.fsaccountsservice.service.WebhookDelivery;
+import com.tuum.fsaccountsservice.service.WebhookDispatcher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
@@ -13,33 +19,56 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.context.annotation.Lazy;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 @Service
 @Slf4j
 public class TransactionNotificationConsumer {
     private final SimpMessagingTemplate messagingTemplate;
-    private final ObjectMapper objectMapper;
+    private final MessageCodecs messageCodecs;
     private final TransactionService transactionService;
-    private final ConcurrentMap<String, ErrorNotification> errorCache = new ConcurrentHashMap<>();
+    private final PendingRequestRegistry pendingRequestRegistry;
+    private final RequestStateStore requestStateStore;
+    private final WebhookDispatcher webhookDispatcher;
+    private final IdempotencyReservationService idempotencyReservationService;
 
     public TransactionNotificationConsumer(SimpMessagingTemplate messagingTemplate,
-                                            ObjectMapper objectMapper,
-                                            @Lazy TransactionService transactionService) {
+                                            MessageCodecs messageCodecs,
+                                            @Lazy TransactionService transactionService,
+                                            PendingRequestRegistry pendingRequestRegistry,
+                                            RequestStateStore requestStateStore,
+                                            WebhookDispatcher webhookDispatcher,
+                                            IdempotencyReservationService idempotencyReservationService) {
         this.messagingTemplate = messagingTemplate;
-        this.objectMapper = objectMapper;
+        this.messageCodecs = messageCodecs;
         this.transactionService = transactionService;
+        this.pendingRequestRegistry = pendingRequestRegistry;
+        this.requestStateStore = requestStateStore;
+        this.webhookDispatcher = webhookDispatcher;
+        this.idempotencyReservationService = idempotencyReservationService;
+    }
+
+    /**
+     * Replies addressed to this instance. Successes and errors share the queue and are told apart by
+     * the {@code status} header.
+     */
+    @RabbitListener(queues = "#{transactionsReplyQueue.name}")
+    public void handleTransactionReply(Message message) {
+        if ("ERROR".equals(message.getMessageProperties().getHeader("status"))) {
+            handleTransactionError(message);
+        } else {
+            handleTransactionNotification(message);
+        }
     }
 
     @RabbitListener(queues = "#{T(com.tuum.common.types.RabbitMQConfig).TRANSACTIONS_NOTIFICATIONS_QUEUE.getValue()}")
     public void handleTransactionNotification(Message message) {
         try {
             MQMessageData messageData = new AmqpMessageAdapter().adapt(message);
-            CreateTransactionEvent event = objectMapper.readValue(messageData.getMessageBody(), CreateTransactionEvent.class);
-            log.info("Raw message body: {}", messageData.getMessageBody());
+            CreateTransactionEvent event = messageCodecs.decode(messageData, CreateTransactionEvent.class);
+            log.info("Message body: {} bytes of {}", messageData.getBody().length, messageData.getContentType());
             log.info("Message headers: {}", message.getMessageProperties().getHeaders());
             log.info("Parsed TransactionProcessedEvent: requestId={}, idempotencyKey={}, status={}", messageData.getRequestId(), messageData.getIdempotencyKey(), messageData.getStatus());
             Map<String, Object> notification = new HashMap<>();
@@ -52,9 +81,13 @@ public class TransactionNotificationConsumer {
             notification.put("status", messageData.getStatus());
             notification.put("processedAt", event.getCreatedAt());
             notification.put("timestamp", System.currentTimeMillis());
+            requestStateStore.markCompleted(messageData.getIdempotencyKey(), event.getTransactionId());
+            idempotencyReservationService.markCompleted(messageData.getIdempotencyKey(), event.getTransactionId());
             transactionService.completeTransaction(event, messageData);
             log.info("Successfully completed pending transaction with idempotencyKey: {}", messageData.getIdempotencyKey());
             messagingTemplate.convertAndSend("/topic/transactions", notification);
+            webhookDispatcher.submit(new WebhookDelivery(messageData.getIdempotencyKey(), "transaction", "SUCCESS", notification, Instant.now()),
+                    null, event.getAccountId());
             log.info("Sent detailed transaction success notification: {}", event.getTransactionId());
         } catch (Exception e) {
             log.error("Error processing transaction notification: {}", e.getMessage(), e);
@@ -66,10 +99,13 @@ public class TransactionNotificationConsumer {
     public void handleTransactionError(Message message) {
         try {
             MQMessageData messageData = new AmqpMessageAdapter().adapt(message);
-            ErrorNotification errorNotification = objectMapper.readValue(messageData.getMessageBody(), ErrorNotification.class);
+            ErrorNotification errorNotification = messageCodecs.decode(messageData, ErrorNotification.class);
             String idempotencyKey = messageData.getIdempotencyKey();
-            errorCache.put(idempotencyKey, errorNotification);
-            log.info("Raw message body: {}", messageData.getMessageBody());
+            pendingRequestRegistry.completeWithError(idempotencyKey, errorNotification);
+            BusinessException failure = PendingRequestRegistry.toException(errorNotification);
+            requestStateStore.markFailed(idempotencyKey, failure.getErrorCode(), failure.getMessage());
+            idempotencyReservationService.markFailed(idempotencyKey, failure.getErrorCode(), failure.getMessage());
+            log.info("Message body: {} bytes of {}", messageData.getBody().length, messageData.getContentType());
             log.info("Message headers: {}", message.getMessageProperties().getHeaders());
             log.info("Parsed TransactionErrorEvent: requestId={}, idempotencyKey={}, status={}", messageData.getRequestId(), messageData.getIdempotencyKey(), messageData.getStatus());
             Map<String, Object> notification = new HashMap<>();
@@ -77,21 +113,13 @@ public class TransactionNotificationConsumer {
             notification.put("error-message", errorNotification.getErrorMessage());
             notification.put("error-code", errorNotification.getErrorCode());
             notification.put("timestamp", System.currentTimeMillis());
-            transactionService.completeTransaction(errorNotification, messageData);
             messagingTemplate.convertAndSend("/topic/transactions", notification);
+            // Errors carry no customer, so only a per-request callback can receive them
+            webhookDispatcher.submit(new WebhookDelivery(idempotencyKey, "transaction", "ERROR", notification, Instant.now()), null, null);
             log.error("Transaction processing error for idempotency key {}: {} - {}", idempotencyKey, errorNotification.getErrorCode(), errorNotification.getErrorMessage());
         } catch (Exception e) {
             log.error("Error processing transaction error message: {}", e.getMessage(), e);
             log.error("Failed to deserialize message: {}", new String(message.getBody()));
         }
     }
-
-    public ErrorNotification getErrorForIdempotencyKey(String idempotencyKey) {
-        return errorCache.get(idempotencyKey);
-    }
-
-    public void removeErrorFromCache(String idempotencyKey) {
-        errorCache.remove(idempotencyKey);
-    }
 }
-
@@ -10,6 +10,7 @@ import com.tuum.common.dto.ErrorResponse;
 import com.tuum.common.validation.ValidIdempotencyKey;
 
 import com.tuum.fsaccountsservice.service.AccountService;
+import com.tuum.fsaccountsservice.service.WebhookRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -28,6 +29,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/accounts")
@@ -37,6 +39,7 @@ import java.util.List;
 public class AccountController {
 
     private final AccountService accountService;
+    private final WebhookRegistry webhookRegistry;
 
     @PostMapping
     @Operation(
@@ -74,6 +77,10 @@ public class AccountController {
                 )
             )
         ),
+        @ApiResponse(
+            responseCode = "202",
+            description = "Accepted for asynchronous processing (Prefer: respond-async); the Location header points at the request status"
+        ),
         @ApiResponse(
             responseCode = "400",
             description = "Bad request - validation error",
@@ -101,18 +108,31 @@ public class AccountController {
     })
     @SecurityRequirement(name = "IdempotencyKey")
     @ExceptionHandler(ConstraintViolationException.class)
-    public ResponseEntity<AccountResponse> createAccount(
+    public CompletableFuture<ResponseEntity<AccountResponse>> createAccount(
             @Parameter(description = "Account creation request", required = true)
             @Valid @RequestBody CreateAccountRequest request,
             @Parameter(description = "Unique key to prevent duplicate processing", required = true, example = "req-123456")
-            @ValidIdempotencyKey @RequestHeader(value = "Idempotency-Key") String idempotencyKey) {
+            @ValidIdempotencyKey @RequestHeader(value = "Idempotency-Key") String idempotencyKey,
+            @Parameter(description = "Send 'respond-async' to get 202 Accepted immediately and poll /requests/{idempotencyKey}", example = "respond-async")
+            @RequestHeader(value = RespondAsyncPreference.PREFER_HEADER, required = false) String prefer,
+            @Parameter(description = "URL that receives the result of this command, overriding the customer callback", example = "https://client.example.com/tuum/callbacks")
+            @RequestHeader(value = WebhookController.CALLBACK_URL_HEADER, required = false) String callbackUrl) {
         log.info("Received request to create account for customer: {}", request.getCustomerId());
-        AccountResponse result = accountService.createAccount(request, idempotencyKey);
-        log.info("Account creation result: {}", result);
-        if (result == null) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        if (callbackUrl != null) {
+            webhookRegistry.registerForRequest(idempotencyKey, callbackUrl);
         }
-        return ResponseEntity.status(HttpStatus.CREATED).body(result);
+        if (RespondAsyncPreference.isRequested(prefer)) {
+            accountService.submitCreateAccount(request, idempotencyKey);
+            return CompletableFuture.completedFuture(RespondAsyncPreference.accepted(idempotencyKey));
+        }
+        return accountService.createAccountAsync(request, idempotencyKey)
+                .thenApply(result -> {
+                    log.info("Account creation result: {}", result);
+                    if (result == null) {
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).<AccountResponse>build();
+                    }
+                    return ResponseEntity.status(HttpStatus.CREATED).body(result);
+                });
     }
 
     @GetMapping("/{accountId}")
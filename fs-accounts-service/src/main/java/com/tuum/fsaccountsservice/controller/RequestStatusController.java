@@ -0,0 +1,59 @@
+package com.tuum.fsaccountsservice.controller;
+
+import com.tuum.common.dto.ErrorResponse;
+import com.tuum.fsaccountsservice.dto.resonse.RequestStatusResponse;
+import com.tuum.fsaccountsservice.service.RequestStatusService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/requests")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Request Status", description = "Status of commands accepted with Prefer: respond-async")
+public class RequestStatusController {
+
+    private final RequestStatusService requestStatusService;
+
+    @GetMapping("/{idempotencyKey}")
+    @Operation(
+        summary = "Get request status",
+        description = "Returns PENDING, COMPLETED (with the created resource) or FAILED (with the error) for a command submitted with Prefer: respond-async"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Request status found",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = RequestStatusResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "No request with this idempotency key",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = ErrorResponse.class)
+            )
+        )
+    })
+    public ResponseEntity<RequestStatusResponse> getRequestStatus(
+            @Parameter(description = "Idempotency key the command was submitted with", required = true, example = "req-123456")
+            @PathVariable String idempotencyKey) {
+        log.info("Retrieving status of request: {}", idempotencyKey);
+        return ResponseEntity.ok(requestStatusService.getRequestStatus(idempotencyKey));
+    }
+}
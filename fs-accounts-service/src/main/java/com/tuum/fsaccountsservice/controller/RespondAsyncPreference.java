@@ -0,0 +1,39 @@
+package com.tuum.fsaccountsservice.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * Handling of the RFC 7240 {@code Prefer: respond-async} preference on command endpoints.
+ */
+final class RespondAsyncPreference {
+
+    static final String PREFER_HEADER = "Prefer";
+    static final String RESPOND_ASYNC = "respond-async";
+
+    private RespondAsyncPreference() {
+    }
+
+    static boolean isRequested(String prefer) {
+        return prefer != null && Arrays.stream(prefer.split(","))
+                .map(String::trim)
+                .anyMatch(RESPOND_ASYNC::equalsIgnoreCase);
+    }
+
+    /**
+     * 202 Accepted pointing at the request status resource.
+     */
+    static <T> ResponseEntity<T> accepted(String idempotencyKey) {
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/requests/{idempotencyKey}")
+                .buildAndExpand(idempotencyKey)
+                .toUri();
+        return ResponseEntity.accepted()
+                .location(location)
+                .header("Preference-Applied", RESPOND_ASYNC)
+                .build();
+    }
+}
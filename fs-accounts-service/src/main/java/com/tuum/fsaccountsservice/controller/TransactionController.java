@@ -6,6 +6,7 @@ import com.tuum.common.exception.BusinessException;
 import com.tuum.common.exception.InsufficientFundsException;
 import com.tuum.common.exception.ResourceNotFoundException;
 import com.tuum.fsaccountsservice.service.TransactionService;
+import com.tuum.fsaccountsservice.service.WebhookRegistry;
 import com.tuum.fsaccountsservice.dto.resonse.TransactionResponse;
 import com.tuum.common.dto.ErrorResponse;
 import com.tuum.common.validation.ValidIdempotencyKey;
@@ -26,6 +27,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/transactions")
@@ -35,6 +37,7 @@ import java.util.List;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final WebhookRegistry webhookRegistry;
 
     @PostMapping
     @Operation(
@@ -77,6 +80,10 @@ public class TransactionController {
                 )
             )
         ),
+        @ApiResponse(
+            responseCode = "202",
+            description = "Accepted for asynchronous processing (Prefer: respond-async); the Location header points at the request status"
+        ),
         @ApiResponse(
             responseCode = "400",
             description = "Bad request - validation error or insufficient funds",
@@ -111,17 +118,28 @@ public class TransactionController {
         )
     })
     @SecurityRequirement(name = "IdempotencyKey")
-    public ResponseEntity<TransactionResponse> createTransaction(
+    public CompletableFuture<ResponseEntity<TransactionResponse>> createTransaction(
             @Parameter(description = "Transaction creation request", required = true)
             @Valid @RequestBody CreateTransactionRequest request,
             @Parameter(description = "Unique key to prevent duplicate processing", required = true, example = "req-123456")
-            @ValidIdempotencyKey @RequestHeader(value = "Idempotency-Key") String idempotencyKey) {
+            @ValidIdempotencyKey @RequestHeader(value = "Idempotency-Key") String idempotencyKey,
+            @Parameter(description = "Send 'respond-async' to get 202 Accepted immediately and poll /requests/{idempotencyKey}", example = "respond-async")
+            @RequestHeader(value = RespondAsyncPreference.PREFER_HEADER, required = false) String prefer,
+            @Parameter(description = "URL that receives the result of this command, overriding the customer callback", example = "https://client.example.com/tuum/callbacks")
+            @RequestHeader(value = WebhookController.CALLBACK_URL_HEADER, required = false) String callbackUrl) {
         
         log.info("Creating transaction for account: {}", request.getAccountId());
 
         try {
-            TransactionResponse result = transactionService.createTransaction(request, idempotencyKey);
-            return ResponseEntity.status(HttpStatus.CREATED).body(result);
+            if (callbackUrl != null) {
+                webhookRegistry.registerForRequest(idempotencyKey, callbackUrl);
+            }
+            if (RespondAsyncPreference.isRequested(prefer)) {
+                transactionService.submitCreateTransaction(request, idempotencyKey);
+                return CompletableFuture.completedFuture(RespondAsyncPreference.accepted(idempotencyKey));
+            }
+            return transactionService.createTransactionAsync(request, idempotencyKey)
+                    .thenApply(result -> ResponseEntity.status(HttpStatus.CREATED).body(result));
         } catch (InsufficientFundsException e) {
             log.warn("Insufficient funds for transaction: {}", e.getMessage());
             throw e;
@@ -0,0 +1,74 @@
+package com.tuum.fsaccountsservice.controller;
+
+import com.tuum.common.dto.ErrorResponse;
+import com.tuum.fsaccountsservice.dto.requests.RegisterWebhookRequest;
+import com.tuum.fsaccountsservice.service.WebhookRegistry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/webhooks")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Webhooks", description = "Callback endpoints that receive command results")
+public class WebhookController {
+
+    public static final String CALLBACK_URL_HEADER = "Callback-Url";
+
+    private final WebhookRegistry webhookRegistry;
+
+    @PutMapping("/customers/{customerId}")
+    @Operation(
+        summary = "Register a customer callback",
+        description = "Results of the customer's account and transaction commands are POSTed to this URL, unless the command carried its own Callback-Url header"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Callback registered"),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Bad request - URL is not an absolute http(s) URL",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = ErrorResponse.class)
+            )
+        )
+    })
+    public ResponseEntity<Void> registerCustomerWebhook(
+            @Parameter(description = "Customer identifier", required = true, example = "CUST001")
+            @PathVariable String customerId,
+            @Valid @RequestBody RegisterWebhookRequest request) {
+        webhookRegistry.registerForCustomer(customerId, request.getUrl());
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/customers/{customerId}")
+    @Operation(summary = "Remove a customer callback")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Callback removed"),
+        @ApiResponse(responseCode = "404", description = "No callback registered for the customer")
+    })
+    public ResponseEntity<Void> removeCustomerWebhook(
+            @Parameter(description = "Customer identifier", required = true, example = "CUST001")
+            @PathVariable String customerId) {
+        if (!webhookRegistry.removeForCustomer(customerId)) {
+            return ResponseEntity.notFound().build();
+        }
+        log.info("Removed callback for customer {}", customerId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.tuum.fsaccountsservice.dto.requests;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Callback endpoint that receives the results of a customer's commands")
+public class RegisterWebhookRequest {
+
+    @Schema(
+        description = "Absolute http(s) URL; results are POSTed to it as a JSON array",
+        example = "https://client.example.com/tuum/callbacks",
+        maxLength = 2048,
+        required = true
+    )
+    @NotBlank(message = "Callback URL is mandatory and cannot be empty")
+    @Size(max = 2048, message = "Callback URL must be at most 2048 characters")
+    private String url;
+}
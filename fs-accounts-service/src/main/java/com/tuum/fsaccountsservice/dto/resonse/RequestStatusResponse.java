@@ -0,0 +1,42 @@
+package com.tuum.fsaccountsservice.dto.resonse;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Processing status of a command accepted with Prefer: respond-async")
+public class RequestStatusResponse {
+    @Schema(description = "Idempotency key the command was submitted with", example = "req-123456")
+    private String idempotencyKey;
+
+    @Schema(description = "Processing status", example = "COMPLETED", allowableValues = {"PENDING", "COMPLETED", "FAILED"})
+    private String status;
+
+    @Schema(description = "Kind of resource the command creates", example = "accounts")
+    private String resourceType;
+
+    @Schema(description = "Identifier of the created resource once completed", example = "ACC12345678")
+    private String resourceId;
+
+    @Schema(description = "Location of the created resource once completed", example = "/accounts/ACC12345678")
+    private String resourceLocation;
+
+    @Schema(description = "Error code when the command failed", example = "INSUFFICIENT_FUNDS")
+    private String errorCode;
+
+    @Schema(description = "Error message when the command failed")
+    private String errorMessage;
+
+    @Schema(description = "Time of the last status change", example = "2024-01-15T10:30:00Z")
+    private Instant updatedAt;
+}
@@ -0,0 +1,35 @@
+package com.tuum.fsaccountsservice.mapper;
+
+import com.tuum.common.domain.entities.IdempotencyReservation;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface IdempotencyReservationMapper {
+
+    /**
+     * Reserves the key for {@code ownerId}. Returns 1 if the key was free, or held by a pending
+     * reservation whose lease expired without a stored response; 0 otherwise.
+     */
+    int reserve(@Param("idempotencyKey") String idempotencyKey,
+                @Param("ownerId") String ownerId,
+                @Param("resourceType") String resourceType,
+                @Param("leaseSeconds") long leaseSeconds);
+
+    IdempotencyReservation findReservation(@Param("idempotencyKey") String idempotencyKey,
+                                           @Param("leaseSeconds") long leaseSeconds);
+
+    int markFailed(@Param("idempotencyKey") String idempotencyKey,
+                   @Param("errorCode") String errorCode,
+                   @Param("errorMessage") String errorMessage);
+
+    int markCompleted(@Param("idempotencyKey") String idempotencyKey,
+                      @Param("resourceId") String resourceId);
+
+    int deleteReservation(@Param("idempotencyKey") String idempotencyKey, @Param("ownerId") String ownerId);
+
+    /**
+     * Deletes up to {@code limit} reservations last updated more than {@code retentionSeconds} ago.
+     */
+    int deleteExpired(@Param("retentionSeconds") long retentionSeconds, @Param("limit") int limit);
+}
@@ -0,0 +1,22 @@
+package com.tuum.fsaccountsservice.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface IdempotentResponseMapper {
+
+    byte[] findResponseBody(@Param("idempotencyKey") String idempotencyKey);
+
+    /**
+     * Stores the response unless one is already stored for the key; the first response wins.
+     */
+    int insertResponse(@Param("idempotencyKey") String idempotencyKey,
+                       @Param("resourceType") String resourceType,
+                       @Param("responseBody") byte[] responseBody);
+
+    /**
+     * Deletes up to {@code limit} responses stored more than {@code retentionSeconds} ago.
+     */
+    int deleteExpired(@Param("retentionSeconds") long retentionSeconds, @Param("limit") int limit);
+}
@@ -0,0 +1,17 @@
+package com.tuum.fsaccountsservice.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface WebhookSubscriptionMapper {
+
+    /**
+     * Registers the customer's callback, replacing the one registered before.
+     */
+    int upsertSubscription(@Param("customerId") String customerId, @Param("callbackUrl") String callbackUrl);
+
+    int deleteSubscription(@Param("customerId") String customerId);
+
+    String findCallbackUrl(@Param("customerId") String customerId);
+}
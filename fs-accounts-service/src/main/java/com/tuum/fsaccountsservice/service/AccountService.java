@@ -10,6 +10,7 @@ import com.tuum.common.dto.mq.MQNotification;
 import com.tuum.fsaccountsservice.dto.requests.CreateAccountRequest;
 import com.tuum.fsaccountsservice.dto.resonse.AccountResponse;
 import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.ServiceOverloadedException;
 import com.tuum.common.exception.ResourceNotFoundException;
 import com.tuum.fsaccountsservice.mapper.AccountMapper;
 import com.tuum.fsaccountsservice.mapper.BalanceMapper;
@@ -18,7 +19,6 @@ import com.tuum.common.util.TraceIdGenerator;
 import com.tuum.common.util.IdGenerator;
 import com.tuum.fsaccountsservice.util.DtoMapper;
 import com.tuum.common.dto.mq.ErrorNotification;
-import com.tuum.common.types.ErrorCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -27,7 +27,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import com.tuum.common.exception.InsufficientFundsException;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -39,63 +39,44 @@ public class AccountService {
     private final EventPublisherService eventPublisherService;
     private final TraceIdGenerator traceIdGenerator;
     private final IdempotencyService idempotencyService;
+    private final IdempotentResponseStore idempotentResponseStore;
+    private final IdempotencyReservationService idempotencyReservationService;
+
+    private static final int COMMAND_TIMEOUT_SECONDS = 30;
 
     @Transactional
     public AccountResponse createAccount(CreateAccountRequest request, String idempotencyKey) throws BusinessException {
         String requestId = traceIdGenerator.generateTraceId();
         log.info("Creating account with requestId: {} and idempotency key: {}", requestId, idempotencyKey);
         
-        if (idempotencyService.isProcessed(idempotencyKey)) {
-            log.info("Account creation already processed in memory, skipping: {}", idempotencyKey);
-            // Return existing account from database if available
-            Account existingAccount = accountMapper.findAccountByIdempotencyKey(idempotencyKey);
-            if (existingAccount != null) {
-                List<Balance> balances = balanceMapper.findBalancesByAccountId(existingAccount.getAccountId());
-                existingAccount.setBalances(balances);
-                return DtoMapper.toAccountResponse(existingAccount);
-            }
-            throw new BusinessException("Account creation already processed but not found in database");
+        AccountResponse existingAccount = findProcessedAccount(idempotencyKey);
+        if (existingAccount != null) {
+            return existingAccount;
+        }
+        CreateAccountEvent event = buildCreateAccountEvent(request, requestId, idempotencyKey);
+        if (!idempotencyReservationService.tryReserve(idempotencyKey, CommandChannel.ACCOUNTS)) {
+            return eventPublisherService.awaitResponse(
+                    idempotencyReservationService.awaitResult(idempotencyKey, AccountResponse.class, COMMAND_TIMEOUT_SECONDS), idempotencyKey);
         }
         
         idempotencyService.markAsProcessed(idempotencyKey);
         
         try {
-
-            CreateAccountEvent event = new CreateAccountEvent();
-            event.setRequestId(requestId);
-            event.setAccountId(IdGenerator.generateAccountId());
-            event.setCustomerId(request.getCustomerId());
-            event.setCountry(request.getCountry());
-            event.setIdempotencyKey(idempotencyKey);
-            event.setCreatedAt(LocalDateTime.now());
-            
-            List<Balance> balances = request.getCurrencies().stream()
-                .map(currency -> {
-                    Balance balance = new Balance();
-                    balance.setCurrency(currency);
-                    balance.setAvailableAmount(BigDecimal.ZERO);
-                    balance.setVersionNumber(1);
-                    balance.setCreatedAt(LocalDateTime.now());
-                    balance.setUpdatedAt(LocalDateTime.now());
-                    return balance;
-                })
-                .collect(java.util.stream.Collectors.toList());
-            event.setBalances(balances);
-
-            log.info("Event: {}", event);
-            log.info("Exchange: {}", RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue());
-            log.info("Routing key: {}", RabbitMQConfig.ACCOUNTS_CREATED_ROUTING_KEY.getValue());
-
             return eventPublisherService.publishEventAndWaitForResponse(
                 event, 
                 RabbitMQConfig.ACCOUNTS_CREATED_ROUTING_KEY.getValue(),
                 idempotencyKey,
                     requestId,
-                30,
+                COMMAND_TIMEOUT_SECONDS,
                  RequestType.CREATE
             );
             
 
+        } catch (ServiceOverloadedException e) {
+            // The command was never published, so the key must stay usable for the client's retry
+            idempotencyService.clearProcessed(idempotencyKey);
+            idempotencyReservationService.release(idempotencyKey);
+            throw e;
         } catch (BusinessException e) {
             log.error("Business error creating account: {}", idempotencyKey, e);
             throw e;
@@ -107,6 +88,130 @@ public class AccountService {
         }
     }
 
+    /**
+     * Non-blocking variant of {@link #createAccount}: publishes the command and returns the
+     * pending future, so the calling request thread is released right after the publish.
+     */
+    public CompletableFuture<AccountResponse> createAccountAsync(CreateAccountRequest request, String idempotencyKey) throws BusinessException {
+        String requestId = traceIdGenerator.generateTraceId();
+        log.info("Creating account asynchronously with requestId: {} and idempotency key: {}", requestId, idempotencyKey);
+
+        try {
+            AccountResponse existingAccount = findProcessedAccount(idempotencyKey);
+            if (existingAccount != null) {
+                return CompletableFuture.completedFuture(existingAccount);
+            }
+            CreateAccountEvent event = buildCreateAccountEvent(request, requestId, idempotencyKey);
+            if (!idempotencyReservationService.tryReserve(idempotencyKey, CommandChannel.ACCOUNTS)) {
+                return idempotencyReservationService.awaitResult(idempotencyKey, AccountResponse.class, COMMAND_TIMEOUT_SECONDS);
+            }
+
+            idempotencyService.markAsProcessed(idempotencyKey);
+
+            return eventPublisherService.publishEvent(
+                    event,
+                    RabbitMQConfig.ACCOUNTS_CREATED_ROUTING_KEY.getValue(),
+                    idempotencyKey,
+                    requestId,
+                    COMMAND_TIMEOUT_SECONDS,
+                    RequestType.CREATE
+            );
+        } catch (ServiceOverloadedException e) {
+            idempotencyService.clearProcessed(idempotencyKey);
+            idempotencyReservationService.release(idempotencyKey);
+            throw e;
+        } finally {
+            traceIdGenerator.clear();
+        }
+    }
+
+    /**
+     * Fire-and-forget variant for {@code Prefer: respond-async}: publishes the command without keeping
+     * a pending future. The caller answers 202 and the outcome is read from {@code /requests/{idempotencyKey}}.
+     * Re-submitting a key that was already accepted publishes nothing.
+     */
+    public void submitCreateAccount(CreateAccountRequest request, String idempotencyKey) throws BusinessException {
+        String requestId = traceIdGenerator.generateTraceId();
+        log.info("Accepting account creation with requestId: {} and idempotency key: {}", requestId, idempotencyKey);
+
+        try {
+            if (idempotencyService.isProcessed(idempotencyKey)) {
+                log.info("Account creation already accepted, skipping publish: {}", idempotencyKey);
+                return;
+            }
+            CreateAccountEvent event = buildCreateAccountEvent(request, requestId, idempotencyKey);
+            if (!idempotencyReservationService.tryReserve(idempotencyKey, CommandChannel.ACCOUNTS)) {
+                log.info("Account creation already accepted by another instance, skipping publish: {}", idempotencyKey);
+                return;
+            }
+
+            idempotencyService.markAsProcessed(idempotencyKey);
+            try {
+                eventPublisherService.publishEventAndForget(
+                        event,
+                        RabbitMQConfig.ACCOUNTS_CREATED_ROUTING_KEY.getValue(),
+                        idempotencyKey,
+                        requestId,
+                        RequestType.CREATE
+                );
+            } catch (BusinessException e) {
+                // Nothing was published, so let the client retry with the same key
+                idempotencyService.clearProcessed(idempotencyKey);
+                idempotencyReservationService.release(idempotencyKey);
+                throw e;
+            }
+        } finally {
+            traceIdGenerator.clear();
+        }
+    }
+
+    private AccountResponse findProcessedAccount(String idempotencyKey) {
+        if (!idempotencyService.isProcessed(idempotencyKey)) {
+            return null;
+        }
+        log.info("Account creation already processed in memory, skipping: {}", idempotencyKey);
+        AccountResponse storedResponse = idempotentResponseStore.find(idempotencyKey, AccountResponse.class);
+        if (storedResponse != null) {
+            return storedResponse;
+        }
+        // Return existing account from database if available
+        Account existingAccount = accountMapper.findAccountByIdempotencyKey(idempotencyKey);
+        if (existingAccount != null) {
+            List<Balance> balances = balanceMapper.findBalancesByAccountId(existingAccount.getAccountId());
+            existingAccount.setBalances(balances);
+            return DtoMapper.toAccountResponse(existingAccount);
+        }
+        throw new BusinessException("Account creation already processed but not found in database");
+    }
+
+    private CreateAccountEvent buildCreateAccountEvent(CreateAccountRequest request, String requestId, String idempotencyKey) {
+        CreateAccountEvent event = new CreateAccountEvent();
+        event.setRequestId(requestId);
+        event.setAccountId(IdGenerator.generateAccountId());
+        event.setCustomerId(request.getCustomerId());
+        event.setCountry(request.getCountry());
+        event.setIdempotencyKey(idempotencyKey);
+        event.setCreatedAt(LocalDateTime.now());
+        
+        List<Balance> balances = request.getCurrencies().stream()
+            .map(currency -> {
+                Balance balance = new Balance();
+                balance.setCurrency(currency);
+                balance.setAvailableAmount(BigDecimal.ZERO);
+                balance.setVersionNumber(1);
+                balance.setCreatedAt(LocalDateTime.now());
+                balance.setUpdatedAt(LocalDateTime.now());
+                return balance;
+            })
+            .collect(java.util.stream.Collectors.toList());
+        event.setBalances(balances);
+
+        log.info("Event: {}", event);
+        log.info("Exchange: {}", RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue());
+        log.info("Routing key: {}", RabbitMQConfig.ACCOUNTS_CREATED_ROUTING_KEY.getValue());
+        return event;
+    }
+
     public void completeAccount(Object event, MQMessageData messageData) {
         String idempotencyKey = messageData.getIdempotencyKey();
         String status = messageData.getStatus();
@@ -114,18 +219,7 @@ public class AccountService {
         if (event instanceof ErrorNotification errorNotification) {
             log.error("Account processing failed for idempotency key {}: {} - {}", 
                 idempotencyKey, errorNotification.getErrorCode(), errorNotification.getErrorMessage());
-            
-            if (errorNotification.getErrorCode() == ErrorCode.INSUFFICIENT_FUNDS) {
-                InsufficientFundsException insufficientFundsException = new InsufficientFundsException(errorNotification.getErrorMessage());
-                eventPublisherService.completeRequestWithError(idempotencyKey, insufficientFundsException);
-            } else {
-                BusinessException businessException = new BusinessException(
-                    errorNotification.getErrorMessage(),
-                    errorNotification.getErrorCode().getCode(),
-                    errorNotification.getErrorCode().getHttpStatus()
-                );
-                eventPublisherService.completeRequestWithError(idempotencyKey, businessException);
-            }
+            eventPublisherService.completeRequestWithError(idempotencyKey, errorNotification);
             return;
         }
 
@@ -135,6 +229,7 @@ public class AccountService {
             response.setCustomerId(accountEvent.getCustomerId());
             response.setCountry(accountEvent.getCountry());
             response.setBalances(DtoMapper.toBalanceResponses(accountEvent.getBalances()));
+            idempotentResponseStore.save(idempotencyKey, "account", response);
             eventPublisherService.completeRequest(idempotencyKey, response);
         } else {
             log.warn("Unexpected event type or status for idempotency key {}: event={}, status={}", 
@@ -0,0 +1,28 @@
+package com.tuum.fsaccountsservice.service;
+
+/**
+ * Command families published by this service. Each has its own reply queue and in-flight limit.
+ */
+public enum CommandChannel {
+    ACCOUNTS("accounts"),
+    TRANSACTIONS("transactions");
+
+    private final String code;
+
+    CommandChannel(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public static CommandChannel fromRoutingKey(String routingKey) {
+        for (CommandChannel channel : CommandChannel.values()) {
+            if (routingKey != null && routingKey.startsWith(channel.code + ".")) {
+                return channel;
+            }
+        }
+        throw new IllegalArgumentException("No command channel for routing key: " + routingKey);
+    }
+}
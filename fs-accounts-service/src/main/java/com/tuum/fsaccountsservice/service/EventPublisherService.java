@@ -1,202 +1,296 @@
 package com.tuum.fsaccountsservice.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import com.tuum.common.codec.MessageCodec;
+import com.tuum.common.codec.MessageCodecs;
 import com.tuum.common.types.RabbitMQConfig;
 import com.tuum.common.types.RequestType;
-import com.tuum.common.types.ErrorCode;
 import com.tuum.common.exception.BusinessException;
-import com.tuum.fsaccountsservice.consumers.AccountNotificationConsumer;
-import com.tuum.fsaccountsservice.consumers.TransactionNotificationConsumer;
+import com.tuum.common.exception.ServiceOverloadedException;
+import com.tuum.common.dto.mq.CreateTransactionEvent;
 import com.tuum.common.dto.mq.ErrorNotification;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.core.AmqpTemplate;
+import com.tuum.common.types.ErrorCode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.time.Instant;
-import java.util.concurrent.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import com.tuum.common.exception.InsufficientFundsException;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class EventPublisherService {
 
-    private final AmqpTemplate amqpTemplate;
-    private final ObjectMapper objectMapper;
-    private final AccountNotificationConsumer accountNotificationConsumer;
-    private final TransactionNotificationConsumer transactionNotificationConsumer;
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageCodecs messageCodecs;
+    private final PendingRequestRegistry pendingRequestRegistry;
+    private final RequestDeadlineScheduler requestDeadlineScheduler;
+    private final ReplyQueueResolver replyQueueResolver;
+    private final RequestStateStore requestStateStore;
+    private final TransactionPartitioner transactionPartitioner;
+    private final PublishRateLimiter publishRateLimiter;
+    private final IdempotencyService idempotencyService;
+    private final IdempotencyReservationService idempotencyReservationService;
+    private final long retryAfterSeconds;
+    private final Timer ackLatency;
+    private final Timer rejectedLatency;
+    private final Timer nackLatency;
+    private final Timer returnedLatency;
+    private final Timer errorLatency;
 
-    private final ConcurrentHashMap<String, CompletableFuture<?>> pendingRequests = new ConcurrentHashMap<>();
-    
-    private final ScheduledExecutorService errorCheckerScheduler = Executors.newScheduledThreadPool(2);
+    public EventPublisherService(RabbitTemplate rabbitTemplate,
+                                 MessageCodecs messageCodecs,
+                                 PendingRequestRegistry pendingRequestRegistry,
+                                 RequestDeadlineScheduler requestDeadlineScheduler,
+                                 ReplyQueueResolver replyQueueResolver,
+                                 MeterRegistry meterRegistry,
+                                 RequestStateStore requestStateStore,
+                                 TransactionPartitioner transactionPartitioner,
+                                 PublishRateLimiter publishRateLimiter,
+                                 IdempotencyService idempotencyService,
+                                 IdempotencyReservationService idempotencyReservationService,
+                                 @Value("${tuum.requests.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.messageCodecs = messageCodecs;
+        this.pendingRequestRegistry = pendingRequestRegistry;
+        this.requestDeadlineScheduler = requestDeadlineScheduler;
+        this.replyQueueResolver = replyQueueResolver;
+        this.requestStateStore = requestStateStore;
+        this.transactionPartitioner = transactionPartitioner;
+        this.publishRateLimiter = publishRateLimiter;
+        this.idempotencyService = idempotencyService;
+        this.idempotencyReservationService = idempotencyReservationService;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.ackLatency = confirmLatency(meterRegistry, "ack");
+        this.rejectedLatency = confirmLatency(meterRegistry, "rejected");
+        this.nackLatency = confirmLatency(meterRegistry, "nack");
+        this.returnedLatency = confirmLatency(meterRegistry, "returned");
+        this.errorLatency = confirmLatency(meterRegistry, "error");
+    }
+
+    private static Timer confirmLatency(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("tuum.publisher.confirm.latency")
+                .description("Time from publishing a command until the broker confirms it")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     public <T> T publishEventAndWaitForResponse(Object event, String routingKey, String idempotencyKey, String requestId, int timeoutSeconds, RequestType requestType) throws InsufficientFundsException, BusinessException {
+        CompletableFuture<T> future = publishEvent(event, routingKey, idempotencyKey, requestId, timeoutSeconds, requestType);
+        log.info("Waiting for consumer to process request: {}", idempotencyKey);
+
+        T result = awaitResponse(future, idempotencyKey);
+        log.info("Received result from consumer for request: {}", idempotencyKey);
+        return result;
+    }
+
+    /**
+     * Publishes the command and returns the future that the notification listeners complete.
+     * The caller is not blocked: the future fails with a {@link BusinessException} when the
+     * broker publish fails or when no reply arrives within {@code timeoutSeconds}.
+     *
+     * @throws ServiceOverloadedException when the command's channel is at capacity or the broker is applying backpressure
+     */
+    public <T> CompletableFuture<T> publishEvent(Object event, String routingKey, String idempotencyKey, String requestId, int timeoutSeconds, RequestType requestType) {
         log.info("Publishing event to routing key: {} with idempotency key: {} and request type: {} , request-id {}", routingKey, idempotencyKey, requestType,requestId);
 
-        @SuppressWarnings("unchecked")
-        CompletableFuture<T> existingFuture = (CompletableFuture<T>) pendingRequests.get(idempotencyKey);
+        CommandChannel channel = CommandChannel.fromRoutingKey(routingKey);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> existingFuture = pendingRequestRegistry.registerIfAbsent(channel, idempotencyKey, future);
         if (existingFuture != null) {
             log.info("Request with idempotency key {} is already being processed, waiting for completion", idempotencyKey);
-            try {
-                return waitForResponseWithErrorChecking(existingFuture, idempotencyKey, timeoutSeconds, requestType);
-            } catch (InsufficientFundsException e) {
-                log.error("InsufficientFundsException waiting for existing request: {}", idempotencyKey, e);
-                throw e;
-            } catch (BusinessException e) {
-                log.error("BusinessException waiting for existing request: {}", idempotencyKey, e);
-                throw e;
-            } catch (Exception e) {
-                log.error("Error waiting for existing request: {}", idempotencyKey, e);
-                throw new BusinessException("Request failed: " + e.getMessage());
-            }
+            return existingFuture;
+        }
+        if (!publishRateLimiter.tryAcquire()) {
+            ServiceOverloadedException shed = throttled(idempotencyKey);
+            future.completeExceptionally(shed);
+            throw shed;
         }
 
+        requestDeadlineScheduler.scheduleTimeout(future, idempotencyKey, timeoutSeconds, requestType,
+                () -> new BusinessException("Request timed out - consumer may not be running"));
+
         try {
-            CompletableFuture<T> future = new CompletableFuture<>();
-            pendingRequests.put(idempotencyKey, future);
+            sendCommand(event, routingKey, channel, idempotencyKey, requestId, requestType, future::completeExceptionally);
+        } catch (IOException e) {
+            log.error("Error serializing event: {}", e.getMessage(), e);
+            future.completeExceptionally(new BusinessException("Failed to publish event: serialization error"));
+        } catch (RuntimeException e) {
+            log.error("RuntimeException caught in EventPublisherService: {} - Exception type: {}", idempotencyKey, e.getClass().getName(), e);
+            future.completeExceptionally(new BusinessException("Request failed: " + e.getMessage()));
+        }
+        return future;
+    }
 
-            String messageBody = objectMapper.writeValueAsString(event);
-            log.info("Publishing event payload: {}", messageBody);
+    /**
+     * Fire-and-forget publish for {@code Prefer: respond-async}: no pending future is kept and no
+     * deadline is armed. The command is tracked as pending in the {@link RequestStateStore}, which the
+     * notification listeners (or a failed publisher confirm) move to its final state.
+     */
+    public void publishEventAndForget(Object event, String routingKey, String idempotencyKey, String requestId, RequestType requestType) {
+        log.info("Publishing fire-and-forget event to routing key: {} with idempotency key: {}, request-id {}", routingKey, idempotencyKey, requestId);
 
-            MessageProperties props = new MessageProperties();
-            props.setContentType("application/json");
-            props.setHeader("idempotency-key", idempotencyKey);
-            props.setHeader("timestamp", Instant.now().toString());
-            props.setHeader("request-type", requestType.getCode());
-            props.setHeader("request-id", requestId);
+        CommandChannel channel = CommandChannel.fromRoutingKey(routingKey);
+        if (!publishRateLimiter.tryAcquire()) {
+            throw throttled(idempotencyKey);
+        }
+        requestStateStore.markPending(idempotencyKey, channel);
+        try {
+            sendCommand(event, routingKey, channel, idempotencyKey, requestId, requestType,
+                    failure -> requestStateStore.markFailed(idempotencyKey, failure.getErrorCode(), failure.getMessage()));
+        } catch (IOException e) {
+            log.error("Error serializing event: {}", e.getMessage(), e);
+            requestStateStore.markFailed(idempotencyKey, ErrorCode.PROCESSING_ERROR.getCode(), "Failed to publish event: serialization error");
+            throw new BusinessException("Failed to publish event: serialization error");
+        } catch (RuntimeException e) {
+            log.error("RuntimeException caught in EventPublisherService: {} - Exception type: {}", idempotencyKey, e.getClass().getName(), e);
+            requestStateStore.markFailed(idempotencyKey, ErrorCode.MESSAGE_QUEUE_ERROR.getCode(), e.getMessage());
+            throw new BusinessException("Request failed: " + e.getMessage());
+        }
+    }
 
-            Message message = new Message(messageBody.getBytes(StandardCharsets.UTF_8), props);
+    private void sendCommand(Object event, String routingKey, CommandChannel channel, String idempotencyKey, String requestId,
+                             RequestType requestType, Consumer<BusinessException> onFailure) throws IOException {
+        MessageCodec codec = messageCodecs.outbound();
+        byte[] messageBody = codec.encode(event);
+        log.info("Publishing {} event payload of {} bytes", codec.contentType(), messageBody.length);
 
-            amqpTemplate.send(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), routingKey, message);
+        MessageProperties props = new MessageProperties();
+        props.setContentType(codec.contentType());
+        props.setHeader("idempotency-key", idempotencyKey);
+        props.setHeader("timestamp", Instant.now().toString());
+        props.setHeader("request-type", requestType.getCode());
+        props.setHeader("request-id", requestId);
+        props.setHeader("reply-to", replyQueueResolver.resolve(channel));
 
-            log.info("Successfully published event for processing: {}", idempotencyKey);
-            log.info("Waiting for consumer to process request: {}", idempotencyKey);
+        Message message = new Message(messageBody, props);
 
-            T result = waitForResponseWithErrorChecking(future, idempotencyKey, timeoutSeconds, requestType);
-            log.info("Received result from consumer for request: {}", idempotencyKey);
-            return result;
+        CorrelationData correlationData = new CorrelationData(idempotencyKey);
+        long publishedAt = System.nanoTime();
+        rabbitTemplate.send(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), resolveRoutingKey(event, routingKey), message, correlationData);
+        correlationData.getFuture().whenComplete((confirm, error) ->
+                handleConfirm(onFailure, correlationData, confirm, error, publishedAt));
 
-        } catch (JsonProcessingException e) {
-            log.error("Error serializing event: {}", e.getMessage(), e);
-            throw new BusinessException("Failed to publish event: JSON serialization error");
-        } catch (InsufficientFundsException e) {
-            log.error("InsufficientFundsException caught in EventPublisherService: {}", idempotencyKey, e);
-            throw e;
-        } catch (BusinessException e) {
-            log.error("BusinessException caught in EventPublisherService: {}", idempotencyKey, e);
-            throw e;
-        } catch (RuntimeException e) {
-            log.error("RuntimeException caught in EventPublisherService: {} - Exception type: {}", idempotencyKey, e.getClass().getName(), e);
-            throw new BusinessException("Request failed: " + e.getMessage());
-        } finally {
-            pendingRequests.remove(idempotencyKey);
+        log.info("Successfully published event for processing: {}", idempotencyKey);
+    }
+
+    private ServiceOverloadedException throttled(String idempotencyKey) {
+        log.warn("Shedding command with idempotency key {}: message broker is applying backpressure", idempotencyKey);
+        return new ServiceOverloadedException("Message broker is at capacity, retry later", retryAfterSeconds);
+    }
+
+    /**
+     * Transaction commands go to the partition queue of their account, so one consumer applies all
+     * of an account's commands in order and balance updates do not race.
+     */
+    private String resolveRoutingKey(Object event, String routingKey) {
+        if (event instanceof CreateTransactionEvent transactionEvent && transactionEvent.getAccountId() != null) {
+            return transactionPartitioner.routingKeyFor(transactionEvent.getAccountId());
         }
+        return routingKey;
     }
 
-    @SuppressWarnings("unchecked")
-    public <T> void completeRequest(String idempotencyKey, T result) {
-        CompletableFuture<T> future = (CompletableFuture<T>) pendingRequests.get(idempotencyKey);
-        if (future != null) {
-            future.complete(result);
-            log.info("Completed pending request with idempotency key: {}", idempotencyKey);
+    /**
+     * Runs on the connection thread when the broker confirms the publish. Confirms are pipelined:
+     * the publisher never waits for them, and a nack or an unroutable return fails the pending
+     * request right away instead of leaving it to the reply timeout.
+     * <p>
+     * A nack or a return means the command was never enqueued, so its idempotency key and
+     * reservation are given back and the client's retry is published again. The broker nacks without
+     * a reason when the target queue is full ({@code x-overflow: reject-publish}); such a command
+     * fails with 503 and the publish rate is lowered.
+     * <p>
+     * When the confirm itself is lost, for example because the connection closed, the outcome is
+     * unknown: the command may have been enqueued and may still be applied. The key is kept on
+     * purpose, so a retry waits for the reply or the reservation lease instead of publishing the
+     * command a second time.
+     */
+    private void handleConfirm(Consumer<BusinessException> onFailure, CorrelationData correlationData,
+                               CorrelationData.Confirm confirm, Throwable error, long publishedAt) {
+        String idempotencyKey = correlationData.getId();
+        ReturnedMessage returned = correlationData.getReturned();
+        Timer latency;
+        if (error != null || confirm == null) {
+            latency = errorLatency;
+            log.error("Publisher confirm failed for idempotency key: {}", idempotencyKey, error);
+            onFailure.accept(new BusinessException("Command could not be confirmed by the message broker",
+                    ErrorCode.MESSAGE_QUEUE_ERROR.getCode(), ErrorCode.MESSAGE_QUEUE_ERROR.getHttpStatus()));
+        } else if (!confirm.isAck() && confirm.getReason() == null) {
+            latency = rejectedLatency;
+            log.warn("Broker rejected command with idempotency key: {}, queue is full", idempotencyKey);
+            publishRateLimiter.onRejected();
+            releaseKey(idempotencyKey);
+            onFailure.accept(new ServiceOverloadedException("Message broker is at capacity, retry later", retryAfterSeconds));
+        } else if (!confirm.isAck()) {
+            latency = nackLatency;
+            log.error("Broker rejected command with idempotency key: {} - reason: {}", idempotencyKey, confirm.getReason());
+            releaseKey(idempotencyKey);
+            onFailure.accept(new BusinessException("Command was rejected by the message broker",
+                    ErrorCode.MESSAGE_QUEUE_ERROR.getCode(), ErrorCode.MESSAGE_QUEUE_ERROR.getHttpStatus()));
+        } else if (returned != null) {
+            latency = returnedLatency;
+            log.error("Command with idempotency key: {} was returned as unroutable: {} {}", idempotencyKey,
+                    returned.getReplyCode(), returned.getReplyText());
+            releaseKey(idempotencyKey);
+            onFailure.accept(new BusinessException("Command could not be routed to a queue",
+                    ErrorCode.MESSAGE_QUEUE_ERROR.getCode(), ErrorCode.MESSAGE_QUEUE_ERROR.getHttpStatus()));
         } else {
-            log.warn("No pending request found for idempotency key: {}", idempotencyKey);
+            latency = ackLatency;
+            publishRateLimiter.onConfirmed();
         }
+        latency.record(System.nanoTime() - publishedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private void releaseKey(String idempotencyKey) {
+        idempotencyService.clearProcessed(idempotencyKey);
+        idempotencyReservationService.releaseAsync(idempotencyKey);
+    }
+
+    public <T> void completeRequest(String idempotencyKey, T result) {
+        pendingRequestRegistry.complete(idempotencyKey, result);
     }
 
-    @SuppressWarnings("unchecked")
     public void completeRequestWithError(String idempotencyKey, Exception exception) {
-        CompletableFuture<?> future = pendingRequests.get(idempotencyKey);
-        if (future != null) {
-            future.completeExceptionally(exception);
-            log.info("Completed pending request with error for idempotency key: {}", idempotencyKey);
-        } else {
-            log.warn("No pending request found for idempotency key: {}", idempotencyKey);
-        }
+        pendingRequestRegistry.completeExceptionally(idempotencyKey, exception);
+    }
+
+    public void completeRequestWithError(String idempotencyKey, ErrorNotification errorNotification) {
+        pendingRequestRegistry.completeWithError(idempotencyKey, errorNotification);
     }
 
     public void removePendingRequest(String idempotencyKey) {
-        pendingRequests.remove(idempotencyKey);
+        pendingRequestRegistry.remove(idempotencyKey);
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> T waitForResponseWithErrorChecking(CompletableFuture<T> future, String idempotencyKey, int timeoutSeconds, RequestType requestType) throws InsufficientFundsException, BusinessException {
-        long timeoutMillis = timeoutSeconds * 1000L;
-        
-        CompletableFuture<T> timeoutFuture = new CompletableFuture<>();
-        errorCheckerScheduler.schedule(() -> {
-            if (!future.isDone()) {
-                timeoutFuture.completeExceptionally(new java.util.concurrent.TimeoutException("Request timed out"));
-            }
-        }, timeoutMillis, TimeUnit.MILLISECONDS);
-        
-        ScheduledFuture<?> errorChecker = errorCheckerScheduler.scheduleAtFixedRate(() -> {
-            if (future.isDone() || timeoutFuture.isDone()) {
-                return; 
-            }
-            
-            ErrorNotification error = null;
-            error = accountNotificationConsumer.getErrorForIdempotencyKey(idempotencyKey);
-            if (error != null) {
-                accountNotificationConsumer.removeErrorFromCache(idempotencyKey);
-            } else {
-                error = transactionNotificationConsumer.getErrorForIdempotencyKey(idempotencyKey);
-                if (error != null) {
-                    transactionNotificationConsumer.removeErrorFromCache(idempotencyKey);
-                }
-            }
-            
-            if (error != null) {
-                log.error("Error detected for idempotency key {}: {} - {}", idempotencyKey, error.getErrorCode(), error.getErrorMessage());
-                
-                if (error.getErrorCode() == ErrorCode.INSUFFICIENT_FUNDS) {
-                    InsufficientFundsException insufficientFundsException = new InsufficientFundsException(error.getErrorMessage());
-                    future.completeExceptionally(insufficientFundsException);
-                } else {
-                    BusinessException businessException = new BusinessException(
-                        error.getErrorMessage(), 
-                        error.getErrorCode().getCode(), 
-                        error.getErrorCode().getHttpStatus()
-                    );
-                    future.completeExceptionally(businessException);
-                }
-            }
-        }, 0, 50, TimeUnit.MILLISECONDS);
-        
+    /**
+     * Blocks until {@code future} completes, rethrowing a {@link BusinessException} failure as is.
+     */
+    public <T> T awaitResponse(CompletableFuture<T> future, String idempotencyKey) throws InsufficientFundsException, BusinessException {
         try {
-            return CompletableFuture.anyOf(future, timeoutFuture).thenApply(result -> {
-                if (result instanceof Throwable) {
-                    throw new CompletionException((Throwable) result);
-                }
-                return (T) result;
-            }).get();
+            return future.get();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new BusinessException("Request was interrupted");
-        } catch (Exception e) {
+        } catch (ExecutionException e) {
             Throwable cause = e.getCause();
-            if (cause instanceof java.util.concurrent.TimeoutException) {
-                log.error("Timeout waiting for response for idempotency key: {} - consumer may be down", idempotencyKey);
-                throw new BusinessException("Request timed out - consumer may not be running");
-            } else if (cause instanceof InsufficientFundsException) {
-                throw (InsufficientFundsException) cause;
-            } else if (cause instanceof BusinessException) {
-                throw (BusinessException) cause;
-            } else if (e instanceof InsufficientFundsException) {
-                throw (InsufficientFundsException) e;
-            } else if (e instanceof BusinessException) {
-                throw (BusinessException) e;
-            } else {
-                throw new BusinessException("Request failed: " + e.getMessage());
+            if (cause instanceof BusinessException businessException) {
+                log.error("{} caught in EventPublisherService: {}", businessException.getClass().getSimpleName(), idempotencyKey, businessException);
+                throw businessException;
             }
-        } finally {
-            errorChecker.cancel(false);
+            log.error("Error waiting for request: {}", idempotencyKey, e);
+            throw new BusinessException("Request failed: " + (cause != null ? cause.getMessage() : e.getMessage()));
         }
     }
-} 
\ No newline at end of file
+}
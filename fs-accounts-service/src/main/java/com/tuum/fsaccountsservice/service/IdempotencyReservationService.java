@@ -0,0 +1,249 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.tuum.common.domain.entities.IdempotencyReservation;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.ServiceOverloadedException;
+import com.tuum.common.types.ErrorCode;
+import com.tuum.fsaccountsservice.mapper.IdempotencyReservationMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes sure only one fs-accounts-service instance publishes the command for an idempotency key.
+ * The first instance to insert the {@code idempotency_reservations} row owns the key; the others
+ * wait for the owner's result by polling the {@link IdempotentResponseStore} and the reservation.
+ * <p>
+ * If the database is unreachable, reservation fails open: the instance publishes and the
+ * consumer's {@code processed_messages} check remains the last line of defence. Reservation
+ * writes run outside any caller transaction, so other instances see them before the command is published.
+ * <p>
+ * A reservation ends COMPLETED or FAILED when the consumer's reply arrives, which lets any instance
+ * report the command's status. Reservations and stored responses are purged in batches of
+ * {@code purge.batch-size} once they are older than {@code tuum.idempotency.ttl-seconds}.
+ */
+@Service
+@Slf4j
+public class IdempotencyReservationService {
+
+    static final String STATUS_PENDING = "PENDING";
+    static final String STATUS_COMPLETED = "COMPLETED";
+    static final String STATUS_FAILED = "FAILED";
+
+    private final IdempotencyReservationMapper reservationMapper;
+    private final IdempotentResponseStore idempotentResponseStore;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final long leaseSeconds;
+    private final long initialPollMillis;
+    private final long maxPollMillis;
+    private final long retryAfterSeconds;
+    private final long retentionSeconds;
+    private final long purgeIntervalMillis;
+    private final int purgeBatchSize;
+    private final ScheduledExecutorService poller;
+    private final Counter acquired;
+    private final Counter contended;
+    private final Counter purged;
+
+    public IdempotencyReservationService(IdempotencyReservationMapper reservationMapper,
+                                         IdempotentResponseStore idempotentResponseStore,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${tuum.idempotency.reservation.lease-seconds:60}") long leaseSeconds,
+                                         @Value("${tuum.idempotency.reservation.initial-poll-ms:50}") long initialPollMillis,
+                                         @Value("${tuum.idempotency.reservation.max-poll-ms:1000}") long maxPollMillis,
+                                         @Value("${tuum.requests.retry-after-seconds:1}") long retryAfterSeconds,
+                                         @Value("${tuum.idempotency.ttl-seconds:86400}") long retentionSeconds,
+                                         @Value("${tuum.idempotency.purge.interval-ms:60000}") long purgeIntervalMillis,
+                                         @Value("${tuum.idempotency.purge.batch-size:1000}") int purgeBatchSize) {
+        this.reservationMapper = reservationMapper;
+        this.idempotentResponseStore = idempotentResponseStore;
+        this.leaseSeconds = leaseSeconds;
+        this.initialPollMillis = initialPollMillis;
+        this.maxPollMillis = maxPollMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.retentionSeconds = retentionSeconds;
+        this.purgeIntervalMillis = purgeIntervalMillis;
+        this.purgeBatchSize = purgeBatchSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.poller = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-reservation-poller-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.acquired = reservationCounter(meterRegistry, "acquired");
+        this.contended = reservationCounter(meterRegistry, "contended");
+        this.purged = Counter.builder("tuum.idempotency.purged")
+                .description("Idempotency reservations and stored responses deleted after their retention")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        poller.scheduleWithFixedDelay(this::purgeExpired, purgeIntervalMillis, purgeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns {@code true} if this instance now owns {@code idempotencyKey} and should publish the command.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean tryReserve(String idempotencyKey, CommandChannel channel) {
+        try {
+            if (reservationMapper.reserve(idempotencyKey, instanceId, channel.getCode(), leaseSeconds) == 1) {
+                acquired.increment();
+                return true;
+            }
+            contended.increment();
+            log.info("Idempotency key {} is reserved by another instance, waiting for its result", idempotencyKey);
+            return false;
+        } catch (DataAccessException e) {
+            log.warn("Could not reserve idempotency key {}, publishing without a reservation", idempotencyKey, e);
+            return true;
+        }
+    }
+
+    /**
+     * Gives the key back after the command could not be published, so a retry can reserve it again.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void release(String idempotencyKey) {
+        try {
+            reservationMapper.deleteReservation(idempotencyKey, instanceId);
+        } catch (DataAccessException e) {
+            log.warn("Could not release idempotency key {}, it frees up when the lease expires", idempotencyKey, e);
+        }
+    }
+
+    /**
+     * {@link #release} off the calling thread, for callers running on a broker connection thread.
+     */
+    public void releaseAsync(String idempotencyKey) {
+        poller.execute(() -> release(idempotencyKey));
+    }
+
+    /**
+     * Records a consumer-side failure so instances waiting on the key fail with the same error.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void markFailed(String idempotencyKey, String errorCode, String errorMessage) {
+        try {
+            reservationMapper.markFailed(idempotencyKey, errorCode, errorMessage);
+        } catch (DataAccessException e) {
+            log.warn("Could not record failure of idempotency key {}", idempotencyKey, e);
+        }
+    }
+
+    /**
+     * Records that the consumer completed the command with {@code resourceId}.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void markCompleted(String idempotencyKey, String resourceId) {
+        try {
+            reservationMapper.markCompleted(idempotencyKey, resourceId);
+        } catch (DataAccessException e) {
+            log.warn("Could not record completion of idempotency key {}", idempotencyKey, e);
+        }
+    }
+
+    /**
+     * The reservation of {@code idempotencyKey}, or {@code null} if there is none or it cannot be read.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public IdempotencyReservation find(String idempotencyKey) {
+        try {
+            return reservationMapper.findReservation(idempotencyKey, leaseSeconds);
+        } catch (DataAccessException e) {
+            log.warn("Could not read reservation of idempotency key {}", idempotencyKey, e);
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the result of a command owned by another instance, without holding a thread.
+     * Completes with the stored response, or fails with the owner's error, with 503 if the owner
+     * gave the key up or its lease expired, or with a timeout.
+     */
+    public <T> CompletableFuture<T> awaitResult(String idempotencyKey, Class<T> responseType, int timeoutSeconds) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        poller.execute(() -> poll(idempotencyKey, responseType, future, deadlineNanos, initialPollMillis));
+        return future;
+    }
+
+    private <T> void poll(String idempotencyKey, Class<T> responseType, CompletableFuture<T> future,
+                          long deadlineNanos, long delayMillis) {
+        try {
+            T response = idempotentResponseStore.find(idempotencyKey, responseType);
+            if (response != null) {
+                future.complete(response);
+                return;
+            }
+            IdempotencyReservation reservation = reservationMapper.findReservation(idempotencyKey, leaseSeconds);
+            if (reservation != null && STATUS_FAILED.equals(reservation.getStatus())) {
+                ErrorCode errorCode = ErrorCode.fromCode(reservation.getErrorCode());
+                future.completeExceptionally(new BusinessException(reservation.getErrorMessage(),
+                        reservation.getErrorCode(), errorCode.getHttpStatus()));
+                return;
+            }
+            if (reservation == null || reservation.isLeaseExpired()) {
+                future.completeExceptionally(new ServiceOverloadedException(
+                        "Request with this idempotency key was not completed by the instance that accepted it, retry", retryAfterSeconds));
+                return;
+            }
+            if (System.nanoTime() >= deadlineNanos) {
+                future.completeExceptionally(new BusinessException("Request timed out - consumer may not be running"));
+                return;
+            }
+            long nextDelay = Math.min(maxPollMillis, delayMillis * 2);
+            poller.schedule(() -> poll(idempotencyKey, responseType, future, deadlineNanos, nextDelay),
+                    delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            log.error("Error waiting for result of idempotency key {}", idempotencyKey, e);
+            future.completeExceptionally(new BusinessException("Request failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Deletes expired reservations and stored responses in batches until none are left.
+     */
+    void purgeExpired() {
+        try {
+            int deleted;
+            do {
+                deleted = reservationMapper.deleteExpired(retentionSeconds, purgeBatchSize);
+                purged.increment(deleted);
+            } while (deleted == purgeBatchSize);
+            do {
+                deleted = idempotentResponseStore.purgeExpired(retentionSeconds, purgeBatchSize);
+                purged.increment(deleted);
+            } while (deleted == purgeBatchSize);
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge expired idempotency records, retrying in {} ms", purgeIntervalMillis, e);
+        }
+    }
+
+    private static Counter reservationCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("tuum.idempotency.reservations")
+                .description("Idempotency key reservations across fs-accounts-service instances")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+}
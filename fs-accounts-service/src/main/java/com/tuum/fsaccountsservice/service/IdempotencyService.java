@@ -1,28 +1,62 @@
 package com.tuum.fsaccountsservice.service;
 
+import com.tuum.fsaccountsservice.util.FingerprintTable;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
 
+/**
+ * Idempotency keys accepted by this instance. Keys are kept as fingerprints in a fixed-size
+ * {@link FingerprintTable} and forgotten after {@code tuum.idempotency.ttl-seconds}, or earlier
+ * when the table is full. Once a key is forgotten, the database lookup by idempotency key still
+ * resolves repeats of completed commands.
+ */
 @Service
 @Slf4j
 public class IdempotencyService {
-    
-    private final ConcurrentMap<String, Boolean> processedKeys = new ConcurrentHashMap<>();
-    
+
+    private final FingerprintTable processedKeys;
+
+    public IdempotencyService(MeterRegistry meterRegistry,
+                              @Value("${tuum.idempotency.max-entries:1000000}") int maxEntries,
+                              @Value("${tuum.idempotency.ttl-seconds:86400}") long ttlSeconds) {
+        this.processedKeys = new FingerprintTable(maxEntries, TimeUnit.SECONDS.toMillis(ttlSeconds));
+        registerCounter(meterRegistry, "tuum.idempotency.lookups", "result", "hit", FingerprintTable::hitCount);
+        registerCounter(meterRegistry, "tuum.idempotency.lookups", "result", "miss", FingerprintTable::missCount);
+        registerCounter(meterRegistry, "tuum.idempotency.evictions", "cause", "expired", FingerprintTable::expiredEvictionCount);
+        registerCounter(meterRegistry, "tuum.idempotency.evictions", "cause", "capacity", FingerprintTable::capacityEvictionCount);
+        Gauge.builder("tuum.idempotency.entries", processedKeys, FingerprintTable::size)
+                .description("Idempotency keys held in memory")
+                .register(meterRegistry);
+        Gauge.builder("tuum.idempotency.capacity", processedKeys, FingerprintTable::capacity)
+                .description("Maximum number of idempotency keys held in memory")
+                .register(meterRegistry);
+    }
+
     public boolean isProcessed(String idempotencyKey) {
-        return processedKeys.containsKey(idempotencyKey);
+        return processedKeys.contains(idempotencyKey);
     }
-    
+
     public void markAsProcessed(String idempotencyKey) {
-        processedKeys.put(idempotencyKey, true);
+        processedKeys.add(idempotencyKey);
         log.info("Marked idempotency key as processed: {}", idempotencyKey);
     }
-    
+
     public void clearProcessed(String idempotencyKey) {
         processedKeys.remove(idempotencyKey);
         log.info("Cleared idempotency key from cache: {}", idempotencyKey);
     }
-} 
\ No newline at end of file
+
+    private void registerCounter(MeterRegistry meterRegistry, String name, String tag, String value,
+                                 ToDoubleFunction<FingerprintTable> count) {
+        FunctionCounter.builder(name, processedKeys, count)
+                .tag(tag, value)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,108 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.fsaccountsservice.mapper.IdempotentResponseMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Final responses of completed commands, kept as serialized JSON so a repeated request is
+ * answered with the exact body the first one received. A small in-memory LRU sits in front of
+ * the {@code idempotent_responses} table; a miss in both means the caller has to fall back to
+ * rebuilding the response from the entity tables.
+ */
+@Service
+@Slf4j
+public class IdempotentResponseStore {
+
+    private final IdempotentResponseMapper idempotentResponseMapper;
+    private final ObjectMapper objectMapper;
+    private final Map<String, byte[]> recentResponses;
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public IdempotentResponseStore(IdempotentResponseMapper idempotentResponseMapper,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${tuum.idempotency.response-cache.max-entries:10000}") int maxEntries) {
+        this.idempotentResponseMapper = idempotentResponseMapper;
+        this.objectMapper = objectMapper;
+        this.recentResponses = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.memoryHits = lookupCounter(meterRegistry, "memory");
+        this.databaseHits = lookupCounter(meterRegistry, "database");
+        this.misses = lookupCounter(meterRegistry, "miss");
+    }
+
+    /**
+     * Stores the response for {@code idempotencyKey}. Failures are logged and swallowed: the
+     * command already succeeded, and replays can still be rebuilt from the entity tables.
+     */
+    public void save(String idempotencyKey, String resourceType, Object response) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            idempotentResponseMapper.insertResponse(idempotencyKey, resourceType, body);
+            synchronized (recentResponses) {
+                recentResponses.putIfAbsent(idempotencyKey, body);
+            }
+        } catch (Exception e) {
+            log.error("Failed to store response for idempotency key: {}", idempotencyKey, e);
+        }
+    }
+
+    /**
+     * Returns the stored response, or {@code null} if none is stored.
+     */
+    public <T> T find(String idempotencyKey, Class<T> responseType) {
+        byte[] body;
+        synchronized (recentResponses) {
+            body = recentResponses.get(idempotencyKey);
+        }
+        if (body != null) {
+            memoryHits.increment();
+        } else {
+            body = idempotentResponseMapper.findResponseBody(idempotencyKey);
+            if (body == null) {
+                misses.increment();
+                return null;
+            }
+            databaseHits.increment();
+            synchronized (recentResponses) {
+                recentResponses.put(idempotencyKey, body);
+            }
+        }
+        try {
+            return objectMapper.readValue(body, responseType);
+        } catch (IOException e) {
+            log.error("Stored response for idempotency key {} is not a {}", idempotencyKey, responseType.getSimpleName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes up to {@code limit} stored responses older than {@code retentionSeconds} and returns
+     * how many were deleted. Responses still cached in memory age out of the LRU on their own.
+     */
+    public int purgeExpired(long retentionSeconds, int limit) {
+        return idempotentResponseMapper.deleteExpired(retentionSeconds, limit);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("tuum.idempotency.responses.lookups")
+                .description("Replayed responses looked up by idempotency key")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,150 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.tuum.common.dto.mq.ErrorNotification;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.InsufficientFundsException;
+import com.tuum.common.exception.ServiceOverloadedException;
+import com.tuum.common.types.ErrorCode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Correlates in-flight commands with the replies coming back from the consumer.
+ * Notification and error listeners complete the registered future directly, so a
+ * reply reaches the waiting caller as soon as it is received.
+ * <p>
+ * The number of in-flight commands is bounded per {@link CommandChannel}. Once a channel is full,
+ * new commands are shed with a {@link ServiceOverloadedException} instead of queueing up until the
+ * node runs out of memory or threads.
+ */
+@Component
+@Slf4j
+public class PendingRequestRegistry {
+
+    private final ConcurrentMap<String, CompletableFuture<?>> pendingRequests = new ConcurrentHashMap<>();
+    private final Map<CommandChannel, AtomicInteger> inFlight = new EnumMap<>(CommandChannel.class);
+    private final Map<CommandChannel, Integer> limits = new EnumMap<>(CommandChannel.class);
+    private final long retryAfterSeconds;
+
+    public PendingRequestRegistry(MeterRegistry meterRegistry,
+                                  @Value("${tuum.requests.max-in-flight.accounts:1000}") int maxInFlightAccounts,
+                                  @Value("${tuum.requests.max-in-flight.transactions:2000}") int maxInFlightTransactions,
+                                  @Value("${tuum.requests.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+        limits.put(CommandChannel.ACCOUNTS, maxInFlightAccounts);
+        limits.put(CommandChannel.TRANSACTIONS, maxInFlightTransactions);
+        for (CommandChannel channel : CommandChannel.values()) {
+            AtomicInteger counter = new AtomicInteger();
+            inFlight.put(channel, counter);
+            Gauge.builder("tuum.requests.in-flight", counter, AtomicInteger::get)
+                    .description("Commands published and still waiting for a reply")
+                    .tag("channel", channel.getCode())
+                    .register(meterRegistry);
+            Gauge.builder("tuum.requests.in-flight.limit", limits, l -> l.get(channel))
+                    .description("Maximum number of in-flight commands before new ones are shed")
+                    .tag("channel", channel.getCode())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Registers the future for a new command. Returns the already registered future when
+     * a request with the same idempotency key is still in flight, or {@code null} when the
+     * given future was registered. The in-flight slot is released when the future completes.
+     *
+     * @throws ServiceOverloadedException when the channel already holds its maximum of in-flight commands
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> registerIfAbsent(CommandChannel channel, String idempotencyKey, CompletableFuture<T> future) {
+        CompletableFuture<T> existing = (CompletableFuture<T>) pendingRequests.get(idempotencyKey);
+        if (existing != null) {
+            return existing;
+        }
+        AtomicInteger counter = inFlight.get(channel);
+        int limit = limits.get(channel);
+        if (counter.incrementAndGet() > limit) {
+            counter.decrementAndGet();
+            log.warn("Shedding {} command with idempotency key {}: {} commands already in flight", channel, idempotencyKey, limit);
+            throw new ServiceOverloadedException("Too many " + channel.getCode() + " requests in flight, retry later", retryAfterSeconds);
+        }
+        existing = (CompletableFuture<T>) pendingRequests.putIfAbsent(idempotencyKey, future);
+        if (existing != null) {
+            counter.decrementAndGet();
+            return existing;
+        }
+        future.whenComplete((result, error) -> {
+            pendingRequests.remove(idempotencyKey, future);
+            counter.decrementAndGet();
+        });
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> boolean complete(String idempotencyKey, T result) {
+        CompletableFuture<T> future = (CompletableFuture<T>) pendingRequests.get(idempotencyKey);
+        if (future == null) {
+            log.warn("No pending request found for idempotency key: {}", idempotencyKey);
+            return false;
+        }
+        future.complete(result);
+        log.info("Completed pending request with idempotency key: {}", idempotencyKey);
+        return true;
+    }
+
+    public boolean completeExceptionally(String idempotencyKey, Throwable exception) {
+        CompletableFuture<?> future = pendingRequests.get(idempotencyKey);
+        if (future == null) {
+            log.warn("No pending request found for idempotency key: {}", idempotencyKey);
+            return false;
+        }
+        future.completeExceptionally(exception);
+        log.info("Completed pending request with error for idempotency key: {}", idempotencyKey);
+        return true;
+    }
+
+    public boolean completeWithError(String idempotencyKey, ErrorNotification errorNotification) {
+        log.error("Error received for idempotency key {}: {} - {}", idempotencyKey,
+                errorNotification.getErrorCode(), errorNotification.getErrorMessage());
+        return completeExceptionally(idempotencyKey, toException(errorNotification));
+    }
+
+    public void remove(String idempotencyKey, CompletableFuture<?> future) {
+        pendingRequests.remove(idempotencyKey, future);
+    }
+
+    public void remove(String idempotencyKey) {
+        pendingRequests.remove(idempotencyKey);
+    }
+
+    public int size() {
+        return pendingRequests.size();
+    }
+
+    public int inFlight(CommandChannel channel) {
+        return inFlight.get(channel).get();
+    }
+
+    public static BusinessException toException(ErrorNotification errorNotification) {
+        ErrorCode errorCode = errorNotification.getErrorCode() != null
+                ? errorNotification.getErrorCode()
+                : ErrorCode.INTERNAL_SERVER_ERROR;
+        if (errorCode == ErrorCode.INSUFFICIENT_FUNDS) {
+            return new InsufficientFundsException(errorNotification.getErrorMessage());
+        }
+        return new BusinessException(
+                errorNotification.getErrorMessage(),
+                errorCode.getCode(),
+                errorCode.getHttpStatus()
+        );
+    }
+}
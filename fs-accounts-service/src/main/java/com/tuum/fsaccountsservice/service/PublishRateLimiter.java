@@ -0,0 +1,91 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.tuum.fsaccountsservice.util.AdaptiveRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.ConnectionBlockedEvent;
+import org.springframework.amqp.rabbit.connection.ConnectionUnblockedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces command publishes to what the broker accepts. The rate adapts to broker pressure through an
+ * {@link AdaptiveRateLimiter}: every confirmed publish raises it a little, and a publish the broker
+ * nacks because a queue is full ({@code x-overflow: reject-publish}) cuts it. While the broker has
+ * blocked the connection, for example on a memory or disk alarm, no publish is admitted at all,
+ * since it would only park the request thread.
+ * <p>
+ * A command that is not admitted is shed right away with 503 instead of being published and lost
+ * or left waiting for its reply timeout.
+ */
+@Component
+@Slf4j
+public class PublishRateLimiter {
+
+    private final boolean enabled;
+    private final AdaptiveRateLimiter limiter;
+    private final Counter throttled;
+    private volatile boolean blocked;
+
+    public PublishRateLimiter(MeterRegistry meterRegistry,
+                              @Value("${tuum.publisher.rate-limit.enabled:true}") boolean enabled,
+                              @Value("${tuum.publisher.rate-limit.min-rate:50}") double minRate,
+                              @Value("${tuum.publisher.rate-limit.max-rate:5000}") double maxRate,
+                              @Value("${tuum.publisher.rate-limit.increase-per-second:100}") double increasePerSecond,
+                              @Value("${tuum.publisher.rate-limit.decrease-factor:0.5}") double decreaseFactor,
+                              @Value("${tuum.publisher.rate-limit.decrease-interval-ms:1000}") long decreaseIntervalMillis) {
+        this.enabled = enabled;
+        this.limiter = new AdaptiveRateLimiter(minRate, maxRate, increasePerSecond, decreaseFactor,
+                TimeUnit.MILLISECONDS.toNanos(decreaseIntervalMillis), System.nanoTime());
+        this.throttled = Counter.builder("tuum.publisher.throttled")
+                .description("Commands shed because the broker is applying backpressure")
+                .register(meterRegistry);
+        Gauge.builder("tuum.publisher.rate-limit", limiter, AdaptiveRateLimiter::rate)
+                .description("Commands per second currently admitted for publishing")
+                .register(meterRegistry);
+        Gauge.builder("tuum.publisher.blocked", this, rateLimiter -> rateLimiter.blocked ? 1 : 0)
+                .description("1 while the broker blocks the publishing connection")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns {@code true} if a command may be published now.
+     */
+    public boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+        if (blocked || !limiter.tryAcquire(System.nanoTime())) {
+            throttled.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void onConfirmed() {
+        limiter.onSuccess();
+    }
+
+    public void onRejected() {
+        if (limiter.onPressure(System.nanoTime())) {
+            log.warn("Broker rejected a publish, lowering the publish rate to {}/s", Math.round(limiter.rate()));
+        }
+    }
+
+    @EventListener
+    public void onBlocked(ConnectionBlockedEvent event) {
+        log.warn("Broker blocked the publishing connection: {}", event.getReason());
+        blocked = true;
+    }
+
+    @EventListener
+    public void onUnblocked(ConnectionUnblockedEvent event) {
+        log.info("Broker unblocked the publishing connection");
+        blocked = false;
+    }
+}
@@ -0,0 +1,28 @@
+package com.tuum.fsaccountsservice.service;
+
+import org.springframework.amqp.core.Queue;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the per-instance reply queue for a command channel.
+ */
+@Component
+public class ReplyQueueResolver {
+
+    private final Queue accountsReplyQueue;
+    private final Queue transactionsReplyQueue;
+
+    public ReplyQueueResolver(@Qualifier("accountsReplyQueue") Queue accountsReplyQueue,
+                              @Qualifier("transactionsReplyQueue") Queue transactionsReplyQueue) {
+        this.accountsReplyQueue = accountsReplyQueue;
+        this.transactionsReplyQueue = transactionsReplyQueue;
+    }
+
+    public String resolve(CommandChannel channel) {
+        return switch (channel) {
+            case ACCOUNTS -> accountsReplyQueue.getName();
+            case TRANSACTIONS -> transactionsReplyQueue.getName();
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.tuum.common.types.RequestType;
+import com.tuum.fsaccountsservice.util.HashedTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Expires pending command futures that received no reply in time. Deadlines live on a
+ * {@link HashedTimingWheel}, so arming and cancelling one is O(1) regardless of how many
+ * commands are in flight. Expirations are counted per {@link RequestType}.
+ */
+@Component
+@Slf4j
+public class RequestDeadlineScheduler {
+
+    private final HashedTimingWheel timingWheel;
+    private final Map<RequestType, Counter> timeoutCounters = new EnumMap<>(RequestType.class);
+
+    public RequestDeadlineScheduler(MeterRegistry meterRegistry,
+                                    @Value("${tuum.requests.deadline.tick-ms:100}") long tickMillis,
+                                    @Value("${tuum.requests.deadline.ticks-per-wheel:512}") int ticksPerWheel) {
+        this.timingWheel = new HashedTimingWheel("request-deadline-wheel", tickMillis, TimeUnit.MILLISECONDS, ticksPerWheel);
+        for (RequestType requestType : RequestType.values()) {
+            timeoutCounters.put(requestType, Counter.builder("tuum.requests.timeouts")
+                    .description("Commands that received no reply from the consumer before their deadline")
+                    .tag("request_type", requestType.getCode())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("tuum.requests.deadlines.pending", timingWheel, HashedTimingWheel::pendingDeadlines)
+                .description("Command deadlines currently armed on the timing wheel")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Fails {@code future} with the supplied exception unless it completes within {@code timeoutSeconds}.
+     * The deadline is cancelled as soon as the future completes.
+     */
+    public void scheduleTimeout(CompletableFuture<?> future, String idempotencyKey, int timeoutSeconds,
+                                RequestType requestType, Supplier<? extends Throwable> timeoutException) {
+        HashedTimingWheel.Deadline deadline = timingWheel.schedule(() -> {
+            if (future.completeExceptionally(timeoutException.get())) {
+                timeoutCounters.get(requestType).increment();
+                log.error("Timeout waiting for response for idempotency key: {} - consumer may be down", idempotencyKey);
+            }
+        }, timeoutSeconds, TimeUnit.SECONDS);
+        future.whenComplete((result, error) -> deadline.cancel());
+    }
+
+    public long getTimeoutCount(RequestType requestType) {
+        return (long) timeoutCounters.get(requestType).count();
+    }
+
+    public int getPendingDeadlines() {
+        return timingWheel.pendingDeadlines();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timingWheel.stop();
+    }
+}
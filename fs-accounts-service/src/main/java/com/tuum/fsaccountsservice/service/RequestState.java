@@ -0,0 +1,36 @@
+package com.tuum.fsaccountsservice.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of a command submitted with {@code Prefer: respond-async}. Kept deliberately small:
+ * the full resource is read from the database once the command has completed.
+ */
+@Getter
+@AllArgsConstructor
+public class RequestState {
+
+    public enum Status {
+        PENDING, COMPLETED, FAILED
+    }
+
+    private final Status status;
+    private final CommandChannel channel;
+    private final String resourceId;
+    private final String errorCode;
+    private final String errorMessage;
+    private final long updatedAtMillis;
+
+    static RequestState pending(CommandChannel channel) {
+        return new RequestState(Status.PENDING, channel, null, null, null, System.currentTimeMillis());
+    }
+
+    RequestState completed(String resourceId) {
+        return new RequestState(Status.COMPLETED, channel, resourceId, null, null, System.currentTimeMillis());
+    }
+
+    RequestState failed(String errorCode, String errorMessage) {
+        return new RequestState(Status.FAILED, channel, null, errorCode, errorMessage, System.currentTimeMillis());
+    }
+}
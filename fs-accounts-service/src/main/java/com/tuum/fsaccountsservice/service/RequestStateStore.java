@@ -0,0 +1,54 @@
+package com.tuum.fsaccountsservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tracks commands accepted with {@code Prefer: respond-async} until the consumer reports back.
+ * Only fire-and-forget commands are tracked, and the store keeps at most {@code maxEntries}
+ * states, dropping the oldest first. Completed commands remain resolvable from the database
+ * after their state has been dropped.
+ */
+@Component
+@Slf4j
+public class RequestStateStore {
+
+    private final Map<String, RequestState> states;
+
+    public RequestStateStore(@Value("${tuum.requests.state-store.max-entries:100000}") int maxEntries) {
+        this.states = new LinkedHashMap<>(1024, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RequestState> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized void markPending(String idempotencyKey, CommandChannel channel) {
+        states.put(idempotencyKey, RequestState.pending(channel));
+    }
+
+    public synchronized void markCompleted(String idempotencyKey, String resourceId) {
+        if (states.computeIfPresent(idempotencyKey, (key, state) -> state.completed(resourceId)) != null) {
+            log.info("Async request {} completed with resource {}", idempotencyKey, resourceId);
+        }
+    }
+
+    public synchronized void markFailed(String idempotencyKey, String errorCode, String errorMessage) {
+        if (states.computeIfPresent(idempotencyKey, (key, state) -> state.failed(errorCode, errorMessage)) != null) {
+            log.info("Async request {} failed: {} - {}", idempotencyKey, errorCode, errorMessage);
+        }
+    }
+
+    public synchronized RequestState find(String idempotencyKey) {
+        return states.get(idempotencyKey);
+    }
+
+    public synchronized int size() {
+        return states.size();
+    }
+}
@@ -0,0 +1,127 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.tuum.common.domain.entities.Account;
+import com.tuum.common.domain.entities.IdempotencyReservation;
+import com.tuum.common.domain.entities.Transaction;
+import com.tuum.common.exception.ResourceNotFoundException;
+import com.tuum.fsaccountsservice.dto.resonse.RequestStatusResponse;
+import com.tuum.fsaccountsservice.mapper.AccountMapper;
+import com.tuum.fsaccountsservice.mapper.TransactionMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RequestStatusService {
+
+    private final RequestStateStore requestStateStore;
+    private final AccountMapper accountMapper;
+    private final TransactionMapper transactionMapper;
+    private final IdempotencyReservationService idempotencyReservationService;
+
+    /**
+     * Resolves the status of a command. The local state store answers first for commands accepted
+     * here; the shared {@code idempotency_reservations} row answers for commands accepted by another
+     * instance, or whose local state was lost to a restart or eviction. Completed commands are also
+     * confirmed from the entity tables, which covers reservations already purged.
+     */
+    @Transactional(readOnly = true)
+    public RequestStatusResponse getRequestStatus(String idempotencyKey) {
+        RequestState state = requestStateStore.find(idempotencyKey);
+        if (state != null && state.getStatus() == RequestState.Status.FAILED) {
+            return failed(idempotencyKey, state.getChannel(), state.getErrorCode(), state.getErrorMessage(),
+                    Instant.ofEpochMilli(state.getUpdatedAtMillis()));
+        }
+
+        IdempotencyReservation reservation = state == null || state.getStatus() == RequestState.Status.PENDING
+                ? idempotencyReservationService.find(idempotencyKey)
+                : null;
+        CommandChannel channel = state != null ? state.getChannel() : channelOf(reservation);
+        if (reservation != null && IdempotencyReservationService.STATUS_COMPLETED.equals(reservation.getStatus())
+                && channel != null && reservation.getResourceId() != null) {
+            return completed(idempotencyKey, channel, reservation.getResourceId());
+        }
+        if (channel == null || channel == CommandChannel.ACCOUNTS) {
+            Account account = accountMapper.findAccountByIdempotencyKey(idempotencyKey);
+            if (account != null) {
+                return completed(idempotencyKey, CommandChannel.ACCOUNTS, account.getAccountId());
+            }
+        }
+        if (channel == null || channel == CommandChannel.TRANSACTIONS) {
+            Transaction transaction = transactionMapper.findTransactionByIdempotencyKey(idempotencyKey);
+            if (transaction != null) {
+                return completed(idempotencyKey, CommandChannel.TRANSACTIONS, transaction.getTransactionId());
+            }
+        }
+
+        if (reservation != null && IdempotencyReservationService.STATUS_FAILED.equals(reservation.getStatus())) {
+            return failed(idempotencyKey, channel, reservation.getErrorCode(), reservation.getErrorMessage(),
+                    toInstant(reservation.getUpdatedAt()));
+        }
+        if (state != null) {
+            return RequestStatusResponse.builder()
+                    .idempotencyKey(idempotencyKey)
+                    .status(state.getStatus().name())
+                    .resourceType(state.getChannel().getCode())
+                    .resourceId(state.getResourceId())
+                    .updatedAt(Instant.ofEpochMilli(state.getUpdatedAtMillis()))
+                    .build();
+        }
+        if (reservation != null && IdempotencyReservationService.STATUS_PENDING.equals(reservation.getStatus())) {
+            return RequestStatusResponse.builder()
+                    .idempotencyKey(idempotencyKey)
+                    .status(RequestState.Status.PENDING.name())
+                    .resourceType(channel != null ? channel.getCode() : null)
+                    .updatedAt(toInstant(reservation.getUpdatedAt()))
+                    .build();
+        }
+        throw new ResourceNotFoundException("No request found with idempotency key: " + idempotencyKey);
+    }
+
+    private static RequestStatusResponse failed(String idempotencyKey, CommandChannel channel, String errorCode,
+                                                String errorMessage, Instant updatedAt) {
+        return RequestStatusResponse.builder()
+                .idempotencyKey(idempotencyKey)
+                .status(RequestState.Status.FAILED.name())
+                .resourceType(channel != null ? channel.getCode() : null)
+                .errorCode(errorCode)
+                .errorMessage(errorMessage)
+                .updatedAt(updatedAt)
+                .build();
+    }
+
+    private static CommandChannel channelOf(IdempotencyReservation reservation) {
+        if (reservation == null || reservation.getResourceType() == null) {
+            return null;
+        }
+        for (CommandChannel channel : CommandChannel.values()) {
+            if (channel.getCode().equals(reservation.getResourceType())) {
+                return channel;
+            }
+        }
+        return null;
+    }
+
+    private static Instant toInstant(LocalDateTime timestamp) {
+        return timestamp != null ? timestamp.atZone(ZoneId.systemDefault()).toInstant() : null;
+    }
+
+    private RequestStatusResponse completed(String idempotencyKey, CommandChannel channel, String resourceId) {
+        RequestState state = requestStateStore.find(idempotencyKey);
+        return RequestStatusResponse.builder()
+                .idempotencyKey(idempotencyKey)
+                .status(RequestState.Status.COMPLETED.name())
+                .resourceType(channel.getCode())
+                .resourceId(resourceId)
+                .resourceLocation("/" + channel.getCode() + "/" + resourceId)
+                .updatedAt(state != null ? Instant.ofEpochMilli(state.getUpdatedAtMillis()) : null)
+                .build();
+    }
+}
@@ -0,0 +1,30 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.tuum.common.types.TransactionPartitions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the partition queue for a transaction command from its account id. The partition count
+ * must be the same in fs-accounts-service and cs-accounts-events-consumer.
+ */
+@Component
+public class TransactionPartitioner {
+
+    private final int partitions;
+
+    public TransactionPartitioner(@Value("${tuum.transactions.partitions:4}") int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("tuum.transactions.partitions must be positive: " + partitions);
+        }
+        this.partitions = partitions;
+    }
+
+    public int partitions() {
+        return partitions;
+    }
+
+    public String routingKeyFor(String accountId) {
+        return TransactionPartitions.routingKey(TransactionPartitions.partitionOf(accountId, partitions));
+    }
+}
@@ -9,6 +9,7 @@ import com.tuum.fsaccountsservice.dto.requests.CreateTransactionRequest;
 import com.tuum.fsaccountsservice.dto.resonse.TransactionResponse;
 import com.tuum.common.dto.mq.CreateTransactionEvent;
 import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.ServiceOverloadedException;
 import com.tuum.common.exception.InsufficientFundsException;
 import com.tuum.common.exception.ResourceNotFoundException;
 import com.tuum.fsaccountsservice.mapper.AccountMapper;
@@ -17,7 +18,6 @@ import com.tuum.fsaccountsservice.mapper.TransactionMapper;
 
 import com.tuum.common.util.TraceIdGenerator;
 import com.tuum.common.dto.mq.ErrorNotification;
-import com.tuum.common.types.ErrorCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -25,6 +25,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import com.tuum.fsaccountsservice.dto.resonse.BalanceResponse;
 
 @Service
@@ -38,48 +39,43 @@ public class TransactionService {
     private final EventPublisherService eventPublisherService;
     private final TraceIdGenerator traceIdGenerator;
     private final IdempotencyService idempotencyService;
+    private final IdempotentResponseStore idempotentResponseStore;
+    private final IdempotencyReservationService idempotencyReservationService;
+
+    private static final int COMMAND_TIMEOUT_SECONDS = 30;
 
     @Transactional
     public TransactionResponse createTransaction(CreateTransactionRequest request, String idempotencyKey) throws BusinessException {
         String requestId = traceIdGenerator.generateTraceId();
         log.info("Creating transaction with requestId: {} and idempotency key: {}", requestId, idempotencyKey);
         
-        if (idempotencyService.isProcessed(idempotencyKey)) {
-            log.info("Transaction already processed in memory, skipping: {}", idempotencyKey);
-            Transaction existingTransaction = transactionMapper.findTransactionByIdempotencyKey(idempotencyKey);
-            if (existingTransaction != null) {
-                return createResponseFromTransaction(existingTransaction);
-            }
-            throw new BusinessException("Transaction already processed but not found in database");
+        TransactionResponse existingTransaction = findProcessedTransaction(idempotencyKey);
+        if (existingTransaction != null) {
+            return existingTransaction;
+        }
+        // Built before the key is reserved: a request that fails validation must not block its key
+        CreateTransactionEvent event = buildCreateTransactionEvent(request, idempotencyKey);
+        if (!idempotencyReservationService.tryReserve(idempotencyKey, CommandChannel.TRANSACTIONS)) {
+            return eventPublisherService.awaitResponse(
+                    idempotencyReservationService.awaitResult(idempotencyKey, TransactionResponse.class, COMMAND_TIMEOUT_SECONDS), idempotencyKey);
         }
         
         idempotencyService.markAsProcessed(idempotencyKey);
         
         try {
-            Account account = accountMapper.findAccountById(request.getAccountId());
-            if (account == null) {
-                throw new ResourceNotFoundException("Account not found with id: " + request.getAccountId());
-            }
-            CreateTransactionEvent event = new CreateTransactionEvent();
-            event.setAccountId(request.getAccountId());
-            event.setAmount(request.getAmount());
-            event.setCurrency(request.getCurrency());
-            event.setDirection(request.getDirection());
-            event.setDescription(request.getDescription());
-            event.setIdempotencyKey(idempotencyKey);
-            event.setCreatedAt(LocalDateTime.now());
-            log.info("Event: {}", event);
-            log.info("Exchange: {}", RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue());
-            log.info("Routing key: {}", RabbitMQConfig.TRANSACTIONS_CREATED_ROUTING_KEY.getValue());
-
             return eventPublisherService.publishEventAndWaitForResponse(
                 event, 
                 RabbitMQConfig.TRANSACTIONS_CREATED_ROUTING_KEY.getValue(),
                 idempotencyKey,
                     requestId,
-                30,
+                COMMAND_TIMEOUT_SECONDS,
                     RequestType.CREATE
             );
+        } catch (ServiceOverloadedException e) {
+            // The command was never published, so the key must stay usable for the client's retry
+            idempotencyService.clearProcessed(idempotencyKey);
+            idempotencyReservationService.release(idempotencyKey);
+            throw e;
         } catch (InsufficientFundsException e) {
             log.error("InsufficientFundsException caught in TransactionService: {}", idempotencyKey, e);
             throw e;
@@ -98,6 +94,118 @@ public class TransactionService {
         }
     }
 
+    /**
+     * Non-blocking variant of {@link #createTransaction}: publishes the command and returns the
+     * pending future, so the calling request thread is released right after the publish.
+     */
+    public CompletableFuture<TransactionResponse> createTransactionAsync(CreateTransactionRequest request, String idempotencyKey) throws BusinessException {
+        String requestId = traceIdGenerator.generateTraceId();
+        log.info("Creating transaction asynchronously with requestId: {} and idempotency key: {}", requestId, idempotencyKey);
+
+        try {
+            TransactionResponse existingTransaction = findProcessedTransaction(idempotencyKey);
+            if (existingTransaction != null) {
+                return CompletableFuture.completedFuture(existingTransaction);
+            }
+            CreateTransactionEvent event = buildCreateTransactionEvent(request, idempotencyKey);
+            if (!idempotencyReservationService.tryReserve(idempotencyKey, CommandChannel.TRANSACTIONS)) {
+                return idempotencyReservationService.awaitResult(idempotencyKey, TransactionResponse.class, COMMAND_TIMEOUT_SECONDS);
+            }
+
+            idempotencyService.markAsProcessed(idempotencyKey);
+
+            return eventPublisherService.publishEvent(
+                    event,
+                    RabbitMQConfig.TRANSACTIONS_CREATED_ROUTING_KEY.getValue(),
+                    idempotencyKey,
+                    requestId,
+                    COMMAND_TIMEOUT_SECONDS,
+                    RequestType.CREATE
+            );
+        } catch (ServiceOverloadedException e) {
+            idempotencyService.clearProcessed(idempotencyKey);
+            idempotencyReservationService.release(idempotencyKey);
+            throw e;
+        } finally {
+            traceIdGenerator.clear();
+        }
+    }
+
+    /**
+     * Fire-and-forget variant for {@code Prefer: respond-async}: publishes the command without keeping
+     * a pending future. The caller answers 202 and the outcome is read from {@code /requests/{idempotencyKey}}.
+     * Re-submitting a key that was already accepted publishes nothing.
+     */
+    public void submitCreateTransaction(CreateTransactionRequest request, String idempotencyKey) throws BusinessException {
+        String requestId = traceIdGenerator.generateTraceId();
+        log.info("Accepting transaction creation with requestId: {} and idempotency key: {}", requestId, idempotencyKey);
+
+        try {
+            if (idempotencyService.isProcessed(idempotencyKey)) {
+                log.info("Transaction creation already accepted, skipping publish: {}", idempotencyKey);
+                return;
+            }
+            CreateTransactionEvent event = buildCreateTransactionEvent(request, idempotencyKey);
+            if (!idempotencyReservationService.tryReserve(idempotencyKey, CommandChannel.TRANSACTIONS)) {
+                log.info("Transaction creation already accepted by another instance, skipping publish: {}", idempotencyKey);
+                return;
+            }
+
+            idempotencyService.markAsProcessed(idempotencyKey);
+            try {
+                eventPublisherService.publishEventAndForget(
+                        event,
+                        RabbitMQConfig.TRANSACTIONS_CREATED_ROUTING_KEY.getValue(),
+                        idempotencyKey,
+                        requestId,
+                        RequestType.CREATE
+                );
+            } catch (BusinessException e) {
+                // Nothing was published, so let the client retry with the same key
+                idempotencyService.clearProcessed(idempotencyKey);
+                idempotencyReservationService.release(idempotencyKey);
+                throw e;
+            }
+        } finally {
+            traceIdGenerator.clear();
+        }
+    }
+
+    private TransactionResponse findProcessedTransaction(String idempotencyKey) {
+        if (!idempotencyService.isProcessed(idempotencyKey)) {
+            return null;
+        }
+        log.info("Transaction already processed in memory, skipping: {}", idempotencyKey);
+        TransactionResponse storedResponse = idempotentResponseStore.find(idempotencyKey, TransactionResponse.class);
+        if (storedResponse != null) {
+            return storedResponse;
+        }
+        Transaction existingTransaction = transactionMapper.findTransactionByIdempotencyKey(idempotencyKey);
+        if (existingTransaction != null) {
+            return createResponseFromTransaction(existingTransaction);
+        }
+        throw new BusinessException("Transaction already processed but not found in database");
+    }
+
+    private CreateTransactionEvent buildCreateTransactionEvent(CreateTransactionRequest request, String idempotencyKey) {
+        Account account = accountMapper.findAccountById(request.getAccountId());
+        if (account == null) {
+            throw new ResourceNotFoundException("Account not found with id: " + request.getAccountId());
+        }
+        CreateTransactionEvent event = new CreateTransactionEvent();
+        event.setAccountId(request.getAccountId());
+        event.setAmount(request.getAmount());
+        event.setCurrency(request.getCurrency());
+        event.setDirection(request.getDirection());
+        event.setDescription(request.getDescription());
+        event.setIdempotencyKey(idempotencyKey);
+        event.setCreatedAt(LocalDateTime.now());
+        log.info("Event: {}", event);
+        log.info("Exchange: {}", RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue());
+        log.info("Routing key: {}", RabbitMQConfig.TRANSACTIONS_CREATED_ROUTING_KEY.getValue());
+        return event;
+    }
+
     public void completeTransaction(Object event, MQMessageData messageData) {
         String idempotencyKey = messageData.getIdempotencyKey();
         String status = messageData.getStatus();
@@ -105,18 +213,7 @@ public class TransactionService {
         if (event instanceof ErrorNotification errorNotification) {
             log.error("Transaction processing failed for idempotency key {}: {} - {}", 
                 idempotencyKey, errorNotification.getErrorCode(), errorNotification.getErrorMessage());
-            
-                        if (errorNotification.getErrorCode() == ErrorCode.INSUFFICIENT_FUNDS) {
-                InsufficientFundsException insufficientFundsException = new InsufficientFundsException(errorNotification.getErrorMessage());
-                eventPublisherService.completeRequestWithError(idempotencyKey, insufficientFundsException);
-            } else {
-                BusinessException businessException = new BusinessException(
-                    errorNotification.getErrorMessage(),
-                    errorNotification.getErrorCode().getCode(),
-                    errorNotification.getErrorCode().getHttpStatus()
-                );
-                eventPublisherService.completeRequestWithError(idempotencyKey, businessException);
-            }
+            eventPublisherService.completeRequestWithError(idempotencyKey, errorNotification);
             return;
         }
 
@@ -129,6 +226,7 @@ public class TransactionService {
             response.setDirection(transactionCreatedEvent.getDirection());
             response.setDescription(transactionCreatedEvent.getDescription());
             response.setBalanceAfterTransaction(transactionCreatedEvent.getBalanceAfterTransaction());
+            idempotentResponseStore.save(idempotencyKey, "transaction", response);
             eventPublisherService.completeRequest(idempotencyKey, response);
         } else {
             log.warn("Unexpected event type or status for idempotency key {}: event={}, status={}", 
@@ -0,0 +1,23 @@
+package com.tuum.fsaccountsservice.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Deliveries posted to one endpoint in a single request. Batches that failed are spooled to disk
+ * in this shape until they are delivered or run out of attempts.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebhookBatch {
+
+    private String batchId;
+    private String endpoint;
+    private int attempt;
+    private long nextAttemptAtMillis;
+    private List<WebhookDelivery> deliveries;
+}
@@ -0,0 +1,24 @@
+package com.tuum.fsaccountsservice.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One command result as posted to a client callback endpoint. Deliveries for the same endpoint
+ * are sent together as a JSON array.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebhookDelivery {
+
+    private String idempotencyKey;
+    private String resourceType;
+    private String status;
+    private Map<String, Object> payload;
+    private Instant occurredAt;
+}
@@ -0,0 +1,340 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.domain.entities.Account;
+import com.tuum.fsaccountsservice.mapper.AccountMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers command results to client callback endpoints.
+ * <p>
+ * Results are queued per endpoint and posted as JSON arrays of up to {@code batchSize} deliveries,
+ * waiting at most {@code lingerMillis} for a batch to fill. Each endpoint has at most
+ * {@code maxConcurrentPerEndpoint} requests in flight on the shared, pooled {@link HttpClient}.
+ * Failed batches are spooled to disk and retried with exponential backoff until
+ * {@code maxAttempts} is reached, then moved to the dead-letter directory. Spooled batches are
+ * picked up again after a restart. An endpoint holds at most {@code maxQueuedPerEndpoint} results in
+ * memory; beyond that, a batch is spooled and retried after the initial backoff, so a slow endpoint
+ * cannot exhaust the heap.
+ * <p>
+ * {@link #submit} resolves the callback on the caller's thread, which may query the database, and
+ * then only enqueues, so AMQP listener threads are never blocked by HTTP calls and the single
+ * dispatcher thread never waits on the database.
+ */
+@Component
+@Slf4j
+public class WebhookDispatcher {
+
+    private static final int CUSTOMER_CACHE_SIZE = 10_000;
+
+    private final WebhookRegistry webhookRegistry;
+    private final AccountMapper accountMapper;
+    private final ObjectMapper objectMapper;
+    private final WebhookSpool spool;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentMap<URI, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, String> customerByAccount;
+
+    private final int maxConcurrentPerEndpoint;
+    private final int batchSize;
+    private final int maxQueuedPerEndpoint;
+    private final long lingerMillis;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Duration requestTimeout;
+
+    private final Counter delivered;
+    private final Counter retried;
+    private final Counter dead;
+    private final Counter overflowed;
+
+    public WebhookDispatcher(WebhookRegistry webhookRegistry,
+                             AccountMapper accountMapper,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${tuum.webhooks.spool-dir:${java.io.tmpdir}/tuum-webhooks}") String spoolDir,
+                             @Value("${tuum.webhooks.max-concurrent-per-endpoint:4}") int maxConcurrentPerEndpoint,
+                             @Value("${tuum.webhooks.batch-size:100}") int batchSize,
+                             @Value("${tuum.webhooks.max-queued-per-endpoint:10000}") int maxQueuedPerEndpoint,
+                             @Value("${tuum.webhooks.linger-ms:20}") long lingerMillis,
+                             @Value("${tuum.webhooks.max-attempts:10}") int maxAttempts,
+                             @Value("${tuum.webhooks.initial-backoff-ms:500}") long initialBackoffMillis,
+                             @Value("${tuum.webhooks.max-backoff-ms:300000}") long maxBackoffMillis,
+                             @Value("${tuum.webhooks.request-timeout-ms:5000}") long requestTimeoutMillis) {
+        this.webhookRegistry = webhookRegistry;
+        this.accountMapper = accountMapper;
+        this.objectMapper = objectMapper;
+        this.spool = new WebhookSpool(Path.of(spoolDir), objectMapper);
+        this.maxConcurrentPerEndpoint = maxConcurrentPerEndpoint;
+        this.batchSize = batchSize;
+        this.maxQueuedPerEndpoint = maxQueuedPerEndpoint;
+        this.lingerMillis = lingerMillis;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(requestTimeout)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webhook-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.customerByAccount = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > CUSTOMER_CACHE_SIZE;
+            }
+        };
+
+        this.delivered = deliveryCounter(meterRegistry, "delivered");
+        this.retried = deliveryCounter(meterRegistry, "retried");
+        this.dead = deliveryCounter(meterRegistry, "dead");
+        this.overflowed = deliveryCounter(meterRegistry, "overflowed");
+        Gauge.builder("tuum.webhooks.spooled.batches", spool, WebhookSpool::pendingCount)
+                .description("Webhook batches persisted locally and waiting for a retry")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Re-schedules batches spooled before the last shutdown.
+     */
+    @PostConstruct
+    public void recoverSpooled() {
+        List<WebhookBatch> batches = spool.loadPending();
+        long now = System.currentTimeMillis();
+        for (WebhookBatch batch : batches) {
+            long delay = Math.max(0, batch.getNextAttemptAtMillis() - now);
+            scheduler.schedule(() -> retry(batch), delay, TimeUnit.MILLISECONDS);
+        }
+        if (!batches.isEmpty()) {
+            log.info("Recovered {} spooled webhook batches", batches.size());
+        }
+    }
+
+    /**
+     * Queues a result for the callback registered for its request, or for the customer when
+     * {@code customerId} or {@code accountId} identify one. Results without a callback are dropped.
+     */
+    public void submit(WebhookDelivery delivery, String customerId, String accountId) {
+        URI requestCallback = webhookRegistry.takeForRequest(delivery.getIdempotencyKey());
+        if (requestCallback != null) {
+            enqueue(requestCallback, delivery);
+            return;
+        }
+        if (customerId == null && accountId == null) {
+            return;
+        }
+        try {
+            URI customerCallback = webhookRegistry.findForCustomer(customerId != null ? customerId : customerOf(accountId));
+            if (customerCallback != null) {
+                enqueue(customerCallback, delivery);
+            }
+        } catch (RuntimeException e) {
+            log.error("Dropping webhook for request {}: customer callback lookup failed", delivery.getIdempotencyKey(), e);
+        }
+    }
+
+    public void enqueue(URI endpointUri, WebhookDelivery delivery) {
+        Endpoint endpoint = endpoints.computeIfAbsent(endpointUri, Endpoint::new);
+        endpoint.queue.add(delivery);
+        int queued = endpoint.queued.incrementAndGet();
+        if (queued > maxQueuedPerEndpoint) {
+            spoolOverflow(endpoint);
+        } else if (queued >= batchSize) {
+            scheduler.execute(() -> flush(endpoint));
+        } else if (endpoint.flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> flush(endpoint), lingerMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        // Results still waiting for a batch are spooled so they are sent after the restart
+        for (Endpoint endpoint : endpoints.values()) {
+            List<WebhookDelivery> deliveries = drain(endpoint, Integer.MAX_VALUE);
+            if (!deliveries.isEmpty()) {
+                spool.save(new WebhookBatch(UUID.randomUUID().toString(), endpoint.uri.toString(), 1,
+                        System.currentTimeMillis(), deliveries));
+            }
+        }
+    }
+
+    /**
+     * Moves a batch of the endpoint's backlog to the spool, to be sent after the initial backoff.
+     */
+    private void spoolOverflow(Endpoint endpoint) {
+        List<WebhookDelivery> deliveries = drain(endpoint, batchSize);
+        if (deliveries.isEmpty()) {
+            return;
+        }
+        WebhookBatch batch = new WebhookBatch(UUID.randomUUID().toString(), endpoint.uri.toString(), 1,
+                System.currentTimeMillis() + initialBackoffMillis, deliveries);
+        spool.save(batch);
+        overflowed.increment(deliveries.size());
+        log.warn("Webhook backlog for {} exceeds {} results, spooled batch {}", endpoint.uri, maxQueuedPerEndpoint, batch.getBatchId());
+        scheduler.schedule(() -> retry(batch), initialBackoffMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush(Endpoint endpoint) {
+        endpoint.flushScheduled.set(false);
+        while (!endpoint.queue.isEmpty() && endpoint.permits.tryAcquire()) {
+            List<WebhookDelivery> deliveries = drain(endpoint, batchSize);
+            if (deliveries.isEmpty()) {
+                endpoint.permits.release();
+                return;
+            }
+            send(endpoint, new WebhookBatch(UUID.randomUUID().toString(), endpoint.uri.toString(), 1, 0, deliveries));
+        }
+    }
+
+    private List<WebhookDelivery> drain(Endpoint endpoint, int max) {
+        List<WebhookDelivery> deliveries = new ArrayList<>(Math.min(max, batchSize));
+        WebhookDelivery delivery;
+        while (deliveries.size() < max && (delivery = endpoint.queue.poll()) != null) {
+            endpoint.queued.decrementAndGet();
+            deliveries.add(delivery);
+        }
+        return deliveries;
+    }
+
+    /**
+     * Posts the batch; the caller must hold one of the endpoint's permits.
+     */
+    private void send(Endpoint endpoint, WebhookBatch batch) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(batch.getDeliveries());
+        } catch (JsonProcessingException e) {
+            endpoint.permits.release();
+            log.error("Dropping webhook batch {} for {}: payload is not serializable", batch.getBatchId(), endpoint.uri, e);
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(endpoint.uri)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("Webhook-Batch-Id", batch.getBatchId())
+                .header("Webhook-Attempt", String.valueOf(batch.getAttempt()))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            endpoint.permits.release();
+            if (error == null && response.statusCode() / 100 == 2) {
+                delivered.increment(batch.getDeliveries().size());
+                // Only batches that were spooled have a next-attempt time
+                if (batch.getNextAttemptAtMillis() > 0) {
+                    spool.delete(batch.getBatchId());
+                }
+            } else {
+                String reason = error != null ? error.toString() : "HTTP " + response.statusCode();
+                scheduleRetry(batch, reason);
+            }
+            if (!endpoint.queue.isEmpty()) {
+                scheduler.execute(() -> flush(endpoint));
+            }
+        });
+    }
+
+    private void scheduleRetry(WebhookBatch batch, String reason) {
+        if (batch.getAttempt() >= maxAttempts) {
+            log.error("Giving up on webhook batch {} for {} after {} attempts: {}", batch.getBatchId(),
+                    batch.getEndpoint(), batch.getAttempt(), reason);
+            spool.moveToDead(batch);
+            dead.increment(batch.getDeliveries().size());
+            return;
+        }
+        long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(batch.getAttempt() - 1, 30));
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        batch.setAttempt(batch.getAttempt() + 1);
+        batch.setNextAttemptAtMillis(System.currentTimeMillis() + delay);
+        spool.save(batch);
+        retried.increment(batch.getDeliveries().size());
+        log.warn("Webhook batch {} for {} failed ({}), retry {} in {} ms", batch.getBatchId(), batch.getEndpoint(),
+                reason, batch.getAttempt(), delay);
+        scheduler.schedule(() -> retry(batch), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void retry(WebhookBatch batch) {
+        Endpoint endpoint = endpoints.computeIfAbsent(URI.create(batch.getEndpoint()), Endpoint::new);
+        if (endpoint.permits.tryAcquire()) {
+            send(endpoint, batch);
+        } else {
+            scheduler.schedule(() -> retry(batch), Math.max(lingerMillis, 1), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private String customerOf(String accountId) {
+        synchronized (customerByAccount) {
+            String customerId = customerByAccount.get(accountId);
+            if (customerId != null) {
+                return customerId;
+            }
+        }
+        Account account = accountMapper.findAccountById(accountId);
+        if (account == null) {
+            return null;
+        }
+        synchronized (customerByAccount) {
+            customerByAccount.put(accountId, account.getCustomerId());
+        }
+        return account.getCustomerId();
+    }
+
+    private static Counter deliveryCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("tuum.webhooks.deliveries")
+                .description("Command results posted to client callback endpoints")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    WebhookSpool getSpool() {
+        return spool;
+    }
+
+    private final class Endpoint {
+        private final URI uri;
+        private final Queue<WebhookDelivery> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private final Semaphore permits = new Semaphore(maxConcurrentPerEndpoint);
+
+        private Endpoint(URI uri) {
+            this.uri = uri;
+        }
+    }
+}
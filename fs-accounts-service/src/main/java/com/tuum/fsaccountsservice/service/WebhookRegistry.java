@@ -0,0 +1,175 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.types.ErrorCode;
+import com.tuum.fsaccountsservice.mapper.WebhookSubscriptionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Callback endpoints registered by clients, either for a single request (by idempotency key) or for
+ * every command of a customer. A per-request callback takes precedence and is used once.
+ * <p>
+ * Per-request callbacks stay in memory: the reply to a command comes back to the instance that
+ * accepted it. Customer callbacks are stored in {@code webhook_subscriptions}, so a registration made
+ * through one instance applies to commands accepted by any other; lookups are cached for
+ * {@code customer-cache-ttl-ms}. Callbacks must not point at loopback, link-local or private addresses.
+ */
+@Component
+@Slf4j
+public class WebhookRegistry {
+
+    private static final int CUSTOMER_CACHE_SIZE = 10_000;
+
+    private final WebhookSubscriptionMapper subscriptionMapper;
+    private final Map<String, URI> requestCallbacks;
+    private final Map<String, CachedCallback> customerCallbacks;
+    private final long customerCacheTtlMillis;
+    private final boolean allowPrivateAddresses;
+
+    public WebhookRegistry(WebhookSubscriptionMapper subscriptionMapper,
+                           @Value("${tuum.webhooks.max-request-callbacks:100000}") int maxRequestCallbacks,
+                           @Value("${tuum.webhooks.customer-cache-ttl-ms:5000}") long customerCacheTtlMillis,
+                           @Value("${tuum.webhooks.allow-private-addresses:false}") boolean allowPrivateAddresses) {
+        this.subscriptionMapper = subscriptionMapper;
+        this.customerCacheTtlMillis = customerCacheTtlMillis;
+        this.allowPrivateAddresses = allowPrivateAddresses;
+        this.requestCallbacks = new LinkedHashMap<>(1024, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, URI> eldest) {
+                return size() > maxRequestCallbacks;
+            }
+        };
+        this.customerCallbacks = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCallback> eldest) {
+                return size() > CUSTOMER_CACHE_SIZE;
+            }
+        };
+    }
+
+    public void registerForRequest(String idempotencyKey, String callbackUrl) {
+        URI uri = validate(callbackUrl);
+        synchronized (requestCallbacks) {
+            requestCallbacks.put(idempotencyKey, uri);
+        }
+        log.info("Registered callback {} for request {}", uri, idempotencyKey);
+    }
+
+    public void registerForCustomer(String customerId, String callbackUrl) {
+        URI uri = validate(callbackUrl);
+        subscriptionMapper.upsertSubscription(customerId, uri.toString());
+        cache(customerId, uri);
+        log.info("Registered callback {} for customer {}", uri, customerId);
+    }
+
+    public boolean removeForCustomer(String customerId) {
+        boolean removed = subscriptionMapper.deleteSubscription(customerId) > 0;
+        cache(customerId, null);
+        return removed;
+    }
+
+    /**
+     * The customer's callback, or {@code null}. May query the database, so it must not run on a
+     * thread that serves other work.
+     */
+    public URI findForCustomer(String customerId) {
+        if (customerId == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (customerCallbacks) {
+            CachedCallback cached = customerCallbacks.get(customerId);
+            if (cached != null && cached.expiresAtMillis() > now) {
+                return cached.uri();
+            }
+        }
+        String callbackUrl = subscriptionMapper.findCallbackUrl(customerId);
+        URI uri = callbackUrl != null ? URI.create(callbackUrl) : null;
+        cache(customerId, uri);
+        return uri;
+    }
+
+    /**
+     * Returns and forgets the callback registered for this request, if any.
+     */
+    public URI takeForRequest(String idempotencyKey) {
+        synchronized (requestCallbacks) {
+            return requestCallbacks.remove(idempotencyKey);
+        }
+    }
+
+    private void cache(String customerId, URI uri) {
+        synchronized (customerCallbacks) {
+            customerCallbacks.put(customerId, new CachedCallback(uri, System.currentTimeMillis() + customerCacheTtlMillis));
+        }
+    }
+
+    URI validate(String callbackUrl) {
+        if (callbackUrl == null || callbackUrl.isBlank()) {
+            throw invalid(callbackUrl);
+        }
+        URI uri;
+        try {
+            uri = new URI(callbackUrl);
+        } catch (URISyntaxException e) {
+            throw invalid(callbackUrl);
+        }
+        String scheme = uri.getScheme();
+        if (uri.getHost() == null || !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+            throw invalid(callbackUrl);
+        }
+        if (!allowPrivateAddresses) {
+            rejectInternalHost(uri);
+        }
+        return uri;
+    }
+
+    /**
+     * Keeps callbacks from reaching the service's own network: every address the host resolves to
+     * must be public.
+     */
+    private static void rejectInternalHost(URI uri) {
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(uri.getHost());
+        } catch (UnknownHostException e) {
+            throw validationError("Invalid callback URL, host cannot be resolved: " + uri);
+        }
+        for (InetAddress address : addresses) {
+            if (isInternal(address)) {
+                throw validationError("Invalid callback URL, loopback, link-local and private addresses are not allowed: " + uri);
+            }
+        }
+    }
+
+    static boolean isInternal(InetAddress address) {
+        return address.isLoopbackAddress()
+                || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress()
+                || address.isAnyLocalAddress()
+                || address.isMulticastAddress()
+                // IPv6 unique local addresses (fc00::/7), which isSiteLocalAddress does not cover
+                || (address instanceof Inet6Address && (address.getAddress()[0] & 0xfe) == 0xfc);
+    }
+
+    private static BusinessException invalid(String callbackUrl) {
+        return validationError("Invalid callback URL, an absolute http(s) URL is required: " + callbackUrl);
+    }
+
+    private static BusinessException validationError(String message) {
+        return new BusinessException(message, ErrorCode.VALIDATION_ERROR.getCode(), ErrorCode.VALIDATION_ERROR.getHttpStatus());
+    }
+
+    private record CachedCallback(URI uri, long expiresAtMillis) {
+    }
+}
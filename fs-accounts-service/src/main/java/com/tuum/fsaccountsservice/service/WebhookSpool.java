@@ -0,0 +1,103 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Local persistence for webhook batches awaiting a retry, one JSON file per batch. Files are
+ * written to a temporary name and moved into place, so a crash never leaves a partial batch.
+ * Batches that exhaust their attempts are moved to the {@code dead} sub-directory.
+ */
+@Slf4j
+public class WebhookSpool {
+
+    private static final String SUFFIX = ".json";
+
+    private final Path directory;
+    private final Path deadDirectory;
+    private final ObjectMapper objectMapper;
+
+    public WebhookSpool(Path directory, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.deadDirectory = directory.resolve("dead");
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(deadDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create webhook spool directory " + directory, e);
+        }
+    }
+
+    public void save(WebhookBatch batch) {
+        Path target = file(directory, batch.getBatchId());
+        Path temp = directory.resolve(batch.getBatchId() + ".tmp");
+        try {
+            objectMapper.writeValue(temp.toFile(), batch);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Failed to spool webhook batch {} for {}", batch.getBatchId(), batch.getEndpoint(), e);
+        }
+    }
+
+    public void delete(String batchId) {
+        try {
+            Files.deleteIfExists(file(directory, batchId));
+        } catch (IOException e) {
+            log.warn("Failed to delete spooled webhook batch {}", batchId, e);
+        }
+    }
+
+    public void moveToDead(WebhookBatch batch) {
+        try {
+            objectMapper.writeValue(file(deadDirectory, batch.getBatchId()).toFile(), batch);
+            Files.deleteIfExists(file(directory, batch.getBatchId()));
+        } catch (IOException e) {
+            log.error("Failed to move webhook batch {} to the dead-letter directory", batch.getBatchId(), e);
+        }
+    }
+
+    public List<WebhookBatch> loadPending() {
+        List<WebhookBatch> batches = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).forEach(path -> {
+                try {
+                    batches.add(objectMapper.readValue(path.toFile(), WebhookBatch.class));
+                } catch (IOException e) {
+                    log.error("Skipping unreadable spooled webhook batch {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            log.error("Failed to list webhook spool directory {}", directory, e);
+        }
+        return batches;
+    }
+
+    public int pendingCount() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return (int) files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).count();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public int deadCount() {
+        try (Stream<Path> files = Files.list(deadDirectory)) {
+            return (int) files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).count();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static Path file(Path dir, String batchId) {
+        return dir.resolve(batchId + SUFFIX);
+    }
+}
@@ -0,0 +1,89 @@
+package com.tuum.fsaccountsservice.util;
+
+/**
+ * Token bucket whose rate adapts to downstream pressure with additive increase, multiplicative
+ * decrease. Every success raises the rate by {@code increasePerSecond / rate}, so at full use it
+ * grows by about {@code increasePerSecond} each second; a pressure signal multiplies it by
+ * {@code decreaseFactor}, at most once per {@code decreaseIntervalNanos} so that a burst of
+ * signals caused by the same overload counts once. The rate stays within {@code [minRate, maxRate]}
+ * and starts at {@code maxRate}. The bucket holds up to 100 ms worth of tokens.
+ * <p>
+ * Times are passed in by the caller as {@link System#nanoTime()} values.
+ */
+public class AdaptiveRateLimiter {
+
+    private static final double BURST_SECONDS = 0.1;
+
+    private final double minRate;
+    private final double maxRate;
+    private final double increasePerSecond;
+    private final double decreaseFactor;
+    private final long decreaseIntervalNanos;
+
+    private double rate;
+    private double tokens;
+    private long refilledAtNanos;
+    private long decreasedAtNanos;
+    private boolean decreased;
+
+    public AdaptiveRateLimiter(double minRate, double maxRate, double increasePerSecond,
+                               double decreaseFactor, long decreaseIntervalNanos, long nowNanos) {
+        if (minRate <= 0 || maxRate < minRate) {
+            throw new IllegalArgumentException("Rates must satisfy 0 < minRate <= maxRate: " + minRate + ", " + maxRate);
+        }
+        if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("decreaseFactor must be between 0 and 1: " + decreaseFactor);
+        }
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increasePerSecond = increasePerSecond;
+        this.decreaseFactor = decreaseFactor;
+        this.decreaseIntervalNanos = decreaseIntervalNanos;
+        this.rate = maxRate;
+        this.tokens = capacity();
+        this.refilledAtNanos = nowNanos;
+    }
+
+    /**
+     * Takes one token if available; never waits.
+     */
+    public synchronized boolean tryAcquire(long nowNanos) {
+        long elapsed = nowNanos - refilledAtNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity(), tokens + rate * elapsed / 1_000_000_000.0);
+            refilledAtNanos = nowNanos;
+        }
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + increasePerSecond / rate);
+    }
+
+    /**
+     * Returns {@code true} if the rate was lowered, {@code false} if an earlier signal already lowered
+     * it within the decrease interval.
+     */
+    public synchronized boolean onPressure(long nowNanos) {
+        if (decreased && nowNanos - decreasedAtNanos < decreaseIntervalNanos) {
+            return false;
+        }
+        rate = Math.max(minRate, rate * decreaseFactor);
+        tokens = Math.min(tokens, capacity());
+        decreased = true;
+        decreasedAtNanos = nowNanos;
+        return true;
+    }
+
+    public synchronized double rate() {
+        return rate;
+    }
+
+    private double capacity() {
+        return Math.max(1, rate * BURST_SECONDS);
+    }
+}
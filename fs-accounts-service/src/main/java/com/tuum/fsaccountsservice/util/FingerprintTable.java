@@ -0,0 +1,269 @@
+package com.tuum.fsaccountsservice.util;
+
+import com.tuum.common.util.Murmur3;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Fixed-size set of keys that expire after a TTL.
+ * <p>
+ * Keys are stored as 128-bit Murmur3 fingerprints in primitive arrays (open addressing with
+ * linear probing and backward-shift deletion), so an entry costs 20 bytes of slot space
+ * whatever the key length and no objects are allocated per entry. All memory is allocated
+ * up front for {@code maxEntries}. When a segment is full, expired entries are reclaimed
+ * first; if none are found, the entry closest to expiry in the scanned window is evicted.
+ * <p>
+ * Two distinct keys share a fingerprint with probability about {@code n^2 / 2^129}, which is
+ * negligible for any realistic {@code n}. The table is split into independently locked segments.
+ */
+public class FingerprintTable {
+
+    private static final int SEGMENTS = 16;
+    private static final int EVICTION_SCAN = 64;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final long baseMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expiredEvictions = new LongAdder();
+    private final LongAdder capacityEvictions = new LongAdder();
+
+    public FingerprintTable(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::currentTimeMillis);
+    }
+
+    FingerprintTable(int maxEntries, long ttlMillis, LongSupplier clock) {
+        if (maxEntries < SEGMENTS) {
+            throw new IllegalArgumentException("maxEntries must be at least " + SEGMENTS + ": " + maxEntries);
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be positive: " + ttlMillis);
+        }
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.baseMillis = clock.getAsLong();
+        int perSegment = (maxEntries + SEGMENTS - 1) / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Returns whether {@code key} was added and has neither expired nor been removed.
+     * Counts a hit or a miss.
+     */
+    public boolean contains(String key) {
+        long[] fingerprint = fingerprint(key);
+        boolean found = segmentFor(fingerprint[0]).contains(fingerprint[0], fingerprint[1], now());
+        (found ? hits : misses).increment();
+        return found;
+    }
+
+    /**
+     * Adds {@code key}, or restarts its TTL if it is already present.
+     */
+    public void add(String key) {
+        long[] fingerprint = fingerprint(key);
+        segmentFor(fingerprint[0]).add(fingerprint[0], fingerprint[1], now());
+    }
+
+    public boolean remove(String key) {
+        long[] fingerprint = fingerprint(key);
+        return segmentFor(fingerprint[0]).remove(fingerprint[0], fingerprint[1]);
+    }
+
+    /**
+     * Entries currently stored, including expired ones not reclaimed yet.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    public int capacity() {
+        return segments[0].maxEntries * SEGMENTS;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long expiredEvictionCount() {
+        return expiredEvictions.sum();
+    }
+
+    public long capacityEvictionCount() {
+        return capacityEvictions.sum();
+    }
+
+    /**
+     * Seconds since construction; expiries are stored as ints relative to the same base.
+     */
+    private int now() {
+        return (int) ((clock.getAsLong() - baseMillis) / 1000);
+    }
+
+    private Segment segmentFor(long h1) {
+        return segments[(int) (h1 >>> 60) & (SEGMENTS - 1)];
+    }
+
+    private static long[] fingerprint(String key) {
+        long[] fingerprint = Murmur3.hash128(key);
+        // (0, 0) marks an empty slot
+        if (fingerprint[0] == 0 && fingerprint[1] == 0) {
+            fingerprint[1] = 1;
+        }
+        return fingerprint;
+    }
+
+    private final class Segment {
+        private final long[] high;
+        private final long[] low;
+        private final int[] expiresAt;
+        private final int mask;
+        private final int maxEntries;
+        private int size;
+        private int evictionCursor;
+
+        private Segment(int maxEntries) {
+            // Keep the load factor at or below 0.75 so probe sequences stay short
+            int slots = Integer.highestOneBit(Math.max(maxEntries + 1, maxEntries * 4 / 3) - 1) << 1;
+            this.high = new long[slots];
+            this.low = new long[slots];
+            this.expiresAt = new int[slots];
+            this.mask = slots - 1;
+            this.maxEntries = maxEntries;
+        }
+
+        synchronized boolean contains(long h1, long h2, int now) {
+            int slot = find(h1, h2);
+            if (slot < 0) {
+                return false;
+            }
+            if (expiresAt[slot] <= now) {
+                delete(slot);
+                expiredEvictions.increment();
+                return false;
+            }
+            return true;
+        }
+
+        synchronized void add(long h1, long h2, int now) {
+            int expiry = now + (int) Math.max(1, ttlMillis / 1000);
+            int slot = find(h1, h2);
+            if (slot >= 0) {
+                expiresAt[slot] = expiry;
+                return;
+            }
+            if (size >= maxEntries) {
+                makeRoom(now);
+            }
+            slot = home(h1);
+            while (!isEmpty(slot)) {
+                slot = (slot + 1) & mask;
+            }
+            high[slot] = h1;
+            low[slot] = h2;
+            expiresAt[slot] = expiry;
+            size++;
+        }
+
+        synchronized boolean remove(long h1, long h2) {
+            int slot = find(h1, h2);
+            if (slot < 0) {
+                return false;
+            }
+            delete(slot);
+            return true;
+        }
+
+        private int find(long h1, long h2) {
+            int slot = home(h1);
+            while (!isEmpty(slot)) {
+                if (high[slot] == h1 && low[slot] == h2) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Scans a window of slots from a rotating cursor, reclaiming expired entries. Evicts the
+         * entry that expires soonest in the window if nothing had expired.
+         */
+        private void makeRoom(int now) {
+            int victim = -1;
+            boolean reclaimed = false;
+            int scanned = 0;
+            int slot = evictionCursor;
+            while (scanned < EVICTION_SCAN || (!reclaimed && victim < 0)) {
+                scanned++;
+                if (!isEmpty(slot)) {
+                    if (expiresAt[slot] <= now) {
+                        delete(slot);
+                        expiredEvictions.increment();
+                        reclaimed = true;
+                        // The shift may have moved another entry into this slot, so look at it again
+                        continue;
+                    }
+                    if (victim < 0 || expiresAt[slot] < expiresAt[victim]) {
+                        victim = slot;
+                    }
+                }
+                slot = (slot + 1) & mask;
+            }
+            evictionCursor = slot;
+            if (!reclaimed) {
+                delete(victim);
+                capacityEvictions.increment();
+            }
+        }
+
+        /**
+         * Backward-shift deletion: moves later entries of the probe run into the gap so lookups
+         * never need tombstones.
+         */
+        private void delete(int slot) {
+            int gap = slot;
+            int next = (gap + 1) & mask;
+            while (!isEmpty(next)) {
+                int home = home(high[next]);
+                // Move the entry back unless its home lies cyclically in (gap, next]
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    high[gap] = high[next];
+                    low[gap] = low[next];
+                    expiresAt[gap] = expiresAt[next];
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            high[gap] = 0;
+            low[gap] = 0;
+            expiresAt[gap] = 0;
+            size--;
+        }
+
+        private boolean isEmpty(int slot) {
+            return high[slot] == 0 && low[slot] == 0;
+        }
+
+        private int home(long h1) {
+            // The top bits chose the segment; use the low bits for the slot
+            return (int) h1 & mask;
+        }
+    }
+}
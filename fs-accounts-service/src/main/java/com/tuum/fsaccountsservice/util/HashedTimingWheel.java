@@ -0,0 +1,250 @@
+package com.tuum.fsaccountsservice.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timing wheel for coarse-grained deadlines.
+ * <p>
+ * Scheduling and cancelling a deadline are O(1): callers only enqueue the entry, and the
+ * single worker thread links it into (or unlinks it from) the bucket it hashes to. On every
+ * tick the worker expires the entries of one bucket, so the sweep cost depends on the number
+ * of deadlines that are due rather than on the total number of pending deadlines. Deadlines
+ * fire with a precision of one tick.
+ */
+@Slf4j
+public class HashedTimingWheel {
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Deadline> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Deadline> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread worker;
+    private final long startNanos;
+
+    private volatile boolean running = true;
+    private long tick;
+
+    public HashedTimingWheel(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 20)) {
+            throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^20: " + ticksPerWheel);
+        }
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        size = Math.max(size, 1);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Schedules {@code task} to run on the wheel thread once {@code delay} has elapsed.
+     * The task must be short and must not block; it is expected to complete a future.
+     */
+    public Deadline schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timing wheel has been stopped");
+        }
+        Deadline deadline = new Deadline(this, task, System.nanoTime() + unit.toNanos(delay));
+        pending.incrementAndGet();
+        scheduled.add(deadline);
+        return deadline;
+    }
+
+    /**
+     * Number of deadlines that have been scheduled and have neither fired nor been cancelled.
+     */
+    public int pendingDeadlines() {
+        return pending.get();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long deadlineNanos = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos = deadlineNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        break;
+                    }
+                    continue;
+                }
+            }
+            processCancelled();
+            transferScheduled();
+            wheel[(int) (tick & mask)].expireDue();
+            tick++;
+        }
+        log.info("Timing wheel {} stopped with {} pending deadlines", worker.getName(), pending.get());
+    }
+
+    private void transferScheduled() {
+        // Bounded per tick so a burst of new deadlines cannot starve expiry
+        for (int i = 0; i < 100_000; i++) {
+            Deadline deadline = scheduled.poll();
+            if (deadline == null) {
+                return;
+            }
+            if (deadline.state != Deadline.ST_INIT) {
+                continue;
+            }
+            long calculated = Math.max((deadline.deadlineNanos - startNanos) / tickNanos, tick);
+            deadline.remainingRounds = (calculated - tick) / wheel.length;
+            wheel[(int) (calculated & mask)].add(deadline);
+        }
+    }
+
+    private void processCancelled() {
+        Deadline deadline;
+        while ((deadline = cancelled.poll()) != null) {
+            if (deadline.bucket != null) {
+                deadline.bucket.remove(deadline);
+            }
+        }
+    }
+
+    /**
+     * Handle for a scheduled deadline.
+     */
+    public static final class Deadline {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final HashedTimingWheel timer;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private volatile int state = ST_INIT;
+
+        // Owned by the worker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Deadline next;
+        private Deadline prev;
+
+        private Deadline(HashedTimingWheel timer, Runnable task, long deadlineNanos) {
+            this.timer = timer;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancels the deadline. Returns {@code false} if it has already fired or been cancelled.
+         */
+        public boolean cancel() {
+            synchronized (this) {
+                if (state != ST_INIT) {
+                    return false;
+                }
+                state = ST_CANCELLED;
+            }
+            timer.pending.decrementAndGet();
+            timer.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        private void expire() {
+            synchronized (this) {
+                if (state != ST_INIT) {
+                    return;
+                }
+                state = ST_EXPIRED;
+            }
+            timer.pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Deadline task threw an exception", e);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of deadlines hashed to one slot, only touched by the worker thread.
+     */
+    private static final class Bucket {
+
+        private Deadline head;
+        private Deadline tail;
+
+        void add(Deadline deadline) {
+            deadline.bucket = this;
+            if (head == null) {
+                head = tail = deadline;
+            } else {
+                tail.next = deadline;
+                deadline.prev = tail;
+                tail = deadline;
+            }
+        }
+
+        void expireDue() {
+            Deadline deadline = head;
+            while (deadline != null) {
+                Deadline next = deadline.next;
+                if (deadline.remainingRounds <= 0) {
+                    remove(deadline);
+                    deadline.expire();
+                } else if (deadline.isCancelled()) {
+                    remove(deadline);
+                } else {
+                    deadline.remainingRounds--;
+                }
+                deadline = next;
+            }
+        }
+
+        void remove(Deadline deadline) {
+            if (deadline.bucket != this) {
+                return;
+            }
+            Deadline next = deadline.next;
+            if (deadline.prev != null) {
+                deadline.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = deadline.prev;
+            }
+            if (deadline == head) {
+                head = next;
+            }
+            if (deadline == tail) {
+                tail = deadline.prev;
+            }
+            deadline.prev = null;
+            deadline.next = null;
+            deadline.bucket = null;
+        }
+    }
+}
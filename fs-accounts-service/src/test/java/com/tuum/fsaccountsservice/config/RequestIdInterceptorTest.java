@@ -0,0 +1,58 @@
+package com.tuum.fsaccountsservice.config;
+
+import com.tuum.common.util.TraceIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestIdInterceptorTest {
+
+    private final RequestIdInterceptor interceptor = new RequestIdInterceptor();
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/transactions");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @AfterEach
+    void tearDown() {
+        TraceIdGenerator.clear();
+        MDC.clear();
+    }
+
+    @Test
+    void testPreHandle_AssignsTraceIdToRequestThreadAndResponse() throws Exception {
+        assertTrue(interceptor.preHandle(request, response, new Object()));
+
+        String traceId = TraceIdGenerator.getCurrentRequestId();
+        assertNotNull(traceId);
+        assertEquals(traceId, response.getHeader("X-Request-ID"));
+        assertEquals(traceId, MDC.get("X-Request-ID"));
+    }
+
+    @Test
+    void testAfterConcurrentHandlingStarted_ReleasedThreadCarriesNoTraceId() throws Exception {
+        interceptor.preHandle(request, response, new Object());
+
+        interceptor.afterConcurrentHandlingStarted(request, response, new Object());
+
+        assertNull(TraceIdGenerator.getCurrentRequestId());
+        assertNull(MDC.get("X-Request-ID"));
+    }
+
+    @Test
+    void testTraceId_NotInheritedByThreadsStartedFromRequest() throws Exception {
+        interceptor.preHandle(request, response, new Object());
+        AtomicReference<String> seenByChild = new AtomicReference<>("unset");
+
+        Thread child = new Thread(() -> seenByChild.set(TraceIdGenerator.getCurrentRequestId()));
+        child.start();
+        child.join();
+
+        assertNull(seenByChild.get());
+        assertNotNull(TraceIdGenerator.getCurrentRequestId());
+    }
+}
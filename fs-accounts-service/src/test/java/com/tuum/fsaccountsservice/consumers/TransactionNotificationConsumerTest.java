@@ -0,0 +1,96 @@
+package com.tuum.fsaccountsservice.consumers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.codec.MessageCodecs;
+import com.tuum.common.dto.mq.ErrorNotification;
+import com.tuum.common.exception.InsufficientFundsException;
+import com.tuum.common.types.ErrorCode;
+import com.tuum.common.types.RequestType;
+import com.tuum.fsaccountsservice.service.CommandChannel;
+import com.tuum.fsaccountsservice.service.IdempotencyReservationService;
+import com.tuum.fsaccountsservice.service.PendingRequestRegistry;
+import com.tuum.fsaccountsservice.service.RequestStateStore;
+import com.tuum.fsaccountsservice.service.TransactionService;
+import com.tuum.fsaccountsservice.service.WebhookDispatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionNotificationConsumerTest {
+
+    private static final String IDEMPOTENCY_KEY = "key-1";
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+    @Mock
+    private TransactionService transactionService;
+    @Mock
+    private RequestStateStore requestStateStore;
+    @Mock
+    private WebhookDispatcher webhookDispatcher;
+    @Mock
+    private IdempotencyReservationService idempotencyReservationService;
+
+    private final MessageCodecs messageCodecs = new MessageCodecs(new ObjectMapper().findAndRegisterModules(), "json");
+    private PendingRequestRegistry pendingRequestRegistry;
+    private TransactionNotificationConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        pendingRequestRegistry = new PendingRequestRegistry(new SimpleMeterRegistry(), 10, 10, 1);
+        consumer = new TransactionNotificationConsumer(messagingTemplate, messageCodecs, transactionService,
+                pendingRequestRegistry, requestStateStore, webhookDispatcher, idempotencyReservationService);
+    }
+
+    @Test
+    void testHandleTransactionReply_Error_FailsWaitingRequestOnArrival() throws Exception {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        pendingRequestRegistry.registerIfAbsent(CommandChannel.TRANSACTIONS, IDEMPOTENCY_KEY, future);
+
+        consumer.handleTransactionReply(errorReply(ErrorCode.INSUFFICIENT_FUNDS, "Available: 5.00, Required: 30.00"));
+
+        assertTrue(future.isCompletedExceptionally());
+        ExecutionException error = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(InsufficientFundsException.class, error.getCause());
+        assertEquals(0, pendingRequestRegistry.inFlight(CommandChannel.TRANSACTIONS));
+        verify(requestStateStore).markFailed(IDEMPOTENCY_KEY, "INSUFFICIENT_FUNDS", "Available: 5.00, Required: 30.00");
+        verify(idempotencyReservationService).markFailed(IDEMPOTENCY_KEY, "INSUFFICIENT_FUNDS", "Available: 5.00, Required: 30.00");
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void testHandleTransactionError_NoWaitingRequest_StillRecordsFailure() throws Exception {
+        consumer.handleTransactionError(errorReply(ErrorCode.TRANSACTION_CREATION_FAILED, "posting failed"));
+
+        assertEquals(0, pendingRequestRegistry.size());
+        verify(requestStateStore).markFailed(IDEMPOTENCY_KEY, "TRANSACTION_CREATION_FAILED", "posting failed");
+        verify(messagingTemplate).convertAndSend(eq("/topic/transactions"), any(Object.class));
+    }
+
+    private Message errorReply(ErrorCode errorCode, String errorMessage) throws Exception {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader("request-id", "REQ_1");
+        properties.setHeader("request-type", RequestType.CREATE.getCode());
+        properties.setHeader("idempotency-key", IDEMPOTENCY_KEY);
+        properties.setHeader("status", "ERROR");
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        ErrorNotification errorNotification = new ErrorNotification(errorCode, errorMessage,
+                "Error occurred during processing", LocalDateTime.now(), "REQ_1");
+        return new Message(messageCodecs.outbound().encode(errorNotification), properties);
+    }
+}
@@ -8,6 +8,7 @@ import com.tuum.common.exception.ResourceNotFoundException;
 import com.tuum.fsaccountsservice.dto.requests.CreateAccountRequest;
 import com.tuum.fsaccountsservice.dto.resonse.AccountResponse;
 import com.tuum.fsaccountsservice.service.AccountService;
+import com.tuum.fsaccountsservice.service.WebhookRegistry;
 import com.tuum.fsaccountsservice.utils.TestConstants;
 import com.tuum.fsaccountsservice.utils.TestDataBuilder;
 import com.tuum.common.types.Currency;
@@ -22,6 +23,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -32,6 +34,7 @@ import org.springframework.http.HttpStatus;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -39,6 +42,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -49,6 +53,9 @@ class AccountControllerTest {
     @Mock
     private AccountService accountService;
 
+    @Mock
+    private WebhookRegistry webhookRegistry;
+
     @InjectMocks
     private AccountController accountController;
 
@@ -85,13 +92,17 @@ class AccountControllerTest {
                 .balances(createMockBalanceResponses(currency1, currency2))
                 .build();
 
-        when(accountService.createAccount(any(CreateAccountRequest.class), anyString()))
-                .thenReturn(mockResponse);
+        when(accountService.createAccountAsync(any(CreateAccountRequest.class), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        mockMvc.perform(post("/accounts")
+        MvcResult asyncResult = mockMvc.perform(post("/accounts")
                         .contentType(MediaType.APPLICATION_JSON)
                         .header(TestConstants.IDEMPOTENCY_KEY_HEADER, TestConstants.TEST_IDEMPOTENCY_KEY)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.accountId").value(TestConstants.DEFAULT_ACCOUNT_ID))
                 .andExpect(jsonPath("$.customerId").value(customerId))
@@ -99,7 +110,7 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$.balances").isArray())
                 .andExpect(jsonPath("$.balances.length()").value(2));
 
-        verify(accountService, times(1)).createAccount(any(CreateAccountRequest.class), eq(TestConstants.TEST_IDEMPOTENCY_KEY));
+        verify(accountService, times(1)).createAccountAsync(any(CreateAccountRequest.class), eq(TestConstants.TEST_IDEMPOTENCY_KEY));
     }
 
     @Test
@@ -201,16 +212,60 @@ class AccountControllerTest {
         verify(accountService, times(1)).getAllAccounts();
     }
 
+    @Test
+    void testCreateAccount_PreferRespondAsync_ReturnsAcceptedWithStatusLocation() throws Exception {
+        CreateAccountRequest request = TestDataBuilder.createAccountRequest().build();
+
+        MvcResult asyncResult = mockMvc.perform(post("/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(TestConstants.IDEMPOTENCY_KEY_HEADER, TestConstants.TEST_IDEMPOTENCY_KEY)
+                        .header("Prefer", "respond-async")
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/requests/" + TestConstants.TEST_IDEMPOTENCY_KEY))
+                .andExpect(header().string("Preference-Applied", "respond-async"));
+
+        verify(accountService, times(1)).submitCreateAccount(any(CreateAccountRequest.class), eq(TestConstants.TEST_IDEMPOTENCY_KEY));
+        verify(accountService, never()).createAccountAsync(any(CreateAccountRequest.class), anyString());
+    }
+
+    @Test
+    void testCreateAccount_WithCallbackUrl_RegistersRequestCallback() throws Exception {
+        CreateAccountRequest request = TestDataBuilder.createAccountRequest().build();
+
+        MvcResult asyncResult = mockMvc.perform(post("/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(TestConstants.IDEMPOTENCY_KEY_HEADER, TestConstants.TEST_IDEMPOTENCY_KEY)
+                        .header("Prefer", "respond-async")
+                        .header("Callback-Url", "https://client.example.com/callbacks")
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isAccepted());
+
+        verify(webhookRegistry, times(1)).registerForRequest(TestConstants.TEST_IDEMPOTENCY_KEY, "https://client.example.com/callbacks");
+    }
+
     @Test
     void testCreateAccount_ServiceThrowsBusinessException_ReturnsError() throws Exception {
         CreateAccountRequest request = TestDataBuilder.createAccountRequest().build();
 
-        when(accountService.createAccount(any(CreateAccountRequest.class), anyString()))
-                .thenThrow(new BusinessException("Account creation failed"));
-        mockMvc.perform(post("/accounts")
+        when(accountService.createAccountAsync(any(CreateAccountRequest.class), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new BusinessException("Account creation failed")));
+        MvcResult asyncResult = mockMvc.perform(post("/accounts")
                         .contentType(MediaType.APPLICATION_JSON)
                         .header(TestConstants.IDEMPOTENCY_KEY_HEADER, TestConstants.TEST_IDEMPOTENCY_KEY)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isInternalServerError());
     }
 
@@ -8,6 +8,7 @@ import com.tuum.common.exception.ResourceNotFoundException;
 import com.tuum.fsaccountsservice.dto.requests.CreateTransactionRequest;
 import com.tuum.fsaccountsservice.dto.resonse.TransactionResponse;
 import com.tuum.fsaccountsservice.service.TransactionService;
+import com.tuum.fsaccountsservice.service.WebhookRegistry;
 import com.tuum.fsaccountsservice.utils.TestConstants;
 import com.tuum.fsaccountsservice.utils.TestDataBuilder;
 import com.tuum.common.types.Currency;
@@ -23,6 +24,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -33,6 +35,7 @@ import org.springframework.http.HttpStatus;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -40,6 +43,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -50,6 +54,9 @@ class TransactionControllerTest {
     @Mock
     private TransactionService transactionService;
 
+    @Mock
+    private WebhookRegistry webhookRegistry;
+
     @InjectMocks
     private TransactionController transactionController;
 
@@ -90,13 +97,17 @@ class TransactionControllerTest {
                 .description(description)
                 .build();
 
-        when(transactionService.createTransaction(any(CreateTransactionRequest.class), anyString()))
-                .thenReturn(mockResponse);
+        when(transactionService.createTransactionAsync(any(CreateTransactionRequest.class), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        mockMvc.perform(post("/transactions")
+        MvcResult asyncResult = mockMvc.perform(post("/transactions")
                         .contentType(MediaType.APPLICATION_JSON)
                         .header(TestConstants.IDEMPOTENCY_KEY_HEADER, TestConstants.TEST_IDEMPOTENCY_KEY)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.transactionId").value(TestConstants.DEFAULT_TRANSACTION_ID))
                 .andExpect(jsonPath("$.accountId").value(accountId))
@@ -105,7 +116,7 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.direction").value(direction.name()))
                 .andExpect(jsonPath("$.description").value(description));
 
-        verify(transactionService, times(1)).createTransaction(any(CreateTransactionRequest.class), eq(TestConstants.TEST_IDEMPOTENCY_KEY));
+        verify(transactionService, times(1)).createTransactionAsync(any(CreateTransactionRequest.class), eq(TestConstants.TEST_IDEMPOTENCY_KEY));
     }
 
     @Test
@@ -212,26 +223,55 @@ class TransactionControllerTest {
     void testCreateTransaction_ServiceThrowsInsufficientFundsException_ReturnsError() throws Exception {
         CreateTransactionRequest request = TestDataBuilder.createTransactionRequest().build();
 
-        when(transactionService.createTransaction(any(CreateTransactionRequest.class), anyString()))
-                .thenThrow(new InsufficientFundsException("Insufficient funds"));
+        when(transactionService.createTransactionAsync(any(CreateTransactionRequest.class), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new InsufficientFundsException("Insufficient funds")));
 
-        mockMvc.perform(post("/transactions")
+        MvcResult asyncResult = mockMvc.perform(post("/transactions")
                         .contentType(MediaType.APPLICATION_JSON)
                         .header(TestConstants.IDEMPOTENCY_KEY_HEADER, TestConstants.TEST_IDEMPOTENCY_KEY)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void testCreateTransaction_PreferRespondAsync_ReturnsAcceptedWithStatusLocation() throws Exception {
+        CreateTransactionRequest request = TestDataBuilder.createTransactionRequest().build();
+
+        MvcResult asyncResult = mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(TestConstants.IDEMPOTENCY_KEY_HEADER, TestConstants.TEST_IDEMPOTENCY_KEY)
+                        .header("Prefer", "respond-async")
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/requests/" + TestConstants.TEST_IDEMPOTENCY_KEY))
+                .andExpect(header().string("Preference-Applied", "respond-async"));
+
+        verify(transactionService, times(1)).submitCreateTransaction(any(CreateTransactionRequest.class), eq(TestConstants.TEST_IDEMPOTENCY_KEY));
+        verify(transactionService, never()).createTransactionAsync(any(CreateTransactionRequest.class), anyString());
+    }
+
     @Test
     void testCreateTransaction_ServiceThrowsBusinessException_ReturnsError() throws Exception {
         CreateTransactionRequest request = TestDataBuilder.createTransactionRequest().build();
 
-        when(transactionService.createTransaction(any(CreateTransactionRequest.class), anyString()))
-                .thenThrow(new BusinessException("Transaction creation failed"));
-        mockMvc.perform(post("/transactions")
+        when(transactionService.createTransactionAsync(any(CreateTransactionRequest.class), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new BusinessException("Transaction creation failed")));
+        MvcResult asyncResult = mockMvc.perform(post("/transactions")
                         .contentType(MediaType.APPLICATION_JSON)
                         .header(TestConstants.IDEMPOTENCY_KEY_HEADER, TestConstants.TEST_IDEMPOTENCY_KEY)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isInternalServerError());
     }
 
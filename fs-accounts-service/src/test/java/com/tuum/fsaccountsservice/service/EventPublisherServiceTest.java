@@ -0,0 +1,216 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuum.common.codec.MessageCodecs;
+import com.tuum.common.dto.mq.CreateAccountEvent;
+import com.tuum.common.dto.mq.CreateTransactionEvent;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.ServiceOverloadedException;
+import com.tuum.common.types.Currency;
+import com.tuum.common.types.ErrorCode;
+import com.tuum.common.types.RabbitMQConfig;
+import com.tuum.common.types.RequestType;
+import com.tuum.common.types.TransactionDirection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventPublisherServiceTest {
+
+    private static final String IDEMPOTENCY_KEY = "key-1";
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+    @Mock
+    private RequestDeadlineScheduler requestDeadlineScheduler;
+    @Mock
+    private ReplyQueueResolver replyQueueResolver;
+    @Mock
+    private RequestStateStore requestStateStore;
+    @Mock
+    private PublishRateLimiter publishRateLimiter;
+    @Mock
+    private IdempotencyService idempotencyService;
+    @Mock
+    private IdempotencyReservationService idempotencyReservationService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionPartitioner transactionPartitioner;
+    private EventPublisherService eventPublisherService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        transactionPartitioner = new TransactionPartitioner(4);
+        lenient().when(publishRateLimiter.tryAcquire()).thenReturn(true);
+        lenient().when(replyQueueResolver.resolve(any())).thenReturn("reply-queue");
+        eventPublisherService = new EventPublisherService(rabbitTemplate,
+                new MessageCodecs(new ObjectMapper().findAndRegisterModules(), "json"),
+                new PendingRequestRegistry(meterRegistry, 10, 10, 1), requestDeadlineScheduler, replyQueueResolver,
+                meterRegistry, requestStateStore, transactionPartitioner, publishRateLimiter, idempotencyService,
+                idempotencyReservationService, 1);
+    }
+
+    @Test
+    void testConfirm_Ack_RaisesPublishRateAndKeepsRequestPending() {
+        CompletableFuture<Object> future = publish();
+
+        confirm(new CorrelationData.Confirm(true, null));
+
+        assertFalse(future.isDone());
+        verify(publishRateLimiter).onConfirmed();
+        verifyNoInteractions(idempotencyService, idempotencyReservationService);
+        assertEquals(1, latencyCount("ack"));
+    }
+
+    @Test
+    void testConfirm_NackWithoutReason_ShedsWith503AndReleasesKey() {
+        CompletableFuture<Object> future = publish();
+
+        confirm(new CorrelationData.Confirm(false, null));
+
+        assertInstanceOf(ServiceOverloadedException.class, failureOf(future));
+        verify(publishRateLimiter).onRejected();
+        verify(idempotencyService).clearProcessed(IDEMPOTENCY_KEY);
+        verify(idempotencyReservationService).releaseAsync(IDEMPOTENCY_KEY);
+        assertEquals(1, latencyCount("rejected"));
+    }
+
+    @Test
+    void testConfirm_NackWithReason_FailsAndReleasesKey() {
+        CompletableFuture<Object> future = publish();
+
+        confirm(new CorrelationData.Confirm(false, "internal error"));
+
+        BusinessException failure = failureOf(future);
+        assertEquals(ErrorCode.MESSAGE_QUEUE_ERROR.getCode(), failure.getErrorCode());
+        verify(publishRateLimiter, never()).onRejected();
+        verify(idempotencyService).clearProcessed(IDEMPOTENCY_KEY);
+        verify(idempotencyReservationService).releaseAsync(IDEMPOTENCY_KEY);
+        assertEquals(1, latencyCount("nack"));
+    }
+
+    @Test
+    void testConfirm_Returned_FailsAndReleasesKey() {
+        CompletableFuture<Object> future = publish();
+
+        CorrelationData correlationData = sentCorrelationData();
+        correlationData.setReturned(new ReturnedMessage(new Message(new byte[0], new MessageProperties()), 312, "NO_ROUTE",
+                RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue(), "accounts.events.created"));
+        correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        assertEquals("Command could not be routed to a queue", failureOf(future).getMessage());
+        verify(publishRateLimiter, never()).onConfirmed();
+        verify(idempotencyService).clearProcessed(IDEMPOTENCY_KEY);
+        verify(idempotencyReservationService).releaseAsync(IDEMPOTENCY_KEY);
+        assertEquals(1, latencyCount("returned"));
+    }
+
+    @Test
+    void testConfirm_Lost_FailsButKeepsKey() {
+        CompletableFuture<Object> future = publish();
+
+        sentCorrelationData().getFuture().completeExceptionally(new IOException("connection closed"));
+
+        assertEquals(ErrorCode.MESSAGE_QUEUE_ERROR.getCode(), failureOf(future).getErrorCode());
+        verifyNoInteractions(idempotencyService, idempotencyReservationService);
+        assertEquals(1, latencyCount("error"));
+    }
+
+    @Test
+    void testConfirm_NackOfFireAndForgetCommand_MarksRequestFailed() {
+        eventPublisherService.publishEventAndForget(accountCommand(), RabbitMQConfig.ACCOUNTS_CREATED_ROUTING_KEY.getValue(),
+                IDEMPOTENCY_KEY, "REQ_1", RequestType.CREATE);
+
+        confirm(new CorrelationData.Confirm(false, "internal error"));
+
+        verify(requestStateStore).markPending(IDEMPOTENCY_KEY, CommandChannel.ACCOUNTS);
+        verify(requestStateStore).markFailed(eq(IDEMPOTENCY_KEY), eq(ErrorCode.MESSAGE_QUEUE_ERROR.getCode()), anyString());
+        verify(idempotencyReservationService).releaseAsync(IDEMPOTENCY_KEY);
+    }
+
+    @Test
+    void testPublishEvent_Throttled_ShedsWithoutPublishing() {
+        when(publishRateLimiter.tryAcquire()).thenReturn(false);
+
+        assertThrows(ServiceOverloadedException.class, this::publish);
+
+        verifyNoInteractions(rabbitTemplate, requestDeadlineScheduler);
+    }
+
+    @Test
+    void testPublishEvent_TransactionCommand_RoutedToAccountPartition() {
+        LocalDateTime now = LocalDateTime.now();
+        CreateTransactionEvent event = new CreateTransactionEvent("REQ_1", IDEMPOTENCY_KEY, null, "ACC_1", null,
+                new BigDecimal("10.00"), Currency.EUR, TransactionDirection.IN, "test", null, "PENDING", null, now, now, null);
+
+        eventPublisherService.publishEvent(event, RabbitMQConfig.TRANSACTIONS_CREATED_ROUTING_KEY.getValue(),
+                IDEMPOTENCY_KEY, "REQ_1", 30, RequestType.CREATE);
+
+        verify(rabbitTemplate).send(eq(RabbitMQConfig.TUUM_BANKING_EXCHANGE.getValue()),
+                eq(transactionPartitioner.routingKeyFor("ACC_1")), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void testPublishEvent_NamesReplyQueueOfThisInstance() {
+        when(replyQueueResolver.resolve(CommandChannel.ACCOUNTS)).thenReturn("fs-accounts-service.accounts-replies.abc");
+
+        publish();
+
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(anyString(), anyString(), message.capture(), any(CorrelationData.class));
+        assertEquals("fs-accounts-service.accounts-replies.abc", message.getValue().getMessageProperties().getHeader("reply-to"));
+    }
+
+    private CompletableFuture<Object> publish() {
+        return eventPublisherService.publishEvent(accountCommand(), RabbitMQConfig.ACCOUNTS_CREATED_ROUTING_KEY.getValue(),
+                IDEMPOTENCY_KEY, "REQ_1", 30, RequestType.CREATE);
+    }
+
+    private static CreateAccountEvent accountCommand() {
+        CreateAccountEvent event = new CreateAccountEvent();
+        event.setRequestId("REQ_1");
+        event.setCustomerId("CUST_1");
+        event.setIdempotencyKey(IDEMPOTENCY_KEY);
+        return event;
+    }
+
+    private void confirm(CorrelationData.Confirm confirm) {
+        sentCorrelationData().getFuture().complete(confirm);
+    }
+
+    private CorrelationData sentCorrelationData() {
+        ArgumentCaptor<CorrelationData> correlationData = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(rabbitTemplate).send(anyString(), anyString(), any(Message.class), correlationData.capture());
+        return correlationData.getValue();
+    }
+
+    private static BusinessException failureOf(CompletableFuture<?> future) {
+        ExecutionException error = assertThrows(ExecutionException.class, future::get);
+        return assertInstanceOf(BusinessException.class, error.getCause());
+    }
+
+    private long latencyCount(String outcome) {
+        return meterRegistry.get("tuum.publisher.confirm.latency").tag("outcome", outcome).timer().count();
+    }
+}
@@ -0,0 +1,152 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.tuum.common.domain.entities.IdempotencyReservation;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.ServiceOverloadedException;
+import com.tuum.fsaccountsservice.dto.resonse.AccountResponse;
+import com.tuum.fsaccountsservice.mapper.IdempotencyReservationMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyReservationServiceTest {
+
+    private static final String KEY = "req-123456";
+
+    @Mock
+    private IdempotencyReservationMapper reservationMapper;
+
+    @Mock
+    private IdempotentResponseStore idempotentResponseStore;
+
+    private IdempotencyReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        reservationService = new IdempotencyReservationService(reservationMapper, idempotentResponseStore,
+                new SimpleMeterRegistry(), 60, 5, 20, 1, 86400, 60000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservationService.shutdown();
+    }
+
+    @Test
+    void testTryReserve_RowInserted_OwnsKey() {
+        when(reservationMapper.reserve(eq(KEY), anyString(), eq("accounts"), eq(60L))).thenReturn(1);
+
+        assertTrue(reservationService.tryReserve(KEY, CommandChannel.ACCOUNTS));
+    }
+
+    @Test
+    void testTryReserve_HeldByAnotherInstance_DoesNotOwnKey() {
+        when(reservationMapper.reserve(eq(KEY), anyString(), eq("accounts"), eq(60L))).thenReturn(0);
+
+        assertFalse(reservationService.tryReserve(KEY, CommandChannel.ACCOUNTS));
+    }
+
+    @Test
+    void testTryReserve_DatabaseUnavailable_FailsOpen() {
+        when(reservationMapper.reserve(eq(KEY), anyString(), eq("accounts"), eq(60L)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        assertTrue(reservationService.tryReserve(KEY, CommandChannel.ACCOUNTS));
+    }
+
+    @Test
+    void testAwaitResult_OwnerStoresResponse_CompletesWithIt() throws Exception {
+        AccountResponse response = new AccountResponse();
+        response.setAccountId("ACC1");
+        when(reservationMapper.findReservation(KEY, 60)).thenReturn(reservation("PENDING", false));
+        when(idempotentResponseStore.find(KEY, AccountResponse.class)).thenReturn(null, null, response);
+
+        AccountResponse result = reservationService.awaitResult(KEY, AccountResponse.class, 5).get(5, TimeUnit.SECONDS);
+
+        assertEquals("ACC1", result.getAccountId());
+    }
+
+    @Test
+    void testAwaitResult_OwnerFailed_FailsWithOwnersError() {
+        IdempotencyReservation failed = reservation("FAILED", true);
+        failed.setErrorCode("INSUFFICIENT_FUNDS");
+        failed.setErrorMessage("Available: 2.00, Required: 25.00");
+        when(reservationMapper.findReservation(KEY, 60)).thenReturn(failed);
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> reservationService.awaitResult(KEY, AccountResponse.class, 5).get(5, TimeUnit.SECONDS));
+
+        BusinessException cause = assertInstanceOf(BusinessException.class, e.getCause());
+        assertEquals("INSUFFICIENT_FUNDS", cause.getErrorCode());
+        assertEquals(400, cause.getHttpStatus());
+    }
+
+    @Test
+    void testAwaitResult_ReservationReleased_FailsWithRetryableError() {
+        when(reservationMapper.findReservation(KEY, 60)).thenReturn(null);
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> reservationService.awaitResult(KEY, AccountResponse.class, 5).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(ServiceOverloadedException.class, e.getCause());
+    }
+
+    @Test
+    void testRelease_DeletesOnlyOwnPendingReservation() {
+        reservationService.release(KEY);
+
+        verify(reservationMapper).deleteReservation(eq(KEY), anyString());
+        verify(reservationMapper, never()).reserve(anyString(), anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void testMarkCompleted_RecordsResource() {
+        reservationService.markCompleted(KEY, "ACC1");
+
+        verify(reservationMapper).markCompleted(KEY, "ACC1");
+    }
+
+    @Test
+    void testPurgeExpired_DeletesInBatchesUntilNoneLeft() {
+        when(reservationMapper.deleteExpired(86400, 2)).thenReturn(2, 2, 1);
+        when(idempotentResponseStore.purgeExpired(86400, 2)).thenReturn(0);
+
+        reservationService.purgeExpired();
+
+        verify(reservationMapper, times(3)).deleteExpired(86400, 2);
+        verify(idempotentResponseStore).purgeExpired(86400, 2);
+    }
+
+    @Test
+    void testPurgeExpired_DatabaseUnavailable_RetriesNextRound() {
+        when(reservationMapper.deleteExpired(86400, 2))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        assertDoesNotThrow(() -> reservationService.purgeExpired());
+        verifyNoInteractions(idempotentResponseStore);
+    }
+
+    private static IdempotencyReservation reservation(String status, boolean leaseExpired) {
+        IdempotencyReservation reservation = new IdempotencyReservation();
+        reservation.setIdempotencyKey(KEY);
+        reservation.setOwnerId("other-instance");
+        reservation.setStatus(status);
+        reservation.setLeaseExpired(leaseExpired);
+        return reservation;
+    }
+}
@@ -0,0 +1,80 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tuum.fsaccountsservice.dto.resonse.AccountResponse;
+import com.tuum.fsaccountsservice.mapper.IdempotentResponseMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotentResponseStoreTest {
+
+    @Mock
+    private IdempotentResponseMapper idempotentResponseMapper;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private IdempotentResponseStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new IdempotentResponseStore(idempotentResponseMapper, objectMapper, new SimpleMeterRegistry(), 2);
+    }
+
+    @Test
+    void testFind_AfterSave_ServedFromMemory() {
+        store.save("key-1", "account", accountResponse("ACC1"));
+
+        AccountResponse result = store.find("key-1", AccountResponse.class);
+
+        assertEquals("ACC1", result.getAccountId());
+        verify(idempotentResponseMapper).insertResponse(eq("key-1"), eq("account"), any(byte[].class));
+        verify(idempotentResponseMapper, never()).findResponseBody(anyString());
+    }
+
+    @Test
+    void testFind_EvictedFromMemory_LoadedFromDatabaseOnce() {
+        ArgumentCaptor<byte[]> body = ArgumentCaptor.forClass(byte[].class);
+        store.save("key-1", "account", accountResponse("ACC1"));
+        verify(idempotentResponseMapper).insertResponse(eq("key-1"), eq("account"), body.capture());
+        store.save("key-2", "account", accountResponse("ACC2"));
+        store.save("key-3", "account", accountResponse("ACC3"));
+        when(idempotentResponseMapper.findResponseBody("key-1")).thenReturn(body.getValue());
+
+        assertEquals("ACC1", store.find("key-1", AccountResponse.class).getAccountId());
+        assertEquals("ACC1", store.find("key-1", AccountResponse.class).getAccountId());
+
+        verify(idempotentResponseMapper, times(1)).findResponseBody("key-1");
+    }
+
+    @Test
+    void testFind_NothingStored_ReturnsNull() {
+        assertNull(store.find("missing", AccountResponse.class));
+    }
+
+    @Test
+    void testSave_DatabaseFails_DoesNotThrow() {
+        doThrow(new RuntimeException("connection refused"))
+                .when(idempotentResponseMapper).insertResponse(anyString(), anyString(), any(byte[].class));
+
+        assertDoesNotThrow(() -> store.save("key-1", "account", accountResponse("ACC1")));
+    }
+
+    private static AccountResponse accountResponse(String accountId) {
+        AccountResponse response = new AccountResponse();
+        response.setAccountId(accountId);
+        response.setCustomerId("CUST001");
+        return response;
+    }
+}
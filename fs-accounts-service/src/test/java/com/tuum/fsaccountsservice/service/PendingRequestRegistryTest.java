@@ -0,0 +1,130 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.tuum.common.dto.mq.ErrorNotification;
+import com.tuum.common.exception.BusinessException;
+import com.tuum.common.exception.InsufficientFundsException;
+import com.tuum.common.exception.ServiceOverloadedException;
+import com.tuum.common.types.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PendingRequestRegistryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PendingRequestRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new PendingRequestRegistry(meterRegistry, 2, 1, 5);
+    }
+
+    @Test
+    void testRegisterIfAbsent_OverLimit_ThrowsServiceOverloadedException() {
+        assertNull(registry.registerIfAbsent(CommandChannel.ACCOUNTS, "key-1", new CompletableFuture<>()));
+        assertNull(registry.registerIfAbsent(CommandChannel.ACCOUNTS, "key-2", new CompletableFuture<>()));
+
+        ServiceOverloadedException exception = assertThrows(ServiceOverloadedException.class,
+                () -> registry.registerIfAbsent(CommandChannel.ACCOUNTS, "key-3", new CompletableFuture<>()));
+
+        assertEquals("SERVICE_OVERLOADED", exception.getErrorCode());
+        assertEquals(503, exception.getHttpStatus());
+        assertEquals(5, exception.getRetryAfterSeconds());
+        assertEquals(2, registry.inFlight(CommandChannel.ACCOUNTS));
+    }
+
+    @Test
+    void testRegisterIfAbsent_ChannelsHaveSeparateLimits() {
+        assertNull(registry.registerIfAbsent(CommandChannel.TRANSACTIONS, "tx-1", new CompletableFuture<>()));
+        assertThrows(ServiceOverloadedException.class,
+                () -> registry.registerIfAbsent(CommandChannel.TRANSACTIONS, "tx-2", new CompletableFuture<>()));
+
+        assertNull(registry.registerIfAbsent(CommandChannel.ACCOUNTS, "acc-1", new CompletableFuture<>()));
+        assertEquals(1, registry.inFlight(CommandChannel.ACCOUNTS));
+        assertEquals(1, registry.inFlight(CommandChannel.TRANSACTIONS));
+    }
+
+    @Test
+    void testRegisterIfAbsent_CompletedFutureReleasesSlot() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        registry.registerIfAbsent(CommandChannel.TRANSACTIONS, "tx-1", future);
+
+        assertTrue(registry.complete("tx-1", "done"));
+
+        assertEquals(0, registry.inFlight(CommandChannel.TRANSACTIONS));
+        assertEquals(0, registry.size());
+        assertNull(registry.registerIfAbsent(CommandChannel.TRANSACTIONS, "tx-2", new CompletableFuture<>()));
+    }
+
+    @Test
+    void testRegisterIfAbsent_SameKeyInFlight_ReturnsExistingFutureWithoutTakingSlot() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        registry.registerIfAbsent(CommandChannel.TRANSACTIONS, "tx-1", first);
+
+        CompletableFuture<String> existing = registry.registerIfAbsent(CommandChannel.TRANSACTIONS, "tx-1", new CompletableFuture<>());
+
+        assertSame(first, existing);
+        assertEquals(1, registry.inFlight(CommandChannel.TRANSACTIONS));
+    }
+
+    @Test
+    void testInFlightGauge_ReportsOccupancyPerChannel() {
+        registry.registerIfAbsent(CommandChannel.ACCOUNTS, "acc-1", new CompletableFuture<>());
+
+        assertEquals(1.0, meterRegistry.get("tuum.requests.in-flight").tag("channel", "accounts").gauge().value());
+        assertEquals(0.0, meterRegistry.get("tuum.requests.in-flight").tag("channel", "transactions").gauge().value());
+        assertEquals(2.0, meterRegistry.get("tuum.requests.in-flight.limit").tag("channel", "accounts").gauge().value());
+    }
+
+    @Test
+    void testCompleteWithError_FailsFutureAtOnceAndReleasesSlot() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        registry.registerIfAbsent(CommandChannel.TRANSACTIONS, "tx-1", future);
+
+        assertTrue(registry.completeWithError("tx-1", error(ErrorCode.TRANSACTION_CREATION_FAILED, "posting failed")));
+
+        BusinessException failure = failureOf(future);
+        assertEquals("posting failed", failure.getMessage());
+        assertEquals("TRANSACTION_CREATION_FAILED", failure.getErrorCode());
+        assertEquals(500, failure.getHttpStatus());
+        assertEquals(0, registry.inFlight(CommandChannel.TRANSACTIONS));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void testCompleteWithError_MapsInsufficientFundsAndMissingCode() {
+        CompletableFuture<String> insufficient = new CompletableFuture<>();
+        CompletableFuture<String> uncoded = new CompletableFuture<>();
+        registry.registerIfAbsent(CommandChannel.ACCOUNTS, "acc-1", insufficient);
+        registry.registerIfAbsent(CommandChannel.ACCOUNTS, "acc-2", uncoded);
+
+        registry.completeWithError("acc-1", error(ErrorCode.INSUFFICIENT_FUNDS, "Available: 5.00, Required: 30.00"));
+        registry.completeWithError("acc-2", error(null, "unexpected"));
+
+        assertInstanceOf(InsufficientFundsException.class, failureOf(insufficient));
+        assertEquals("INTERNAL_SERVER_ERROR", failureOf(uncoded).getErrorCode());
+    }
+
+    @Test
+    void testCompleteWithError_UnknownKey_ReturnsFalse() {
+        assertFalse(registry.completeWithError("tx-unknown", error(ErrorCode.TRANSACTION_CREATION_FAILED, "late reply")));
+        assertFalse(registry.complete("tx-unknown", "late reply"));
+    }
+
+    private static ErrorNotification error(ErrorCode errorCode, String message) {
+        return new ErrorNotification(errorCode, message, "Error occurred during processing", LocalDateTime.now(), "REQ_1");
+    }
+
+    private static BusinessException failureOf(CompletableFuture<?> future) {
+        assertTrue(future.isCompletedExceptionally());
+        ExecutionException error = assertThrows(ExecutionException.class, future::get);
+        return assertInstanceOf(BusinessException.class, error.getCause());
+    }
+}
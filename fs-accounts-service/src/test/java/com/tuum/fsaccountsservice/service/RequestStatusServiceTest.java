@@ -0,0 +1,134 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.tuum.common.domain.entities.IdempotencyReservation;
+import com.tuum.common.exception.ResourceNotFoundException;
+import com.tuum.fsaccountsservice.dto.resonse.RequestStatusResponse;
+import com.tuum.fsaccountsservice.mapper.AccountMapper;
+import com.tuum.fsaccountsservice.mapper.TransactionMapper;
+import com.tuum.fsaccountsservice.utils.TestConstants;
+import com.tuum.fsaccountsservice.utils.TestDataBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RequestStatusServiceTest {
+
+    @Mock
+    private AccountMapper accountMapper;
+
+    @Mock
+    private TransactionMapper transactionMapper;
+
+    @Mock
+    private IdempotencyReservationService idempotencyReservationService;
+
+    private RequestStateStore requestStateStore;
+    private RequestStatusService requestStatusService;
+
+    @BeforeEach
+    void setUp() {
+        requestStateStore = new RequestStateStore(10);
+        requestStatusService = new RequestStatusService(requestStateStore, accountMapper, transactionMapper, idempotencyReservationService);
+    }
+
+    @Test
+    void testGetRequestStatus_Pending() {
+        requestStateStore.markPending(TestConstants.TEST_IDEMPOTENCY_KEY, CommandChannel.TRANSACTIONS);
+        when(transactionMapper.findTransactionByIdempotencyKey(TestConstants.TEST_IDEMPOTENCY_KEY)).thenReturn(null);
+
+        RequestStatusResponse response = requestStatusService.getRequestStatus(TestConstants.TEST_IDEMPOTENCY_KEY);
+
+        assertEquals("PENDING", response.getStatus());
+        assertEquals("transactions", response.getResourceType());
+        verifyNoInteractions(accountMapper);
+    }
+
+    @Test
+    void testGetRequestStatus_CompletedInDatabase_ReturnsResourceLocation() {
+        when(accountMapper.findAccountByIdempotencyKey(TestConstants.TEST_IDEMPOTENCY_KEY))
+                .thenReturn(TestDataBuilder.account().accountId(TestConstants.DEFAULT_ACCOUNT_ID).build());
+
+        RequestStatusResponse response = requestStatusService.getRequestStatus(TestConstants.TEST_IDEMPOTENCY_KEY);
+
+        assertEquals("COMPLETED", response.getStatus());
+        assertEquals(TestConstants.DEFAULT_ACCOUNT_ID, response.getResourceId());
+        assertEquals("/accounts/" + TestConstants.DEFAULT_ACCOUNT_ID, response.getResourceLocation());
+    }
+
+    @Test
+    void testGetRequestStatus_Failed_ReturnsError() {
+        requestStateStore.markPending(TestConstants.TEST_IDEMPOTENCY_KEY, CommandChannel.TRANSACTIONS);
+        requestStateStore.markFailed(TestConstants.TEST_IDEMPOTENCY_KEY, "INSUFFICIENT_FUNDS", "Insufficient funds");
+
+        RequestStatusResponse response = requestStatusService.getRequestStatus(TestConstants.TEST_IDEMPOTENCY_KEY);
+
+        assertEquals("FAILED", response.getStatus());
+        assertEquals("INSUFFICIENT_FUNDS", response.getErrorCode());
+        verifyNoInteractions(transactionMapper);
+    }
+
+    @Test
+    void testGetRequestStatus_UnknownKey_ThrowsResourceNotFoundException() {
+        assertThrows(ResourceNotFoundException.class,
+                () -> requestStatusService.getRequestStatus(TestConstants.TEST_IDEMPOTENCY_KEY));
+    }
+
+    @Test
+    void testGetRequestStatus_PendingOnAnotherInstance_ReturnsPendingFromReservation() {
+        when(idempotencyReservationService.find(TestConstants.TEST_IDEMPOTENCY_KEY))
+                .thenReturn(reservation("PENDING", null, null, null));
+
+        RequestStatusResponse response = requestStatusService.getRequestStatus(TestConstants.TEST_IDEMPOTENCY_KEY);
+
+        assertEquals("PENDING", response.getStatus());
+        assertEquals("transactions", response.getResourceType());
+        assertNotNull(response.getUpdatedAt());
+        verifyNoInteractions(accountMapper);
+    }
+
+    @Test
+    void testGetRequestStatus_FailedOnAnotherInstance_ReturnsErrorFromReservation() {
+        when(idempotencyReservationService.find(TestConstants.TEST_IDEMPOTENCY_KEY))
+                .thenReturn(reservation("FAILED", null, "INSUFFICIENT_FUNDS", "Insufficient funds"));
+
+        RequestStatusResponse response = requestStatusService.getRequestStatus(TestConstants.TEST_IDEMPOTENCY_KEY);
+
+        assertEquals("FAILED", response.getStatus());
+        assertEquals("transactions", response.getResourceType());
+        assertEquals("INSUFFICIENT_FUNDS", response.getErrorCode());
+        assertEquals("Insufficient funds", response.getErrorMessage());
+    }
+
+    @Test
+    void testGetRequestStatus_CompletedReservation_SkipsEntityTables() {
+        when(idempotencyReservationService.find(TestConstants.TEST_IDEMPOTENCY_KEY))
+                .thenReturn(reservation("COMPLETED", "TXN1", null, null));
+
+        RequestStatusResponse response = requestStatusService.getRequestStatus(TestConstants.TEST_IDEMPOTENCY_KEY);
+
+        assertEquals("COMPLETED", response.getStatus());
+        assertEquals("/transactions/TXN1", response.getResourceLocation());
+        verifyNoInteractions(accountMapper, transactionMapper);
+    }
+
+    private static IdempotencyReservation reservation(String status, String resourceId, String errorCode, String errorMessage) {
+        IdempotencyReservation reservation = new IdempotencyReservation();
+        reservation.setIdempotencyKey(TestConstants.TEST_IDEMPOTENCY_KEY);
+        reservation.setOwnerId("other-instance");
+        reservation.setStatus(status);
+        reservation.setResourceType("transactions");
+        reservation.setResourceId(resourceId);
+        reservation.setErrorCode(errorCode);
+        reservation.setErrorMessage(errorMessage);
+        reservation.setUpdatedAt(LocalDateTime.now());
+        return reservation;
+    }
+}
@@ -15,12 +15,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import com.tuum.common.exception.BusinessException;
 import com.tuum.fsaccountsservice.dto.requests.CreateTransactionRequest;
+import com.tuum.fsaccountsservice.dto.resonse.TransactionResponse;
 import com.tuum.fsaccountsservice.mapper.AccountMapper;
 import com.tuum.common.domain.entities.Account;
 import com.tuum.common.dto.mq.CreateTransactionEvent;
@@ -28,6 +30,7 @@ import com.tuum.common.types.RequestType;
 import com.tuum.fsaccountsservice.service.IdempotencyService;
 import com.tuum.fsaccountsservice.service.EventPublisherService;
 import com.tuum.common.exception.InsufficientFundsException;
+import com.tuum.common.exception.ResourceNotFoundException;
 
 @ExtendWith(MockitoExtension.class)
 class TransactionServiceTest {
@@ -44,6 +47,12 @@ class TransactionServiceTest {
     @Mock
     private EventPublisherService eventPublisherService;
 
+    @Mock
+    private IdempotentResponseStore idempotentResponseStore;
+
+    @Mock
+    private IdempotencyReservationService idempotencyReservationService;
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -87,6 +96,59 @@ class TransactionServiceTest {
         verify(transactionMapper, times(1)).findTransactionsByAccountId(accountId);
     }
 
+    @Test
+    void testCreateTransaction_AlreadyProcessed_ReplaysStoredResponse() throws Exception {
+        CreateTransactionRequest request = new CreateTransactionRequest();
+        request.setAccountId("test-account");
+        String idempotencyKey = "test-key-123";
+        TransactionResponse storedResponse = new TransactionResponse();
+        storedResponse.setTransactionId("TXN123");
+
+        when(idempotencyService.isProcessed(idempotencyKey)).thenReturn(true);
+        when(idempotentResponseStore.find(idempotencyKey, TransactionResponse.class)).thenReturn(storedResponse);
+
+        TransactionResponse result = transactionService.createTransaction(request, idempotencyKey);
+
+        assertSame(storedResponse, result);
+        verifyNoInteractions(transactionMapper, eventPublisherService);
+    }
+
+    @Test
+    void testCreateTransactionAsync_ReservedByAnotherInstance_AwaitsItsResult() {
+        CreateTransactionRequest request = new CreateTransactionRequest();
+        request.setAccountId("test-account");
+        String idempotencyKey = "test-key-123";
+        CompletableFuture<TransactionResponse> ownerResult = new CompletableFuture<>();
+
+        when(idempotencyService.isProcessed(idempotencyKey)).thenReturn(false);
+        when(accountMapper.findAccountById("test-account")).thenReturn(new Account());
+        when(idempotencyReservationService.tryReserve(idempotencyKey, CommandChannel.TRANSACTIONS)).thenReturn(false);
+        when(idempotencyReservationService.awaitResult(idempotencyKey, TransactionResponse.class, 30)).thenReturn(ownerResult);
+
+        CompletableFuture<TransactionResponse> result = transactionService.createTransactionAsync(request, idempotencyKey);
+
+        assertSame(ownerResult, result);
+        verify(idempotencyService, never()).markAsProcessed(idempotencyKey);
+        verifyNoInteractions(eventPublisherService);
+    }
+
+    @Test
+    void testCreateTransaction_UnknownAccount_DoesNotReserveKey() {
+        CreateTransactionRequest request = new CreateTransactionRequest();
+        request.setAccountId("missing-account");
+        String idempotencyKey = "test-key-123";
+
+        when(idempotencyService.isProcessed(idempotencyKey)).thenReturn(false);
+        when(accountMapper.findAccountById("missing-account")).thenReturn(null);
+
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.createTransaction(request, idempotencyKey));
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.createTransactionAsync(request, idempotencyKey));
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.submitCreateTransaction(request, idempotencyKey));
+
+        verifyNoInteractions(idempotencyReservationService, eventPublisherService);
+        verify(idempotencyService, never()).markAsProcessed(idempotencyKey);
+    }
+
     @Test
     void testCreateTransaction_ThrowsCleanBusinessException() throws Exception {
         // Given
@@ -100,6 +162,7 @@ class TransactionServiceTest {
         String idempotencyKey = "test-key-123";
         
         when(idempotencyService.isProcessed(idempotencyKey)).thenReturn(false);
+        when(idempotencyReservationService.tryReserve(idempotencyKey, CommandChannel.TRANSACTIONS)).thenReturn(true);
         when(accountMapper.findAccountById("test-account")).thenReturn(new Account());
         
         BusinessException expectedException = new BusinessException("Available: 2.00, Required: 25.00");
@@ -137,6 +200,7 @@ class TransactionServiceTest {
         String idempotencyKey = "test-key-123";
         
         when(idempotencyService.isProcessed(idempotencyKey)).thenReturn(false);
+        when(idempotencyReservationService.tryReserve(idempotencyKey, CommandChannel.TRANSACTIONS)).thenReturn(true);
         when(accountMapper.findAccountById("test-account")).thenReturn(new Account());
         
         InsufficientFundsException expectedException = new InsufficientFundsException("Available: 0.00, Required: 25.00");
@@ -0,0 +1,202 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpServer;
+import com.tuum.common.domain.entities.Account;
+import com.tuum.fsaccountsservice.mapper.AccountMapper;
+import com.tuum.fsaccountsservice.mapper.WebhookSubscriptionMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WebhookDispatcherTest {
+
+    @TempDir
+    Path spoolDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger deliveries = new AtomicInteger();
+    private final WebhookSubscriptionMapper subscriptionMapper = mock(WebhookSubscriptionMapper.class);
+    private final AccountMapper accountMapper = mock(AccountMapper.class);
+    private volatile IntSupplier responseStatus = () -> 200;
+
+    private HttpServer server;
+    private URI endpoint;
+    private SimpleMeterRegistry meterRegistry;
+    private WebhookDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/callbacks", exchange -> {
+            JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+            int status = responseStatus.getAsInt();
+            if (status == 200) {
+                deliveries.addAndGet(body.size());
+            }
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        endpoint = URI.create("http://localhost:" + server.getAddress().getPort() + "/callbacks");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void testEnqueue_ManyResults_PostedInBatches() throws Exception {
+        dispatcher = newDispatcher(3);
+
+        for (int i = 0; i < 250; i++) {
+            dispatcher.enqueue(endpoint, delivery("req-" + i));
+        }
+
+        awaitTrue(() -> deliveredCount("delivered") == 250);
+        assertEquals(250, deliveries.get());
+        assertTrue(requests.get() < 250);
+        assertEquals(0, dispatcher.getSpool().pendingCount());
+    }
+
+    @Test
+    void testSubmit_RequestCallbackRegistered_DeliversToIt() throws Exception {
+        WebhookRegistry registry = newRegistry();
+        dispatcher = newDispatcher(registry, 3);
+        registry.registerForRequest("req-1", endpoint.toString());
+
+        dispatcher.submit(delivery("req-1"), null, null);
+        dispatcher.submit(delivery("req-2"), null, null);
+
+        awaitTrue(() -> deliveries.get() == 1);
+        Thread.sleep(100);
+        assertEquals(1, deliveries.get());
+    }
+
+    @Test
+    void testEnqueue_EndpointFailsOnce_RetriedAndSpoolCleared() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        responseStatus = () -> calls.incrementAndGet() == 1 ? 500 : 200;
+        dispatcher = newDispatcher(3);
+
+        dispatcher.enqueue(endpoint, delivery("req-1"));
+
+        awaitTrue(() -> deliveries.get() == 1);
+        assertEquals(1, deliveredCount("retried"));
+        awaitTrue(() -> dispatcher.getSpool().pendingCount() == 0);
+    }
+
+    @Test
+    void testEnqueue_EndpointKeepsFailing_MovedToDeadLetter() throws Exception {
+        responseStatus = () -> 503;
+        dispatcher = newDispatcher(2);
+
+        dispatcher.enqueue(endpoint, delivery("req-1"));
+
+        awaitTrue(() -> deliveredCount("dead") == 1);
+        assertEquals(2, requests.get());
+        assertEquals(1, dispatcher.getSpool().deadCount());
+        assertEquals(0, dispatcher.getSpool().pendingCount());
+    }
+
+    @Test
+    void testRecoverSpooled_BatchLeftBeforeRestart_Delivered() throws Exception {
+        WebhookSpool spool = new WebhookSpool(spoolDir, objectMapper);
+        spool.save(new WebhookBatch("batch-1", endpoint.toString(), 2, System.currentTimeMillis(),
+                List.of(delivery("req-1"), delivery("req-2"))));
+        dispatcher = newDispatcher(3);
+
+        dispatcher.recoverSpooled();
+
+        awaitTrue(() -> deliveries.get() == 2);
+        awaitTrue(() -> spool.pendingCount() == 0);
+    }
+
+    @Test
+    void testSubmit_CustomerCallbackStored_ResolvedFromAccountAndDelivered() throws Exception {
+        Account account = new Account();
+        account.setAccountId("ACC1");
+        account.setCustomerId("CUST1");
+        when(accountMapper.findAccountById("ACC1")).thenReturn(account);
+        when(subscriptionMapper.findCallbackUrl("CUST1")).thenReturn(endpoint.toString());
+        dispatcher = newDispatcher(3);
+
+        dispatcher.submit(delivery("req-1"), null, "ACC1");
+        dispatcher.submit(delivery("req-2"), null, "ACC1");
+
+        awaitTrue(() -> deliveries.get() == 2);
+        verify(accountMapper, times(1)).findAccountById("ACC1");
+        verify(subscriptionMapper, times(1)).findCallbackUrl("CUST1");
+    }
+
+    @Test
+    void testEnqueue_BacklogOverCap_SpooledAndDeliveredLater() throws Exception {
+        responseStatus = () -> 200;
+        dispatcher = new WebhookDispatcher(newRegistry(), accountMapper, objectMapper, meterRegistry,
+                spoolDir.toString(), 2, 50, 10, 1000, 3, 20, 100, 2000);
+
+        for (int i = 0; i < 100; i++) {
+            dispatcher.enqueue(endpoint, delivery("req-" + i));
+        }
+
+        awaitTrue(() -> deliveries.get() == 100);
+        assertTrue(deliveredCount("overflowed") > 0);
+        awaitTrue(() -> dispatcher.getSpool().pendingCount() == 0);
+    }
+
+    private WebhookRegistry newRegistry() {
+        return new WebhookRegistry(subscriptionMapper, 100, 60_000, true);
+    }
+
+    private WebhookDispatcher newDispatcher(int maxAttempts) {
+        return newDispatcher(newRegistry(), maxAttempts);
+    }
+
+    private WebhookDispatcher newDispatcher(WebhookRegistry registry, int maxAttempts) {
+        return new WebhookDispatcher(registry, accountMapper, objectMapper, meterRegistry,
+                spoolDir.toString(), 2, 50, 1000, 5, maxAttempts, 20, 100, 2000);
+    }
+
+    private WebhookDelivery delivery(String idempotencyKey) {
+        return new WebhookDelivery(idempotencyKey, "account", "SUCCESS", Map.of("accountId", "ACC1"), Instant.now());
+    }
+
+    private double deliveredCount(String outcome) {
+        return meterRegistry.get("tuum.webhooks.deliveries").tag("outcome", outcome).counter().count();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within 5 seconds");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.tuum.fsaccountsservice.service;
+
+import com.tuum.common.exception.BusinessException;
+import com.tuum.fsaccountsservice.mapper.WebhookSubscriptionMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookRegistryTest {
+
+    @Mock
+    private WebhookSubscriptionMapper subscriptionMapper;
+
+    private WebhookRegistry webhookRegistry;
+
+    @BeforeEach
+    void setUp() {
+        webhookRegistry = new WebhookRegistry(subscriptionMapper, 100, 60_000, false);
+    }
+
+    @Test
+    void testRegisterForCustomer_StoresSubscription() {
+        webhookRegistry.registerForCustomer("CUST1", "https://93.184.216.34/callbacks");
+
+        verify(subscriptionMapper).upsertSubscription("CUST1", "https://93.184.216.34/callbacks");
+        assertEquals(URI.create("https://93.184.216.34/callbacks"), webhookRegistry.findForCustomer("CUST1"));
+        verify(subscriptionMapper, never()).findCallbackUrl(anyString());
+    }
+
+    @Test
+    void testFindForCustomer_RegisteredElsewhere_ReadFromDatabaseAndCached() {
+        when(subscriptionMapper.findCallbackUrl("CUST1")).thenReturn("https://93.184.216.34/callbacks");
+
+        assertEquals(URI.create("https://93.184.216.34/callbacks"), webhookRegistry.findForCustomer("CUST1"));
+        assertEquals(URI.create("https://93.184.216.34/callbacks"), webhookRegistry.findForCustomer("CUST1"));
+        verify(subscriptionMapper, times(1)).findCallbackUrl("CUST1");
+    }
+
+    @Test
+    void testRemoveForCustomer_DeletesSubscription() {
+        when(subscriptionMapper.deleteSubscription("CUST1")).thenReturn(1);
+
+        assertTrue(webhookRegistry.removeForCustomer("CUST1"));
+        assertNull(webhookRegistry.findForCustomer("CUST1"));
+    }
+
+    @Test
+    void testValidate_InternalAddresses_Rejected() {
+        for (String url : new String[]{"http://localhost/cb", "http://127.0.0.1/cb", "http://169.254.169.254/latest",
+                "http://10.0.0.5/cb", "http://192.168.1.10/cb", "http://172.16.0.1/cb", "http://[::1]/cb", "http://[fd00::1]/cb"}) {
+            assertThrows(BusinessException.class, () -> webhookRegistry.registerForRequest("req-1", url), url);
+        }
+        verifyNoInteractions(subscriptionMapper);
+    }
+
+    @Test
+    void testValidate_NotAbsoluteHttpUrl_Rejected() {
+        assertThrows(BusinessException.class, () -> webhookRegistry.registerForRequest("req-1", "ftp://93.184.216.34/cb"));
+        assertThrows(BusinessException.class, () -> webhookRegistry.registerForRequest("req-1", "/callbacks"));
+        assertThrows(BusinessException.class, () -> webhookRegistry.registerForRequest("req-1", " "));
+    }
+
+    @Test
+    void testValidate_PrivateAddressesAllowed_Accepted() {
+        WebhookRegistry registry = new WebhookRegistry(subscriptionMapper, 100, 60_000, true);
+
+        registry.registerForRequest("req-1", "http://localhost:8080/cb");
+
+        assertEquals(URI.create("http://localhost:8080/cb"), registry.takeForRequest("req-1"));
+    }
+}
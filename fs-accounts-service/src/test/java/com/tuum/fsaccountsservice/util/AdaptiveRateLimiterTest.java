@@ -0,0 +1,73 @@
+package com.tuum.fsaccountsservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testTryAcquire_AllowsBurstThenRefillsAtRate() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 100, 10, 0.5, SECOND, 0);
+
+        int acquired = 0;
+        while (limiter.tryAcquire(0)) {
+            acquired++;
+        }
+        assertEquals(10, acquired);
+
+        assertFalse(limiter.tryAcquire(SECOND / 200));
+        assertTrue(limiter.tryAcquire(SECOND / 100));
+    }
+
+    @Test
+    void testOnPressure_HalvesRateOncePerInterval() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 100, 10, 0.5, SECOND, 0);
+
+        assertTrue(limiter.onPressure(0));
+        assertFalse(limiter.onPressure(SECOND / 2));
+        assertEquals(50, limiter.rate(), 0.001);
+
+        assertTrue(limiter.onPressure(SECOND));
+        assertEquals(25, limiter.rate(), 0.001);
+    }
+
+    @Test
+    void testOnPressure_StaysAboveMinRate() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 100, 10, 0.5, SECOND, 0);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onPressure(i * SECOND);
+        }
+
+        assertEquals(10, limiter.rate(), 0.001);
+    }
+
+    @Test
+    void testOnSuccess_RecoversAdditivelyUpToMaxRate() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 100, 10, 0.5, SECOND, 0);
+        limiter.onPressure(0);
+
+        // One second of successes at 50/s adds about 10/s
+        for (int i = 0; i < 50; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(60, limiter.rate(), 1.5);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(100, limiter.rate(), 0.001);
+    }
+
+    @Test
+    void testConstructor_RejectsInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(0, 100, 10, 0.5, SECOND, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(10, 5, 10, 0.5, SECOND, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(10, 100, 10, 1.0, SECOND, 0));
+    }
+}
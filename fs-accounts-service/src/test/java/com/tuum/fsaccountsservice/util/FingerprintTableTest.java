@@ -0,0 +1,90 @@
+package com.tuum.fsaccountsservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerprintTableTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    @Test
+    void testAdd_ThenContains_CountsHitsAndMisses() {
+        FingerprintTable table = new FingerprintTable(1024, 60_000, clock::get);
+
+        table.add("req-1");
+
+        assertTrue(table.contains("req-1"));
+        assertFalse(table.contains("req-2"));
+        assertEquals(1, table.hitCount());
+        assertEquals(1, table.missCount());
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void testRemove_KeyNoLongerContained() {
+        FingerprintTable table = new FingerprintTable(1024, 60_000, clock::get);
+        for (int i = 0; i < 500; i++) {
+            table.add("req-" + i);
+        }
+
+        for (int i = 0; i < 500; i += 2) {
+            assertTrue(table.remove("req-" + i));
+        }
+
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i % 2 == 1, table.contains("req-" + i), "req-" + i);
+        }
+        assertFalse(table.remove("req-0"));
+        assertEquals(250, table.size());
+    }
+
+    @Test
+    void testContains_AfterTtl_ExpiredAndReclaimed() {
+        FingerprintTable table = new FingerprintTable(1024, 60_000, clock::get);
+        table.add("req-1");
+
+        clock.addAndGet(59_000);
+        assertTrue(table.contains("req-1"));
+        clock.addAndGet(1_000);
+
+        assertFalse(table.contains("req-1"));
+        assertEquals(1, table.expiredEvictionCount());
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void testAdd_BeyondCapacity_MemoryStaysBounded() {
+        FingerprintTable table = new FingerprintTable(1024, 60_000, clock::get);
+
+        for (int i = 0; i < 100_000; i++) {
+            table.add("req-" + i);
+        }
+
+        assertTrue(table.size() <= table.capacity());
+        assertEquals(100_000 - table.size(), table.capacityEvictionCount());
+        assertTrue(table.contains("req-99999"));
+    }
+
+    @Test
+    void testAdd_FullTableWithExpiredEntries_ReclaimsExpiredFirst() {
+        FingerprintTable table = new FingerprintTable(1024, 60_000, clock::get);
+        for (int i = 0; i < table.capacity(); i++) {
+            table.add("old-" + i);
+        }
+        long capacityEvictions = table.capacityEvictionCount();
+        clock.addAndGet(120_000);
+
+        for (int i = 0; i < 100; i++) {
+            table.add("new-" + i);
+        }
+
+        assertEquals(capacityEvictions, table.capacityEvictionCount());
+        assertTrue(table.expiredEvictionCount() >= 100);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(table.contains("new-" + i));
+        }
+    }
+}
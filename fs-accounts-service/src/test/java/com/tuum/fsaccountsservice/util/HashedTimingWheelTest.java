@@ -0,0 +1,90 @@
+package com.tuum.fsaccountsservice.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    private HashedTimingWheel timingWheel;
+
+    @BeforeEach
+    void setUp() {
+        timingWheel = new HashedTimingWheel("test-wheel", 10, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timingWheel.stop();
+    }
+
+    @Test
+    void testSchedule_FiresAfterDelay() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        HashedTimingWheel.Deadline deadline = timingWheel.schedule(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertTrue(deadline.isExpired());
+        assertEquals(0, timingWheel.pendingDeadlines());
+    }
+
+    @Test
+    void testSchedule_DelayLongerThanOneRevolution_FiresAfterDelay() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        timingWheel.schedule(fired::countDown, 250, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+    }
+
+    @Test
+    void testCancel_DeadlineDoesNotFire() throws InterruptedException {
+        AtomicInteger fired = new AtomicInteger();
+
+        HashedTimingWheel.Deadline deadline = timingWheel.schedule(fired::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(deadline.cancel());
+        assertFalse(deadline.cancel());
+        assertEquals(0, timingWheel.pendingDeadlines());
+        Thread.sleep(100);
+        assertEquals(0, fired.get());
+        assertTrue(deadline.isCancelled());
+    }
+
+    @Test
+    void testSchedule_ManyDeadlines_AllCancelledOrFired() throws InterruptedException {
+        int count = 10_000;
+        CountDownLatch fired = new CountDownLatch(count / 2);
+        List<HashedTimingWheel.Deadline> deadlines = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            deadlines.add(timingWheel.schedule(fired::countDown, 500 + i % 100, TimeUnit.MILLISECONDS));
+        }
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(deadlines.get(i).cancel());
+        }
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(0, timingWheel.pendingDeadlines());
+    }
+
+    @Test
+    void testSchedule_AfterStop_ThrowsIllegalStateException() {
+        timingWheel.stop();
+
+        assertThrows(IllegalStateException.class, () -> timingWheel.schedule(() -> { }, 10, TimeUnit.MILLISECONDS));
+    }
+}
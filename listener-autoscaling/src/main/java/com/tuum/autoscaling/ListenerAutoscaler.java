@@ -0,0 +1,234 @@
+package com.tuum.autoscaling;
+
+import com.tuum.common.util.ListenerScalingPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the depth of each listener's queues and how busy its consumers are, and adjusts the
+ * listener's consumer count and prefetch within the configured bounds (see {@link ListenerScalingPolicy}).
+ * Both services pick it up through {@link ListenerAutoscalingAutoConfiguration} and configure it under
+ * {@code tuum.listeners.autoscaling}.
+ * <ul>
+ *   <li>Listeners on {@code ordered-queue-prefixes} queues, single-active-consumer queues that keep
+ *   per-account order, keep their consumer count and prefetch.</li>
+ *   <li>Listeners on {@code fixed-prefetch-queue-prefixes} queues, such as auto-delete reply queues,
+ *   may gain or lose consumers but keep their prefetch.</li>
+ *   <li>Batch listeners keep the prefetch of their batch size.</li>
+ * </ul>
+ * A new prefetch only reaches consumers when they start, so applying it restarts the listener. A
+ * restart would delete an auto-delete queue with its unread replies, and hand a single-active-consumer
+ * queue to another instance, so those listeners are never restarted.
+ * <p>
+ * Utilization and throughput come from the {@code spring.rabbitmq.listener} timers the containers
+ * record. The latest sample and decision of every listener is served by the
+ * {@code /actuator/listenerscaling} endpoint.
+ */
+@Endpoint(id = "listenerscaling")
+@Slf4j
+public class ListenerAutoscaler {
+
+    private final RabbitListenerEndpointRegistry listenerRegistry;
+    private final AmqpAdmin amqpAdmin;
+    private final MeterRegistry meterRegistry;
+    private final ListenerScalingPolicy policy;
+    private final List<String> orderedQueuePrefixes;
+    private final List<String> fixedPrefetchQueuePrefixes;
+    private final int defaultPrefetch;
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, ListenerState> states = new ConcurrentHashMap<>();
+
+    public ListenerAutoscaler(RabbitListenerEndpointRegistry listenerRegistry,
+                              AmqpAdmin amqpAdmin,
+                              MeterRegistry meterRegistry,
+                              @Value("${tuum.listeners.autoscaling.interval-ms:5000}") long intervalMillis,
+                              @Value("${tuum.listeners.autoscaling.min-consumers:1}") int minConsumers,
+                              @Value("${tuum.listeners.autoscaling.max-consumers:8}") int maxConsumers,
+                              @Value("${tuum.listeners.autoscaling.min-prefetch:10}") int minPrefetch,
+                              @Value("${tuum.listeners.autoscaling.max-prefetch:500}") int maxPrefetch,
+                              @Value("${tuum.listeners.autoscaling.backlog-per-consumer:100}") long backlogPerConsumer,
+                              @Value("${tuum.listeners.autoscaling.high-utilization:0.75}") double highUtilization,
+                              @Value("${tuum.listeners.autoscaling.low-utilization:0.25}") double lowUtilization,
+                              @Value("${tuum.listeners.autoscaling.prefetch-seconds:1.0}") double prefetchSeconds,
+                              @Value("${tuum.listeners.autoscaling.quiet-samples:6}") int quietSamples,
+                              @Value("${tuum.listeners.autoscaling.ordered-queue-prefixes:}") List<String> orderedQueuePrefixes,
+                              @Value("${tuum.listeners.autoscaling.fixed-prefetch-queue-prefixes:}") List<String> fixedPrefetchQueuePrefixes,
+                              @Value("${spring.rabbitmq.listener.simple.prefetch:250}") int defaultPrefetch) {
+        this.listenerRegistry = listenerRegistry;
+        this.amqpAdmin = amqpAdmin;
+        this.meterRegistry = meterRegistry;
+        this.intervalMillis = intervalMillis;
+        this.policy = new ListenerScalingPolicy(minConsumers, maxConsumers, minPrefetch, maxPrefetch,
+                backlogPerConsumer, highUtilization, lowUtilization, prefetchSeconds, quietSamples);
+        this.orderedQueuePrefixes = orderedQueuePrefixes;
+        this.fixedPrefetchQueuePrefixes = fixedPrefetchQueuePrefixes;
+        this.defaultPrefetch = defaultPrefetch;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "listener-autoscaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::sampleAll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @ReadOperation
+    public Map<String, ListenerStatus> listeners() {
+        Map<String, ListenerStatus> listeners = new TreeMap<>();
+        states.forEach((id, state) -> {
+            if (state.status != null) {
+                listeners.put(id, state.status);
+            }
+        });
+        return listeners;
+    }
+
+    private void sampleAll() {
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            if (container instanceof SimpleMessageListenerContainer simple && simple.isRunning() && simple.getListenerId() != null) {
+                try {
+                    sample(simple);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to sample listener {}", simple.getListenerId(), e);
+                }
+            }
+        }
+    }
+
+    private void sample(SimpleMessageListenerContainer container) {
+        String listenerId = container.getListenerId();
+        String[] queues = container.getQueueNames();
+        ListenerState state = states.computeIfAbsent(listenerId, id -> newState(id, container));
+
+        long depth = 0;
+        for (String queue : queues) {
+            QueueInformation info = amqpAdmin.getQueueInfo(queue);
+            if (info != null) {
+                depth += info.getMessageCount();
+            }
+        }
+
+        long now = System.nanoTime();
+        double busyNanos = 0;
+        long count = 0;
+        boolean timed = false;
+        for (Timer timer : meterRegistry.find("spring.rabbitmq.listener").tag("listener.id", listenerId).timers()) {
+            busyNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+            count += timer.count();
+            timed = true;
+        }
+        double elapsedNanos = now - state.sampledAtNanos;
+        double utilization = timed && state.sampledAtNanos != 0
+                ? Math.min(1.0, (busyNanos - state.busyNanos) / (elapsedNanos * state.consumers))
+                : Double.NaN;
+        double messagesPerSecond = timed && state.sampledAtNanos != 0 && !container.isConsumerBatchEnabled()
+                ? (count - state.count) / (elapsedNanos / TimeUnit.SECONDS.toNanos(1))
+                : Double.NaN;
+        state.sampledAtNanos = now;
+        state.busyNanos = busyNanos;
+        state.count = count;
+        state.queueDepth = depth;
+
+        boolean ordered = matchesAny(queues, orderedQueuePrefixes);
+        boolean fixedPrefetch = ordered || matchesAny(queues, fixedPrefetchQueuePrefixes);
+        ListenerScalingPolicy.Decision decision = policy.decide(listenerId,
+                new ListenerScalingPolicy.Sample(depth, state.consumers, state.prefetch, utilization, messagesPerSecond, ordered));
+
+        if (decision.consumers() != state.consumers) {
+            log.info("Scaling listener {} from {} to {} consumers ({}, depth {}, utilization {})",
+                    listenerId, state.consumers, decision.consumers(), decision.reason(), depth, utilization);
+            container.setConcurrentConsumers(decision.consumers());
+            action(decision.consumers() > state.consumers ? "scale-up" : "scale-down").increment();
+            state.consumers = decision.consumers();
+        }
+        if (!fixedPrefetch && decision.prefetch() != state.prefetch) {
+            // Consumers only pick up a new prefetch when they start; unacked messages are requeued in order
+            log.info("Changing prefetch of listener {} from {} to {} ({} msg/s)",
+                    listenerId, state.prefetch, decision.prefetch(), messagesPerSecond);
+            container.setPrefetchCount(decision.prefetch());
+            container.stop();
+            container.start();
+            action("prefetch").increment();
+            state.prefetch = decision.prefetch();
+        }
+        state.status = new ListenerStatus(List.of(queues), depth, state.consumers, state.prefetch,
+                utilization, messagesPerSecond, ordered, fixedPrefetch, decision.reason(), Instant.now());
+    }
+
+    private static boolean matchesAny(String[] queues, List<String> prefixes) {
+        return Arrays.stream(queues).anyMatch(queue -> prefixes.stream().anyMatch(queue::startsWith));
+    }
+
+    private ListenerState newState(String listenerId, SimpleMessageListenerContainer container) {
+        ListenerState state = new ListenerState();
+        state.consumers = Math.max(1, container.getActiveConsumerCount());
+        state.prefetch = defaultPrefetch;
+        Gauge.builder("tuum.listeners.consumers", state, s -> s.consumers)
+                .description("Consumers of the listener set by the autoscaler")
+                .tag("listener", listenerId)
+                .register(meterRegistry);
+        Gauge.builder("tuum.listeners.prefetch", state, s -> s.prefetch)
+                .description("Prefetch of the listener set by the autoscaler")
+                .tag("listener", listenerId)
+                .register(meterRegistry);
+        Gauge.builder("tuum.listeners.queue.depth", state, s -> s.queueDepth)
+                .description("Ready messages in the listener's queues at the last sample")
+                .tag("listener", listenerId)
+                .register(meterRegistry);
+        return state;
+    }
+
+    private Counter action(String action) {
+        return Counter.builder("tuum.listeners.scaling")
+                .description("Autoscaler changes to listener consumers and prefetch")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+
+    public record ListenerStatus(List<String> queues, long queueDepth, int consumers, int prefetch,
+                                 double utilization, double messagesPerSecond, boolean ordered,
+                                 boolean fixedPrefetch, String lastDecision, Instant sampledAt) {
+    }
+
+    private static final class ListenerState {
+        volatile int consumers;
+        volatile int prefetch;
+        volatile long queueDepth;
+        volatile ListenerStatus status;
+        long sampledAtNanos;
+        double busyNanos;
+        long count;
+    }
+}
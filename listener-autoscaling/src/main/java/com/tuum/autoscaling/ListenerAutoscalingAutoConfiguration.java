@@ -0,0 +1,19 @@
+package com.tuum.autoscaling;
+
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Registers the {@link ListenerAutoscaler} in a service that has this module on its classpath,
+ * unless {@code tuum.listeners.autoscaling.enabled} is {@code false}.
+ */
+@AutoConfiguration(after = RabbitAutoConfiguration.class)
+@ConditionalOnClass(RabbitListenerEndpointRegistry.class)
+@ConditionalOnProperty(name = "tuum.listeners.autoscaling.enabled", havingValue = "true", matchIfMissing = true)
+@Import(ListenerAutoscaler.class)
+public class ListenerAutoscalingAutoConfiguration {
+}